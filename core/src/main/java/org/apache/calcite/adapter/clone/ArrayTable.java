@@ -41,8 +41,13 @@
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,10 +60,14 @@
  * values in the column; see {@link Representation} and
  * {@link RepresentationType}.
  */
-class ArrayTable extends AbstractQueryableTable implements ScannableTable {
+class ArrayTable extends AbstractQueryableTable
+    implements ScannableTable, AutoCloseable {
   private final RelProtoDataType protoRowType;
   private final Supplier<Content> supplier;
 
+  /** Contents of the table, or null if they have not been loaded. */
+  private volatile Content content;
+
   /** Creates an ArrayTable. */
   ArrayTable(Type elementType, RelProtoDataType protoRowType,
       Supplier<Content> supplier) {
@@ -73,8 +82,8 @@ public RelDataType getRowType(RelDataTypeFactory typeFactory) {
 
   public Statistic getStatistic() {
     final List<ImmutableBitSet> keys = new ArrayList<>();
-    final Content content = supplier.get();
-    for (Ord<Column> ord : Ord.zip(content.columns)) {
+    final Content content = getContent();
+    for (Ord<Column> ord : Ord.zip(content.columns())) {
       if (ord.e.cardinality == content.size) {
         keys.add(ImmutableBitSet.of(ord.i));
       }
@@ -85,7 +94,7 @@ public Statistic getStatistic() {
   public Enumerable<Object[]> scan(DataContext root) {
     return new AbstractEnumerable<Object[]>() {
       public Enumerator<Object[]> enumerator() {
-        final Content content = supplier.get();
+        final Content content = getContent();
         return content.arrayEnumerator();
       }
     };
@@ -97,12 +106,32 @@ public <T> Queryable<T> asQueryable(final QueryProvider queryProvider,
         tableName) {
       @SuppressWarnings("unchecked")
       public Enumerator<T> enumerator() {
-        final Content content = supplier.get();
+        final Content content = getContent();
         return content.enumerator();
       }
     };
   }
 
+  Content getContent() {
+    Content content = this.content;
+    if (content == null) {
+      content = supplier.get();
+      this.content = content;
+    }
+    return content;
+  }
+
+  /** Releases the contents of this table, if they have been loaded. The
+   * table cannot be read after it has been closed.
+   *
+   * @see Content#close() */
+  public void close() {
+    final Content content = this.content;
+    if (content != null) {
+      content.close();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private static <T> Pair<Object, T> toPair(Object dataSet) {
     return (Pair<Object, T>) dataSet;
@@ -172,16 +201,12 @@ enum RepresentationType {
     OBJECT_DICTIONARY,
 
     /**
-     * Compressed string table. Block of char data. Strings represented
-     * using an unsigned offset into the table (stored using one of the
-     * previous methods).
-     *
-     * <p>First 2 bytes are unsigned length; subsequent bytes are string
-     * contents. The null value, strings longer than 64k and strings that
-     * occur very commonly are held in an 'exceptions' array and are
-     * recognized by their high offsets. Other strings are created on demand
-     * (this reduces the number of objects that need to be created during
-     * deserialization from cache.</p>
+     * Compressed string table. The distinct strings are sorted and stored,
+     * encoded as UTF-8, in a direct (off-heap) block of bytes, with an array
+     * of offsets into the block; each row holds the unsigned offset of its
+     * string in the offset array (stored using one of the previous methods).
+     * The null value has the offset after the last string. Strings are
+     * created on demand, so the only objects on the heap are a few buffers.
      *
      * @see StringDictionary
      */
@@ -193,6 +218,22 @@ enum RepresentationType {
      * @see ByteStringDictionary
      */
     BYTE_STRING_DICTIONARY,
+
+    /**
+     * Array of primitives, as {@link #PRIMITIVE_ARRAY}, but stored in a
+     * direct (off-heap) buffer.
+     *
+     * @see DirectPrimitiveArray
+     */
+    DIRECT_PRIMITIVE_ARRAY,
+
+    /**
+     * Bit-sliced primitive array, as {@link #BIT_SLICED_PRIMITIVE_ARRAY}, but
+     * stored in a direct (off-heap) buffer.
+     *
+     * @see DirectBitSlicedPrimitiveArray
+     */
+    DIRECT_BIT_SLICED_PRIMITIVE_ARRAY,
   }
 
   /** Column definition and value set. */
@@ -236,8 +277,11 @@ public int size() {
     }
   }
 
-  /** Representation of the values of a column. */
-  public interface Representation {
+  /** Representation of the values of a column.
+   *
+   * <p>Representations are serializable, so that they can be written to a
+   * snapshot; see {@link ArrayTableSnapshot}. */
+  public interface Representation extends Serializable {
     /** Returns the representation type. */
     RepresentationType getType();
 
@@ -361,6 +405,135 @@ public String toString(Object dataSet) {
     }
   }
 
+  /** Representation that stores the values of a column in an array of
+   * primitive values, as {@link PrimitiveArray}, in a direct (off-heap)
+   * buffer. */
+  public static class DirectPrimitiveArray implements Representation {
+    final int ordinal;
+    private final Primitive primitive;
+    private final Primitive p;
+    private final int width;
+
+    DirectPrimitiveArray(int ordinal, Primitive primitive, Primitive p) {
+      this.ordinal = ordinal;
+      this.primitive = primitive;
+      this.p = p;
+      switch (primitive) {
+      case BYTE:
+        width = Byte.BYTES;
+        break;
+      case SHORT:
+        width = Short.BYTES;
+        break;
+      case INT:
+      case FLOAT:
+        width = Integer.BYTES;
+        break;
+      case LONG:
+      case DOUBLE:
+        width = Long.BYTES;
+        break;
+      default:
+        throw new AssertionError(primitive + " unexpected");
+      }
+    }
+
+    public String toString() {
+      return "DirectPrimitiveArray(ordinal=" + ordinal
+          + ", primitive=" + primitive
+          + ", p=" + p
+          + ")";
+    }
+
+    public RepresentationType getType() {
+      return RepresentationType.DIRECT_PRIMITIVE_ARRAY;
+    }
+
+    public Object freeze(ColumnLoader.ValueSet valueSet, int[] sources) {
+      final List<Comparable> list = permuteList(valueSet.values, sources);
+      final ByteBuffer buffer =
+          ByteBuffer.allocateDirect(directCapacity(list.size(), width));
+      for (int i = 0; i < list.size(); i++) {
+        final Comparable value = list.get(i);
+        final int offset = i * width;
+        switch (primitive) {
+        case BYTE:
+          buffer.put(offset, (byte) ColumnLoader.toLong(value));
+          break;
+        case SHORT:
+          buffer.putShort(offset, (short) ColumnLoader.toLong(value));
+          break;
+        case INT:
+          buffer.putInt(offset, (int) ColumnLoader.toLong(value));
+          break;
+        case LONG:
+          buffer.putLong(offset, ColumnLoader.toLong(value));
+          break;
+        case FLOAT:
+          buffer.putFloat(offset, ((Number) value).floatValue());
+          break;
+        case DOUBLE:
+          buffer.putDouble(offset, ((Number) value).doubleValue());
+          break;
+        }
+      }
+      return buffer;
+    }
+
+    public Object permute(Object dataSet, int[] sources) {
+      final ByteBuffer buffer0 = (ByteBuffer) dataSet;
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(buffer0.limit());
+      for (int i = 0; i < sources.length; i++) {
+        for (int j = 0; j < width; j++) {
+          buffer.put(i * width + j, buffer0.get(sources[i] * width + j));
+        }
+      }
+      return buffer;
+    }
+
+    public Object getObject(Object dataSet, int ordinal) {
+      final ByteBuffer buffer = (ByteBuffer) dataSet;
+      switch (primitive) {
+      case FLOAT:
+        return buffer.getFloat(ordinal * width);
+      case DOUBLE:
+        return buffer.getDouble(ordinal * width);
+      default:
+        return box(p, getLong(buffer, ordinal));
+      }
+    }
+
+    public int getInt(Object dataSet, int ordinal) {
+      return (int) getLong((ByteBuffer) dataSet, ordinal);
+    }
+
+    private long getLong(ByteBuffer buffer, int ordinal) {
+      final int offset = ordinal * width;
+      switch (primitive) {
+      case BYTE:
+        return buffer.get(offset);
+      case SHORT:
+        return buffer.getShort(offset);
+      case INT:
+        return buffer.getInt(offset);
+      case LONG:
+        return buffer.getLong(offset);
+      case FLOAT:
+        return (long) buffer.getFloat(offset);
+      default:
+        return (long) buffer.getDouble(offset);
+      }
+    }
+
+    public int size(Object dataSet) {
+      return ((ByteBuffer) dataSet).limit() / width;
+    }
+
+    public String toString(Object dataSet) {
+      return Column.asList(this, dataSet).toString();
+    }
+  }
+
   /** Representation that stores column values in a dictionary of
    * primitive values, then uses a short code for each row. */
   public static class PrimitiveDictionary implements Representation {
@@ -473,13 +646,21 @@ public String toString(Object dataSet) {
     }
   }
 
-  /** Representation that stores string column values. */
+  /** Representation that stores string column values in a dictionary
+   * outside the heap. */
   public static class StringDictionary implements Representation {
-    StringDictionary() {
+    final int ordinal;
+    final Representation representation;
+
+    StringDictionary(int ordinal, Representation representation) {
+      this.ordinal = ordinal;
+      this.representation = representation;
     }
 
     @Override public String toString() {
-      return "StringDictionary()";
+      return "StringDictionary(ordinal=" + ordinal
+          + ", representation=" + representation
+          + ")";
     }
 
     public RepresentationType getType() {
@@ -487,15 +668,62 @@ public RepresentationType getType() {
     }
 
     public Object freeze(ColumnLoader.ValueSet valueSet, int[] sources) {
-      throw new UnsupportedOperationException(); // TODO:
+      final int n = valueSet.map.keySet().size();
+      final String[] strings =
+          valueSet.map.keySet().toArray(new String[n]);
+      Arrays.sort(strings);
+      final byte[][] bytes = new byte[n][];
+      long byteCount = 0;
+      for (int i = 0; i < n; i++) {
+        bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+        byteCount += bytes[i].length;
+      }
+      final ByteBuffer data =
+          ByteBuffer.allocateDirect(directCapacity(byteCount, 1));
+      final IntBuffer offsets =
+          ByteBuffer.allocateDirect(directCapacity(n + 1L, Integer.BYTES))
+              .asIntBuffer();
+      for (int i = 0; i < n; i++) {
+        offsets.put(i, data.position());
+        data.put(bytes[i]);
+      }
+      offsets.put(n, data.position());
+
+      ColumnLoader.ValueSet codeValueSet =
+          new ColumnLoader.ValueSet(int.class);
+      final List<Comparable> list = permuteList(valueSet.values, sources);
+      for (Comparable value : list) {
+        int code;
+        if (value == null) {
+          code = n;
+        } else {
+          code = Arrays.binarySearch(strings, value);
+          assert code >= 0 : code + ", " + value;
+        }
+        codeValueSet.add(code);
+      }
+      Object codes = representation.freeze(codeValueSet, null);
+      return Pair.of(codes, Pair.of(data, offsets));
     }
 
     public Object permute(Object dataSet, int[] sources) {
-      throw new UnsupportedOperationException(); // TODO:
+      final Pair<Object, Object> pair = toPair(dataSet);
+      return Pair.of(representation.permute(pair.left, sources), pair.right);
     }
 
     public Object getObject(Object dataSet, int ordinal) {
-      throw new UnsupportedOperationException(); // TODO:
+      final Pair<Object, Pair<ByteBuffer, IntBuffer>> pair = toPair(dataSet);
+      final int code = representation.getInt(pair.left, ordinal);
+      final ByteBuffer data = pair.right.left;
+      final IntBuffer offsets = pair.right.right;
+      if (code == offsets.limit() - 1) {
+        return null;
+      }
+      // Duplicate, so that concurrent readers do not share a position
+      final ByteBuffer buffer = data.duplicate();
+      buffer.limit(offsets.get(code + 1));
+      buffer.position(offsets.get(code));
+      return StandardCharsets.UTF_8.decode(buffer).toString();
     }
 
     public int getInt(Object dataSet, int ordinal) {
@@ -503,7 +731,8 @@ public int getInt(Object dataSet, int ordinal) {
     }
 
     public int size(Object dataSet) {
-      throw new UnsupportedOperationException(); // TODO:
+      final Pair<Object, Object> pair = toPair(dataSet);
+      return representation.size(pair.left);
     }
 
     public String toString(Object dataSet) {
@@ -690,10 +919,9 @@ public Object permute(Object dataSet, int[] sources) {
     }
 
     public Object getObject(Object dataSet, int ordinal) {
-      final long[] longs = (long[]) dataSet;
       final int chunksPerWord = 64 / bitCount;
       final int word = ordinal / chunksPerWord;
-      final long v = longs[word];
+      final long v = word(dataSet, word);
       final int chunk = ordinal % chunksPerWord;
       final int mask = (1 << bitCount) - 1;
       final int signMask = 1 << (bitCount - 1);
@@ -703,29 +931,13 @@ public Object getObject(Object dataSet, int ordinal) {
       if (signed && (x & signMask) != 0) {
         x = -x;
       }
-      switch (primitive) {
-      case BOOLEAN:
-        return x != 0;
-      case BYTE:
-        return (byte) x;
-      case CHAR:
-        return (char) x;
-      case SHORT:
-        return (short) x;
-      case INT:
-        return (int) x;
-      case LONG:
-        return x;
-      default:
-        throw new AssertionError(primitive + " unexpected");
-      }
+      return box(primitive, x);
     }
 
     public int getInt(Object dataSet, int ordinal) {
-      final long[] longs = (long[]) dataSet;
       final int chunksPerWord = 64 / bitCount;
       final int word = ordinal / chunksPerWord;
-      final long v = longs[word];
+      final long v = word(dataSet, word);
       final int chunk = ordinal % chunksPerWord;
       final int mask = (1 << bitCount) - 1;
       final int signMask = 1 << (bitCount - 1);
@@ -772,14 +984,110 @@ public static void orLong(
     }
 
     public int size(Object dataSet) {
-      final long[] longs = (long[]) dataSet;
       final int chunksPerWord = 64 / bitCount;
-      return longs.length * chunksPerWord; // may be slightly too high
+      return wordCount(dataSet) * chunksPerWord; // may be slightly too high
     }
 
     public String toString(Object dataSet) {
       return Column.asList(this, dataSet).toString();
     }
+
+    /** Returns the {@code i}th word of a data set. */
+    long word(Object dataSet, int i) {
+      return ((long[]) dataSet)[i];
+    }
+
+    /** Returns the number of words in a data set. */
+    int wordCount(Object dataSet) {
+      return ((long[]) dataSet).length;
+    }
+  }
+
+  /** Representation that stores numeric values in a bit-sliced array, as
+   * {@link BitSlicedPrimitiveArray}, in a direct (off-heap) buffer. */
+  public static class DirectBitSlicedPrimitiveArray
+      extends BitSlicedPrimitiveArray {
+    DirectBitSlicedPrimitiveArray(
+        int ordinal, int bitCount, Primitive primitive, boolean signed) {
+      super(ordinal, bitCount, primitive, signed);
+    }
+
+    @Override public String toString() {
+      return "DirectBitSlicedPrimitiveArray(ordinal=" + ordinal
+          + ", bitCount=" + bitCount
+          + ", primitive=" + primitive
+          + ", signed=" + signed + ")";
+    }
+
+    @Override public RepresentationType getType() {
+      return RepresentationType.DIRECT_BIT_SLICED_PRIMITIVE_ARRAY;
+    }
+
+    @Override public Object freeze(ColumnLoader.ValueSet valueSet,
+        int[] sources) {
+      return toDirect((long[]) super.freeze(valueSet, sources));
+    }
+
+    @Override public Object permute(Object dataSet, int[] sources) {
+      final LongBuffer buffer = (LongBuffer) dataSet;
+      final long[] longs = new long[buffer.limit()];
+      for (int i = 0; i < longs.length; i++) {
+        longs[i] = buffer.get(i);
+      }
+      return toDirect((long[]) super.permute(longs, sources));
+    }
+
+    @Override long word(Object dataSet, int i) {
+      return ((LongBuffer) dataSet).get(i);
+    }
+
+    @Override int wordCount(Object dataSet) {
+      return ((LongBuffer) dataSet).limit();
+    }
+
+    private static LongBuffer toDirect(long[] longs) {
+      final LongBuffer buffer =
+          ByteBuffer.allocateDirect(directCapacity(longs.length, Long.BYTES))
+              .asLongBuffer();
+      buffer.put(longs);
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  /** Converts a value that has been stored as a {@code long} to the type that
+   * a column returns. */
+  private static Object box(Primitive primitive, long x) {
+    switch (primitive) {
+    case BOOLEAN:
+      return x != 0;
+    case BYTE:
+      return (byte) x;
+    case CHAR:
+      return (char) x;
+    case SHORT:
+      return (short) x;
+    case INT:
+      return (int) x;
+    case LONG:
+      return x;
+    default:
+      throw new AssertionError(primitive + " unexpected");
+    }
+  }
+
+  /** Returns the number of bytes in a direct buffer that holds a given
+   * number of values of a given width. Throws if that is more than a buffer
+   * can hold. */
+  private static int directCapacity(long count, int width) {
+    final long bytes = count * width;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("cannot store " + count
+          + " values of " + width + " bytes each outside the heap: "
+          + bytes + " bytes exceeds the limit of " + Integer.MAX_VALUE
+          + " bytes per column");
+    }
+    return (int) bytes;
   }
 
   private static <E> List<E> permuteList(
@@ -799,8 +1107,8 @@ public int size() {
   }
 
   /** Contents of a table. */
-  public static class Content {
-    private final List<Column> columns;
+  public static class Content implements AutoCloseable {
+    private volatile List<Column> columns;
     private final int size;
     private final ImmutableList<RelCollation> collations;
 
@@ -819,8 +1127,39 @@ public static class Content {
               : ImmutableList.of());
     }
 
+    /** Returns the number of rows. */
+    int getSize() {
+      return size;
+    }
+
+    /** Returns the collations of the rows. */
+    List<RelCollation> getCollations() {
+      return collations;
+    }
+
+    /** Returns the columns; throws if this content has been closed. */
+    List<Column> columns() {
+      final List<Column> columns = this.columns;
+      if (columns == null) {
+        throw new IllegalStateException("table has been closed");
+      }
+      return columns;
+    }
+
+    /** Releases the columns.
+     *
+     * <p>Memory held by off-heap representations, such as
+     * {@link DirectPrimitiveArray} and {@link StringDictionary}, is returned
+     * when the buffers that hold it are garbage-collected, which is soon
+     * after they become unreachable because the objects on the heap are
+     * small. Enumerators that are open continue to work. */
+    public void close() {
+      columns = null;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> Enumerator<T> enumerator() {
+      final List<Column> columns = columns();
       if (columns.size() == 1) {
         return (Enumerator<T>) new ObjectEnumerator(size, columns.get(0));
       } else {
@@ -829,7 +1168,7 @@ public <T> Enumerator<T> enumerator() {
     }
 
     public Enumerator<Object[]> arrayEnumerator() {
-      return new ArrayEnumerator(size, columns);
+      return new ArrayEnumerator(size, columns());
     }
 
     /** Enumerator over a table with a single column; each element
@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollations;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.calcite.util.Pair;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the contents of an {@link ArrayTable} to a file, and reads them back
+ * using memory-mapped I/O.
+ *
+ * <p>The file starts with a header that contains a version stamp. If the
+ * stamp in the file is not the stamp that the reader expects (because the
+ * format has changed, or because the caller's stamp has changed, for
+ * instance because the source table has a different row type), the reader
+ * treats the snapshot as missing, and the caller rebuilds it.
+ *
+ * <p>After the header come the contents of the direct buffers used by
+ * off-heap representations (see {@link ArrayTable.DirectPrimitiveArray},
+ * {@link ArrayTable.DirectBitSlicedPrimitiveArray} and
+ * {@link ArrayTable.StringDictionary}), and the serialized form of
+ * representations and of data sets that are on the heap, and then a
+ * description of the columns that references them by offset. On reading,
+ * each buffer is mapped, so reading a snapshot takes time proportional to
+ * the size of the data on the heap, not the size of the table, and the
+ * operating system loads pages as they are accessed.
+ *
+ * <p>Serialized objects and buffers are streamed to and from the file, so
+ * no column, however large, is copied into a single array.
+ *
+ * <p>The last 8 bytes of the file are the offset of the description.
+ */
+class ArrayTableSnapshot {
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(ArrayTableSnapshot.class);
+
+  private static final long MAGIC = 0x43616c6369746553L; // "CalciteS"
+
+  /** Version of the file format. Increment when the format, or the
+   * serialized form of a representation, changes. */
+  private static final int FORMAT_VERSION = 2;
+
+  /** Size of the buffers used to stream serialized objects, and of the
+   * chunks in which int and long buffers are written. */
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  private static final byte NULL = 0;
+  private static final byte OBJECT = 1;
+  private static final byte PAIR = 2;
+  private static final byte BYTE_BUFFER = 3;
+  private static final byte INT_BUFFER = 4;
+  private static final byte LONG_BUFFER = 5;
+
+  private ArrayTableSnapshot() {}
+
+  /** Writes the contents of a table to a file.
+   *
+   * <p>Writes to a temporary file, then renames it, so that a reader never
+   * sees a partial snapshot. */
+  static void write(ArrayTable.Content content, File file, String stamp)
+      throws IOException {
+    final File tempFile = new File(file.getPath() + ".tmp");
+    boolean success = false;
+    try (FileChannel channel =
+             FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING,
+                 StandardOpenOption.WRITE)) {
+      final Writer writer = new Writer(channel);
+      writer.writeHeader(stamp);
+      final DataOutputStream out = writer.description;
+      out.writeInt(content.getSize());
+      out.writeInt(content.getCollations().size());
+      for (RelCollation collation : content.getCollations()) {
+        out.writeInt(collation.getFieldCollations().size());
+        for (RelFieldCollation c : collation.getFieldCollations()) {
+          out.writeInt(c.getFieldIndex());
+          out.writeInt(c.getDirection().ordinal());
+          out.writeInt(c.nullDirection.ordinal());
+        }
+      }
+      final List<ArrayTable.Column> columns = content.columns();
+      out.writeInt(columns.size());
+      for (ArrayTable.Column column : columns) {
+        writer.writeObject(column.representation);
+        out.writeInt(column.cardinality);
+        writer.write(column.dataSet);
+      }
+      writer.finish();
+      success = true;
+    } finally {
+      if (!success) {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    }
+    Files.move(tempFile.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Reads the contents of a table from a file; returns null if the file
+   * does not exist or has a different stamp. */
+  static ArrayTable.Content read(File file, String stamp) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    try (FileChannel channel =
+             FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final Reader reader = new Reader(channel);
+      if (!reader.readHeader(stamp)) {
+        LOGGER.debug("Snapshot {} is stale", file);
+        return null;
+      }
+      final DataInputStream in = reader.description;
+      final int size = in.readInt();
+      final List<RelCollation> collations = new ArrayList<>();
+      for (int i = in.readInt(); i > 0; i--) {
+        final List<RelFieldCollation> fieldCollations = new ArrayList<>();
+        for (int j = in.readInt(); j > 0; j--) {
+          fieldCollations.add(
+              new RelFieldCollation(in.readInt(),
+                  RelFieldCollation.Direction.values()[in.readInt()],
+                  RelFieldCollation.NullDirection.values()[in.readInt()]));
+        }
+        collations.add(RelCollations.of(fieldCollations));
+      }
+      final List<ArrayTable.Column> columns = new ArrayList<>();
+      for (int i = in.readInt(); i > 0; i--) {
+        final ArrayTable.Representation representation =
+            (ArrayTable.Representation) reader.read();
+        final int cardinality = in.readInt();
+        final Object dataSet = reader.read();
+        columns.add(new ArrayTable.Column(representation, dataSet, cardinality));
+      }
+      return new ArrayTable.Content(columns, size, collations);
+    }
+  }
+
+  /** Writes buffers to a file, and everything else to a description that is
+   * appended when the buffers have been written. */
+  private static class Writer {
+    private final FileChannel channel;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream description = new DataOutputStream(bytes);
+
+    Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void writeHeader(String stamp) throws IOException {
+      final byte[] stampBytes = stamp.getBytes(StandardCharsets.UTF_8);
+      final ByteBuffer header =
+          ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES
+              + stampBytes.length);
+      header.putLong(MAGIC)
+          .putInt(FORMAT_VERSION)
+          .putInt(stampBytes.length)
+          .put(stampBytes);
+      header.flip();
+      writeFully(header);
+    }
+
+    void write(Object o) throws IOException {
+      if (o == null) {
+        description.writeByte(NULL);
+      } else if (o instanceof Pair) {
+        final Pair pair = (Pair) o;
+        description.writeByte(PAIR);
+        write(pair.left);
+        write(pair.right);
+      } else if (o instanceof ByteBuffer) {
+        final ByteBuffer buffer = ((ByteBuffer) o).duplicate();
+        buffer.clear();
+        writeBuffer(BYTE_BUFFER, buffer, buffer.limit());
+      } else if (o instanceof IntBuffer) {
+        writeChunks(INT_BUFFER, (IntBuffer) o, Integer.BYTES);
+      } else if (o instanceof LongBuffer) {
+        writeChunks(LONG_BUFFER, (LongBuffer) o, Long.BYTES);
+      } else {
+        writeObject(o);
+      }
+    }
+
+    /** Serializes an object to the file, and writes its offset to the
+     * description. */
+    void writeObject(Object o) throws IOException {
+      final long position = channel.position();
+      // Do not close the streams; that would close the channel.
+      final ObjectOutputStream out =
+          new ObjectOutputStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel),
+                  CHUNK_SIZE));
+      out.writeObject(o);
+      out.flush();
+      description.writeByte(OBJECT);
+      description.writeLong(position);
+    }
+
+    /** Writes the contents of an int or long buffer a chunk at a time, so
+     * that the buffer is not copied all at once. */
+    private void writeChunks(byte type, Buffer buffer, int width)
+        throws IOException {
+      final int count = buffer.limit();
+      description.writeByte(type);
+      description.writeLong(channel.position());
+      description.writeInt(count);
+      final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+      for (int i = 0; i < count;) {
+        final int n = Math.min(count - i, CHUNK_SIZE / width);
+        chunk.clear();
+        if (buffer instanceof IntBuffer) {
+          final IntBuffer part = ((IntBuffer) buffer).duplicate();
+          ((Buffer) part).limit(i + n);
+          ((Buffer) part).position(i);
+          chunk.asIntBuffer().put(part);
+        } else {
+          final LongBuffer part = ((LongBuffer) buffer).duplicate();
+          ((Buffer) part).limit(i + n);
+          ((Buffer) part).position(i);
+          chunk.asLongBuffer().put(part);
+        }
+        ((Buffer) chunk).limit(n * width);
+        writeFully(chunk);
+        i += n;
+      }
+    }
+
+    private void writeBuffer(byte type, ByteBuffer buffer, int count)
+        throws IOException {
+      description.writeByte(type);
+      description.writeLong(channel.position());
+      description.writeInt(count);
+      writeFully(buffer);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    /** Appends the description, and its offset. */
+    void finish() throws IOException {
+      final long offset = channel.position();
+      description.writeLong(offset);
+      description.flush();
+      writeFully(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+  }
+
+  /** Reads a description, and maps the buffers that it references. */
+  private static class Reader {
+    private final FileChannel channel;
+    DataInputStream description;
+
+    Reader(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    boolean readHeader(String stamp) throws IOException {
+      final byte[] stampBytes = stamp.getBytes(StandardCharsets.UTF_8);
+      final ByteBuffer header =
+          ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES
+              + stampBytes.length);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() < Long.BYTES + 2 * Integer.BYTES
+          || header.getLong() != MAGIC
+          || header.getInt() != FORMAT_VERSION
+          || header.getInt() != stampBytes.length
+          || !header.equals(ByteBuffer.wrap(stampBytes))) {
+        return false;
+      }
+      final ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+      final long size = channel.size();
+      channel.read(trailer, size - Long.BYTES);
+      trailer.flip();
+      final long offset = trailer.getLong();
+      final long length = size - Long.BYTES - offset;
+      if (offset < 0 || length < 0 || length > Integer.MAX_VALUE) {
+        throw new IOException("invalid snapshot");
+      }
+      final ByteBuffer bytes = ByteBuffer.allocate((int) length);
+      while (bytes.hasRemaining()) {
+        if (channel.read(bytes, offset + bytes.position()) < 0) {
+          throw new IOException("truncated snapshot");
+        }
+      }
+      description =
+          new DataInputStream(new ByteArrayInputStream(bytes.array()));
+      return true;
+    }
+
+    Object read() throws IOException {
+      final byte type = description.readByte();
+      switch (type) {
+      case NULL:
+        return null;
+      case PAIR:
+        final Object left = read();
+        final Object right = read();
+        return Pair.of(left, right);
+      case OBJECT:
+        channel.position(description.readLong());
+        // Do not close the streams; that would close the channel.
+        final ObjectInputStream in =
+            new ObjectInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel),
+                    CHUNK_SIZE));
+        try {
+          return in.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      case BYTE_BUFFER:
+        return map(description.readLong(), description.readInt());
+      case INT_BUFFER:
+        return map(description.readLong(),
+            (long) description.readInt() * Integer.BYTES).asIntBuffer();
+      case LONG_BUFFER:
+        return map(description.readLong(),
+            (long) description.readInt() * Long.BYTES).asLongBuffer();
+      default:
+        throw new IOException("unknown type " + type);
+      }
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("buffer of " + length
+            + " bytes is too large to map");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+  }
+}
+
+// End ArrayTableSnapshot.java
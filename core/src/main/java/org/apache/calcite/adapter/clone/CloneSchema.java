@@ -34,9 +34,15 @@
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.impl.AbstractSchema;
 
+import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -52,7 +58,14 @@ public class CloneSchema extends AbstractSchema {
   // TODO: implement 'source' property
   // TODO: test Factory
 
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(CloneSchema.class);
+
   private final SchemaPlus sourceSchema;
+  private final boolean offHeap;
+  private final File snapshotDirectory;
+  private final String snapshotVersion;
+  private final int zoneMapBlockSize;
 
   /**
    * Creates a CloneSchema.
@@ -60,8 +73,62 @@ public class CloneSchema extends AbstractSchema {
    * @param sourceSchema JDBC data source
    */
   public CloneSchema(SchemaPlus sourceSchema) {
+    this(sourceSchema, false);
+  }
+
+  /**
+   * Creates a CloneSchema, optionally storing the data outside the heap.
+   *
+   * @param sourceSchema JDBC data source
+   * @param offHeap Whether to store columns outside the heap, if their type
+   *     allows
+   */
+  public CloneSchema(SchemaPlus sourceSchema, boolean offHeap) {
+    this(sourceSchema, offHeap, null, null);
+  }
+
+  /**
+   * Creates a CloneSchema that keeps snapshots of its tables in a directory.
+   *
+   * <p>When a table is first used, it is read from a snapshot, if there is
+   * one and its version matches; otherwise it is loaded from the source, and
+   * a snapshot is written.
+   *
+   * @param sourceSchema JDBC data source
+   * @param offHeap Whether to store columns outside the heap, if their type
+   *     allows
+   * @param snapshotDirectory Directory for snapshots, or null
+   * @param snapshotVersion Version of the source data; required if
+   *     {@code snapshotDirectory} is not null; change it to invalidate
+   *     existing snapshots
+   */
+  public CloneSchema(SchemaPlus sourceSchema, boolean offHeap,
+      File snapshotDirectory, String snapshotVersion) {
+    this(sourceSchema, offHeap, snapshotDirectory, snapshotVersion, 0);
+  }
+
+  /**
+   * Creates a CloneSchema whose tables keep zone maps.
+   *
+   * @param sourceSchema JDBC data source
+   * @param offHeap Whether to store columns outside the heap, if their type
+   *     allows
+   * @param snapshotDirectory Directory for snapshots, or null
+   * @param snapshotVersion Version of the source data; required if
+   *     {@code snapshotDirectory} is not null; change it to invalidate
+   *     existing snapshots
+   * @param zoneMapBlockSize Number of rows in each block of a zone map, or 0
+   *     if tables should not use zone maps
+   */
+  public CloneSchema(SchemaPlus sourceSchema, boolean offHeap,
+      File snapshotDirectory, String snapshotVersion, int zoneMapBlockSize) {
     super();
     this.sourceSchema = sourceSchema;
+    this.offHeap = offHeap;
+    this.snapshotDirectory = snapshotDirectory;
+    this.snapshotVersion = snapshotVersion;
+    checkSnapshotVersion(snapshotDirectory, snapshotVersion);
+    this.zoneMapBlockSize = zoneMapBlockSize;
   }
 
   @Override protected Map<String, Table> getTableMap() {
@@ -83,8 +150,12 @@ private Table createCloneTable(QueryProvider queryProvider,
         sourceTable.asQueryable(queryProvider, sourceSchema, name);
     final JavaTypeFactory typeFactory =
         ((CalciteConnection) queryProvider).getTypeFactory();
+    final File snapshotFile = snapshotDirectory == null
+        ? null
+        : new File(snapshotDirectory, name + ".snapshot");
     return createCloneTable(typeFactory, Schemas.proto(sourceTable),
-        ImmutableList.of(), null, queryable);
+        ImmutableList.of(), null, queryable, offHeap, snapshotFile,
+        snapshotVersion, zoneMapBlockSize);
   }
 
   @Deprecated // to be removed before 2.0
@@ -99,6 +170,69 @@ public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
   public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
       final RelProtoDataType protoRowType, final List<RelCollation> collations,
       final List<ColumnMetaData.Rep> repList, final Enumerable<T> source) {
+    return createCloneTable(typeFactory, protoRowType, collations, repList,
+        source, false);
+  }
+
+  /** Creates a table that holds a copy of the data in {@code source}.
+   *
+   * <p>If {@code offHeap}, numeric columns that do not contain null, and
+   * string columns, are stored in direct buffers, outside the heap. The
+   * table implements {@link AutoCloseable}; closing it releases the data. */
+  public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
+      final RelProtoDataType protoRowType, final List<RelCollation> collations,
+      final List<ColumnMetaData.Rep> repList, final Enumerable<T> source,
+      final boolean offHeap) {
+    return createCloneTable(typeFactory, protoRowType, collations, repList,
+        source, offHeap, null, null);
+  }
+
+  private static void checkSnapshotVersion(File snapshotFile,
+      String snapshotVersion) {
+    if (snapshotFile != null
+        && (snapshotVersion == null || snapshotVersion.isEmpty())) {
+      throw new IllegalArgumentException("snapshotVersion is required when "
+          + "snapshots are enabled; set it to a value that changes whenever "
+          + "the source data changes");
+    }
+  }
+
+  /** Creates a table that holds a copy of the data in {@code source}, and
+   * that uses a snapshot file.
+   *
+   * <p>If {@code snapshotFile} is not null, the first time that the table is
+   * used, it reads the data from the file, using memory-mapped I/O, if the
+   * file exists and was written with the same version, row type and
+   * options; otherwise it loads the data from {@code source} and writes the
+   * file. Failure to read or write the file is logged, and the table loads
+   * from {@code source}.
+   *
+   * <p>Calcite cannot tell whether the data in {@code source} has changed,
+   * so {@code snapshotVersion} is required if {@code snapshotFile} is not
+   * null; change it whenever the source data changes. */
+  public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
+      final RelProtoDataType protoRowType, final List<RelCollation> collations,
+      final List<ColumnMetaData.Rep> repList, final Enumerable<T> source,
+      final boolean offHeap, final File snapshotFile,
+      final String snapshotVersion) {
+    return createCloneTable(typeFactory, protoRowType, collations, repList,
+        source, offHeap, snapshotFile, snapshotVersion, 0);
+  }
+
+  /** Creates a table that holds a copy of the data in {@code source}, that
+   * uses a snapshot file, and that optionally uses zone maps.
+   *
+   * <p>If {@code zoneMapBlockSize} is positive, the table implements
+   * {@link org.apache.calcite.schema.ProjectableFilterableTable}. It divides
+   * its rows into blocks of that size, and when it is scanned with filters,
+   * skips blocks whose minimum and maximum values show that no row can
+   * satisfy the filters. */
+  public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
+      final RelProtoDataType protoRowType, final List<RelCollation> collations,
+      final List<ColumnMetaData.Rep> repList, final Enumerable<T> source,
+      final boolean offHeap, final File snapshotFile,
+      final String snapshotVersion, final int zoneMapBlockSize) {
+    checkSnapshotVersion(snapshotFile, snapshotVersion);
     final Type elementType;
     if (source instanceof QueryableTable) {
       elementType = ((QueryableTable) source).getElementType();
@@ -111,21 +245,49 @@ public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
     } else {
       elementType = Object[].class;
     }
-    return new ArrayTable(
-        elementType,
-        protoRowType,
+    final Supplier<ArrayTable.Content> supplier =
         Suppliers.memoize(() -> {
+          final String stamp = snapshotVersion + "\n"
+              + protoRowType.apply(typeFactory).getFullTypeString() + "\n"
+              + collations + "\n"
+              + repList + "\n"
+              + "offHeap=" + offHeap;
+          if (snapshotFile != null) {
+            try {
+              final ArrayTable.Content content =
+                  ArrayTableSnapshot.read(snapshotFile, stamp);
+              if (content != null) {
+                return content;
+              }
+            } catch (IOException e) {
+              LOGGER.warn("Could not read snapshot {}", snapshotFile, e);
+            }
+          }
           final ColumnLoader loader =
               new ColumnLoader<>(typeFactory, source, protoRowType,
-                  repList);
+                  repList, offHeap);
           final List<RelCollation> collation2 =
               collations.isEmpty()
                   && loader.sortField >= 0
                   ? RelCollations.createSingleton(loader.sortField)
                   : collations;
-          return new ArrayTable.Content(loader.representationValues,
-              loader.size(), collation2);
-        }));
+          final ArrayTable.Content content =
+              new ArrayTable.Content(loader.representationValues,
+                  loader.size(), collation2);
+          if (snapshotFile != null) {
+            try {
+              ArrayTableSnapshot.write(content, snapshotFile, stamp);
+            } catch (IOException e) {
+              LOGGER.warn("Could not write snapshot {}", snapshotFile, e);
+            }
+          }
+          return content;
+        });
+    if (zoneMapBlockSize > 0) {
+      return new FilterableArrayTable(elementType, protoRowType, supplier,
+          zoneMapBlockSize);
+    }
+    return new ArrayTable(elementType, protoRowType, supplier);
   }
 
   /** Schema factory that creates a
@@ -145,11 +307,29 @@ public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
    *         jdbcDriver: 'com.mysql.jdbc.Driver',
    *         jdbcUrl: 'jdbc:mysql://localhost/foodmart',
    *         jdbcUser: 'foodmart',
-   *         jdbcPassword: 'foodmart'
+   *         jdbcPassword: 'foodmart',
+   *         offHeap: true,
+   *         snapshotDirectory: '/var/cache/foodmart',
+   *         snapshotVersion: '2019-01-31',
+   *         zoneMapBlockSize: 65536
    *       }
    *     }
    *   ]
    * }</pre></blockquote>
+   *
+   * <p>If the optional {@code offHeap} operand is true, columns are stored
+   * outside the Java heap where their type allows.
+   *
+   * <p>If the optional {@code snapshotDirectory} operand is set, each table
+   * is written to a file in that directory after it has been loaded, and is
+   * read from that file, rather than from the JDBC source, when the schema is
+   * next created. If {@code snapshotDirectory} is set, the
+   * {@code snapshotVersion} operand is required; change it whenever the
+   * source data changes, to force tables to be loaded from the source.
+   *
+   * <p>If the optional {@code zoneMapBlockSize} operand is set, tables
+   * record the minimum and maximum value of each column in each block of
+   * that many rows, and scans with filters skip blocks that cannot match.
    */
   public static class Factory implements SchemaFactory {
     public Schema create(
@@ -159,7 +339,15 @@ public Schema create(
       SchemaPlus schema =
           parentSchema.add(name,
               JdbcSchema.create(parentSchema, name + "$source", operand));
-      return new CloneSchema(schema);
+      final String snapshotDirectory =
+          (String) operand.get("snapshotDirectory");
+      final Number zoneMapBlockSize =
+          (Number) operand.get("zoneMapBlockSize");
+      return new CloneSchema(schema,
+          Boolean.TRUE.equals(operand.get("offHeap")),
+          snapshotDirectory == null ? null : new File(snapshotDirectory),
+          (String) operand.get("snapshotVersion"),
+          zoneMapBlockSize == null ? 0 : zoneMapBlockSize.intValue());
     }
   }
 }
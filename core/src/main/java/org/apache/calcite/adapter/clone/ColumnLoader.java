@@ -55,6 +55,7 @@
   public final List<T> list = new ArrayList<>();
   public final List<ArrayTable.Column> representationValues = new ArrayList<>();
   private final JavaTypeFactory typeFactory;
+  private final boolean offHeap;
   public final int sortField;
 
   /** Creates a column loader, and performs the load.
@@ -67,7 +68,24 @@
       Enumerable<T> sourceTable,
       RelProtoDataType protoRowType,
       List<ColumnMetaData.Rep> repList) {
+    this(typeFactory, sourceTable, protoRowType, repList, false);
+  }
+
+  /** Creates a column loader, and performs the load.
+   *
+   * @param typeFactory Type factory
+   * @param sourceTable Source data
+   * @param protoRowType Logical row type
+   * @param repList Physical row types, or null if not known
+   * @param offHeap Whether to store columns outside the heap, if their type
+   *     allows */
+  ColumnLoader(JavaTypeFactory typeFactory,
+      Enumerable<T> sourceTable,
+      RelProtoDataType protoRowType,
+      List<ColumnMetaData.Rep> repList,
+      boolean offHeap) {
     this.typeFactory = typeFactory;
+    this.offHeap = offHeap;
     final RelDataType rowType = protoRowType.apply(typeFactory);
     if (repList == null) {
       repList =
@@ -220,7 +238,7 @@ public int size() {
           }
         }
       }
-      representationValues.add(valueSet.freeze(pair.i, sources));
+      representationValues.add(valueSet.freeze(pair.i, sources, offHeap));
     }
   }
 
@@ -264,6 +282,20 @@ private static List wrap(ColumnMetaData.Rep rep, List list,
     return list;
   }
 
+  /** Converts a value of a fixed-precision primitive type to a
+   * {@code long}. */
+  static long toLong(Object o) {
+    // We treat Boolean and Character as if they were subclasses of
+    // Number but actually they are not.
+    if (o instanceof Boolean) {
+      return (Boolean) o ? 1 : 0;
+    } else if (o instanceof Character) {
+      return (long) (Character) o;
+    } else {
+      return ((Number) o).longValue();
+    }
+  }
+
   /**
    * Set of values of a column, created during the load process, and converted
    * to a serializable (and more compact) form before load completes.
@@ -305,13 +337,25 @@ void add(Comparable e) {
     /** Freezes the contents of this value set into a column, optionally
      * re-ordering if {@code sources} is specified. */
     ArrayTable.Column freeze(int ordinal, int[] sources) {
-      ArrayTable.Representation representation = chooseRep(ordinal);
+      return freeze(ordinal, sources, false);
+    }
+
+    /** Freezes the contents of this value set into a column, optionally
+     * re-ordering if {@code sources} is specified, and optionally outside
+     * the heap. */
+    ArrayTable.Column freeze(int ordinal, int[] sources, boolean offHeap) {
+      ArrayTable.Representation representation = chooseRep(ordinal, offHeap);
       final int cardinality = map.size() + (containsNull ? 1 : 0);
       final Object data = representation.freeze(this, sources);
       return new ArrayTable.Column(representation, data, cardinality);
     }
 
-    ArrayTable.Representation chooseRep(int ordinal) {
+    /** Chooses a representation for this value set.
+     *
+     * <p>If {@code offHeap}, numeric columns that do not contain null and
+     * string columns are stored outside the heap; other columns are stored
+     * on the heap, as if {@code offHeap} were false. */
+    ArrayTable.Representation chooseRep(int ordinal, boolean offHeap) {
       Primitive primitive = Primitive.of(clazz);
       Primitive boxPrimitive = Primitive.ofBox(clazz);
       Primitive p = primitive != null ? primitive : boxPrimitive;
@@ -319,45 +363,41 @@ ArrayTable.Representation chooseRep(int ordinal) {
         switch (p) {
         case FLOAT:
         case DOUBLE:
-          return new ArrayTable.PrimitiveArray(ordinal, p, p);
+          return offHeap
+              ? new ArrayTable.DirectPrimitiveArray(ordinal, p, p)
+              : new ArrayTable.PrimitiveArray(ordinal, p, p);
         case OTHER:
         case VOID:
           throw new AssertionError("wtf?!");
         }
         if (canBeLong(min) && canBeLong(max)) {
           return chooseFixedRep(
-              ordinal, p, toLong(min), toLong(max));
+              ordinal, p, toLong(min), toLong(max), offHeap);
         }
       }
 
+      final int codeCount = map.size() + (containsNull ? 1 : 0);
+      if (offHeap && clazz == String.class && !values.isEmpty()) {
+        final ArrayTable.Representation representation =
+            chooseFixedRep(-1, Primitive.INT, 0, codeCount - 1, true);
+        return new ArrayTable.StringDictionary(ordinal, representation);
+      }
+
       // We don't want to use a dictionary if:
       // (a) there are so many values that an object pointer (with one
       //     indirection) has about as many bits as a code (with two
       //     indirections); or
       // (b) if there are very few copies of each value.
       // The condition kind of captures this, but needs to be tuned.
-      final int codeCount = map.size() + (containsNull ? 1 : 0);
       final int codeBitCount = log2(nextPowerOf2(codeCount));
       if (codeBitCount < 10 && values.size() > 2000) {
         final ArrayTable.Representation representation =
-            chooseFixedRep(-1, Primitive.INT, 0, codeCount - 1);
+            chooseFixedRep(-1, Primitive.INT, 0, codeCount - 1, false);
         return new ArrayTable.ObjectDictionary(ordinal, representation);
       }
       return new ArrayTable.ObjectArray(ordinal);
     }
 
-    private long toLong(Object o) {
-      // We treat Boolean and Character as if they were subclasses of
-      // Number but actually they are not.
-      if (o instanceof Boolean) {
-        return (Boolean) o ? 1 : 0;
-      } else if (o instanceof Character) {
-        return (long) (Character) o;
-      } else {
-        return ((Number) o).longValue();
-      }
-    }
-
     private boolean canBeLong(Object o) {
       return o instanceof Boolean
           || o instanceof Character
@@ -372,9 +412,10 @@ private boolean canBeLong(Object o) {
      *     same as they will be stored)
      * @param min Minimum value to be encoded
      * @param max Maximum value to be encoded (inclusive)
+     * @param offHeap Whether to store values outside the heap
      */
     private ArrayTable.Representation chooseFixedRep(
-        int ordinal, Primitive p, long min, long max) {
+        int ordinal, Primitive p, long min, long max, boolean offHeap) {
       if (min == max) {
         return new ArrayTable.Constant(ordinal);
       }
@@ -403,23 +444,34 @@ private ArrayTable.Representation chooseFixedRep(
         bitCount = 64;
       }
       if (signed) {
+        final Primitive primitive;
         switch (bitCount) {
         case 8:
-          return new ArrayTable.PrimitiveArray(
-              ordinal, Primitive.BYTE, p);
+          primitive = Primitive.BYTE;
+          break;
         case 16:
-          return new ArrayTable.PrimitiveArray(
-              ordinal, Primitive.SHORT, p);
+          primitive = Primitive.SHORT;
+          break;
         case 32:
-          return new ArrayTable.PrimitiveArray(
-              ordinal, Primitive.INT, p);
+          primitive = Primitive.INT;
+          break;
         case 64:
-          return new ArrayTable.PrimitiveArray(
-              ordinal, Primitive.LONG, p);
+          primitive = Primitive.LONG;
+          break;
+        default:
+          primitive = null;
+        }
+        if (primitive != null) {
+          return offHeap
+              ? new ArrayTable.DirectPrimitiveArray(ordinal, primitive, p)
+              : new ArrayTable.PrimitiveArray(ordinal, primitive, p);
         }
       }
-      return new ArrayTable.BitSlicedPrimitiveArray(
-          ordinal, bitCount, p, signed);
+      return offHeap
+          ? new ArrayTable.DirectBitSlicedPrimitiveArray(
+              ordinal, bitCount, p, signed)
+          : new ArrayTable.BitSlicedPrimitiveArray(
+              ordinal, bitCount, p, signed);
     }
 
     /** Two's complement absolute on int value. */
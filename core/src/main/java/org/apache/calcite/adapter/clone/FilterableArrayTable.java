@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelProtoDataType;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+
+import com.google.common.base.Supplier;
+
+import java.lang.reflect.Type;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@link ArrayTable} that uses zone maps to skip blocks of rows that cannot
+ * satisfy the filters of a scan.
+ *
+ * <p>The zone map of a column is computed the first time that a filter
+ * references the column. The table does not evaluate the filters; it leaves
+ * them for the caller to evaluate on the rows that it returns.
+ */
+class FilterableArrayTable extends ArrayTable
+    implements ProjectableFilterableTable {
+  /** Default number of rows in a block. */
+  static final int DEFAULT_BLOCK_SIZE = 65_536;
+
+  private final int blockSize;
+
+  /** Zone map of each column, or null if not computed yet. */
+  private ZoneMap[] zoneMaps;
+  private Content zoneMapContent;
+
+  /** Creates a FilterableArrayTable. */
+  FilterableArrayTable(Type elementType, RelProtoDataType protoRowType,
+      Supplier<Content> supplier, int blockSize) {
+    super(elementType, protoRowType, supplier);
+    this.blockSize = blockSize;
+  }
+
+  public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters,
+      final int[] projects) {
+    final Content content = getContent();
+    final List<Column> columns = content.columns();
+    final ZoneMap[] zoneMaps =
+        zoneMaps(content, RelOptUtil.InputFinder.bits(filters, null));
+    final int blockCount = ZoneMap.blockCount(content.getSize(), blockSize);
+    final BitSet blocks = new BitSet(blockCount);
+    blocks.set(0, blockCount);
+    for (RexNode filter : filters) {
+      for (int block = blocks.nextSetBit(0); block >= 0;
+           block = blocks.nextSetBit(block + 1)) {
+        if (!ZoneMap.mayMatch(zoneMaps, block, filter)) {
+          blocks.clear(block);
+        }
+      }
+    }
+    final int[] fields;
+    if (projects == null) {
+      fields = new int[columns.size()];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = i;
+      }
+    } else {
+      fields = projects;
+    }
+    return new AbstractEnumerable<Object[]>() {
+      public Enumerator<Object[]> enumerator() {
+        return new BlockEnumerator(content.getSize(), columns, fields,
+            blocks);
+      }
+    };
+  }
+
+  /** Returns the zone maps, ensuring that those of the given columns have
+   * been computed. */
+  private synchronized ZoneMap[] zoneMaps(Content content,
+      Iterable<Integer> fields) {
+    if (zoneMapContent != content) {
+      zoneMaps = new ZoneMap[content.columns().size()];
+      zoneMapContent = content;
+    }
+    for (int field : fields) {
+      if (zoneMaps[field] == null) {
+        zoneMaps[field] =
+            ZoneMap.of(content.columns().get(field), content.getSize(),
+                blockSize);
+      }
+    }
+    return zoneMaps.clone();
+  }
+
+  /** Enumerator over the rows of some blocks of a table; each element
+   * returned is an array of some of the columns. */
+  private class BlockEnumerator implements Enumerator<Object[]> {
+    final int rowCount;
+    final List<Column> columns;
+    final int[] fields;
+    final BitSet blocks;
+    int i = -1;
+
+    BlockEnumerator(int rowCount, List<Column> columns, int[] fields,
+        BitSet blocks) {
+      this.rowCount = rowCount;
+      this.columns = columns;
+      this.fields = fields;
+      this.blocks = blocks;
+    }
+
+    public Object[] current() {
+      final Object[] objects = new Object[fields.length];
+      for (int j = 0; j < fields.length; j++) {
+        final Column column = columns.get(fields[j]);
+        objects[j] = column.representation.getObject(column.dataSet, i);
+      }
+      return objects;
+    }
+
+    public boolean moveNext() {
+      ++i;
+      if (i % blockSize == 0 || i >= rowCount) {
+        // Start of a block; skip to the next block that may match
+        final int block = blocks.nextSetBit(i / blockSize);
+        if (block < 0) {
+          i = rowCount;
+          return false;
+        }
+        i = Math.max(i, block * blockSize);
+      }
+      return i < rowCount;
+    }
+
+    public void reset() {
+      i = -1;
+    }
+
+    public void close() {
+    }
+  }
+}
+
+// End FilterableArrayTable.java
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Minimum value, maximum value and number of nulls of a column in each block
+ * of rows of an {@link ArrayTable}.
+ *
+ * <p>A scan with a filter can skip a block if the statistics of the block
+ * show that no row in it can satisfy the filter; see
+ * {@link #mayMatch(ZoneMap[], int, RexNode)}.
+ */
+class ZoneMap {
+  final int blockSize;
+  private final Comparable[] mins;
+  private final Comparable[] maxes;
+  private final int[] nullCounts;
+
+  private ZoneMap(int blockSize, Comparable[] mins, Comparable[] maxes,
+      int[] nullCounts) {
+    this.blockSize = blockSize;
+    this.mins = mins;
+    this.maxes = maxes;
+    this.nullCounts = nullCounts;
+  }
+
+  /** Computes the zone map of a column. */
+  static ZoneMap of(ArrayTable.Column column, int rowCount, int blockSize) {
+    final int blockCount = blockCount(rowCount, blockSize);
+    final Comparable[] mins = new Comparable[blockCount];
+    final Comparable[] maxes = new Comparable[blockCount];
+    final int[] nullCounts = new int[blockCount];
+    for (int i = 0; i < rowCount; i++) {
+      final Comparable value = (Comparable)
+          column.representation.getObject(column.dataSet, i);
+      final int block = i / blockSize;
+      if (value == null) {
+        ++nullCounts[block];
+      } else {
+        //noinspection unchecked
+        if (mins[block] == null || value.compareTo(mins[block]) < 0) {
+          mins[block] = value;
+        }
+        //noinspection unchecked
+        if (maxes[block] == null || value.compareTo(maxes[block]) > 0) {
+          maxes[block] = value;
+        }
+      }
+    }
+    return new ZoneMap(blockSize, mins, maxes, nullCounts);
+  }
+
+  static int blockCount(int rowCount, int blockSize) {
+    return (rowCount + blockSize - 1) / blockSize;
+  }
+
+  /** Returns whether any row in a block may satisfy a filter.
+   *
+   * <p>Understands AND, OR, IS NULL, IS NOT NULL, and comparisons between a
+   * column and a literal; any other condition may match.
+   *
+   * @param zoneMaps Zone map of each column
+   * @param block Block ordinal
+   * @param filter Filter condition, whose input is the row of the table */
+  static boolean mayMatch(ZoneMap[] zoneMaps, int block, RexNode filter) {
+    switch (filter.getKind()) {
+    case AND:
+      for (RexNode operand : ((RexCall) filter).getOperands()) {
+        if (!mayMatch(zoneMaps, block, operand)) {
+          return false;
+        }
+      }
+      return true;
+    case OR:
+      for (RexNode operand : ((RexCall) filter).getOperands()) {
+        if (mayMatch(zoneMaps, block, operand)) {
+          return true;
+        }
+      }
+      return false;
+    case IS_NULL:
+    case IS_NOT_NULL:
+      final RexNode operand = ((RexCall) filter).getOperands().get(0);
+      if (operand instanceof RexInputRef) {
+        final ZoneMap zoneMap = zoneMaps[((RexInputRef) operand).getIndex()];
+        return filter.getKind() == SqlKind.IS_NULL
+            ? zoneMap.nullCounts[block] > 0
+            : zoneMap.maxes[block] != null;
+      }
+      return true;
+    case EQUALS:
+    case LESS_THAN:
+    case LESS_THAN_OR_EQUAL:
+    case GREATER_THAN:
+    case GREATER_THAN_OR_EQUAL:
+      final List<RexNode> operands = ((RexCall) filter).getOperands();
+      if (operands.get(0) instanceof RexInputRef
+          && operands.get(1) instanceof RexLiteral) {
+        return mayMatch(zoneMaps, block, filter.getKind(),
+            (RexInputRef) operands.get(0), (RexLiteral) operands.get(1));
+      }
+      if (operands.get(1) instanceof RexInputRef
+          && operands.get(0) instanceof RexLiteral) {
+        return mayMatch(zoneMaps, block, filter.getKind().reverse(),
+            (RexInputRef) operands.get(1), (RexLiteral) operands.get(0));
+      }
+      return true;
+    default:
+      return true;
+    }
+  }
+
+  private static boolean mayMatch(ZoneMap[] zoneMaps, int block, SqlKind kind,
+      RexInputRef ref, RexLiteral literal) {
+    final ZoneMap zoneMap = zoneMaps[ref.getIndex()];
+    final Comparable min = zoneMap.mins[block];
+    final Comparable max = zoneMap.maxes[block];
+    if (min == null) {
+      // All values in the block are null, and comparisons with null are
+      // never true
+      return false;
+    }
+    final Comparable value = value(literal);
+    if (value == null) {
+      // Comparison with a null literal is never true
+      return !literal.isNull();
+    }
+    final Integer cMin = compare(min, value);
+    final Integer cMax = compare(max, value);
+    if (cMin == null || cMax == null) {
+      return true;
+    }
+    switch (kind) {
+    case EQUALS:
+      return cMin <= 0 && cMax >= 0;
+    case LESS_THAN:
+      return cMin < 0;
+    case LESS_THAN_OR_EQUAL:
+      return cMin <= 0;
+    case GREATER_THAN:
+      return cMax > 0;
+    case GREATER_THAN_OR_EQUAL:
+      return cMax >= 0;
+    default:
+      throw new AssertionError(kind);
+    }
+  }
+
+  /** Returns the value of a literal in the form that {@link ArrayTable}
+   * stores values of its type, or null if the literal is null or its type is
+   * not supported. */
+  private static Comparable value(RexLiteral literal) {
+    if (literal.isNull()) {
+      return null;
+    }
+    final SqlTypeName typeName = literal.getType().getSqlTypeName();
+    switch (typeName) {
+    case TINYINT:
+    case SMALLINT:
+    case INTEGER:
+    case BIGINT:
+    case DECIMAL:
+    case FLOAT:
+    case REAL:
+    case DOUBLE:
+      return literal.getValueAs(BigDecimal.class);
+    case VARCHAR:
+    case DATE:
+    case TIME:
+    case TIMESTAMP:
+      return (Comparable) literal.getValue2();
+    case BOOLEAN:
+      return literal.getValueAs(Boolean.class);
+    default:
+      // CHAR values are padded, so do not compare like Java strings
+      return null;
+    }
+  }
+
+  /** Compares a value from a column with the value of a literal; returns
+   * null if they are not comparable. */
+  private static Integer compare(Comparable columnValue, Comparable value) {
+    if (value instanceof BigDecimal) {
+      final BigDecimal d;
+      if (columnValue instanceof BigDecimal) {
+        d = (BigDecimal) columnValue;
+      } else if (columnValue instanceof Long
+          || columnValue instanceof Integer
+          || columnValue instanceof Short
+          || columnValue instanceof Byte) {
+        d = BigDecimal.valueOf(((Number) columnValue).longValue());
+      } else if (columnValue instanceof Double
+          || columnValue instanceof Float) {
+        final double v = ((Number) columnValue).doubleValue();
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+          return null;
+        }
+        d = BigDecimal.valueOf(v);
+      } else {
+        return null;
+      }
+      return d.compareTo((BigDecimal) value);
+    }
+    if (columnValue.getClass() != value.getClass()) {
+      return null;
+    }
+    //noinspection unchecked
+    return columnValue.compareTo(value);
+  }
+}
+
+// End ZoneMap.java
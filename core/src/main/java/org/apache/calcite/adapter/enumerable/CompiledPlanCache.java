@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.linq4j.Queryable;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.Window;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexDynamicParam;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.runtime.Bindable;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.impl.AggregateFunctionImpl;
+import org.apache.calcite.schema.impl.ReflectiveFunctionBase;
+import org.apache.calcite.sql.SqlExplainLevel;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.sql.validate.SqlUserDefinedAggFunction;
+import org.apache.calcite.sql.validate.SqlUserDefinedFunction;
+import org.apache.calcite.sql.validate.SqlUserDefinedTableFunction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of compiled {@link Bindable} objects, keyed by a digest of the
+ * physical plan that they were generated from.
+ *
+ * <p>A hit skips code generation as well as compilation; the cache keyed by
+ * Java source in {@link EnumerableInterpretable} only skips compilation.
+ *
+ * <p>The digest consists of the plan's explain string (at level
+ * {@link SqlExplainLevel#DIGEST_ATTRIBUTES}), row types, the types of dynamic
+ * parameters, the implementation classes of tables and user-defined
+ * functions, and the internal parameters that affect code generation. Plans that contain
+ * relational expressions of other calling conventions (such as JDBC),
+ * user-defined functions that are not backed by a Java method, or that
+ * stash objects in the data context, are not cached, because generated code
+ * for them depends on more than the digest.
+ *
+ * @see org.apache.calcite.config.CalciteSystemProperty#BINDABLE_PLAN_CACHE_MAX_SIZE
+ */
+public class CompiledPlanCache {
+  private final Cache<String, CompiledPlan> cache;
+
+  /** Creates a CompiledPlanCache.
+   *
+   * @param maximumSize Maximum number of plans
+   * @param expireAfterAccessSeconds Number of seconds after which a plan that
+   *                                 has not been used is removed, or 0 if
+   *                                 plans do not expire
+   */
+  public CompiledPlanCache(long maximumSize, long expireAfterAccessSeconds) {
+    final CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats();
+    if (expireAfterAccessSeconds > 0) {
+      builder.expireAfterAccess(expireAfterAccessSeconds, TimeUnit.SECONDS);
+    }
+    this.cache = builder.build();
+  }
+
+  /** Returns hit, miss and eviction statistics. Only look-ups of plans that
+   * can be cached are counted. */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /** Returns the number of plans in the cache. */
+  public long size() {
+    return cache.size();
+  }
+
+  /** Removes all plans. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  CompiledPlan get(String key) {
+    return cache.getIfPresent(key);
+  }
+
+  void put(String key, CompiledPlan plan) {
+    cache.put(key, plan);
+  }
+
+  /** Returns the key under which to cache the code generated for a plan, or
+   * null if the plan cannot be cached.
+   *
+   * @param rel Root of the physical plan
+   * @param prefer Preferred row format of the root
+   * @param parameters Internal parameters, before code generation
+   */
+  static String key(EnumerableRel rel, EnumerableRel.Prefer prefer,
+      Map<String, Object> parameters) {
+    final StringBuilder b = new StringBuilder();
+    b.append(prefer)
+        .append('\n')
+        .append(new TreeMap<>(parameters))
+        .append('\n')
+        .append(RelOptUtil.toString(rel, SqlExplainLevel.DIGEST_ATTRIBUTES));
+    return addDetails(rel, b) ? b.toString() : null;
+  }
+
+  /** Appends to a digest the details of a relational expression and its
+   * inputs that its explain string omits. Returns false if the expression
+   * cannot be cached. */
+  private static boolean addDetails(RelNode rel, StringBuilder b) {
+    if (!(rel.getConvention() instanceof EnumerableConvention)) {
+      return false;
+    }
+    b.append('\n').append(rel.getRowType().getFullTypeString());
+    final RelOptTable relOptTable = rel.getTable();
+    if (relOptTable != null) {
+      final Table table = relOptTable.unwrap(Table.class);
+      if (table == null) {
+        return false;
+      }
+      // Generated code accesses the table via this expression, which may,
+      // for example, cast the schema to a particular class
+      final Expression expression = relOptTable.getExpression(Queryable.class);
+      b.append(" table=").append(table.getClass().getName())
+          .append(" elementType=")
+          .append(EnumerableTableScan.deduceElementType(table).getName())
+          .append(" expression=")
+          .append(expression == null ? null : Expressions.toString(expression));
+    }
+    final ExpressionDetails details = new ExpressionDetails(b);
+    rel.accept(details);
+    if (rel instanceof Aggregate) {
+      for (AggregateCall aggCall : ((Aggregate) rel).getAggCallList()) {
+        details.addOperator(aggCall.getAggregation());
+      }
+    }
+    if (rel instanceof Window) {
+      // The explain string shows constants only by ordinal
+      b.append(" constants=").append(((Window) rel).constants);
+      for (Window.Group group : ((Window) rel).groups) {
+        for (Window.RexWinAggCall aggCall : group.aggCalls) {
+          aggCall.accept(details);
+        }
+      }
+    }
+    if (!details.cacheable) {
+      return false;
+    }
+    for (RelNode input : rel.getInputs()) {
+      if (!addDetails(input, b)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Code generated for a plan. */
+  static class CompiledPlan {
+    final String source;
+    final Bindable bindable;
+
+    CompiledPlan(String source, Bindable bindable) {
+      this.source = Objects.requireNonNull(source);
+      this.bindable = Objects.requireNonNull(bindable);
+    }
+  }
+
+  /** Shuttle that appends to a digest the types of dynamic parameters and the
+   * implementations of user-defined functions. */
+  private static class ExpressionDetails extends RexShuttle {
+    private final StringBuilder b;
+    boolean cacheable = true;
+
+    ExpressionDetails(StringBuilder b) {
+      this.b = b;
+    }
+
+    @Override public RexNode visitDynamicParam(RexDynamicParam dynamicParam) {
+      b.append(' ').append(dynamicParam.getName()).append(':')
+          .append(dynamicParam.getType().getFullTypeString());
+      return dynamicParam;
+    }
+
+    @Override public RexNode visitCall(RexCall call) {
+      addOperator(call.getOperator());
+      return super.visitCall(call);
+    }
+
+    void addOperator(SqlOperator operator) {
+      final Object function;
+      if (operator instanceof SqlUserDefinedFunction) {
+        function = ((SqlUserDefinedFunction) operator).getFunction();
+      } else if (operator instanceof SqlUserDefinedAggFunction) {
+        function = ((SqlUserDefinedAggFunction) operator).function;
+      } else if (operator instanceof SqlUserDefinedTableFunction) {
+        function = ((SqlUserDefinedTableFunction) operator).getFunction();
+      } else {
+        return;
+      }
+      if (function instanceof ReflectiveFunctionBase) {
+        b.append(' ').append(((ReflectiveFunctionBase) function).method);
+      } else if (function instanceof AggregateFunctionImpl) {
+        b.append(' ')
+            .append(((AggregateFunctionImpl) function).declaringClass.getName());
+      } else {
+        cacheable = false;
+      }
+    }
+  }
+}
+
+// End CompiledPlanCache.java
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.linq4j.CorrelateJoinType;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelCollationTraitDef;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.CorrelationId;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.metadata.RelMdCollation;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.collect.ImmutableList;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Set;
+
+/** Implementation of batch nested loop join in
+ * {@link EnumerableConvention enumerable calling convention}.
+ *
+ * <p>Reads rows from the left input in batches. For each batch, the right
+ * input is evaluated once, with each of the correlation variables in
+ * {@link #getVariablesSet()} bound to one of the rows of the batch. The
+ * right input typically contains a filter that is a disjunction, one term
+ * per correlation variable, so that it returns the rows that may join to
+ * any row of the batch; the join condition then pairs them up.
+ *
+ * <p>Compared to {@link EnumerableCorrelate}, which evaluates the right
+ * input once per left row, this reduces the number of evaluations by a
+ * factor of the batch size.
+ *
+ * @see EnumerableBatchNestedLoopJoinRule */
+public class EnumerableBatchNestedLoopJoin extends Join
+    implements EnumerableRel {
+  /** Columns of the left input that the right input uses. */
+  private final ImmutableBitSet requiredColumns;
+
+  /** Creates an EnumerableBatchNestedLoopJoin.
+   *
+   * <p>Use {@link #create} unless you know what you're doing. */
+  protected EnumerableBatchNestedLoopJoin(RelOptCluster cluster,
+      RelTraitSet traits, RelNode left, RelNode right, RexNode condition,
+      Set<CorrelationId> variablesSet, ImmutableBitSet requiredColumns,
+      JoinRelType joinType) {
+    super(cluster, traits, left, right, condition, variablesSet, joinType);
+    this.requiredColumns = requiredColumns;
+    assert joinType == JoinRelType.INNER || joinType == JoinRelType.LEFT
+        : joinType;
+    assert !variablesSet.isEmpty();
+  }
+
+  /** Creates an EnumerableBatchNestedLoopJoin.
+   *
+   * @param left            Left input
+   * @param right           Right input; references the correlation
+   *                        variables
+   * @param condition       Join condition
+   * @param requiredColumns Columns of the left input that the right input
+   *                        uses
+   * @param variablesSet    Correlation variables, one per row of a batch;
+   *                        the number of variables is the batch size
+   * @param joinType        Join type; INNER or LEFT
+   */
+  public static EnumerableBatchNestedLoopJoin create(
+      RelNode left,
+      RelNode right,
+      RexNode condition,
+      ImmutableBitSet requiredColumns,
+      Set<CorrelationId> variablesSet,
+      JoinRelType joinType) {
+    final RelOptCluster cluster = left.getCluster();
+    final RelMetadataQuery mq = cluster.getMetadataQuery();
+    final RelTraitSet traitSet =
+        cluster.traitSetOf(EnumerableConvention.INSTANCE)
+            .replaceIfs(RelCollationTraitDef.INSTANCE,
+                () -> RelMdCollation.enumerableBatchNestedLoopJoin(mq, left,
+                    right, joinType));
+    return new EnumerableBatchNestedLoopJoin(cluster, traitSet, left, right,
+        condition, variablesSet, requiredColumns, joinType);
+  }
+
+  @Override public EnumerableBatchNestedLoopJoin copy(RelTraitSet traitSet,
+      RexNode condition, RelNode left, RelNode right, JoinRelType joinType,
+      boolean semiJoinDone) {
+    return new EnumerableBatchNestedLoopJoin(getCluster(), traitSet, left,
+        right, condition, variablesSet, requiredColumns, joinType);
+  }
+
+  public ImmutableBitSet getRequiredColumns() {
+    return requiredColumns;
+  }
+
+  /** Returns the number of left rows in a batch. */
+  public int getBatchSize() {
+    return variablesSet.size();
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .item("requiredColumns", requiredColumns)
+        .item("batchSize", getBatchSize());
+  }
+
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    final double rowCount = mq.getRowCount(this);
+
+    final double rightRowCount = right.estimateRowCount(mq);
+    final double leftRowCount = left.estimateRowCount(mq);
+    if (Double.isInfinite(leftRowCount) || Double.isInfinite(rightRowCount)) {
+      return planner.getCostFactory().makeInfiniteCost();
+    }
+
+    // As EnumerableCorrelate, but the right input is evaluated once per
+    // batch, not once per left row
+    final double restartCount =
+        Math.ceil(mq.getRowCount(getLeft()) / getBatchSize());
+    final RelOptCost rightCost = planner.getCost(getRight(), mq);
+    final RelOptCost rescanCost =
+        rightCost.multiplyBy(Math.max(1.0, restartCount - 1));
+
+    return planner.getCostFactory().makeCost(
+        rowCount /* generate results */ + leftRowCount /* scan left results */,
+        0, 0).plus(rescanCost);
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    final BlockBuilder builder = new BlockBuilder();
+    final Result leftResult =
+        implementor.visitChild(this, 0, (EnumerableRel) left, pref);
+    final Expression leftExpression =
+        builder.append("left", leftResult.block);
+
+    // The lambda that evaluates the right input receives a list of left
+    // rows, one per correlation variable.
+    final BlockBuilder corrBlock = new BlockBuilder();
+    final Type corrVarType = leftResult.physType.getJavaRowType();
+    final ParameterExpression corrArg =
+        Expressions.parameter(Modifier.FINAL, List.class, "$corrList");
+    final List<CorrelationId> correlationIds = variablesSet.asList();
+    for (int i = 0; i < correlationIds.size(); i++) {
+      final String name = correlationIds.get(i).getName();
+      final Expression row =
+          Expressions.call(corrArg, BuiltInMethod.LIST_GET.method,
+              Expressions.constant(i));
+      final Expression corrRef;
+      if (!Primitive.is(corrVarType)) {
+        corrRef =
+            corrBlock.append(name, Expressions.convert_(row, corrVarType));
+      } else {
+        corrRef =
+            corrBlock.append(name,
+                Expressions.unbox(
+                    Expressions.convert_(row, Primitive.box(corrVarType))));
+      }
+      implementor.registerCorrelVariable(name,
+          (ParameterExpression) corrRef, corrBlock, leftResult.physType);
+    }
+
+    final Result rightResult =
+        implementor.visitChild(this, 1, (EnumerableRel) right, pref);
+
+    for (CorrelationId correlationId : correlationIds) {
+      implementor.clearCorrelVariable(correlationId.getName());
+    }
+
+    corrBlock.add(rightResult.block);
+
+    final PhysType physType =
+        PhysTypeImpl.of(
+            implementor.getTypeFactory(),
+            getRowType(),
+            pref.prefer(JavaRowFormat.CUSTOM));
+
+    final Expression selector =
+        EnumUtils.joinSelector(
+            joinType, physType,
+            ImmutableList.of(leftResult.physType, rightResult.physType));
+
+    final Expression predicate =
+        EnumUtils.joinPredicate(implementor, new BlockBuilder(), left, right,
+            leftResult.physType, rightResult.physType, condition);
+
+    builder.append(
+        Expressions.call(BuiltInMethod.CORRELATE_BATCH_JOIN.method,
+            Expressions.constant(toLinq4j(joinType)),
+            leftExpression,
+            Expressions.lambda(corrBlock.toBlock(), corrArg),
+            selector,
+            predicate,
+            Expressions.constant(getBatchSize())));
+
+    return implementor.result(physType, builder.toBlock());
+  }
+
+  private static CorrelateJoinType toLinq4j(JoinRelType joinType) {
+    switch (joinType) {
+    case INNER:
+      return CorrelateJoinType.INNER;
+    case LEFT:
+      return CorrelateJoinType.LEFT;
+    default:
+      throw new AssertionError(joinType);
+    }
+  }
+}
+
+// End EnumerableBatchNestedLoopJoin.java
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.CorrelationId;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCorrelVariable;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.tools.RelBuilder;
+import org.apache.calcite.tools.RelBuilderFactory;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Planner rule that converts a {@link LogicalJoin} into an
+ * {@link EnumerableBatchNestedLoopJoin}.
+ *
+ * <p>The right input receives a filter that is a disjunction of
+ * {@code batchSize} copies of the join condition, each with the left fields
+ * replaced by fields of a different correlation variable. A right input that
+ * can evaluate the filter efficiently (for example, using an index) is then
+ * evaluated once per batch of left rows rather than scanned in full.
+ *
+ * <p>The rule is not among the default rules; add it to the planner (and
+ * consider removing {@link EnumerableRules#ENUMERABLE_JOIN_RULE}) when the
+ * right inputs of joins are tables that are expensive to scan but cheap to
+ * look up.
+ */
+public class EnumerableBatchNestedLoopJoinRule extends RelOptRule {
+  /** Default number of left rows in a batch. */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  private final int batchSize;
+
+  /**
+   * Creates an EnumerableBatchNestedLoopJoinRule.
+   *
+   * @param relBuilderFactory Builder for relational expressions
+   * @param batchSize Number of left rows in a batch
+   */
+  public EnumerableBatchNestedLoopJoinRule(RelBuilderFactory relBuilderFactory,
+      int batchSize) {
+    super(operand(LogicalJoin.class, any()), relBuilderFactory,
+        "EnumerableBatchNestedLoopJoinRule");
+    assert batchSize > 0 : batchSize;
+    this.batchSize = batchSize;
+  }
+
+  @Override public boolean matches(RelOptRuleCall call) {
+    final Join join = call.rel(0);
+    switch (join.getJoinType()) {
+    case INNER:
+    case LEFT:
+      return !join.getCondition().isAlwaysTrue();
+    default:
+      return false;
+    }
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final Join join = call.rel(0);
+    final int leftFieldCount = join.getLeft().getRowType().getFieldCount();
+    final RelOptCluster cluster = join.getCluster();
+    final RexBuilder rexBuilder = cluster.getRexBuilder();
+    final RelBuilder relBuilder = call.builder();
+
+    final ImmutableSet.Builder<CorrelationId> correlationIds =
+        ImmutableSet.builder();
+    final List<RexNode> corrVars = new ArrayList<>();
+    for (int i = 0; i < batchSize; i++) {
+      final CorrelationId correlationId = cluster.createCorrel();
+      correlationIds.add(correlationId);
+      corrVars.add(
+          rexBuilder.makeCorrel(join.getLeft().getRowType(), correlationId));
+    }
+
+    // Rewrite the condition in terms of the right input and the first
+    // correlation variable.
+    final ImmutableBitSet.Builder requiredColumns = ImmutableBitSet.builder();
+    final RexNode condition = join.getCondition().accept(new RexShuttle() {
+      @Override public RexNode visitInputRef(RexInputRef input) {
+        final int field = input.getIndex();
+        if (field >= leftFieldCount) {
+          return rexBuilder.makeInputRef(input.getType(),
+              field - leftFieldCount);
+        }
+        requiredColumns.set(field);
+        return rexBuilder.makeFieldAccess(corrVars.get(0), field);
+      }
+    });
+
+    // One copy of the condition for each of the other correlation variables
+    final List<RexNode> conditions = new ArrayList<>();
+    conditions.add(condition);
+    for (int i = 1; i < batchSize; i++) {
+      final RexNode corrVar = corrVars.get(i);
+      conditions.add(
+          condition.accept(new RexShuttle() {
+            @Override public RexNode visitCorrelVariable(
+                RexCorrelVariable variable) {
+              return corrVar;
+            }
+          }));
+    }
+
+    final RelNode right =
+        relBuilder.push(join.getRight())
+            .filter(relBuilder.or(conditions))
+            .build();
+    final RelNode left = join.getLeft();
+    call.transformTo(
+        EnumerableBatchNestedLoopJoin.create(
+            convert(left,
+                left.getTraitSet().replace(EnumerableConvention.INSTANCE)),
+            convert(right,
+                right.getTraitSet().replace(EnumerableConvention.INSTANCE)),
+            join.getCondition(),
+            requiredColumns.build(),
+            correlationIds.build(),
+            join.getJoinType()));
+  }
+}
+
+// End EnumerableBatchNestedLoopJoinRule.java
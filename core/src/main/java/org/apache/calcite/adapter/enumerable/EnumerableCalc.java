@@ -52,6 +52,7 @@
 
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -149,14 +150,63 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         new RexSimplify(rexBuilder, predicates, RexUtil.EXECUTOR);
     final RexProgram program = this.program.normalize(rexBuilder, simplify);
 
+    final SqlConformance conformance =
+        (SqlConformance) implementor.map.getOrDefault("_conformance",
+            SqlConformanceEnum.DEFAULT);
+    final Type currentJavaType =
+        BRIDGE_METHODS ? Object.class : outputJavaType;
+    final List<MemberDeclaration> fields = new ArrayList<>();
     BlockStatement moveNextBody;
+    BlockStatement currentBody;
     if (program.getCondition() == null) {
       moveNextBody =
           Blocks.toFunctionBlock(
               Expressions.call(
                   inputEnumerator,
                   BuiltInMethod.ENUMERATOR_MOVE_NEXT.method));
+
+      final BlockBuilder builder3 = new BlockBuilder();
+      List<Expression> expressions =
+          RexToLixTranslator.translateProjects(
+              program,
+              typeFactory,
+              conformance,
+              builder3,
+              physType,
+              DataContext.ROOT,
+              new RexToLixTranslator.InputGetterImpl(
+                  Collections.singletonList(
+                      Pair.of(input, result.physType))),
+              implementor.allCorrelateVariables);
+      builder3.add(
+          Expressions.return_(
+              null, physType.record(expressions)));
+      currentBody = builder3.toBlock();
     } else {
+      // Evaluate the condition and the projections in the same pass over
+      // the input row. The output row is computed once, when the row is
+      // accepted, and "current" merely returns it. This saves a second call
+      // to the input's "current" method, and lets the projections re-use
+      // sub-expressions already computed by the condition.
+      //
+      //   public boolean moveNext() {
+      //     while (inputEnumerator.moveNext()) {
+      //       final Employee current = inputEnumerator.current();
+      //       if (<<condition>>) {
+      //         outputRow = <<projections>>;
+      //         return true;
+      //       }
+      //     }
+      //     return false;
+      //   }
+      //
+      //   public Object current() {
+      //     return outputRow;
+      //   }
+      final ParameterExpression outputRow =
+          Expressions.parameter(currentJavaType, "outputRow");
+      fields.add(Expressions.fieldDecl(Modifier.PRIVATE, outputRow, null));
+
       final BlockBuilder builder2 = new BlockBuilder();
       Expression condition =
           RexToLixTranslator.translateCondition(
@@ -167,11 +217,29 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                   Collections.singletonList(
                       Pair.of(input, result.physType))),
               implementor.allCorrelateVariables, implementor.getConformance());
+      final BlockBuilder builder3 = new BlockBuilder(true, builder2);
+      List<Expression> expressions =
+          RexToLixTranslator.translateProjects(
+              program,
+              typeFactory,
+              conformance,
+              builder3,
+              physType,
+              DataContext.ROOT,
+              new RexToLixTranslator.InputGetterImpl(
+                  Collections.singletonList(
+                      Pair.of(input, result.physType))),
+              implementor.allCorrelateVariables);
+      builder3.add(
+          Expressions.statement(
+              Expressions.assign(outputRow, physType.record(expressions))));
+      builder3.add(
+          Expressions.return_(
+              null, Expressions.constant(true)));
       builder2.add(
           Expressions.ifThen(
               condition,
-              Expressions.return_(
-                  null, Expressions.constant(true))));
+              builder3.toBlock()));
       moveNextBody =
           Expressions.block(
               Expressions.while_(
@@ -182,30 +250,9 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
               Expressions.return_(
                   null,
                   Expressions.constant(false)));
+      currentBody = Blocks.toFunctionBlock(outputRow);
     }
 
-    final BlockBuilder builder3 = new BlockBuilder();
-    final SqlConformance conformance =
-        (SqlConformance) implementor.map.getOrDefault("_conformance",
-            SqlConformanceEnum.DEFAULT);
-    List<Expression> expressions =
-        RexToLixTranslator.translateProjects(
-            program,
-            typeFactory,
-            conformance,
-            builder3,
-            physType,
-            DataContext.ROOT,
-            new RexToLixTranslator.InputGetterImpl(
-                Collections.singletonList(
-                    Pair.of(input, result.physType))),
-            implementor.allCorrelateVariables);
-    builder3.add(
-        Expressions.return_(
-            null, physType.record(expressions)));
-    BlockStatement currentBody =
-        builder3.toBlock();
-
     final Expression inputEnumerable =
         builder.append(
             "inputEnumerable", result.block, false);
@@ -213,7 +260,7 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         Expressions.new_(
             enumeratorType,
             NO_EXPRS,
-            Expressions.list(
+            Expressions.<MemberDeclaration>list(
                 Expressions.fieldDecl(
                     Modifier.PUBLIC
                     | Modifier.FINAL,
@@ -241,12 +288,11 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                             BuiltInMethod.ENUMERATOR_CLOSE.method))),
                 Expressions.methodDecl(
                     Modifier.PUBLIC,
-                    BRIDGE_METHODS
-                        ? Object.class
-                        : outputJavaType,
+                    currentJavaType,
                     "current",
                     NO_PARAMS,
-                    currentBody)));
+                    currentBody))
+                .appendAll(fields));
     builder.add(
         Expressions.return_(
             null,
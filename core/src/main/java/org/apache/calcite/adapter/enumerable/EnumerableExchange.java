@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.RelDistributionTraitDef;
+import org.apache.calcite.rel.RelDistributions;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Exchange;
+import org.apache.calcite.runtime.ParallelEnumerables;
+import org.apache.calcite.util.BuiltInMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Implementation of {@link org.apache.calcite.rel.core.Exchange} in
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}.
+ *
+ * <p>An exchange whose distribution is {@link RelDistributions#SINGLETON}
+ * or {@link RelDistributions#ANY} evaluates its input by a task in a
+ * {@link java.util.concurrent.ForkJoinPool} while the consumer processes the
+ * rows that the input has already produced. The consumer receives all rows,
+ * in input order.
+ *
+ * <p>An exchange whose distribution is
+ * {@link RelDistribution.Type#HASH_DISTRIBUTED hash} splits its input into
+ * as many partitions as the connection's
+ * {@link org.apache.calcite.config.CalciteConnectionProperty#PARALLELISM parallelism}.
+ * It must be below a singleton exchange, with no other exchange between.
+ * The plan between the two, typically an {@link EnumerableAggregate} or
+ * {@link EnumerableJoin} whose keys are the hash keys, is evaluated once
+ * per partition, each copy reading the same partition of each of its hash
+ * exchanges, and the singleton exchange merges the rows of the copies.
+ * {@link EnumerableExchangeInsertRule} creates this pattern. Range,
+ * round-robin and broadcast distributions are not supported. */
+public class EnumerableExchange extends Exchange implements EnumerableRel {
+  /** Creates an EnumerableExchange.
+   *
+   * <p>Use {@link #create} unless you know what you're doing. */
+  public EnumerableExchange(RelOptCluster cluster, RelTraitSet traitSet,
+      RelNode input, RelDistribution distribution) {
+    super(cluster, traitSet, input, distribution);
+    assert getConvention() instanceof EnumerableConvention;
+    assert isSupported(distribution) : distribution;
+  }
+
+  /** Returns whether an EnumerableExchange can produce a given
+   * distribution. */
+  public static boolean isSupported(RelDistribution distribution) {
+    switch (distribution.getType()) {
+    case SINGLETON:
+    case ANY:
+      return true;
+    case HASH_DISTRIBUTED:
+      return !distribution.getKeys().isEmpty();
+    default:
+      return false;
+    }
+  }
+
+  /** Creates an EnumerableExchange.
+   *
+   * @param input     Input relational expression
+   * @param distribution Distribution specification
+   */
+  public static EnumerableExchange create(RelNode input,
+      RelDistribution distribution) {
+    final RelOptCluster cluster = input.getCluster();
+    distribution = RelDistributionTraitDef.INSTANCE.canonize(distribution);
+    final RelTraitSet traitSet =
+        input.getTraitSet().replace(EnumerableConvention.INSTANCE)
+            .replace(distribution);
+    return new EnumerableExchange(cluster, traitSet, input, distribution);
+  }
+
+  @Override public EnumerableExchange copy(RelTraitSet traitSet,
+      RelNode newInput, RelDistribution newDistribution) {
+    return new EnumerableExchange(getCluster(), traitSet, newInput,
+        newDistribution);
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    if (distribution.getType() == RelDistribution.Type.HASH_DISTRIBUTED) {
+      return implementPartition(implementor, pref);
+    }
+    final BlockBuilder builder = new BlockBuilder();
+    final int parallelism = implementor.getParallelism();
+    final EnumerableRel child = (EnumerableRel) getInput();
+    final Region region = new Region(builder, parallelism);
+    final Region previous = implementor.setRegion(region);
+    final Result result;
+    try {
+      result = implementor.visitChild(this, 0, child, pref);
+    } finally {
+      implementor.setRegion(previous);
+    }
+    final PhysType physType =
+        PhysTypeImpl.of(
+            implementor.getTypeFactory(),
+            getRowType(),
+            result.format);
+
+    if (region.partitioners.isEmpty()) {
+      // final Enumerable<Employee> child = <<child adapter>>;
+      // return ParallelEnumerables.exchange(child, parallelism);
+      final Expression child_ =
+          builder.append(
+              "child", result.block);
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(BuiltInMethod.EXCHANGE.method, child_,
+                  Expressions.constant(parallelism))));
+    } else {
+      // final Partitioner partitioner = <<added by hash exchange>>;
+      // return ParallelEnumerables.merge(
+      //     new Function1<Integer, Enumerable<Employee>>() {
+      //       public Enumerable<Employee> apply(Integer partition) {
+      //         <<child adapter, reading partitioner.partition(partition)>>
+      //       }
+      //     },
+      //     partitionCount, parallelism, new Partitioner[] {partitioner});
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(BuiltInMethod.MERGE.method,
+                  Expressions.lambda(Function1.class, result.block,
+                      region.partition),
+                  Expressions.constant(region.partitionCount),
+                  Expressions.constant(parallelism),
+                  Expressions.newArrayInit(
+                      ParallelEnumerables.Partitioner.class,
+                      region.partitioners))));
+    }
+    return implementor.result(physType, builder.toBlock());
+  }
+
+  /** Implements a hash exchange. Declares a partitioner in the region of
+   * the singleton exchange above, and reads one of its partitions. */
+  private Result implementPartition(EnumerableRelImplementor implementor,
+      Prefer pref) {
+    final EnumerableRel child = (EnumerableRel) getInput();
+    // The input is evaluated once, not once per partition; it is outside the
+    // region
+    final Region region = implementor.setRegion(null);
+    if (region == null) {
+      throw new IllegalStateException("hash exchange must be below a "
+          + "singleton exchange: " + this);
+    }
+    final Result result;
+    try {
+      result = implementor.visitChild(this, 0, child, pref);
+    } finally {
+      implementor.setRegion(region);
+    }
+    final PhysType physType =
+        PhysTypeImpl.of(
+            implementor.getTypeFactory(),
+            getRowType(),
+            result.format);
+
+    // final Enumerable<Employee> child = <<child adapter>>;
+    // final Partitioner<Employee> partitioner =
+    //     ParallelEnumerables.partitioner(child, keySelector,
+    //         partitionCount, parallelism);
+    final Expression child_ =
+        region.builder.append(
+            "child", result.block);
+    // Do not let the builder re-use the partitioner of an identical input,
+    // because each partitioner's partitions must be read only once
+    final Expression partitioner_ =
+        region.builder.append("partitioner",
+            Expressions.call(BuiltInMethod.PARTITIONER.method,
+                child_,
+                result.physType.generateAccessor(distribution.getKeys()),
+                Expressions.constant(region.partitionCount),
+                Expressions.constant(implementor.getParallelism())),
+            false);
+    region.partitioners.add(partitioner_);
+
+    // return partitioner.partition(partition);
+    final BlockBuilder builder = new BlockBuilder();
+    builder.add(
+        Expressions.return_(null,
+            Expressions.call(partitioner_, BuiltInMethod.PARTITION.method,
+                region.partition)));
+    return implementor.result(physType, builder.toBlock());
+  }
+
+  /** Part of a plan, between a singleton exchange and the hash exchanges
+   * below it, whose code is evaluated once per partition. */
+  static class Region {
+    /** Builder of the singleton exchange's code, outside the region. */
+    final BlockBuilder builder;
+    final int partitionCount;
+    /** Number of the partition, within the region. */
+    final ParameterExpression partition =
+        Expressions.parameter(int.class, "partition");
+    /** Partitioners declared by hash exchanges in the region. */
+    final List<Expression> partitioners = new ArrayList<>();
+
+    Region(BlockBuilder builder, int partitionCount) {
+      this.builder = builder;
+      this.partitionCount = partitionCount;
+    }
+  }
+}
+
+// End EnumerableExchange.java
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptRuleOperand;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollationTraitDef;
+import org.apache.calcite.rel.RelDistributions;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableIntList;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rule that places exchanges around an {@link EnumerableAggregate} or
+ * {@link EnumerableJoin}, so that it is evaluated on several threads.
+ *
+ * <p>If the aggregate has a non-empty group key, or the join has at least
+ * one equi-join key, the rule partitions the work. It places a
+ * {@link RelDistributions#hash hash} exchange on each input, on the group
+ * or join keys, and a {@link RelDistributions#SINGLETON singleton} exchange
+ * above. At run time, one copy of the aggregate or join per partition reads
+ * that partition of each input, all copies run concurrently, and the
+ * singleton exchange merges their rows. Rows with equal keys are in the same
+ * partition, so the copies' results are disjoint and complete.
+ *
+ * <p>Otherwise, the rule places a singleton exchange on each input, so that
+ * the inputs are evaluated on other threads. An exchange is only worthwhile
+ * if its input does some work of its own; the rule does not add an exchange
+ * to an input that
+ * {@link RelMetadataQuery#isPhaseTransition(RelNode) is a phase transition}
+ * (such as a table scan, or an exchange that is already present).
+ *
+ * <p>The rule is intended to run in a Hep planner after the Volcano planner
+ * has chosen a plan; see
+ * {@link org.apache.calcite.config.CalciteConnectionProperty#PARALLELISM}.
+ */
+class EnumerableExchangeInsertRule extends RelOptRule {
+  EnumerableExchangeInsertRule(RelOptRuleOperand operand, String description) {
+    super(operand, description);
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final RelNode rel = call.rel(0);
+    final List<RelNode> oldInputs = new ArrayList<>();
+    for (int i = 0; i < rel.getInputs().size(); i++) {
+      oldInputs.add(call.rel(i + 1));
+    }
+    if (oldInputs.stream().anyMatch(r -> r instanceof EnumerableExchange)) {
+      // Already done
+      return;
+    }
+    final List<ImmutableIntList> keys = partitionKeys(rel);
+    if (keys != null) {
+      final List<RelNode> inputs = new ArrayList<>();
+      for (int i = 0; i < oldInputs.size(); i++) {
+        inputs.add(
+            EnumerableExchange.create(oldInputs.get(i),
+                RelDistributions.hash(keys.get(i))));
+      }
+      call.transformTo(
+          EnumerableExchange.create(rel.copy(rel.getTraitSet(), inputs),
+              RelDistributions.SINGLETON));
+      return;
+    }
+    final RelMetadataQuery mq = call.getMetadataQuery();
+    final List<RelNode> inputs = new ArrayList<>();
+    boolean changed = false;
+    for (RelNode input : oldInputs) {
+      if (mq.isPhaseTransition(input)) {
+        inputs.add(input);
+      } else {
+        inputs.add(
+            EnumerableExchange.create(input, RelDistributions.SINGLETON));
+        changed = true;
+      }
+    }
+    if (changed) {
+      call.transformTo(rel.copy(rel.getTraitSet(), inputs));
+    }
+  }
+
+  /** Returns the keys on which to partition each input of a relational
+   * expression, or null if it cannot be evaluated in partitions.
+   *
+   * <p>The copies' rows arrive interleaved, so an expression whose output
+   * is sorted cannot be partitioned. */
+  private static List<ImmutableIntList> partitionKeys(RelNode rel) {
+    final RelCollation collation =
+        rel.getTraitSet().getTrait(RelCollationTraitDef.INSTANCE);
+    if (collation != null && !collation.getFieldCollations().isEmpty()) {
+      return null;
+    }
+    if (rel instanceof EnumerableAggregate) {
+      final EnumerableAggregate aggregate = (EnumerableAggregate) rel;
+      if (aggregate.getGroupType() != Aggregate.Group.SIMPLE
+          || aggregate.getGroupCount() == 0) {
+        return null;
+      }
+      return ImmutableList.of(
+          ImmutableIntList.copyOf(aggregate.getGroupSet().asList()));
+    }
+    if (rel instanceof EnumerableJoin) {
+      final EnumerableJoin join = (EnumerableJoin) rel;
+      if (join.getLeftKeys().isEmpty()) {
+        return null;
+      }
+      return ImmutableList.of(join.getLeftKeys(), join.getRightKeys());
+    }
+    return null;
+  }
+}
+
+// End EnumerableExchangeInsertRule.java
@@ -101,9 +101,39 @@ public Node implement(final InterpreterImplementor implementor) {
           .maximumSize(CalciteSystemProperty.BINDABLE_CACHE_MAX_SIZE.value())
           .build();
 
+  /**
+   * The cache of Bindable objects keyed by the digest of the plan that they
+   * were generated from, or null if the cache is disabled.
+   *
+   * <p>It is consulted before generating Java code, and therefore saves the
+   * cost of code generation as well as the cost of compiling.
+   */
+  private static final CompiledPlanCache PLAN_CACHE =
+      CalciteSystemProperty.BINDABLE_PLAN_CACHE_MAX_SIZE.value() == 0
+          ? null
+          : new CompiledPlanCache(
+              CalciteSystemProperty.BINDABLE_PLAN_CACHE_MAX_SIZE.value(),
+              CalciteSystemProperty.BINDABLE_PLAN_CACHE_EXPIRE_SECONDS.value());
+
   public static Bindable toBindable(Map<String, Object> parameters,
       CalcitePrepare.SparkHandler spark, EnumerableRel rel,
       EnumerableRel.Prefer prefer) {
+    final CompiledPlanCache planCache =
+        spark != null && spark.enabled()
+            ? null
+            : Hook.COMPILED_PLAN_CACHE.get(PLAN_CACHE);
+    final String key = planCache == null
+        ? null
+        : CompiledPlanCache.key(rel, prefer, parameters);
+    if (key != null) {
+      final CompiledPlanCache.CompiledPlan plan = planCache.get(key);
+      if (plan != null) {
+        Hook.JAVA_PLAN.run(plan.source);
+        return plan.bindable;
+      }
+    }
+
+    final int parameterCount = parameters.size();
     EnumerableRelImplementor relImplementor =
         new EnumerableRelImplementor(rel.getCluster().getRexBuilder(),
             parameters);
@@ -117,16 +147,28 @@ public static Bindable toBindable(Map<String, Object> parameters,
 
     Hook.JAVA_PLAN.run(s);
 
+    final Bindable bindable;
     try {
       if (spark != null && spark.enabled()) {
         return spark.compile(expr, s);
       } else {
-        return getBindable(expr, s, rel.getRowType().getFieldCount());
+        bindable = getBindable(expr, s, rel.getRowType().getFieldCount());
       }
     } catch (Exception e) {
       throw Helper.INSTANCE.wrap("Error while compiling generated Java code:\n"
           + s, e);
     }
+
+    // Code that reads stashed values from the data context, or that holds
+    // state in static fields, cannot be shared with other statements.
+    if (key != null && parameters.size() == parameterCount) {
+      final StaticFieldDetector detector = new StaticFieldDetector();
+      expr.accept(detector);
+      if (!detector.containsStaticField) {
+        planCache.put(key, new CompiledPlanCache.CompiledPlan(s, bindable));
+      }
+    }
+    return bindable;
   }
 
   static Bindable getBindable(ClassDeclaration expr, String s, int fieldCount)
@@ -16,9 +16,12 @@
  */
 package org.apache.calcite.adapter.enumerable;
 
+import org.apache.calcite.linq4j.function.LongFunction1;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
@@ -33,6 +36,7 @@
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.metadata.RelMdCollation;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.util.BuiltInMethod;
 import org.apache.calcite.util.ImmutableIntList;
@@ -200,6 +204,56 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     final PhysType physType =
         PhysTypeImpl.of(
             implementor.getTypeFactory(), getRowType(), pref.preferArray());
+    final long spillRowThreshold =
+        Math.min(implementor.getSpillRowThreshold(leftResult.physType),
+            implementor.getSpillRowThreshold(rightResult.physType));
+    if (spillRowThreshold > 0) {
+      // Both inputs' rows can be written to disk. Use a join that partitions
+      // its inputs to temporary files if the right input is too large.
+      final PhysType keyPhysType =
+          leftResult.physType.project(
+              leftKeys, JavaRowFormat.LIST);
+      return implementor.result(
+          physType,
+          builder.append(
+              Expressions.call(
+                  BuiltInMethod.SPILLING_JOIN.method,
+                  Expressions.list(
+                      leftExpression,
+                      rightExpression,
+                      leftResult.physType.generateAccessor(leftKeys),
+                      rightResult.physType.generateAccessor(rightKeys),
+                      EnumUtils.joinSelector(joinType,
+                          physType,
+                          ImmutableList.of(
+                              leftResult.physType, rightResult.physType)),
+                      Util.first(keyPhysType.comparer(),
+                          Expressions.constant(null)),
+                      Expressions.constant(joinType.generatesNullsOnLeft()),
+                      Expressions.constant(joinType.generatesNullsOnRight()),
+                      Expressions.constant(spillRowThreshold)))).toBlock());
+    }
+    if (isLongKeyed(leftResult.physType, rightResult.physType)) {
+      // Single NOT NULL key of integral type (including DATE, TIME and
+      // TIMESTAMP). Use a hash table keyed by primitive long values.
+      return implementor.result(
+          physType,
+          builder.append(
+              Expressions.call(
+                  BuiltInMethod.HASH_JOIN_LONG.method,
+                  Expressions.list(
+                      leftExpression,
+                      rightExpression,
+                      longKeyAccessor(leftResult.physType, leftKeys.get(0)),
+                      longKeyAccessor(rightResult.physType, rightKeys.get(0)),
+                      EnumUtils.joinSelector(joinType,
+                          physType,
+                          ImmutableList.of(
+                              leftResult.physType, rightResult.physType)),
+                      Expressions.constant(joinType.generatesNullsOnLeft()),
+                      Expressions.constant(
+                          joinType.generatesNullsOnRight())))).toBlock());
+    }
     final PhysType keyPhysType =
         leftResult.physType.project(
             leftKeys, JavaRowFormat.LIST);
@@ -227,6 +281,58 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                             joinType.generatesNullsOnRight())))).toBlock());
   }
 
+  /** Returns whether this join has a single key, of the same integral type on
+   * both sides, that is stored as a Java primitive on both sides (and
+   * therefore cannot be null). */
+  private boolean isLongKeyed(PhysType leftPhysType, PhysType rightPhysType) {
+    if (leftKeys.size() != 1) {
+      return false;
+    }
+    final int leftKey = leftKeys.get(0);
+    final int rightKey = rightKeys.get(0);
+    final RelDataType leftType =
+        left.getRowType().getFieldList().get(leftKey).getType();
+    final RelDataType rightType =
+        right.getRowType().getFieldList().get(rightKey).getType();
+    if (leftType.getSqlTypeName() != rightType.getSqlTypeName()) {
+      return false;
+    }
+    return isIntegral(leftPhysType.fieldClass(leftKey))
+        && isIntegral(rightPhysType.fieldClass(rightKey));
+  }
+
+  private static boolean isIntegral(Class clazz) {
+    final Primitive primitive = Primitive.of(clazz);
+    if (primitive == null) {
+      return false;
+    }
+    switch (primitive) {
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /** Generates a function that extracts a key as a {@code long}.
+   *
+   * <blockquote><pre>
+   * new LongFunction1&lt;Employee&gt; {
+   *   public long apply(Employee v1) {
+   *     return (long) v1.&lt;field&gt;;
+   *   }
+   * }</pre></blockquote>
+   */
+  private static Expression longKeyAccessor(PhysType physType, int field) {
+    final ParameterExpression v1 =
+        Expressions.parameter(physType.getJavaRowType(), "v1");
+    return Expressions.lambda(LongFunction1.class,
+        Expressions.convert_(physType.fieldReference(v1, field), long.class),
+        v1);
+  }
 }
 
 // End EnumerableJoin.java
@@ -74,6 +74,9 @@ public class EnumerableRelImplementor extends JavaRelImplementor {
       new HashMap<>();
   private final Map<Object, ParameterExpression> stashedParameters =
       new IdentityHashMap<>();
+  /** Region of the plan whose code is evaluated once per partition, or
+   * null; see {@link EnumerableExchange}. */
+  private EnumerableExchange.Region region;
 
   protected final Function1<String, RexToLixTranslator.InputGetter> allCorrelateVariables =
       this::getCorrelVariableGetter;
@@ -463,6 +466,63 @@ public SqlConformance getConformance() {
         SqlConformanceEnum.DEFAULT);
   }
 
+  /** Returns the maximum number of rows that a sort or join may hold in
+   * memory before spilling to disk, or 0 if operators should never spill.
+   *
+   * @see org.apache.calcite.config.CalciteConnectionProperty#SPILL_ROW_THRESHOLD */
+  public long getSpillRowThreshold() {
+    return (Long) map.getOrDefault("_spillRowThreshold", 0L);
+  }
+
+  /** Returns the number of threads in the pool that evaluates the inputs of
+   * exchanges.
+   *
+   * @see org.apache.calcite.config.CalciteConnectionProperty#PARALLELISM */
+  public int getParallelism() {
+    return (Integer) map.getOrDefault("_parallelism", 1);
+  }
+
+  /** Sets the region of the plan being implemented whose code is evaluated
+   * once per partition, and returns the previous region. */
+  EnumerableExchange.Region setRegion(EnumerableExchange.Region region) {
+    final EnumerableExchange.Region previous = this.region;
+    this.region = region;
+    return previous;
+  }
+
+  /** Returns whether rows of the given physical type can be written to a
+   * {@link org.apache.calcite.runtime.SpillFile}, and if so, the maximum
+   * number of rows an operator may hold in memory; otherwise 0.
+   *
+   * <p>Rows can be written if their format is
+   * {@link JavaRowFormat#ARRAY} or {@link JavaRowFormat#SCALAR} and the Java
+   * class of every field is primitive or is a serializable class. A field
+   * whose class is {@link Object} or an interface (such as {@link List})
+   * might hold values that are not serializable, so its rows are never
+   * spilled. */
+  long getSpillRowThreshold(PhysType physType) {
+    switch (physType.getFormat()) {
+    case ARRAY:
+    case SCALAR:
+      break;
+    default:
+      return 0L;
+    }
+    final long threshold = getSpillRowThreshold();
+    if (threshold <= 0) {
+      return 0L;
+    }
+    for (int i = 0; i < physType.getRowType().getFieldCount(); i++) {
+      final Class clazz = physType.fieldClass(i);
+      if (!clazz.isPrimitive()
+          && (clazz.isInterface()
+              || !Serializable.class.isAssignableFrom(clazz))) {
+        return 0L;
+      }
+    }
+    return threshold;
+  }
+
   /** Visitor that finds types in an {@link Expression} tree. */
   private static class TypeFinder extends VisitorImpl<Void> {
     private final Collection<Type> types;
@@ -17,6 +17,7 @@
 package org.apache.calcite.adapter.enumerable;
 
 import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.RelFactories;
 import org.apache.calcite.util.trace.CalciteTrace;
 
@@ -43,6 +44,12 @@ public class EnumerableRules {
   public static final RelOptRule ENUMERABLE_CORRELATE_RULE =
       new EnumerableCorrelateRule(RelFactories.LOGICAL_BUILDER);
 
+  /** Rule that converts a join to an {@link EnumerableBatchNestedLoopJoin}.
+   * Not among the default rules. */
+  public static final RelOptRule ENUMERABLE_BATCH_NESTED_LOOP_JOIN_RULE =
+      new EnumerableBatchNestedLoopJoinRule(RelFactories.LOGICAL_BUILDER,
+          EnumerableBatchNestedLoopJoinRule.DEFAULT_BATCH_SIZE);
+
   private EnumerableRules() {
   }
 
@@ -99,6 +106,26 @@ private EnumerableRules() {
 
   public static final EnumerableTableFunctionScanRule ENUMERABLE_TABLE_FUNCTION_SCAN_RULE =
       new EnumerableTableFunctionScanRule(RelFactories.LOGICAL_BUILDER);
+
+  public static final EnumerableExchangeRule ENUMERABLE_EXCHANGE_RULE =
+      new EnumerableExchangeRule();
+
+  /** Rule that evaluates an {@link EnumerableAggregate} in partitions, or
+   * its input on another thread. */
+  public static final RelOptRule ENUMERABLE_AGGREGATE_EXCHANGE_RULE =
+      new EnumerableExchangeInsertRule(
+          RelOptRule.operand(EnumerableAggregate.class,
+              RelOptRule.operand(RelNode.class, RelOptRule.any())),
+          "EnumerableExchangeInsertRule:aggregate");
+
+  /** Rule that evaluates an {@link EnumerableJoin} in partitions, or its
+   * inputs on other threads. */
+  public static final RelOptRule ENUMERABLE_JOIN_EXCHANGE_RULE =
+      new EnumerableExchangeInsertRule(
+          RelOptRule.operand(EnumerableJoin.class,
+              RelOptRule.operand(RelNode.class, RelOptRule.any()),
+              RelOptRule.operand(RelNode.class, RelOptRule.any())),
+          "EnumerableExchangeInsertRule:join");
 }
 
 // End EnumerableRules.java
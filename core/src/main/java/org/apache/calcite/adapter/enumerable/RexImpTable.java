@@ -38,6 +38,9 @@
 import org.apache.calcite.rex.RexCall;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.runtime.LikeMatcher;
+import org.apache.calcite.runtime.SargMatcher;
 import org.apache.calcite.runtime.SqlFunctions;
 import org.apache.calcite.schema.ImplementableAggFunction;
 import org.apache.calcite.schema.ImplementableFunction;
@@ -55,11 +58,19 @@
 import org.apache.calcite.sql.validate.SqlUserDefinedAggFunction;
 import org.apache.calcite.sql.validate.SqlUserDefinedFunction;
 import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.ImmutableIntList;
+import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
+import org.apache.calcite.util.TimeString;
+import org.apache.calcite.util.TimestampString;
 import org.apache.calcite.util.Util;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -221,6 +232,7 @@
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.ROUND;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.ROW;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.ROW_NUMBER;
+import static org.apache.calcite.sql.fun.SqlStdOperatorTable.SEARCH;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.SESSION_USER;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.SIGN;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.SIMILAR_TO;
@@ -380,17 +392,20 @@ public Expression implement(RexToLixTranslator translator,
     map.put(IS_NOT_FALSE, new IsXxxImplementor(false, true));
 
     // LIKE and SIMILAR
-    final MethodImplementor likeImplementor =
-        new MethodImplementor(BuiltInMethod.LIKE.method);
+    final LikeImplementor likeImplementor =
+        new LikeImplementor(BuiltInMethod.LIKE_MATCHER.method);
     defineImplementor(LIKE, NullPolicy.STRICT, likeImplementor, false);
     defineImplementor(NOT_LIKE, NullPolicy.STRICT,
         NotImplementor.of(likeImplementor), false);
-    final MethodImplementor similarImplementor =
-        new MethodImplementor(BuiltInMethod.SIMILAR.method);
+    final LikeImplementor similarImplementor =
+        new LikeImplementor(BuiltInMethod.SIMILAR_MATCHER.method);
     defineImplementor(SIMILAR_TO, NullPolicy.STRICT, similarImplementor, false);
     defineImplementor(NOT_SIMILAR_TO, NullPolicy.STRICT,
         NotImplementor.of(similarImplementor), false);
 
+    // SEARCH
+    map.put(SEARCH, new SearchImplementor());
+
     // Multisets & arrays
     defineMethod(CARDINALITY, BuiltInMethod.COLLECTION_SIZE.method,
         NullPolicy.STRICT);
@@ -2060,6 +2075,155 @@ public Expression implement(
     }
   }
 
+  /** Implementor for the {@code LIKE} and {@code SIMILAR TO} operators.
+   *
+   * <p>Generates a call to a {@link LikeMatcher} factory method followed by
+   * a call to {@link LikeMatcher#matches(String)}. If the pattern and escape
+   * are literals, the factory call is constant, and is evaluated once when
+   * the generated class is initialized. */
+  private static class LikeImplementor implements NotNullImplementor {
+    private final Method factoryMethod;
+
+    LikeImplementor(Method factoryMethod) {
+      this.factoryMethod = factoryMethod;
+    }
+
+    public Expression implement(
+        RexToLixTranslator translator,
+        RexCall call,
+        List<Expression> translatedOperands) {
+      final Expression matcher =
+          Expressions.call(factoryMethod.getDeclaringClass(),
+              factoryMethod.getName(), Util.skip(translatedOperands));
+      return Expressions.call(matcher,
+          BuiltInMethod.LIKE_MATCHER_MATCHES.method,
+          translatedOperands.get(0));
+    }
+  }
+
+  /** Implementor for the {@code SEARCH} operator.
+   *
+   * <p>Converts the values of the search argument to the Java representation
+   * of the operand, and generates a call to {@link SargMatcher#contains}. The
+   * matcher is created from constant arguments by a deterministic method, so
+   * it is created once, in a static field, and each row costs a binary
+   * search. If a value has no such representation, expands the search into
+   * comparisons. */
+  private static class SearchImplementor implements CallImplementor {
+    public Expression implement(RexToLixTranslator translator, RexCall call,
+        NullAs nullAs) {
+      final RexNode operand = call.operands.get(0);
+      final RexLiteral literal =
+          (RexLiteral) translator.deref(call.operands.get(1));
+      final Sarg<?> sarg = literal.getValueAs(Sarg.class);
+      final Type javaClass =
+          translator.typeFactory.getJavaClass(operand.getType());
+      final Primitive primitive = Primitive.ofBoxOr(javaClass);
+      final RangeSet<Comparable> rangeSet = TreeRangeSet.create();
+      for (Range<?> range : sarg.rangeSet.asRanges()) {
+        final Range<Comparable> range2 = convert(range, javaClass, primitive);
+        if (range2 == null) {
+          return translator.translate(
+              RexUtil.sargRef(translator.builder, operand, sarg,
+                  literal.getType()), nullAs);
+        }
+        rangeSet.add(range2);
+      }
+      final Expression matcher =
+          Expressions.call(BuiltInMethod.SARG_MATCHER.method,
+              Expressions.constant(SargMatcher.encode(rangeSet)));
+      final boolean fixed = primitive != null && primitive.isFixedNumeric();
+      final NotNullImplementor implementor = (translator2, call2, operands) -> {
+        final Expression e = operands.get(0);
+        if (fixed) {
+          return Expressions.call(matcher,
+              BuiltInMethod.SARG_MATCHER_CONTAINS_LONG.method,
+              RexToLixTranslator.convert(e, long.class));
+        }
+        if (primitive != null) {
+          return Expressions.call(matcher,
+              BuiltInMethod.SARG_MATCHER_CONTAINS.method,
+              Expressions.box(RexToLixTranslator.convert(e, double.class)));
+        }
+        return Expressions.call(matcher,
+            BuiltInMethod.SARG_MATCHER_CONTAINS.method, e);
+      };
+      return createImplementor(implementor, NullPolicy.STRICT, false)
+          .implement(translator,
+              call.clone(call.getType(), ImmutableList.of(operand)), nullAs);
+    }
+
+    /** Converts a range of literal values to a range of the Java values that
+     * the operand will have at run time, or returns null. */
+    private static Range<Comparable> convert(Range<?> range, Type javaClass,
+        Primitive primitive) {
+      final Comparable lower;
+      if (range.hasLowerBound()) {
+        lower = convert((Comparable) range.lowerEndpoint(), javaClass,
+            primitive);
+        if (lower == null) {
+          return null;
+        }
+      } else {
+        lower = null;
+      }
+      final Comparable upper;
+      if (range.hasUpperBound()) {
+        upper = convert((Comparable) range.upperEndpoint(), javaClass,
+            primitive);
+        if (upper == null) {
+          return null;
+        }
+      } else {
+        upper = null;
+      }
+      if (lower == null) {
+        return upper == null
+            ? Range.all()
+            : Range.upTo(upper, range.upperBoundType());
+      }
+      if (upper == null) {
+        return Range.downTo(lower, range.lowerBoundType());
+      }
+      return Range.range(lower, range.lowerBoundType(), upper,
+          range.upperBoundType());
+    }
+
+    private static Comparable convert(Comparable value, Type javaClass,
+        Primitive primitive) {
+      if (primitive != null && primitive.isFixedNumeric()) {
+        if (value instanceof BigDecimal) {
+          try {
+            return ((BigDecimal) value).longValueExact();
+          } catch (ArithmeticException e) {
+            return null;
+          }
+        } else if (value instanceof DateString) {
+          return (long) ((DateString) value).getDaysSinceEpoch();
+        } else if (value instanceof TimeString) {
+          return (long) ((TimeString) value).getMillisOfDay();
+        } else if (value instanceof TimestampString) {
+          return ((TimestampString) value).getMillisSinceEpoch();
+        }
+        return null;
+      }
+      if (primitive == Primitive.FLOAT || primitive == Primitive.DOUBLE) {
+        return value instanceof BigDecimal
+            ? ((BigDecimal) value).doubleValue()
+            : null;
+      }
+      if (javaClass == BigDecimal.class) {
+        return value instanceof BigDecimal ? value : null;
+      }
+      if (javaClass == String.class) {
+        return value instanceof NlsString
+            ? ((NlsString) value).getValue()
+            : null;
+      }
+      return null;
+    }
+  }
+
   /** Implementor for binary operators. */
   private static class BinaryImplementor implements NotNullImplementor {
     /** Types that can be arguments to comparison operators such as
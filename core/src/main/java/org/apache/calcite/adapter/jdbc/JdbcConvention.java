@@ -24,6 +24,10 @@
 import org.apache.calcite.rel.rules.ProjectRemoveRule;
 import org.apache.calcite.sql.SqlDialect;
 
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
 /**
  * Calling convention for relational operations that occur in a JDBC
  * database.
@@ -47,14 +51,63 @@ public class JdbcConvention extends Convention.Impl {
    * calling convention. */
   public static final double COST_MULTIPLIER = 0.8d;
 
+  /** Default value of {@link #splitRowCount}. */
+  public static final int DEFAULT_SPLIT_ROW_COUNT = 10_000;
+
   public final SqlDialect dialect;
   public final Expression expression;
+  /** Number of rows to fetch from the database in each round trip; 0 means
+   * the driver's default. */
+  public final int fetchSize;
+  /** Whether to turn off auto-commit while a statement runs, if
+   * {@link #fetchSize} is positive; some drivers ignore the fetch size in
+   * auto-commit mode. */
+  public final boolean disableAutoCommitForFetch;
+  /** Number of rows that a background thread may read ahead of the consumer;
+   * 0 means no read-ahead. */
+  public final int prefetchSize;
+  /** Number of concurrent queries into which a scan of a table is split;
+   * 0 or 1 means that scans are not split. */
+  public final int splitDegree;
+  /** Minimum estimated number of rows that a scan must return to be split;
+   * 0 means that every scan is split. */
+  public final int splitRowCount;
+  /** Column on which to split scans of each table, by table name; tables not
+   * in the map are split on their primary key, if it is a single integer
+   * column. */
+  public final ImmutableMap<String, String> splitColumns;
 
   public JdbcConvention(SqlDialect dialect, Expression expression,
       String name) {
+    this(dialect, expression, name, 0, 0);
+  }
+
+  public JdbcConvention(SqlDialect dialect, Expression expression,
+      String name, int fetchSize, int prefetchSize) {
+    this(dialect, expression, name, fetchSize, prefetchSize, 0, 0,
+        ImmutableMap.of());
+  }
+
+  public JdbcConvention(SqlDialect dialect, Expression expression,
+      String name, int fetchSize, int prefetchSize, int splitDegree,
+      int splitRowCount, Map<String, String> splitColumns) {
+    this(dialect, expression, name, fetchSize, prefetchSize, splitDegree,
+        splitRowCount, splitColumns, false);
+  }
+
+  public JdbcConvention(SqlDialect dialect, Expression expression,
+      String name, int fetchSize, int prefetchSize, int splitDegree,
+      int splitRowCount, Map<String, String> splitColumns,
+      boolean disableAutoCommitForFetch) {
     super("JDBC." + name, JdbcRel.class);
     this.dialect = dialect;
     this.expression = expression;
+    this.fetchSize = fetchSize;
+    this.disableAutoCommitForFetch = disableAutoCommitForFetch;
+    this.prefetchSize = prefetchSize;
+    this.splitDegree = splitDegree;
+    this.splitRowCount = splitRowCount;
+    this.splitColumns = ImmutableMap.copyOf(splitColumns);
   }
 
   public static JdbcConvention of(SqlDialect dialect, Expression expression,
@@ -62,6 +115,28 @@ public static JdbcConvention of(SqlDialect dialect, Expression expression,
     return new JdbcConvention(dialect, expression, name);
   }
 
+  public static JdbcConvention of(SqlDialect dialect, Expression expression,
+      String name, int fetchSize, int prefetchSize) {
+    return new JdbcConvention(dialect, expression, name, fetchSize,
+        prefetchSize);
+  }
+
+  public static JdbcConvention of(SqlDialect dialect, Expression expression,
+      String name, int fetchSize, int prefetchSize, int splitDegree,
+      int splitRowCount, Map<String, String> splitColumns) {
+    return new JdbcConvention(dialect, expression, name, fetchSize,
+        prefetchSize, splitDegree, splitRowCount, splitColumns);
+  }
+
+  public static JdbcConvention of(SqlDialect dialect, Expression expression,
+      String name, int fetchSize, int prefetchSize, int splitDegree,
+      int splitRowCount, Map<String, String> splitColumns,
+      boolean disableAutoCommitForFetch) {
+    return new JdbcConvention(dialect, expression, name, fetchSize,
+        prefetchSize, splitDegree, splitRowCount, splitColumns,
+        disableAutoCommitForFetch);
+  }
+
   @Override public void register(RelOptPlanner planner) {
     for (RelOptRule rule : JdbcRules.rules(this)) {
       planner.addRule(rule);
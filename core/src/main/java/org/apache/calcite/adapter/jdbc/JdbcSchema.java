@@ -115,11 +115,124 @@ public static JdbcSchema create(
       SqlDialectFactory dialectFactory,
       String catalog,
       String schema) {
+    return create(parentSchema, name, dataSource, dialectFactory, catalog,
+        schema, 0, 0);
+  }
+
+  /**
+   * Creates a JdbcSchema that reads results in a particular way.
+   *
+   * @param parentSchema Parent schema
+   * @param name Name
+   * @param dataSource Data source
+   * @param dialectFactory Factory for SQL dialect
+   * @param catalog Catalog name, or null
+   * @param schema Schema name pattern
+   * @param fetchSize Number of rows to fetch in each round trip to the
+   *                  database, or 0 for the driver's default
+   * @param prefetchSize Number of rows that a background thread may read
+   *                     ahead of the consumer, or 0 to read rows in the
+   *                     consumer's thread
+   * @return A JdbcSchema
+   */
+  public static JdbcSchema create(
+      SchemaPlus parentSchema,
+      String name,
+      DataSource dataSource,
+      SqlDialectFactory dialectFactory,
+      String catalog,
+      String schema,
+      int fetchSize,
+      int prefetchSize) {
+    return create(parentSchema, name, dataSource, dialectFactory, catalog,
+        schema, fetchSize, prefetchSize, 0, 0, ImmutableMap.of());
+  }
+
+  /**
+   * Creates a JdbcSchema that reads results in a particular way, and may
+   * split scans of large tables into several concurrent queries.
+   *
+   * @param parentSchema Parent schema
+   * @param name Name
+   * @param dataSource Data source
+   * @param dialectFactory Factory for SQL dialect
+   * @param catalog Catalog name, or null
+   * @param schema Schema name pattern
+   * @param fetchSize Number of rows to fetch in each round trip to the
+   *                  database, or 0 for the driver's default
+   * @param prefetchSize Number of rows that a background thread may read
+   *                     ahead of the consumer, or 0 to read rows in the
+   *                     consumer's thread
+   * @param splitDegree Number of concurrent queries into which to split a
+   *                    scan of a table, or 0 to not split scans
+   * @param splitRowCount Minimum estimated number of rows that a scan must
+   *                      return to be split, or 0 to split every scan
+   * @param splitColumns Column on which to split scans, by table name
+   * @return A JdbcSchema
+   */
+  public static JdbcSchema create(
+      SchemaPlus parentSchema,
+      String name,
+      DataSource dataSource,
+      SqlDialectFactory dialectFactory,
+      String catalog,
+      String schema,
+      int fetchSize,
+      int prefetchSize,
+      int splitDegree,
+      int splitRowCount,
+      Map<String, String> splitColumns) {
+    return create(parentSchema, name, dataSource, dialectFactory, catalog,
+        schema, fetchSize, prefetchSize, splitDegree, splitRowCount,
+        splitColumns, false);
+  }
+
+  /**
+   * Creates a JdbcSchema that reads results in a particular way, may split
+   * scans of large tables into several concurrent queries, and may turn off
+   * auto-commit so that the driver honors the fetch size.
+   *
+   * @param parentSchema Parent schema
+   * @param name Name
+   * @param dataSource Data source
+   * @param dialectFactory Factory for SQL dialect
+   * @param catalog Catalog name, or null
+   * @param schema Schema name pattern
+   * @param fetchSize Number of rows to fetch in each round trip to the
+   *                  database, or 0 for the driver's default
+   * @param prefetchSize Number of rows that a background thread may read
+   *                     ahead of the consumer, or 0 to read rows in the
+   *                     consumer's thread
+   * @param splitDegree Number of concurrent queries into which to split a
+   *                    scan of a table, or 0 to not split scans
+   * @param splitRowCount Minimum estimated number of rows that a scan must
+   *                      return to be split, or 0 to split every scan
+   * @param splitColumns Column on which to split scans, by table name
+   * @param disableAutoCommitForFetch Whether to turn off auto-commit while a
+   *                                  statement runs, if the fetch size is
+   *                                  positive
+   * @return A JdbcSchema
+   */
+  public static JdbcSchema create(
+      SchemaPlus parentSchema,
+      String name,
+      DataSource dataSource,
+      SqlDialectFactory dialectFactory,
+      String catalog,
+      String schema,
+      int fetchSize,
+      int prefetchSize,
+      int splitDegree,
+      int splitRowCount,
+      Map<String, String> splitColumns,
+      boolean disableAutoCommitForFetch) {
     final Expression expression =
         Schemas.subSchemaExpression(parentSchema, name, JdbcSchema.class);
     final SqlDialect dialect = createDialect(dialectFactory, dataSource);
     final JdbcConvention convention =
-        JdbcConvention.of(dialect, expression, name);
+        JdbcConvention.of(dialect, expression, name, fetchSize, prefetchSize,
+            splitDegree, splitRowCount, splitColumns,
+            disableAutoCommitForFetch);
     return new JdbcSchema(dataSource, dialect, convention, catalog, schema);
   }
 
@@ -154,16 +267,33 @@ public static JdbcSchema create(
     String jdbcCatalog = (String) operand.get("jdbcCatalog");
     String jdbcSchema = (String) operand.get("jdbcSchema");
     String sqlDialectFactory = (String) operand.get("sqlDialectFactory");
-
+    final Number fetchSize = (Number) operand.get("fetchSize");
+    final Boolean disableAutoCommitForFetch =
+        (Boolean) operand.get("disableAutoCommitForFetch");
+    final Number prefetchSize = (Number) operand.get("prefetchSize");
+    final Number splitDegree = (Number) operand.get("splitDegree");
+    final Number splitRowCount = (Number) operand.get("splitRowCount");
+    @SuppressWarnings("unchecked")
+    final Map<String, String> splitColumns =
+        (Map<String, String>) operand.get("splitColumns");
+
+    final SqlDialectFactory factory;
     if (sqlDialectFactory == null || sqlDialectFactory.isEmpty()) {
-      return JdbcSchema.create(
-          parentSchema, name, dataSource, jdbcCatalog, jdbcSchema);
+      factory = SqlDialectFactoryImpl.INSTANCE;
     } else {
-      SqlDialectFactory factory = AvaticaUtils.instantiatePlugin(
+      factory = AvaticaUtils.instantiatePlugin(
           SqlDialectFactory.class, sqlDialectFactory);
-      return JdbcSchema.create(
-          parentSchema, name, dataSource, factory, jdbcCatalog, jdbcSchema);
     }
+    return JdbcSchema.create(parentSchema, name, dataSource, factory,
+        jdbcCatalog, jdbcSchema,
+        fetchSize == null ? 0 : fetchSize.intValue(),
+        prefetchSize == null ? 0 : prefetchSize.intValue(),
+        splitDegree == null ? 0 : splitDegree.intValue(),
+        splitRowCount == null
+            ? JdbcConvention.DEFAULT_SPLIT_ROW_COUNT
+            : splitRowCount.intValue(),
+        splitColumns == null ? ImmutableMap.of() : splitColumns,
+        disableAutoCommitForFetch != null && disableAutoCommitForFetch);
   }
 
   /**
@@ -299,6 +429,29 @@ private synchronized ImmutableMap<String, JdbcTable> getTableMap(
     return tableMap;
   }
 
+  /** Returns the name of the column that makes up the primary key of a table,
+   * or null if the table has no primary key or its key has several
+   * columns. */
+  String getPrimaryKeyColumn(String catalogName, String schemaName,
+      String tableName) throws SQLException {
+    Connection connection = null;
+    ResultSet resultSet = null;
+    try {
+      connection = dataSource.getConnection();
+      resultSet = connection.getMetaData()
+          .getPrimaryKeys(catalogName, schemaName, tableName);
+      String columnName = null;
+      int columnCount = 0;
+      while (resultSet.next()) {
+        columnName = resultSet.getString(4);
+        ++columnCount;
+      }
+      return columnCount == 1 ? columnName : null;
+    } finally {
+      close(connection, null, resultSet);
+    }
+  }
+
   RelProtoDataType getRelDataType(String catalogName, String schemaName,
       String tableName) throws SQLException {
     Connection connection = null;
@@ -488,7 +641,13 @@ private static void close(
    *         "jdbcDriver": "com.mysql.jdbc.Driver",
    *         "jdbcUrl": "jdbc:mysql://localhost/foodmart",
    *         "jdbcUser": "foodmart",
-   *         "jdbcPassword": "foodmart"
+   *         "jdbcPassword": "foodmart",
+   *         "fetchSize": 1000,
+   *         "disableAutoCommitForFetch": true,
+   *         "prefetchSize": 10000,
+   *         "splitDegree": 4,
+   *         "splitRowCount": 100000,
+   *         "splitColumns": { "sales_fact_1997": "product_id" }
    *       }
    *     }
    *   ]
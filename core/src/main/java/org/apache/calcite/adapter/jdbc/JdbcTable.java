@@ -35,6 +35,7 @@
 import org.apache.calcite.rel.logical.LogicalTableModify;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.rel.type.RelProtoDataType;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.runtime.ResultSetEnumerable;
@@ -49,10 +50,13 @@
 import org.apache.calcite.sql.SqlSelect;
 import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.pretty.SqlPrettyWriter;
+import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.util.SqlString;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 
 import java.sql.SQLException;
@@ -80,6 +84,7 @@ public class JdbcTable extends AbstractQueryableTable
   private final String jdbcSchemaName;
   private final String jdbcTableName;
   private final Schema.TableType jdbcTableType;
+  private final Supplier<String> splitColumnSupplier;
 
   JdbcTable(JdbcSchema jdbcSchema, String jdbcCatalogName,
       String jdbcSchemaName, String tableName, Schema.TableType jdbcTableType) {
@@ -89,6 +94,7 @@ public class JdbcTable extends AbstractQueryableTable
     this.jdbcSchemaName = jdbcSchemaName;
     this.jdbcTableName = tableName;
     this.jdbcTableType = Objects.requireNonNull(jdbcTableType);
+    this.splitColumnSupplier = Suppliers.memoize(this::computeSplitColumn);
   }
 
   public String toString() {
@@ -116,6 +122,41 @@ public RelDataType getRowType(RelDataTypeFactory typeFactory) {
     return protoRowType.apply(typeFactory);
   }
 
+  /** Returns the ordinal of the column on which scans of this table may be
+   * split into several queries, or -1 if they cannot be split.
+   *
+   * <p>The column is the one named for this table in
+   * {@link JdbcConvention#splitColumns}, or else the table's primary key if
+   * it consists of a single column. In either case, the column must have an
+   * integer type. */
+  int getSplitColumn(RelDataType rowType) {
+    final String columnName = splitColumnSupplier.get();
+    if (columnName == null) {
+      return -1;
+    }
+    final RelDataTypeField field = rowType.getField(columnName, true, false);
+    if (field == null
+        || !SqlTypeName.INT_TYPES.contains(field.getType().getSqlTypeName())) {
+      return -1;
+    }
+    return field.getIndex();
+  }
+
+  private String computeSplitColumn() {
+    final String columnName =
+        jdbcSchema.convention.splitColumns.get(jdbcTableName);
+    if (columnName != null) {
+      return columnName;
+    }
+    try {
+      return jdbcSchema.getPrimaryKeyColumn(jdbcCatalogName, jdbcSchemaName,
+          jdbcTableName);
+    } catch (SQLException e) {
+      // The driver may not support primary keys; do not split.
+      return null;
+    }
+  }
+
   private List<Pair<ColumnMetaData.Rep, Integer>> fieldClasses(
       final JavaTypeFactory typeFactory) {
     final RelDataType rowType = protoRowType.apply(typeFactory);
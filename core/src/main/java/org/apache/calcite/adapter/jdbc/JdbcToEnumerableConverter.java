@@ -40,16 +40,24 @@
 import org.apache.calcite.rel.convert.ConverterImpl;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.runtime.ResultSetEnumerable;
 import org.apache.calcite.runtime.SqlFunctions;
 import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.sql.SqlDialect;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.util.SqlString;
 import org.apache.calcite.util.BuiltInMethod;
 
+import com.google.common.collect.ImmutableList;
+
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -92,14 +100,6 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
             pref.prefer(JavaRowFormat.CUSTOM));
     final JdbcConvention jdbcConvention =
         (JdbcConvention) child.getConvention();
-    SqlString sqlString = generateSql(jdbcConvention.dialect);
-    String sql = sqlString.getSql();
-    if (CalciteSystemProperty.DEBUG.value()) {
-      System.out.println("[" + sql + "]");
-    }
-    Hook.QUERY_PLAN.run(sql);
-    final Expression sql_ =
-        builder0.append("sql", Expressions.constant(sql));
     final int fieldCount = getRowType().getFieldCount();
     BlockBuilder builder = new BlockBuilder();
     final ParameterExpression resultSet_ =
@@ -157,6 +157,39 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                                                 e_)))))))),
                 resultSet_));
 
+    final List<Expression> enumerables = new ArrayList<>();
+    for (RelNode part : split(jdbcConvention)) {
+      enumerables.add(
+          implementPart(builder0, jdbcConvention, part, rowBuilderFactory_));
+    }
+    final Expression enumerable;
+    if (enumerables.size() == 1) {
+      enumerable = enumerables.get(0);
+    } else {
+      enumerable = builder0.append("enumerable",
+          Expressions.call(
+              BuiltInMethod.RESULT_SET_ENUMERABLE_CONCURRENT.method,
+              Expressions.newArrayInit(ResultSetEnumerable.class,
+                  enumerables)));
+    }
+    builder0.add(
+        Expressions.return_(null, enumerable));
+    return implementor.result(physType, builder0.toBlock());
+  }
+
+  /** Generates code that creates a {@link ResultSetEnumerable} for one
+   * query. */
+  private Expression implementPart(BlockBuilder builder0,
+      JdbcConvention jdbcConvention, RelNode rel,
+      Expression rowBuilderFactory_) {
+    final SqlString sqlString = generateSql(jdbcConvention.dialect, rel);
+    final String sql = sqlString.getSql();
+    if (CalciteSystemProperty.DEBUG.value()) {
+      System.out.println("[" + sql + "]");
+    }
+    Hook.QUERY_PLAN.run(sql);
+    final Expression sql_ =
+        builder0.append("sql", Expressions.constant(sql));
     final Expression enumerable;
 
     if (sqlString.getDynamicParameters() != null
@@ -195,9 +228,110 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
             Expressions.call(enumerable,
                 BuiltInMethod.RESULT_SET_ENUMERABLE_SET_TIMEOUT.method,
                 DataContext.ROOT)));
-    builder0.add(
-        Expressions.return_(null, enumerable));
-    return implementor.result(physType, builder0.toBlock());
+    if (jdbcConvention.fetchSize != 0) {
+      builder0.add(
+          Expressions.statement(
+              Expressions.call(enumerable,
+                  BuiltInMethod.RESULT_SET_ENUMERABLE_SET_FETCH_SIZE.method,
+                  Expressions.constant(jdbcConvention.fetchSize))));
+    }
+    if (jdbcConvention.disableAutoCommitForFetch) {
+      builder0.add(
+          Expressions.statement(
+              Expressions.call(enumerable,
+                  BuiltInMethod
+                      .RESULT_SET_ENUMERABLE_SET_DISABLE_AUTO_COMMIT_FOR_FETCH
+                      .method,
+                  Expressions.constant(true))));
+    }
+    if (jdbcConvention.prefetchSize != 0) {
+      builder0.add(
+          Expressions.statement(
+              Expressions.call(enumerable,
+                  BuiltInMethod.RESULT_SET_ENUMERABLE_SET_PREFETCH_SIZE.method,
+                  Expressions.constant(jdbcConvention.prefetchSize))));
+    }
+    return enumerable;
+  }
+
+  /** Splits the input into relational expressions that each read a disjoint
+   * part of a table, so that they can be executed concurrently.
+   *
+   * <p>The input can be split only if the convention has a split degree of
+   * more than 1, and the input is a scan of a table that has a split column
+   * (see {@link JdbcTable#getSplitColumn}), optionally with filters and
+   * projections on top, and if the estimated number of rows is more than the
+   * convention's {@link JdbcConvention#splitRowCount split row count}; it is
+   * not worth opening several connections to read a few rows.
+   *
+   * <p>Part {@code i} of {@code n} reads the rows whose split column value
+   * {@code c} has {@code MOD(c, n)} equal to {@code i} or {@code -i}; part 0
+   * also reads rows where {@code c} is null.
+   *
+   * <p>If the input cannot be split, returns a list containing just the
+   * input. */
+  private List<RelNode> split(JdbcConvention jdbcConvention) {
+    final RelNode input = getInput();
+    final int n = jdbcConvention.splitDegree;
+    if (n <= 1) {
+      return ImmutableList.of(input);
+    }
+    final List<RelNode> path = new ArrayList<>();
+    RelNode rel = input;
+    while (!(rel instanceof JdbcTableScan)) {
+      if (!(rel instanceof JdbcRules.JdbcFilter
+          || rel instanceof JdbcRules.JdbcProject
+          || rel instanceof JdbcRules.JdbcCalc)) {
+        return ImmutableList.of(input);
+      }
+      path.add(rel);
+      rel = rel.getInput(0);
+    }
+    final JdbcTableScan scan = (JdbcTableScan) rel;
+    final int column = scan.jdbcTable.getSplitColumn(scan.getRowType());
+    if (column < 0) {
+      return ImmutableList.of(input);
+    }
+    final Double rowCount = getCluster().getMetadataQuery().getRowCount(input);
+    if (rowCount == null || rowCount <= jdbcConvention.splitRowCount) {
+      return ImmutableList.of(input);
+    }
+    final RexBuilder rexBuilder = getCluster().getRexBuilder();
+    final RexNode ref = rexBuilder.makeInputRef(scan, column);
+    final RexNode mod =
+        rexBuilder.makeCall(SqlStdOperatorTable.MOD, ref,
+            rexBuilder.makeExactLiteral(BigDecimal.valueOf(n)));
+    final ImmutableList.Builder<RelNode> parts = ImmutableList.builder();
+    for (int i = 0; i < n; i++) {
+      final RexNode condition =
+          rexBuilder.makeCall(SqlStdOperatorTable.OR,
+              rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, mod,
+                  rexBuilder.makeExactLiteral(BigDecimal.valueOf(i))),
+              i == 0
+                  ? rexBuilder.makeCall(SqlStdOperatorTable.IS_NULL, ref)
+                  : rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, mod,
+                      rexBuilder.makeExactLiteral(BigDecimal.valueOf(-i))));
+      // Add the condition to the filter on the scan, if there is one,
+      // otherwise create a filter.
+      int j = path.size() - 1;
+      RelNode part;
+      if (j >= 0 && path.get(j) instanceof JdbcRules.JdbcFilter) {
+        final JdbcRules.JdbcFilter filter =
+            (JdbcRules.JdbcFilter) path.get(j--);
+        part = filter.copy(filter.getTraitSet(), scan,
+            RexUtil.composeConjunction(rexBuilder,
+                ImmutableList.of(filter.getCondition(), condition)));
+      } else {
+        part = new JdbcRules.JdbcFilter(getCluster(), scan.getTraitSet(),
+            scan, condition);
+      }
+      for (; j >= 0; j--) {
+        part = path.get(j).copy(path.get(j).getTraitSet(),
+            ImmutableList.of(part));
+      }
+      parts.add(part);
+    }
+    return parts.build();
   }
 
   private List<ConstantExpression> toIndexesTableExpression(SqlString sqlString) {
@@ -331,12 +465,12 @@ private String jdbcGetMethod(Primitive primitive) {
         : "get" + SqlFunctions.initcap(primitive.primitiveName);
   }
 
-  private SqlString generateSql(SqlDialect dialect) {
+  private SqlString generateSql(SqlDialect dialect, RelNode rel) {
     final JdbcImplementor jdbcImplementor =
         new JdbcImplementor(dialect,
             (JavaTypeFactory) getCluster().getTypeFactory());
     final JdbcImplementor.Result result =
-        jdbcImplementor.visitChild(0, getInput());
+        jdbcImplementor.visitChild(0, rel);
     return result.asStatement().toSqlString(dialect);
   }
 }
@@ -70,6 +70,16 @@ public interface CalciteConnectionConfig extends ConnectionConfig {
   <T> T typeSystem(Class<T> typeSystemClass, T defaultTypeSystem);
   /** @see CalciteConnectionProperty#CONFORMANCE */
   SqlConformance conformance();
+  /** @see CalciteConnectionProperty#SPILL_ROW_THRESHOLD */
+  long spillRowThreshold();
+  /** @see CalciteConnectionProperty#PARALLELISM */
+  int parallelism();
+  /** @see CalciteConnectionProperty#PREPARED_PLAN_CACHE_SIZE */
+  int preparedPlanCacheSize();
+  /** @see CalciteConnectionProperty#PLANNER_PARALLELISM */
+  int plannerParallelism();
+  /** @see CalciteConnectionProperty#PLANNER_TOP_DOWN */
+  boolean plannerTopDown();
   /** @see CalciteConnectionProperty#TIME_ZONE */
   @Override String timeZone();
 }
@@ -184,6 +184,31 @@ public SqlConformance conformance() {
         .getEnum(SqlConformanceEnum.class);
   }
 
+  public long spillRowThreshold() {
+    return CalciteConnectionProperty.SPILL_ROW_THRESHOLD.wrap(properties)
+        .getLong();
+  }
+
+  public int parallelism() {
+    return CalciteConnectionProperty.PARALLELISM.wrap(properties)
+        .getInt();
+  }
+
+  public int preparedPlanCacheSize() {
+    return CalciteConnectionProperty.PREPARED_PLAN_CACHE_SIZE.wrap(properties)
+        .getInt();
+  }
+
+  public int plannerParallelism() {
+    return CalciteConnectionProperty.PLANNER_PARALLELISM.wrap(properties)
+        .getInt();
+  }
+
+  public boolean plannerTopDown() {
+    return CalciteConnectionProperty.PLANNER_TOP_DOWN.wrap(properties)
+        .getBoolean();
+  }
+
   @Override public String timeZone() {
     return CalciteConnectionProperty.TIME_ZONE.wrap(properties)
             .getString();
@@ -144,7 +144,50 @@ public enum CalciteConnectionProperty implements ConnectionProperty {
   TYPE_SYSTEM("typeSystem", Type.PLUGIN, null, false),
 
   /** SQL conformance level. */
-  CONFORMANCE("conformance", Type.ENUM, SqlConformanceEnum.DEFAULT, false);
+  CONFORMANCE("conformance", Type.ENUM, SqlConformanceEnum.DEFAULT, false),
+
+  /** Maximum number of rows that a sort or a hash join holds in memory
+   * before writing rows to temporary files. The limit is a number of rows,
+   * not bytes. Rows are spilled only if every field has a primitive or
+   * serializable type. The default, 0, means that operators never spill to
+   * disk. */
+  SPILL_ROW_THRESHOLD("spillRowThreshold", Type.NUMBER, 0L, false),
+
+  /** Number of threads that may evaluate parts of a query concurrently.
+   * If greater than 1, the planner places exchanges around aggregates and
+   * joins, and the parts of the plan between exchanges are evaluated in a
+   * {@link java.util.concurrent.ForkJoinPool} of that many threads. An
+   * aggregate with a group key, or a join with an equi-join key, is split
+   * into that many partitions by hashing the keys, and the partitions are
+   * evaluated concurrently. The default, 1, evaluates each query on the
+   * calling thread. */
+  PARALLELISM("parallelism", Type.NUMBER, 1, false),
+
+  /** Maximum number of prepared plans to keep for re-use by statements whose
+   * SQL differs only in the values of literals. 0, the default, disables the
+   * cache.
+   *
+   * <p>When the cache is enabled, a query's plan is built with the literals
+   * that it compares to columns replaced by {@code ?}, so optimizations that
+   * depend on those values do not happen: zone maps cannot prune the blocks
+   * of a cloned table, histograms cannot estimate the selectivity of the
+   * comparisons, and comparisons cannot be folded into a {@code SEARCH}
+   * over ranges. Enable it for workloads that prepare many short queries
+   * that differ only in their literals. */
+  PREPARED_PLAN_CACHE_SIZE("preparedPlanCacheSize", Type.NUMBER, 0, false),
+
+  /** Number of threads in which the Volcano planner fires rules. The
+   * default, 1, plans each query on the calling thread.
+   *
+   * @see org.apache.calcite.plan.volcano.VolcanoPlanner#setParallelism(int) */
+  PLANNER_PARALLELISM("plannerParallelism", Type.NUMBER, 1, false),
+
+  /** Whether the Volcano planner searches top-down, pruning expressions that
+   * cost more than the best plan found so far. The default, false, fires
+   * rules in order of importance until none are left.
+   *
+   * @see org.apache.calcite.plan.volcano.VolcanoPlanner#setTopDownOpt(boolean) */
+  PLANNER_TOP_DOWN("plannerTopDown", Type.BOOLEAN, false, false);
 
   private final String camelName;
   private final Type type;
@@ -279,6 +279,113 @@
       intProperty("calcite.bindable.cache.concurrencyLevel", 1,
           v -> v >= 1 && v <= Integer.MAX_VALUE);
 
+  /**
+   * The maximum size of the cache of compiled plans, keyed by the digest of
+   * the physical plan.
+   *
+   * <p>Unlike the cache sized by {@link #BINDABLE_CACHE_MAX_SIZE}, which is
+   * keyed by generated Java source, a hit in this cache also skips the
+   * generation of Java code.</p>
+   *
+   * <p>The default value is 0.</p>
+   *
+   * <p>The property can take any value between [0, {@link Integer#MAX_VALUE}] inclusive. If the
+   * value is not valid (or not specified) then the default value is used.</p>
+   *
+   * <p>Setting this property to 0 disables the cache.</p>
+   */
+  public static final CalciteSystemProperty<Integer> BINDABLE_PLAN_CACHE_MAX_SIZE =
+      intProperty("calcite.bindable.plan.cache.maxSize", 0,
+          v -> v >= 0 && v <= Integer.MAX_VALUE);
+
+  /**
+   * The number of seconds after which a compiled plan that has not been used
+   * is removed from the cache sized by {@link #BINDABLE_PLAN_CACHE_MAX_SIZE}.
+   *
+   * <p>The default value is 0, which means that plans are only removed when
+   * the cache is full.</p>
+   */
+  public static final CalciteSystemProperty<Integer> BINDABLE_PLAN_CACHE_EXPIRE_SECONDS =
+      intProperty("calcite.bindable.plan.cache.expireSeconds", 0,
+          v -> v >= 0 && v <= Integer.MAX_VALUE);
+
+  /**
+   * The maximum total size, in megabytes, of the tiles that are materialized
+   * for lattices.
+   *
+   * <p>When a new tile takes the total over the budget, the tiles whose
+   * benefit (build time multiplied by the number of queries they have
+   * answered) per byte is least are evicted. A tile whose estimated size
+   * exceeds the budget, or whose estimated benefit is less than that of the
+   * tiles it would evict, is not built; the query reads from the lattice's
+   * tables instead.</p>
+   *
+   * <p>The default value is 0, which means that there is no limit.</p>
+   */
+  public static final CalciteSystemProperty<Integer> LATTICE_TILE_MEMORY_BUDGET_MB =
+      intProperty("calcite.lattice.tile.memoryBudgetMb", 0,
+          v -> v >= 0 && v <= Integer.MAX_VALUE);
+
+  /**
+   * The maximum number of entries in the cache of simplified expressions.
+   *
+   * <p>Each {@link org.apache.calcite.rex.RexBuilder}, and therefore each
+   * planning session, has its own cache. The cache holds the results of
+   * simplifying AND, OR and CASE expressions, so that rules that simplify the
+   * same condition more than once do not repeat the work.</p>
+   *
+   * <p>The default value is 1,000. Setting this property to 0 disables the
+   * cache.</p>
+   */
+  public static final CalciteSystemProperty<Integer> SIMPLIFY_CACHE_MAX_SIZE =
+      intProperty("calcite.simplify.cache.maxSize", 1_000,
+          v -> v >= 0 && v <= Integer.MAX_VALUE);
+
+  /**
+   * The minimum number of comparisons between the same column and literals,
+   * in an AND or OR, that {@link org.apache.calcite.rex.RexSimplify} combines
+   * into a single call to {@code SEARCH}.
+   *
+   * <p>A {@code SEARCH} holds its values as a sorted set of ranges, and
+   * generated code evaluates it using binary search. The default value is
+   * 20, the same as the default threshold at which {@code IN} lists become
+   * joins. Setting this property to 0 disables the conversion.</p>
+   *
+   * <p>{@link org.apache.calcite.sql2rel.SqlToRelConverter} also converts
+   * an {@code IN} or {@code NOT IN} list of at least this many literals of
+   * the same type directly into a {@code SEARCH}, rather than into a join
+   * with {@code VALUES}.</p>
+   */
+  public static final CalciteSystemProperty<Integer> SIMPLIFY_SEARCH_THRESHOLD =
+      intProperty("calcite.simplify.search.threshold", 20,
+          v -> v >= 0 && v <= Integer.MAX_VALUE);
+
+  /**
+   * The maximum number of threads that run the nodes of interpreters, across
+   * all queries.
+   *
+   * <p>Nodes spend much of their time waiting for their inputs or
+   * consumers, so the default value is the larger of 16 and the number of
+   * available processors. When every thread is busy,
+   * {@link org.apache.calcite.interpreter.Interpreter} runs the remaining
+   * nodes of a query in the thread that starts it. Setting this property to 0
+   * runs every node in that thread.</p>
+   */
+  public static final CalciteSystemProperty<Integer> INTERPRETER_THREADS =
+      intProperty("calcite.interpreter.threads",
+          Math.max(16, Runtime.getRuntime().availableProcessors()),
+          v -> v >= 0 && v <= Integer.MAX_VALUE);
+
+  /**
+   * Directory in which the statistics computed by {@code ANALYZE TABLE} are
+   * stored, so that they survive a restart.
+   *
+   * <p>The default value is the empty string, which means that statistics
+   * are held only in memory.</p>
+   */
+  public static final CalciteSystemProperty<String> STATISTICS_DIRECTORY =
+      stringProperty("calcite.statistics.directory", "");
+
   private static CalciteSystemProperty<Boolean> booleanProperty(String key, boolean defaultValue) {
     return new CalciteSystemProperty<>(key,
         v -> v == null ? defaultValue : Boolean.parseBoolean(v));
@@ -334,46 +334,45 @@ public Object end() {
   }
 
   /**
-   * Internal class to track groupings.
+   * Accumulators for one grouping set, in a hash table keyed by the values
+   * of the grouping columns.
+   *
+   * <p>The key of each group references the first row of the group, so
+   * looking up a row that belongs to an existing group allocates nothing.
    */
   private class Grouping {
     private final ImmutableBitSet grouping;
-    private final Map<Row, AccumulatorList> accumulators = new HashMap<>();
+    private final Map<RowKey, AccumulatorList> accumulators = new HashMap<>();
+    private final RowKey probe;
 
     private Grouping(ImmutableBitSet grouping) {
       this.grouping = grouping;
+      this.probe = new RowKey(grouping.toArray());
     }
 
     public void send(Row row) {
-      // TODO: fix the size of this row.
-      RowBuilder builder = Row.newBuilder(grouping.cardinality());
-      int j = 0;
-      for (Integer i : grouping) {
-        builder.set(j++, row.getObject(i));
-      }
-      Row key = builder.build();
-
-      if (!accumulators.containsKey(key)) {
-        AccumulatorList list = new AccumulatorList();
+      AccumulatorList list = accumulators.get(probe.reset(row));
+      if (list == null) {
+        list = new AccumulatorList();
         for (AccumulatorFactory factory : accumulatorFactories) {
           list.add(factory.get());
         }
-        accumulators.put(key, list);
+        accumulators.put(probe.copy(), list);
       }
-
-      accumulators.get(key).send(row);
+      list.send(row);
     }
 
     public void end(Sink sink) throws InterruptedException {
-      for (Map.Entry<Row, AccumulatorList> e : accumulators.entrySet()) {
-        final Row key = e.getKey();
+      for (Map.Entry<RowKey, AccumulatorList> e : accumulators.entrySet()) {
+        final RowKey key = e.getKey();
         final AccumulatorList list = e.getValue();
 
         RowBuilder rb = Row.newBuilder(outputRowLength);
         int index = 0;
+        int keyIndex = 0;
         for (Integer groupPos : unionGroups) {
           if (grouping.get(groupPos)) {
-            rb.set(index, key.getObject(index));
+            rb.set(index, key.get(keyIndex++));
             if (rel.indicator) {
               rb.set(unionGroups.cardinality() + index, true);
             }
@@ -21,7 +21,6 @@
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
-import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.linq4j.TransformedEnumerator;
 import org.apache.calcite.plan.RelOptCluster;
@@ -40,31 +39,40 @@
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.util.ControlFlowException;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.ReflectUtil;
 import org.apache.calcite.util.ReflectiveVisitDispatcher;
 import org.apache.calcite.util.ReflectiveVisitor;
 import org.apache.calcite.util.Util;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.math.BigDecimal;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Interpreter.
@@ -72,22 +80,75 @@
  * <p>Contains the context for interpreting relational expressions. In
  * particular it holds working state while the data flow graph is being
  * assembled.
+ *
+ * <p>The nodes of the data flow graph run as a pipeline. Each node that
+ * does not produce an {@link Enumerable} runs in a thread from a shared pool,
+ * and sends rows to its consumers via bounded queues, so rows stream from the
+ * table scans to the consumer of the interpreter. When a node finishes, or
+ * when the consumer closes the enumerator, the nodes that produce its input
+ * stop the next time they send a row.
+ *
+ * <p>The pool has at most
+ * {@link CalciteSystemProperty#INTERPRETER_THREADS} threads. If none is free
+ * when a query starts a node, the node runs to completion in the calling
+ * thread, writing to unbounded queues, before its consumers start. Such a
+ * node reads all of its input, so a query over an infinite table only
+ * streams if each of its nodes gets a thread.
  */
 public class Interpreter extends AbstractEnumerable<Object[]>
     implements AutoCloseable {
-  private final Map<RelNode, NodeInfo> nodes;
+  /** Maximum number of rows in the queue between a node and its consumer.
+   *
+   * <p>The queues of a node that has several consumers are unbounded. The
+   * consumers may share a descendant (say the two inputs of a join that read
+   * the same scan) and read their inputs one after another; if the queues
+   * were bounded, the node would block on the queue that is not being read,
+   * and the first input would never finish. Queues are also unbounded if
+   * their node runs in the calling thread. */
+  static final int QUEUE_CAPACITY = 1_024;
+
+  /** Maximum number of threads that run nodes. */
+  private static final int THREAD_COUNT =
+      CalciteSystemProperty.INTERPRETER_THREADS.value();
+
+  /** Permits to run a node in {@link #EXECUTOR}; a node that cannot acquire
+   * one runs in the thread that starts the enumeration. */
+  private static final Semaphore PERMITS = new Semaphore(THREAD_COUNT);
+
+  /** Runs the nodes of interpreters. It never has more than
+   * {@link #THREAD_COUNT} threads, and idle threads time out. */
+  private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
   private final DataContext dataContext;
-  private final RelNode rootRel;
+  private final RelNode rel;
+
+  /** Data flow graph for the first enumeration; compiled by the constructor
+   * so that errors are found early. Each later enumeration compiles its own
+   * graph, because channels and sources cannot be reused. */
+  private Pair<RelNode, Map<RelNode, NodeInfo>> compiled;
+
+  /** Enumerations that have started and have not been closed. */
+  private final List<Run> runs = new ArrayList<>();
+  private boolean closed;
 
   /** Creates an Interpreter. */
   public Interpreter(DataContext dataContext, RelNode rootRel) {
     this.dataContext = Objects.requireNonNull(dataContext);
-    final RelNode rel = optimize(rootRel);
-    final CompilerImpl compiler =
-        new Nodes.CoreCompiler(this, rootRel.getCluster());
-    Pair<RelNode, Map<RelNode, NodeInfo>> pair = compiler.visitRoot(rel);
-    this.rootRel = pair.left;
-    this.nodes = ImmutableMap.copyOf(pair.right);
+    this.rel = optimize(rootRel);
+    this.compiled = compile();
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(Math.max(THREAD_COUNT, 1),
+            Math.max(THREAD_COUNT, 1), 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("calcite-interpreter-%d")
+                .build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   private RelNode optimize(RelNode rootRel) {
@@ -103,38 +164,191 @@ private RelNode optimize(RelNode rootRel) {
     return rootRel;
   }
 
+  private Pair<RelNode, Map<RelNode, NodeInfo>> compile() {
+    final CompilerImpl compiler =
+        new Nodes.CoreCompiler(this, rel.getCluster());
+    final Pair<RelNode, Map<RelNode, NodeInfo>> pair = compiler.visitRoot(rel);
+    return Pair.of(pair.left, ImmutableMap.copyOf(pair.right));
+  }
+
   public Enumerator<Object[]> enumerator() {
-    start();
-    final NodeInfo nodeInfo = nodes.get(rootRel);
-    final Enumerator<Row> rows;
-    if (nodeInfo.rowEnumerable != null) {
-      rows = nodeInfo.rowEnumerable.enumerator();
-    } else {
-      final ArrayDeque<Row> queue =
-          Iterables.getOnlyElement(nodeInfo.sinks.values()).list;
-      rows = Linq4j.iterableEnumerator(queue);
+    final Run run;
+    synchronized (runs) {
+      if (closed) {
+        throw new IllegalStateException("interpreter is closed");
+      }
+      final Pair<RelNode, Map<RelNode, NodeInfo>> pair;
+      if (compiled != null) {
+        pair = compiled;
+        compiled = null;
+      } else {
+        pair = compile();
+      }
+      run = new Run(pair.left, pair.right);
+      runs.add(run);
     }
-
+    final Enumerator<Row> rows = run.start();
     return new TransformedEnumerator<Row, Object[]>(rows) {
       protected Object[] transform(Row row) {
         return row.getValues();
       }
+
+      @Override public void close() {
+        try {
+          super.close();
+        } finally {
+          run.close();
+          synchronized (runs) {
+            runs.remove(run);
+          }
+        }
+      }
     };
   }
 
-  private void start() {
-    // We rely on the nodes being ordered leaves first.
-    for (Map.Entry<RelNode, NodeInfo> entry : nodes.entrySet()) {
-      final NodeInfo nodeInfo = entry.getValue();
+  /** Stops every enumeration that is in progress, and waits for the threads
+   * that run its nodes to finish. */
+  public void close() {
+    final List<Run> runList;
+    synchronized (runs) {
+      closed = true;
+      runList = new ArrayList<>(runs);
+      runs.clear();
+    }
+    for (Run run : runList) {
+      run.close();
+    }
+  }
+
+  /** One enumeration of an interpreter: its data flow graph, and the threads
+   * that run its nodes. */
+  private static class Run {
+    private final RelNode rootRel;
+    private final Map<RelNode, NodeInfo> nodes;
+    /** Threads that are running nodes; guarded by itself. */
+    private final Set<Thread> threads = new HashSet<>();
+    private boolean cancelled;
+    /** Counts down as each node that runs in a thread finishes. */
+    private final CountDownLatch done;
+
+    Run(RelNode rootRel, Map<RelNode, NodeInfo> nodes) {
+      this.rootRel = rootRel;
+      this.nodes = nodes;
+      int threadCount = 0;
+      for (NodeInfo nodeInfo : nodes.values()) {
+        if (nodeInfo.rowEnumerable == null) {
+          ++threadCount;
+        }
+      }
+      this.done = new CountDownLatch(threadCount);
+    }
+
+    /** Starts the nodes, and returns the rows of the root.
+     *
+     * <p>Nodes are registered after their inputs, so a node that cannot get
+     * a thread from the pool can run to completion here: its inputs have
+     * either finished or are running in the pool, and its consumers have not
+     * started yet. */
+    Enumerator<Row> start() {
+      for (NodeInfo nodeInfo : nodes.values()) {
+        if (nodeInfo.rowEnumerable != null) {
+          // The node's consumers read its rows directly; nothing to run.
+          try {
+            nodeInfo.node.run();
+          } catch (InterruptedException e) {
+            e.printStackTrace();
+          }
+        } else if (PERMITS.tryAcquire()) {
+          EXECUTOR.execute(() -> {
+            try {
+              run(nodeInfo);
+            } finally {
+              PERMITS.release();
+            }
+          });
+        } else {
+          for (Channel channel : nodeInfo.channels.values()) {
+            channel.unbound();
+          }
+          run(nodeInfo);
+        }
+      }
+      final NodeInfo nodeInfo = nodes.get(rootRel);
+      if (nodeInfo.rowEnumerable != null) {
+        return nodeInfo.rowEnumerable.enumerator();
+      } else {
+        final Channel channel =
+            Iterables.getOnlyElement(nodeInfo.channels.values());
+        return new SourceEnumerator(new ChannelSource(channel));
+      }
+    }
+
+    /** Runs a node, then tells its consumers that it has finished (or
+     * failed), and closes its inputs so that the nodes that produce them
+     * stop. */
+    private void run(NodeInfo nodeInfo) {
+      final Thread thread = Thread.currentThread();
       try {
-        nodeInfo.node.run();
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+        synchronized (threads) {
+          if (cancelled) {
+            return;
+          }
+          threads.add(thread);
+        }
+        try {
+          nodeInfo.node.run();
+          for (Channel channel : nodeInfo.channels.values()) {
+            channel.end();
+          }
+        } catch (ConsumerClosedException e) {
+          // All consumers have gone; there is nobody to tell.
+        } catch (Throwable e) {
+          for (Channel channel : nodeInfo.channels.values()) {
+            channel.fail(e);
+          }
+        } finally {
+          for (Source source : nodeInfo.sources) {
+            source.close();
+          }
+          synchronized (threads) {
+            threads.remove(thread);
+            // Do not let an interrupt from close() leak into the pool
+            Thread.interrupted();
+          }
+        }
+      } finally {
+        done.countDown();
       }
     }
-  }
 
-  public void close() {
+    /** Cancels the run: closes every channel, so that producers stop at
+     * their next send and none is blocked on a full queue, interrupts the
+     * threads running nodes, and waits for them to finish. */
+    void close() {
+      synchronized (threads) {
+        cancelled = true;
+        for (NodeInfo nodeInfo : nodes.values()) {
+          for (Channel channel : nodeInfo.channels.values()) {
+            channel.close();
+          }
+        }
+        for (Thread thread : threads) {
+          thread.interrupt();
+        }
+      }
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (NodeInfo nodeInfo : nodes.values()) {
+        if (nodeInfo.rowEnumerable != null) {
+          for (Source source : nodeInfo.sources) {
+            source.close();
+          }
+        }
+      }
+    }
   }
 
   /** Not used. */
@@ -248,7 +462,8 @@ public Object execute(Context context) {
   /** Information about a node registered in the data flow graph. */
   private static class NodeInfo {
     final RelNode rel;
-    final Map<Edge, ListSink> sinks = new LinkedHashMap<>();
+    final Map<Edge, Channel> channels = new LinkedHashMap<>();
+    final List<Source> sources = new ArrayList<>();
     final Enumerable<Row> rowEnumerable;
     Node node;
 
@@ -283,88 +498,178 @@ private static class EnumeratorSource implements Source {
     }
   }
 
-  /** Implementation of {@link Sink} using a {@link java.util.ArrayDeque}. */
-  private static class ListSink implements Sink {
-    final ArrayDeque<Row> list;
-
-    private ListSink(ArrayDeque<Row> list) {
-      this.list = list;
+  /** Queue of rows from a node to one of its consumers.
+   *
+   * <p>The producer blocks if the queue is full, and the consumer blocks if
+   * it is empty. When the producer has finished, it adds an end marker; if
+   * it failed, it records the error, which the consumer throws. */
+  private static class Channel {
+    /** Marks the end of the rows. */
+    private static final Row END = Row.of();
+
+    private volatile BlockingQueue<Row> queue;
+    private volatile boolean closed;
+    private volatile Throwable error;
+    private boolean ended;
+
+    Channel(BlockingQueue<Row> queue) {
+      this.queue = Objects.requireNonNull(queue);
     }
 
-    public void send(Row row) throws InterruptedException {
-      list.add(row);
+    /** Replaces the queue with an unbounded one, so that the producer can
+     * run to completion before the consumer starts. */
+    void unbound() {
+      queue = new LinkedBlockingQueue<>(queue);
     }
 
-    public void end() throws InterruptedException {
+    /** Called by the producer to send a row; returns false if the consumer
+     * has closed the channel. */
+    boolean put(Row row) throws InterruptedException {
+      if (closed) {
+        return false;
+      }
+      queue.put(row);
+      return true;
     }
 
-    @SuppressWarnings("deprecation")
-    @Override public void setSourceEnumerable(Enumerable<Row> enumerable)
-        throws InterruptedException {
-      // just copy over the source into the local list
-      final Enumerator<Row> enumerator = enumerable.enumerator();
-      while (enumerator.moveNext()) {
-        this.send(enumerator.current());
+    /** Called by the producer when it has sent all of its rows. */
+    void end() throws InterruptedException {
+      if (!ended) {
+        ended = true;
+        put(END);
       }
-      enumerator.close();
     }
-  }
 
-  /** Implementation of {@link Source} using a {@link java.util.ArrayDeque}. */
-  private static class ListSource implements Source {
-    private final ArrayDeque<Row> list;
-    private Iterator<Row> iterator = null;
-
-    ListSource(ArrayDeque<Row> list) {
-      this.list = list;
+    /** Called by the producer if it fails. */
+    void fail(Throwable e) {
+      error = e;
+      try {
+        end();
+      } catch (InterruptedException e2) {
+        Thread.currentThread().interrupt();
+      }
     }
 
-    public Row receive() {
+    /** Called by the consumer to read a row; returns null at the end. */
+    Row take() {
+      final Row row;
       try {
-        if (iterator == null) {
-          iterator = list.iterator();
+        row = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      if (row == END) {
+        // Leave the marker for any subsequent calls
+        queue.add(END);
+        if (error != null) {
+          Util.throwIfUnchecked(error);
+          throw new RuntimeException(error);
         }
-        return iterator.next();
-      } catch (NoSuchElementException e) {
-        iterator = null;
         return null;
       }
+      return row;
     }
 
-    @Override public void close() {
-      // noop
+    /** Called by the consumer when it does not want any more rows. */
+    void close() {
+      closed = true;
+      queue.clear();
+      // Wake the consumer, if it is waiting for a row
+      queue.offer(END);
     }
   }
 
-  /** Implementation of {@link Sink} using a {@link java.util.ArrayDeque}. */
-  private static class DuplicatingSink implements Sink {
-    private List<ArrayDeque<Row>> queues;
+  /** Implementation of {@link Sink} that sends rows to the
+   * {@link Channel}s of a node's consumers. */
+  private static class ChannelSink implements Sink {
+    private final List<Channel> channels;
 
-    private DuplicatingSink(List<ArrayDeque<Row>> queues) {
-      this.queues = ImmutableList.copyOf(queues);
+    private ChannelSink(List<Channel> channels) {
+      this.channels = ImmutableList.copyOf(channels);
     }
 
     public void send(Row row) throws InterruptedException {
-      for (ArrayDeque<Row> queue : queues) {
-        queue.add(row);
+      boolean sent = false;
+      for (Channel channel : channels) {
+        sent |= channel.put(row);
+      }
+      if (!sent) {
+        throw ConsumerClosedException.INSTANCE;
       }
     }
 
     public void end() throws InterruptedException {
+      for (Channel channel : channels) {
+        channel.end();
+      }
     }
 
     @SuppressWarnings("deprecation")
     @Override public void setSourceEnumerable(Enumerable<Row> enumerable)
         throws InterruptedException {
-      // just copy over the source into the local list
-      final Enumerator<Row> enumerator = enumerable.enumerator();
-      while (enumerator.moveNext()) {
-        this.send(enumerator.current());
+      // just copy over the source into the channels
+      try (Enumerator<Row> enumerator = enumerable.enumerator()) {
+        while (enumerator.moveNext()) {
+          this.send(enumerator.current());
+        }
       }
-      enumerator.close();
     }
   }
 
+  /** Implementation of {@link Source} that reads rows from a
+   * {@link Channel}. */
+  private static class ChannelSource implements Source {
+    private final Channel channel;
+
+    ChannelSource(Channel channel) {
+      this.channel = Objects.requireNonNull(channel);
+    }
+
+    public Row receive() {
+      return channel.take();
+    }
+
+    @Override public void close() {
+      channel.close();
+    }
+  }
+
+  /** Enumerator that reads rows from a {@link Source}. Closing the
+   * enumerator closes the source. */
+  private static class SourceEnumerator implements Enumerator<Row> {
+    private final Source source;
+    private Row current;
+
+    SourceEnumerator(Source source) {
+      this.source = Objects.requireNonNull(source);
+    }
+
+    public Row current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      current = source.receive();
+      return current != null;
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      source.close();
+    }
+  }
+
+  /** Thrown by a {@link Sink} when all of the consumers of its node have
+   * closed their inputs, so that the node stops. */
+  private static class ConsumerClosedException extends ControlFlowException {
+    static final ConsumerClosedException INSTANCE =
+        new ConsumerClosedException();
+  }
+
   /**
    * Walks over a tree of {@link org.apache.calcite.rel.RelNode} and, for each,
    * creates a {@link org.apache.calcite.interpreter.Node} that can be
@@ -390,6 +695,7 @@ static class CompilerImpl extends RelVisitor
     final Map<RelNode, NodeInfo> nodes = new LinkedHashMap<>();
     final Map<RelNode, List<RelNode>> relInputs = new HashMap<>();
     final Multimap<RelNode, Edge> outEdges = LinkedHashMultimap.create();
+    final Multimap<RelNode, Source> sources = ArrayListMultimap.create();
 
     private static final String REWRITE_METHOD_NAME = "rewrite";
     private static final String VISIT_METHOD_NAME = "visit";
@@ -403,6 +709,9 @@ static class CompilerImpl extends RelVisitor
     Pair<RelNode, Map<RelNode, NodeInfo>> visitRoot(RelNode p) {
       rootRel = p;
       visit(p, 0, null);
+      for (Map.Entry<RelNode, NodeInfo> entry : nodes.entrySet()) {
+        entry.getValue().sources.addAll(sources.get(entry.getKey()));
+      }
       return Pair.of(rootRel, nodes);
     }
 
@@ -504,16 +813,20 @@ public Source source(RelNode rel, int ordinal) {
       if (nodeInfo == null) {
         throw new AssertionError("should be registered: " + rel);
       }
+      final Source source;
       if (nodeInfo.rowEnumerable != null) {
-        return new EnumeratorSource(nodeInfo.rowEnumerable.enumerator());
-      }
-      assert nodeInfo.sinks.size() == edges.size();
-      final ListSink sink = nodeInfo.sinks.get(edge);
-      if (sink != null) {
-        return new ListSource(sink.list);
+        source = new EnumeratorSource(nodeInfo.rowEnumerable.enumerator());
+      } else {
+        assert nodeInfo.channels.size() == edges.size();
+        final Channel channel = nodeInfo.channels.get(edge);
+        if (channel == null) {
+          throw new IllegalStateException("Got a sink to which there is no "
+              + "matching source: " + edge);
+        }
+        source = new ChannelSource(channel);
       }
-      throw new IllegalStateException(
-          "Got a sink " + sink + " to which there is no match source type!");
+      sources.put(rel, source);
+      return source;
     }
 
     private RelNode getInput(RelNode rel, int ordinal) {
@@ -534,18 +847,13 @@ public Sink sink(RelNode rel) {
         nodeInfo = new NodeInfo(rel, null);
         nodes.put(rel, nodeInfo);
         for (Edge edge : edges2) {
-          nodeInfo.sinks.put(edge, new ListSink(new ArrayDeque<>()));
-        }
-      }
-      if (edges.size() == 1) {
-        return Iterables.getOnlyElement(nodeInfo.sinks.values());
-      } else {
-        final List<ArrayDeque<Row>> queues = new ArrayList<>();
-        for (ListSink sink : nodeInfo.sinks.values()) {
-          queues.add(sink.list);
+          final BlockingQueue<Row> queue = edges2.size() == 1
+              ? new ArrayBlockingQueue<>(QUEUE_CAPACITY)
+              : new LinkedBlockingQueue<>();
+          nodeInfo.channels.put(edge, new Channel(queue));
         }
-        return new DuplicatingSink(queues);
       }
+      return new ChannelSink(ImmutableList.copyOf(nodeInfo.channels.values()));
     }
 
     public void enumerable(RelNode rel, Enumerable<Row> rowEnumerable) {
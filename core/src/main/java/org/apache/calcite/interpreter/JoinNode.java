@@ -16,16 +16,36 @@
  */
 package org.apache.calcite.interpreter;
 
+import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.SemiJoin;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.ImmutableIntList;
 
 import com.google.common.collect.ImmutableList;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Interpreter node that implements a
  * {@link org.apache.calcite.rel.core.Join}.
+ *
+ * <p>Reads one input, the <dfn>build</dfn> side, into a hash table keyed by
+ * the columns that the join condition equates with columns of the other
+ * input, then looks up each row of the other input, the <dfn>probe</dfn>
+ * side. The build side is the input that is estimated to have fewer rows.
+ * The part of the condition that is not an equality between input columns is
+ * evaluated for each pair of rows that have the same key. If the condition
+ * has no such equalities, all rows have the same key, and the join is a
+ * nested loop.
  */
 public class JoinNode implements Node {
   private final Source leftSource;
@@ -34,42 +54,139 @@ public class JoinNode implements Node {
   private final Join rel;
   private final Scalar condition;
   private final Context context;
+  private final int[] leftKeys;
+  private final int[] rightKeys;
+  private final boolean buildLeft;
 
   public JoinNode(Compiler compiler, Join rel) {
     this.leftSource = compiler.source(rel, 0);
     this.rightSource = compiler.source(rel, 1);
     this.sink = compiler.sink(rel);
-    this.condition = compiler.compile(ImmutableList.of(rel.getCondition()),
-        compiler.combinedRowType(rel.getInputs()));
     this.rel = rel;
     this.context = compiler.createContext();
 
+    // Columns compared using "=" are hash keys. Columns compared using
+    // "IS NOT DISTINCT FROM" are checked by evaluating the whole condition.
+    final List<Integer> leftKeys = new ArrayList<>();
+    final List<Integer> rightKeys = new ArrayList<>();
+    final List<Boolean> filterNulls = new ArrayList<>();
+    RexNode remaining =
+        RelOptUtil.splitJoinCondition(rel.getLeft(), rel.getRight(),
+            rel.getCondition(), leftKeys, rightKeys, filterNulls);
+    for (int i = filterNulls.size() - 1; i >= 0; i--) {
+      if (!filterNulls.get(i)) {
+        leftKeys.remove(i);
+        rightKeys.remove(i);
+        remaining = rel.getCondition();
+      }
+    }
+    this.leftKeys = ImmutableIntList.copyOf(leftKeys).toIntArray();
+    this.rightKeys = ImmutableIntList.copyOf(rightKeys).toIntArray();
+    this.condition = remaining.isAlwaysTrue()
+        ? null
+        : compiler.compile(ImmutableList.of(remaining),
+            compiler.combinedRowType(rel.getInputs()));
+
+    // A semi-join emits left rows, so must build on the right. An outer join
+    // may build on either side.
+    final RelMetadataQuery mq = rel.getCluster().getMetadataQuery();
+    final Double leftRowCount = mq.getRowCount(rel.getLeft());
+    final Double rightRowCount = mq.getRowCount(rel.getRight());
+    this.buildLeft = !(rel instanceof SemiJoin)
+        && leftRowCount != null
+        && rightRowCount != null
+        && leftRowCount < rightRowCount;
   }
 
   public void run() throws InterruptedException {
-    List<Row> rightList = null;
     final int leftCount = rel.getLeft().getRowType().getFieldCount();
     final int rightCount = rel.getRight().getRowType().getFieldCount();
-    context.values = new Object[rel.getRowType().getFieldCount()];
-    Row left;
-    Row right;
-    while ((left = leftSource.receive()) != null) {
-      System.arraycopy(left.getValues(), 0, context.values, 0, leftCount);
-      if (rightList == null) {
-        rightList = new ArrayList<>();
-        while ((right = rightSource.receive()) != null) {
-          rightList.add(right);
-        }
+    final Source buildSource = buildLeft ? leftSource : rightSource;
+    final Source probeSource = buildLeft ? rightSource : leftSource;
+    final int buildOffset = buildLeft ? 0 : leftCount;
+    final int probeOffset = buildLeft ? leftCount : 0;
+    final int buildCount = buildLeft ? leftCount : rightCount;
+    final int probeCount = buildLeft ? rightCount : leftCount;
+    final JoinRelType joinType = rel.getJoinType();
+    final boolean semi = rel instanceof SemiJoin;
+    final boolean outerBuild =
+        joinType.generatesNullsOn(buildLeft ? 1 : 0);
+    final boolean outerProbe =
+        joinType.generatesNullsOn(buildLeft ? 0 : 1);
+
+    // Build. Rows with a null key cannot match, so are not in the table,
+    // but are in the list of rows to emit if this is an outer join.
+    final Map<RowKey, List<Row>> table = new HashMap<>();
+    final List<Row> buildRows = outerBuild ? new ArrayList<>() : null;
+    final int[] buildKeys = buildLeft ? leftKeys : rightKeys;
+    Row row;
+    while ((row = buildSource.receive()) != null) {
+      if (buildRows != null) {
+        buildRows.add(row);
+      }
+      final RowKey key = new RowKey(buildKeys, row);
+      if (!key.containsNull()) {
+        table.computeIfAbsent(key, k -> new ArrayList<>(1)).add(row);
       }
-      for (Row right2 : rightList) {
-        System.arraycopy(right2.getValues(), 0, context.values, leftCount,
-            rightCount);
-        final Boolean execute = (Boolean) condition.execute(context);
-        if (execute != null && execute) {
+    }
+    final Set<Row> matchedBuildRows = outerBuild
+        ? Collections.newSetFromMap(new IdentityHashMap<>())
+        : null;
+
+    // Probe
+    context.values = new Object[leftCount + rightCount];
+    final RowKey probe = new RowKey(buildLeft ? rightKeys : leftKeys);
+    while ((row = probeSource.receive()) != null) {
+      System.arraycopy(row.getValues(), 0, context.values, probeOffset,
+          probeCount);
+      final List<Row> candidates = table.get(probe.reset(row));
+      boolean matched = false;
+      if (candidates != null) {
+        for (Row candidate : candidates) {
+          System.arraycopy(candidate.getValues(), 0, context.values,
+              buildOffset, buildCount);
+          if (condition != null) {
+            final Boolean execute = (Boolean) condition.execute(context);
+            if (execute == null || !execute) {
+              continue;
+            }
+          }
+          matched = true;
+          if (semi) {
+            break;
+          }
+          if (matchedBuildRows != null) {
+            matchedBuildRows.add(candidate);
+          }
           sink.send(Row.asCopy(context.values));
         }
       }
+      if (semi ? matched : !matched && outerProbe) {
+        send(row, probeOffset, probeCount);
+      }
+    }
+
+    if (buildRows != null) {
+      for (Row buildRow : buildRows) {
+        if (!matchedBuildRows.contains(buildRow)) {
+          send(buildRow, buildOffset, buildCount);
+        }
+      }
+    }
+  }
+
+  /** Sends a row that consists of one input row, with its columns at a given
+   * offset, and the columns of the other input null; or, for a semi-join,
+   * just the input row. */
+  private void send(Row row, int offset, int count)
+      throws InterruptedException {
+    if (rel instanceof SemiJoin) {
+      sink.send(row);
+      return;
     }
+    final Object[] values = new Object[rel.getRowType().getFieldCount()];
+    System.arraycopy(row.getValues(), 0, values, offset, count);
+    sink.send(new Row(values));
   }
 }
 
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.interpreter;
+
+import java.util.Objects;
+
+/**
+ * Key of a hash table, consisting of some of the columns of a row.
+ *
+ * <p>A key references the values of a row, and a list of column ordinals,
+ * rather than copying the values. Two keys are equal if their columns are
+ * pairwise equal, even if their ordinals are different, so a key over the
+ * left input of a join can be looked up in a table of keys over the right
+ * input.
+ *
+ * <p>A key that is used only for lookups can be {@link #reset(Row) reset}
+ * to reference each row in turn, which avoids allocating an object per row.
+ */
+class RowKey {
+  private final int[] ordinals;
+  private Object[] values;
+  private int hash;
+
+  RowKey(int[] ordinals) {
+    this.ordinals = ordinals;
+  }
+
+  /** Creates a key that references a given row. */
+  RowKey(int[] ordinals, Row row) {
+    this(ordinals);
+    reset(row);
+  }
+
+  /** Makes this key reference a given row, and returns this key. */
+  RowKey reset(Row row) {
+    this.values = row.getValues();
+    int h = 1;
+    for (int ordinal : ordinals) {
+      h = 31 * h + Objects.hashCode(values[ordinal]);
+    }
+    this.hash = h;
+    return this;
+  }
+
+  /** Returns the value of the {@code i}th column of this key. */
+  Object get(int i) {
+    return values[ordinals[i]];
+  }
+
+  /** Returns whether any of the columns of this key is null. */
+  boolean containsNull() {
+    for (int ordinal : ordinals) {
+      if (values[ordinal] == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns a key that references the same row as this key, and that is not
+   * affected if this key is subsequently reset. */
+  RowKey copy() {
+    final RowKey key = new RowKey(ordinals);
+    key.values = values;
+    key.hash = hash;
+    return key;
+  }
+
+  @Override public int hashCode() {
+    return hash;
+  }
+
+  @Override public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof RowKey)) {
+      return false;
+    }
+    final RowKey that = (RowKey) obj;
+    if (hash != that.hash || ordinals.length != that.ordinals.length) {
+      return false;
+    }
+    for (int i = 0; i < ordinals.length; i++) {
+      if (!Objects.equals(get(i), that.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override public String toString() {
+    final StringBuilder b = new StringBuilder("[");
+    for (int i = 0; i < ordinals.length; i++) {
+      if (i > 0) {
+        b.append(", ");
+      }
+      b.append(get(i));
+    }
+    return b.append("]").toString();
+  }
+}
+
+// End RowKey.java
@@ -412,6 +412,10 @@ private ImmutableList<MetaTypeInfo> getAllDefaultType() {
     final CalciteConnectionImpl conn = (CalciteConnectionImpl) connection;
     final RelDataTypeSystem typeSystem = conn.typeFactory.getTypeSystem();
     for (SqlTypeName sqlTypeName : SqlTypeName.values()) {
+      if (sqlTypeName == SqlTypeName.SARG) {
+        // Internal; only the type name of a literal argument to SEARCH
+        continue;
+      }
       allTypeList.add(
           new MetaTypeInfo(sqlTypeName.getName(),
               sqlTypeName.getJdbcOrdinal(),
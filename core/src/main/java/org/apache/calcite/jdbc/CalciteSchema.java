@@ -26,6 +26,7 @@
 import org.apache.calcite.schema.SchemaVersion;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.TableMacro;
+import org.apache.calcite.schema.impl.LongSchemaVersion;
 import org.apache.calcite.schema.impl.MaterializedViewTable;
 import org.apache.calcite.schema.impl.StarTable;
 import org.apache.calcite.util.NameMap;
@@ -47,6 +48,7 @@
 import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Schema.
@@ -68,6 +70,9 @@ public abstract class CalciteSchema {
   protected final NameMap<FunctionEntry> nullaryFunctionMap;
   protected final NameMap<CalciteSchema> subSchemaMap;
   private List<? extends List<String>> path;
+  /** Number of times that the contents of this schema or its sub-schemas have
+   * been changed; only maintained by the root schema. */
+  private final AtomicLong modificationCount = new AtomicLong();
 
   protected CalciteSchema(CalciteSchema parent, Schema schema,
       String name, NameMap<CalciteSchema> subSchemaMap,
@@ -190,6 +195,7 @@ public TableEntry add(String tableName, Table table,
     final TableEntryImpl entry =
         new TableEntryImpl(this, tableName, table, sqls);
     tableMap.put(tableName, entry);
+    modified();
     return entry;
   }
 
@@ -198,6 +204,7 @@ public TypeEntry add(String name, RelProtoDataType type) {
     final TypeEntry entry =
         new TypeEntryImpl(this, name, type);
     typeMap.put(name, entry);
+    modified();
     return entry;
   }
 
@@ -209,6 +216,7 @@ private FunctionEntry add(String name, Function function) {
     if (function.getParameters().isEmpty()) {
       nullaryFunctionMap.put(name, entry);
     }
+    modified();
     return entry;
   }
 
@@ -218,6 +226,7 @@ private LatticeEntry add(String name, Lattice lattice) {
     }
     final LatticeEntryImpl entry = new LatticeEntryImpl(this, name, lattice);
     latticeMap.put(name, entry);
+    modified();
     return entry;
   }
 
@@ -230,6 +239,23 @@ public CalciteSchema root() {
     }
   }
 
+  /** Records that an object has been added to or removed from this
+   * schema. */
+  protected void modified() {
+    root().modificationCount.incrementAndGet();
+  }
+
+  /** Returns the version of the contents of the tree of schemas that this
+   * schema belongs to.
+   *
+   * <p>The version changes whenever a table, type, function, lattice or
+   * sub-schema is explicitly added to or removed from any schema in the
+   * tree. It does not change if the underlying {@link Schema} objects change
+   * the objects that they define implicitly. */
+  public SchemaVersion getModificationVersion() {
+    return new LongSchemaVersion(root().modificationCount.get());
+  }
+
   /** Returns whether this is a root schema. */
   public boolean isRoot() {
     return parent == null;
@@ -515,12 +541,12 @@ public static CalciteSchema createRootSchema(boolean addMetadataSchema,
 
   @Experimental
   public boolean removeSubSchema(String name) {
-    return subSchemaMap.remove(name) != null;
+    return removed(subSchemaMap.remove(name) != null);
   }
 
   @Experimental
   public boolean removeTable(String name) {
-    return tableMap.remove(name) != null;
+    return removed(tableMap.remove(name) != null);
   }
 
   @Experimental
@@ -530,12 +556,19 @@ public boolean removeFunction(String name) {
       return false;
     }
     functionMap.remove(name, remove);
-    return true;
+    return removed(true);
   }
 
   @Experimental
   public boolean removeType(String name) {
-    return typeMap.remove(name) != null;
+    return removed(typeMap.remove(name) != null);
+  }
+
+  private boolean removed(boolean removed) {
+    if (removed) {
+      modified();
+    }
+    return removed;
   }
 
   /**
@@ -700,6 +733,7 @@ public <T> T unwrap(Class<T> clazz) {
 
     public void setPath(ImmutableList<ImmutableList<String>> path) {
       CalciteSchema.this.path = path;
+      modified();
     }
 
     public void add(String name, Table table) {
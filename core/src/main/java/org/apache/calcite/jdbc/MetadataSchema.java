@@ -17,6 +17,9 @@
 package org.apache.calcite.jdbc;
 
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.materialize.MaterializationService;
+import org.apache.calcite.materialize.TileManager;
 import org.apache.calcite.schema.Schema;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.impl.AbstractSchema;
@@ -29,7 +32,8 @@
 import static org.apache.calcite.jdbc.CalciteMetaImpl.MetaColumn;
 import static org.apache.calcite.jdbc.CalciteMetaImpl.MetaTable;
 
-/** Schema that contains metadata tables such as "TABLES" and "COLUMNS". */
+/** Schema that contains metadata tables such as "TABLES", "COLUMNS" and
+ * "TILES". */
 class MetadataSchema extends AbstractSchema {
   private static final Map<String, Table> TABLE_MAP =
       ImmutableMap.of(
@@ -58,6 +62,17 @@ public Enumerator<MetaTable> enumerator(CalciteMetaImpl meta) {
               }
               return meta.tables(catalog).enumerator();
             }
+          },
+          "TILES",
+          new CalciteMetaImpl.MetadataTable<TileManager.TileStatistic>(
+              TileManager.TileStatistic.class) {
+            public Enumerator<TileManager.TileStatistic> enumerator(
+                CalciteMetaImpl meta) {
+              final TileManager tileManager =
+                  MaterializationService.instance().getTileManager();
+              return Linq4j.enumerator(
+                  tileManager.statistics(meta.getConnection().rootSchema));
+            }
           });
 
   public static final Schema INSTANCE = new MetadataSchema();
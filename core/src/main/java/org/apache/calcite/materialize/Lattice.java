@@ -30,6 +30,8 @@
 import org.apache.calcite.rel.logical.LogicalJoin;
 import org.apache.calcite.rel.logical.LogicalProject;
 import org.apache.calcite.rel.rel2sql.SqlImplementor;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rex.RexCall;
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexNode;
@@ -412,6 +414,40 @@ public double getRowCount(List<Column> columns) {
     return statisticProvider.cardinality(columns);
   }
 
+  /** Returns the row type of the tile with the given dimensions and
+   * measures; that is, of the query generated by
+   * {@link #sql(ImmutableBitSet, List)}. */
+  public RelDataType getRowType(RelDataTypeFactory typeFactory,
+      ImmutableBitSet groupSet, List<Measure> measures) {
+    final RelDataTypeFactory.Builder builder = typeFactory.builder();
+    for (int i : groupSet) {
+      final Column column = columns.get(i);
+      builder.add(column.alias, columnType(column));
+    }
+    for (Ord<Measure> measure : Ord.zip(measures)) {
+      final List<RelDataType> argTypes = new ArrayList<>();
+      for (Column arg : measure.e.args) {
+        argTypes.add(columnType(arg));
+      }
+      builder.add("m" + measure.i,
+          measure.e.agg.inferReturnType(typeFactory, argTypes));
+    }
+    return builder.build();
+  }
+
+  private RelDataType columnType(Column column) {
+    if (column instanceof DerivedColumn) {
+      return ((DerivedColumn) column).e.getType();
+    }
+    for (LatticeNode node : rootNode.descendants) {
+      if (node.alias.equals(((BaseColumn) column).table)) {
+        return node.table.t.getRowType().getFieldList()
+            .get(column.ordinal - node.startCol).getType();
+      }
+    }
+    throw new AssertionError("lattice column not found: " + column);
+  }
+
   /** Returns an estimate of the number of rows in the tile with the given
    * dimensions. */
   public static double getRowCount(double factCount, double... columnCounts) {
@@ -27,6 +27,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Actor that manages the state of materializations in the system.
@@ -35,7 +36,8 @@ class MaterializationActor {
   // Not an actor yet -- TODO make members private and add request/response
   // queues
 
-  final Map<MaterializationKey, Materialization> keyMap = new HashMap<>();
+  final Map<MaterializationKey, Materialization> keyMap =
+      new ConcurrentHashMap<>();
 
   final Map<QueryKey, MaterializationKey> keyBySql = new HashMap<>();
 
@@ -52,10 +54,16 @@ class MaterializationActor {
   static class Materialization {
     final MaterializationKey key;
     final CalciteSchema rootSchema;
-    CalciteSchema.TableEntry materializedTable;
+    volatile CalciteSchema.TableEntry materializedTable;
     final String sql;
     final RelDataType rowType;
     final List<String> viewSchemaPath;
+    /** Factory that created the table, or null if the table already
+     * existed; the service only refreshes tables that it created. */
+    final MaterializationService.TableFactory tableFactory;
+    /** Whether the materialization is being recomputed, and so must not be
+     * used to answer queries. */
+    volatile boolean refreshing;
 
     /** Creates a materialization.
      *
@@ -67,13 +75,16 @@ static class Materialization {
      *                          materialization service will change the value as
      * @param sql  Query that is materialized
      * @param rowType Row type
+     * @param viewSchemaPath Schema path in which to resolve the query
+     * @param tableFactory Factory that created the table, or null
      */
     Materialization(MaterializationKey key,
         CalciteSchema rootSchema,
         CalciteSchema.TableEntry materializedTable,
         String sql,
         RelDataType rowType,
-        List<String> viewSchemaPath) {
+        List<String> viewSchemaPath,
+        MaterializationService.TableFactory tableFactory) {
       this.key = key;
       this.rootSchema = Objects.requireNonNull(rootSchema);
       Preconditions.checkArgument(rootSchema.isRoot(), "must be root schema");
@@ -81,6 +92,7 @@ static class Materialization {
       this.sql = sql;
       this.rowType = rowType;
       this.viewSchemaPath = viewSchemaPath;
+      this.tableFactory = tableFactory; // may be null
     }
   }
 
@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.materialize;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.interpreter.Interpreter;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.prepare.RelOptTableImpl;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelShuttleImpl;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.core.SemiJoin;
+import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.core.Union;
+import org.apache.calcite.rel.core.Values;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.logical.LogicalValues;
+import org.apache.calcite.rel.rules.PruneEmptyRules;
+import org.apache.calcite.rel.stream.Delta;
+import org.apache.calcite.rel.stream.LogicalDelta;
+import org.apache.calcite.rel.stream.StreamRules;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.SqlKind;
+
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental maintenance of a materialization whose query is an aggregate,
+ * after rows have been inserted into one of the tables that it reads.
+ *
+ * <p>The query must be an {@link Aggregate}, optionally beneath a
+ * {@link Project} that only permutes fields, whose aggregate functions are
+ * {@code SUM}, {@code $SUM0}, {@code COUNT}, {@code MIN} and {@code MAX}, and
+ * whose input consists of scans, filters, projects, inner joins and
+ * {@code UNION ALL}. Inserting rows into a table of such a query only inserts
+ * rows into the input of the aggregate.
+ *
+ * <p>To compute the change to the input, we wrap the query in a
+ * {@link Delta} and push it down using the rules in {@link StreamRules}. The
+ * delta of the table that changed becomes a scan of the inserted rows, and the
+ * delta of every other table is empty. Executing the resulting query gives
+ * the aggregate of the inserted rows, which we merge with the existing rows of
+ * the materialization, group by group.
+ */
+class MaterializationDelta {
+  private final RelNode rel;
+
+  /** For each field of the query, the ordinal of the aggregate function that
+   * computes it, or -1 if it is a grouping key. */
+  private final int[] aggOrdinals;
+  private final List<AggregateCall> aggCalls;
+
+  private MaterializationDelta(RelNode rel, int[] aggOrdinals,
+      List<AggregateCall> aggCalls) {
+    this.rel = rel;
+    this.aggOrdinals = aggOrdinals;
+    this.aggCalls = aggCalls;
+  }
+
+  /** Creates a MaterializationDelta for a query, or returns null if the
+   * query cannot be maintained incrementally. */
+  static MaterializationDelta create(RelNode rel) {
+    RelNode r = rel;
+    if (r instanceof Sort
+        && ((Sort) r).fetch == null
+        && ((Sort) r).offset == null) {
+      r = ((Sort) r).getInput();
+    }
+    final List<Integer> sources = new ArrayList<>();
+    if (r instanceof Project) {
+      for (RexNode e : ((Project) r).getProjects()) {
+        if (!(e instanceof RexInputRef)) {
+          return null;
+        }
+        sources.add(((RexInputRef) e).getIndex());
+      }
+      r = ((Project) r).getInput();
+    } else {
+      for (int i = 0; i < r.getRowType().getFieldCount(); i++) {
+        sources.add(i);
+      }
+    }
+    if (!(r instanceof Aggregate)) {
+      return null;
+    }
+    final Aggregate aggregate = (Aggregate) r;
+    if (aggregate.getGroupType() != Aggregate.Group.SIMPLE
+        || !insertOnly(aggregate.getInput())) {
+      return null;
+    }
+    for (AggregateCall aggCall : aggregate.getAggCallList()) {
+      if (aggCall.isDistinct() || aggCall.filterArg >= 0) {
+        return null;
+      }
+      switch (aggCall.getAggregation().getKind()) {
+      case SUM:
+      case SUM0:
+      case COUNT:
+      case MIN:
+      case MAX:
+        break;
+      default:
+        return null;
+      }
+    }
+    final int groupCount = aggregate.getGroupCount();
+    final int[] aggOrdinals = new int[sources.size()];
+    for (int i = 0; i < aggOrdinals.length; i++) {
+      aggOrdinals[i] = sources.get(i) < groupCount
+          ? -1
+          : sources.get(i) - groupCount;
+    }
+    return new MaterializationDelta(rel, aggOrdinals,
+        aggregate.getAggCallList());
+  }
+
+  /** Returns whether inserting rows into a table that a relational
+   * expression reads can only insert rows into its output. */
+  private static boolean insertOnly(RelNode rel) {
+    if (rel instanceof TableScan
+        || rel instanceof Values
+        || rel instanceof Project
+        || rel instanceof Filter
+        || rel instanceof Union && ((Union) rel).all
+        || rel instanceof Join
+        && !(rel instanceof SemiJoin)
+        && ((Join) rel).getJoinType() == JoinRelType.INNER) {
+      for (RelNode input : rel.getInputs()) {
+        if (!insertOnly(input)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns the number of times that a relational expression scans a
+   * table. */
+  static int scanCount(RelNode rel, List<String> tableName) {
+    if (rel instanceof TableScan) {
+      return ((TableScan) rel).getTable().getQualifiedName().equals(tableName)
+          ? 1
+          : 0;
+    }
+    int n = 0;
+    for (RelNode input : rel.getInputs()) {
+      n += scanCount(input, tableName);
+    }
+    return n;
+  }
+
+  /** Returns the rows of the materialization after rows have been inserted
+   * into a table. The table must occur exactly once in the query.
+   *
+   * @param dataContext Data context
+   * @param current Rows of the materialization before the insert
+   * @param tableName Qualified name of the table
+   * @param rows Rows inserted into the table
+   */
+  List<Object[]> apply(DataContext dataContext, Enumerable<Object[]> current,
+      List<String> tableName, List<Object[]> rows) {
+    final RelNode deltaRel = deltaRel(tableName, rows);
+    final Map<List<Object>, Object[]> map = new LinkedHashMap<>();
+    for (Object[] row : current) {
+      map.put(key(row), row.clone());
+    }
+    for (Object[] row : new Interpreter(dataContext, deltaRel)) {
+      final List<Object> key = key(row);
+      final Object[] existing = map.get(key);
+      if (existing == null) {
+        map.put(key, row);
+        continue;
+      }
+      for (int i = 0; i < aggOrdinals.length; i++) {
+        if (aggOrdinals[i] >= 0) {
+          existing[i] =
+              combine(aggCalls.get(aggOrdinals[i]).getAggregation().getKind(),
+                  existing[i], row[i]);
+        }
+      }
+    }
+    return new ArrayList<>(map.values());
+  }
+
+  /** Returns a relational expression that computes the aggregate of the
+   * rows inserted into a table. */
+  private RelNode deltaRel(List<String> tableName, List<Object[]> rows) {
+    final HepProgram program = new HepProgramBuilder()
+        .addRuleCollection(
+            ImmutableList.of(
+                new StreamRules.DeltaProjectTransposeRule(
+                    RelFactories.LOGICAL_BUILDER),
+                new StreamRules.DeltaFilterTransposeRule(
+                    RelFactories.LOGICAL_BUILDER),
+                new StreamRules.DeltaAggregateTransposeRule(
+                    RelFactories.LOGICAL_BUILDER),
+                new StreamRules.DeltaSortTransposeRule(
+                    RelFactories.LOGICAL_BUILDER),
+                new StreamRules.DeltaUnionTransposeRule(
+                    RelFactories.LOGICAL_BUILDER),
+                new StreamRules.DeltaJoinTransposeRule(
+                    RelFactories.LOGICAL_BUILDER)))
+        .build();
+    final HepPlanner planner = new HepPlanner(program);
+    planner.setRoot(LogicalDelta.create(rel));
+    final RelNode rel2 = planner.findBestExp();
+
+    // Now each Delta is immediately above a TableScan or Values. The delta of
+    // the table that changed is the rows that were inserted; the delta of any
+    // other relation is empty.
+    final RelNode rel3 = rel2.accept(
+        new RelShuttleImpl() {
+          @Override public RelNode visit(RelNode other) {
+            if (!(other instanceof Delta)) {
+              return super.visit(other);
+            }
+            final RelNode input = ((Delta) other).getInput();
+            if (input instanceof TableScan) {
+              final RelOptTable table = input.getTable();
+              if (table.getQualifiedName().equals(tableName)) {
+                return LogicalTableScan.create(input.getCluster(),
+                    RelOptTableImpl.create(table.getRelOptSchema(),
+                        table.getRowType(),
+                        new DeltaTable(table.getRowType(), rows),
+                        ImmutableList.<String>builder()
+                            .addAll(tableName)
+                            .add("(DELTA)").build()));
+              }
+            } else if (!(input instanceof Values)) {
+              throw new AssertionError("cannot compute delta of " + input);
+            }
+            return LogicalValues.createEmpty(input.getCluster(),
+                input.getRowType());
+          }
+        });
+
+    // Remove joins to empty relations, so that we do not read tables that
+    // have not changed unless we have to.
+    final HepProgram program2 = new HepProgramBuilder()
+        .addRuleCollection(
+            ImmutableList.of(PruneEmptyRules.UNION_INSTANCE,
+                PruneEmptyRules.PROJECT_INSTANCE,
+                PruneEmptyRules.FILTER_INSTANCE,
+                PruneEmptyRules.JOIN_LEFT_INSTANCE,
+                PruneEmptyRules.JOIN_RIGHT_INSTANCE))
+        .build();
+    final HepPlanner planner2 = new HepPlanner(program2);
+    planner2.setRoot(rel3);
+    return planner2.findBestExp();
+  }
+
+  private List<Object> key(Object[] row) {
+    final List<Object> key = new ArrayList<>();
+    for (int i = 0; i < aggOrdinals.length; i++) {
+      if (aggOrdinals[i] < 0) {
+        key.add(row[i]);
+      }
+    }
+    return key;
+  }
+
+  /** Combines the value of an aggregate function over the existing rows with
+   * its value over the inserted rows. */
+  private static Object combine(SqlKind kind, Object v0, Object v1) {
+    if (v0 == null) {
+      return v1;
+    }
+    if (v1 == null) {
+      return v0;
+    }
+    switch (kind) {
+    case MIN:
+      return compare(v0, v1) <= 0 ? v0 : v1;
+    case MAX:
+      return compare(v0, v1) >= 0 ? v0 : v1;
+    default:
+      return plus((Number) v0, (Number) v1);
+    }
+  }
+
+  /** Adds two numbers, returning a value of the same class as the first. */
+  private static Number plus(Number v0, Number v1) {
+    if (v0 instanceof BigDecimal) {
+      return ((BigDecimal) v0).add(toBigDecimal(v1));
+    } else if (v0 instanceof Double) {
+      return v0.doubleValue() + v1.doubleValue();
+    } else if (v0 instanceof Float) {
+      return v0.floatValue() + v1.floatValue();
+    } else if (v0 instanceof Long) {
+      return v0.longValue() + v1.longValue();
+    } else if (v0 instanceof Integer) {
+      return v0.intValue() + v1.intValue();
+    } else if (v0 instanceof Short) {
+      return (short) (v0.shortValue() + v1.shortValue());
+    } else if (v0 instanceof Byte) {
+      return (byte) (v0.byteValue() + v1.byteValue());
+    } else {
+      throw new AssertionError("cannot add " + v0.getClass());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compare(Object v0, Object v1) {
+    if (v0.getClass() != v1.getClass()
+        && v0 instanceof Number
+        && v1 instanceof Number) {
+      return toBigDecimal((Number) v0).compareTo(toBigDecimal((Number) v1));
+    }
+    return ((Comparable) v0).compareTo(v1);
+  }
+
+  private static BigDecimal toBigDecimal(Number n) {
+    return n instanceof BigDecimal
+        ? (BigDecimal) n
+        : n instanceof Double || n instanceof Float
+        ? BigDecimal.valueOf(n.doubleValue())
+        : BigDecimal.valueOf(n.longValue());
+  }
+
+  /** Table that contains the rows that have been inserted into another
+   * table. */
+  private static class DeltaTable extends AbstractTable
+      implements ScannableTable {
+    private final RelDataType rowType;
+    private final List<Object[]> rows;
+
+    DeltaTable(RelDataType rowType, List<Object[]> rows) {
+      this.rowType = rowType;
+      this.rows = rows;
+    }
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return rowType;
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      return Linq4j.asEnumerable(rows);
+    }
+  }
+}
+
+// End MaterializationDelta.java
@@ -18,19 +18,27 @@
 
 import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.clone.CloneSchema;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.avatica.ColumnMetaData;
 import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.CalciteSystemProperty;
 import org.apache.calcite.jdbc.CalciteConnection;
 import org.apache.calcite.jdbc.CalciteMetaImpl;
 import org.apache.calcite.jdbc.CalcitePrepare;
 import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
 import org.apache.calcite.linq4j.AbstractQueryable;
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.prepare.Prepare;
+import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.rel.type.RelDataTypeImpl;
 import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.util.ImmutableBitSet;
@@ -79,6 +87,10 @@ public class MaterializationService {
 
   private final MaterializationActor actor = new MaterializationActor();
   private final DefaultTableFactory tableFactory = new DefaultTableFactory();
+  private final TileManager tileManager =
+      new TileManager(
+          CalciteSystemProperty.LATTICE_TILE_MEMORY_BUDGET_MB.value()
+              * 1024L * 1024L);
 
   private MaterializationService() {
   }
@@ -124,8 +136,10 @@ public MaterializationKey defineMaterialization(final CalciteSchema schema,
     }
 
     RelDataType rowType = null;
+    TableFactory createdBy = null;
     if (tableEntry == null) {
       Table table = tableFactory.createTable(schema, viewSql, viewSchemaPath);
+      createdBy = tableFactory;
       final String tableName = Schemas.uniqueTableName(schema,
           Util.first(suggestedTableName, "m"));
       tableEntry = schema.add(tableName, table, ImmutableList.of(viewSql));
@@ -142,7 +156,7 @@ public MaterializationKey defineMaterialization(final CalciteSchema schema,
     final MaterializationKey key = new MaterializationKey();
     final MaterializationActor.Materialization materialization =
         new MaterializationActor.Materialization(key, schema.root(),
-            tableEntry, viewSql, rowType, viewSchemaPath);
+            tableEntry, viewSql, rowType, viewSchemaPath, createdBy);
     actor.keyMap.put(materialization.key, materialization);
     actor.keyBySql.put(queryKey, materialization.key);
     if (tileKey != null) {
@@ -156,12 +170,136 @@ public MaterializationKey defineMaterialization(final CalciteSchema schema,
   public CalciteSchema.TableEntry checkValid(MaterializationKey key) {
     final MaterializationActor.Materialization materialization =
         actor.keyMap.get(key);
-    if (materialization != null) {
+    if (materialization != null && !materialization.refreshing) {
       return materialization.materializedTable;
     }
     return null;
   }
 
+  /** Recomputes a materialization by executing its query, and replaces its
+   * table with a table that contains the result.
+   *
+   * <p>Does nothing if the table existed before the materialization was
+   * defined. Queries that are already using the old table continue to use
+   * it. */
+  public void refresh(MaterializationKey key) {
+    final MaterializationActor.Materialization materialization =
+        actor.keyMap.get(key);
+    if (materialization != null && materialization.tableFactory != null) {
+      synchronized (materialization) {
+        recompute(materialization);
+      }
+    }
+  }
+
+  /** Brings up to date the materializations that read a table, after rows
+   * have been inserted into that table.
+   *
+   * <p>A materialization whose query is an aggregate using {@code SUM},
+   * {@code COUNT}, {@code MIN} and {@code MAX} over inner joins, filters and
+   * projects, and that reads the table once, is maintained incrementally:
+   * the aggregate is computed over the inserted rows and merged into the
+   * existing table. Other materializations that read the table are
+   * recomputed, as if by {@link #refresh(MaterializationKey)}.
+   *
+   * <p>In either case, the materialization's table is replaced by a new table
+   * when the new table is fully populated.
+   *
+   * @param rootSchema Root schema
+   * @param tableName Qualified name of the table
+   * @param rows Rows that were inserted, each an array of field values in
+   *     the table's internal representation
+   */
+  public void refreshAfterInsert(CalciteSchema rootSchema,
+      List<String> tableName, List<Object[]> rows) {
+    for (MaterializationActor.Materialization materialization
+        : actor.keyMap.values()) {
+      if (materialization.rootSchema.schema == rootSchema.schema
+          && materialization.tableFactory != null) {
+        synchronized (materialization) {
+          refreshAfterInsert(materialization, tableName, rows);
+        }
+      }
+    }
+  }
+
+  private void refreshAfterInsert(
+      MaterializationActor.Materialization materialization,
+      List<String> tableName, List<Object[]> rows) {
+    final CalciteSchema.TableEntry tableEntry =
+        materialization.materializedTable;
+    final CalciteConnection connection =
+        CalciteMetaImpl.connect(materialization.rootSchema, null);
+    final RelNode rel =
+        Schemas.convert(connection, tableEntry.schema,
+            materialization.viewSchemaPath, materialization.sql).root.project();
+    final int scanCount = MaterializationDelta.scanCount(rel, tableName);
+    if (scanCount == 0) {
+      return;
+    }
+    final Table table = tableEntry.getTable();
+    final MaterializationDelta delta =
+        scanCount == 1 && table instanceof ScannableTable
+            ? MaterializationDelta.create(rel)
+            : null;
+    if (delta == null) {
+      recompute(materialization);
+      return;
+    }
+    final DataContext dataContext =
+        Schemas.createDataContext(connection,
+            materialization.rootSchema.plus());
+    final List<Object[]> newRows =
+        delta.apply(dataContext, ((ScannableTable) table).scan(dataContext),
+            tableName, rows);
+    final JavaTypeFactory typeFactory = connection.getTypeFactory();
+    final RelDataType rowType = table.getRowType(typeFactory);
+    final List<ColumnMetaData.Rep> repList = new ArrayList<>();
+    for (RelDataTypeField field : rowType.getFieldList()) {
+      repList.add(
+          ColumnMetaData.Rep.of(typeFactory.getJavaClass(field.getType())));
+    }
+    // CloneSchema expects each row of a table with one field to be a scalar
+    final List<Object> source = new ArrayList<>();
+    for (Object[] row : newRows) {
+      source.add(rowType.getFieldCount() == 1 ? row[0] : row);
+    }
+    replaceTable(materialization,
+        CloneSchema.createCloneTable(typeFactory,
+            RelDataTypeImpl.proto(rowType), ImmutableList.of(), repList,
+            Linq4j.asEnumerable(source)));
+  }
+
+  /** Recomputes a materialization by executing its query. */
+  private void recompute(
+      MaterializationActor.Materialization materialization) {
+    final CalciteSchema.TableEntry tableEntry =
+        materialization.materializedTable;
+    // Prevent the query from being answered using the table that we are
+    // replacing.
+    materialization.refreshing = true;
+    final Table table;
+    try {
+      table = materialization.tableFactory.createTable(tableEntry.schema,
+          materialization.sql, materialization.viewSchemaPath);
+    } finally {
+      materialization.refreshing = false;
+    }
+    replaceTable(materialization, table);
+  }
+
+  /** Populates a table, then makes it the materialization's table. */
+  private void replaceTable(
+      MaterializationActor.Materialization materialization, Table table) {
+    // Tables created by CloneSchema are populated when they are first used;
+    // asking for statistics populates the table now, before it is visible.
+    Util.discard(table.getStatistic());
+    final CalciteSchema.TableEntry tableEntry =
+        materialization.materializedTable;
+    materialization.materializedTable =
+        tableEntry.schema.add(tableEntry.name, table, tableEntry.sqls);
+  }
+
   /**
    * Defines a tile.
    *
@@ -191,6 +329,7 @@ public Pair<CalciteSchema.TableEntry, TileKey> defineTile(Lattice lattice,
       final CalciteSchema.TableEntry tableEntry =
           checkValid(materializationKey);
       if (tableEntry != null) {
+        tileManager.hit(tileKey);
         return Pair.of(tableEntry, tileKey);
       }
     }
@@ -207,6 +346,7 @@ public Pair<CalciteSchema.TableEntry, TileKey> defineTile(Lattice lattice,
           final CalciteSchema.TableEntry tableEntry =
               checkValid(materializationKey);
           if (tableEntry != null) {
+            tileManager.hit(tileKey1);
             return Pair.of(tableEntry, tileKey1);
           }
         }
@@ -243,7 +383,9 @@ && allSatisfiable(measureList, tileKey2)) {
         }
       }
       if (!queue.isEmpty()) {
-        return queue.peek();
+        final Pair<CalciteSchema.TableEntry, TileKey> best = queue.peek();
+        tileManager.hit(best.right);
+        return best;
       }
     }
 
@@ -268,7 +410,24 @@ && allSatisfiable(measureList, tileKey2)) {
     final TileKey newTileKey =
         new TileKey(lattice, groupSet, ImmutableList.copyOf(measureSet));
 
+    // If there is a budget, don't build a tile that is estimated to be too
+    // large, or to be worth less than the tiles it would evict.
+    if (tileManager.getBudget() > 0) {
+      final List<Lattice.Column> columns = new ArrayList<>();
+      for (int i : groupSet) {
+        columns.add(lattice.columns.get(i));
+      }
+      final double rowCount = lattice.getRowCount(columns);
+      final RelDataType rowType =
+          lattice.getRowType(new JavaTypeFactoryImpl(), groupSet,
+              newTileKey.measures);
+      if (!tileManager.admit(lattice, rowCount, rowType)) {
+        return null;
+      }
+    }
+
     final String sql = lattice.sql(groupSet, newTileKey.measures);
+    final long start = System.nanoTime();
     materializationKey =
         defineMaterialization(schema, newTileKey, sql, schema.path(null),
             suggestedTableName, tableFactory, true, false);
@@ -276,20 +435,64 @@ && allSatisfiable(measureList, tileKey2)) {
       final CalciteSchema.TableEntry tableEntry =
           checkValid(materializationKey);
       if (tableEntry != null) {
-        // Obsolete all of the narrower tiles.
+        // Asking for the row count populates the table, so the build time
+        // includes executing the query.
+        final double rowCount =
+            tableEntry.getTable().getStatistic().getRowCount();
+        final long buildNanos = System.nanoTime() - start;
+
+        // Obsolete all of the narrower tiles. If there is a budget, drop them
+        // too; they would otherwise take space but never be used.
         for (TileKey tileKey1 : obsolete) {
-          actor.tilesByDimensionality.remove(tileKey0, tileKey1);
-          actor.keyByTile.remove(tileKey1);
+          if (tileManager.getBudget() > 0) {
+            dropTile(tileKey1);
+          } else {
+            actor.tilesByDimensionality.remove(tileKey0, tileKey1);
+            actor.keyByTile.remove(tileKey1);
+            tileManager.remove(tileKey1);
+          }
         }
 
         actor.tilesByDimensionality.put(tileKey0, newTileKey);
         actor.keyByTile.put(newTileKey, materializationKey);
+        final RelDataType rowType =
+            actor.keyMap.get(materializationKey).rowType;
+        final List<TileKey> victims = tileManager.add(newTileKey, tableEntry,
+            rowType, rowCount, buildNanos);
+        for (TileKey victim : victims) {
+          dropTile(victim);
+        }
+        if (victims.contains(newTileKey)) {
+          // The tile turned out to be larger than the budget.
+          return null;
+        }
         return Pair.of(tableEntry, newTileKey);
       }
     }
     return null;
   }
 
+  /** Removes a tile, its materialization and, if the service created it, the
+   * table that holds its data. */
+  private void dropTile(TileKey tileKey) {
+    final TileKey tileKey0 =
+        new TileKey(tileKey.lattice, tileKey.dimensions, ImmutableList.of());
+    actor.tilesByDimensionality.remove(tileKey0, tileKey);
+    tileManager.remove(tileKey);
+    final MaterializationKey key = actor.keyByTile.remove(tileKey);
+    if (key == null) {
+      return;
+    }
+    final MaterializationActor.Materialization materialization =
+        actor.keyMap.remove(key);
+    actor.keyBySql.values().remove(key);
+    if (materialization != null && materialization.tableFactory != null) {
+      final CalciteSchema.TableEntry tableEntry =
+          materialization.materializedTable;
+      tableEntry.schema.removeTable(tableEntry.name);
+    }
+  }
+
   private boolean allSatisfiable(List<Lattice.Measure> measureList,
       TileKey tileKey) {
     // A measure can be satisfied if it is contained in the measure list, or,
@@ -312,7 +515,8 @@ public List<Prepare.Materialization> query(CalciteSchema rootSchema) {
     for (MaterializationActor.Materialization materialization
         : actor.keyMap.values()) {
       if (materialization.rootSchema.schema == rootSchema.schema
-          && materialization.materializedTable != null) {
+          && materialization.materializedTable != null
+          && !materialization.refreshing) {
         list.add(
             new Prepare.Materialization(materialization.materializedTable,
                 materialization.sql, materialization.viewSchemaPath));
@@ -321,9 +525,16 @@ public List<Prepare.Materialization> query(CalciteSchema rootSchema) {
     return list;
   }
 
+  /** Returns the manager that keeps statistics about tiles and enforces
+   * their memory budget. */
+  public TileManager getTileManager() {
+    return tileManager;
+  }
+
   /** De-registers all materialized tables in the system. */
   public void clear() {
     actor.keyMap.clear();
+    tileManager.clear();
   }
 
   /** Used by tests, to ensure that they see their own service. */
@@ -376,7 +587,8 @@ public Table createTable(CalciteSchema schema, String viewSql,
             public Enumerator<Object> enumerator() {
               final DataContext dataContext =
                   Schemas.createDataContext(connection,
-                      calciteSignature.rootSchema.plus());
+                      calciteSignature.rootSchema.plus(),
+                      calciteSignature.internalParameters);
               return calciteSignature.enumerable(dataContext).enumerator();
             }
 
@@ -395,7 +607,8 @@ public QueryProvider getProvider() {
             public Iterator<Object> iterator() {
               final DataContext dataContext =
                   Schemas.createDataContext(connection,
-                      calciteSignature.rootSchema.plus());
+                      calciteSignature.rootSchema.plus(),
+                      calciteSignature.internalParameters);
               return calciteSignature.enumerable(dataContext).iterator();
             }
           });
@@ -50,6 +50,7 @@ private ProfilerLatticeStatisticProvider(Lattice lattice) {
           ProfilerImpl.builder()
               .withPassSize(200)
               .withMinimumSurprise(0.3D)
+              .withParallelism(Runtime.getRuntime().availableProcessors())
               .build();
       final List<Profiler.Column> columns = new ArrayList<>();
       for (Lattice.Column column : lattice.columns) {
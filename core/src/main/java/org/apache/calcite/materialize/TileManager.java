@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.materialize;
+
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.rel.metadata.RelMdSize;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps statistics about the tiles of lattices that have been materialized,
+ * and chooses tiles to evict when their total size exceeds a budget.
+ *
+ * <p>The benefit of a tile is the time it took to build, multiplied by one
+ * more than the number of times it has been used to answer a query. When the
+ * tiles exceed the budget, tiles with the least benefit per byte are evicted
+ * first.
+ *
+ * <p>Before a tile is built, {@link #admit} checks its estimated size and
+ * benefit. A tile that would not fit in the budget even if every other tile
+ * were evicted is not built; nor is a tile whose estimated benefit is less than
+ * the benefit of the tiles that would be evicted to make room for it. If a
+ * tile turns out to be larger than the budget once it has been built, it is
+ * evicted immediately.
+ */
+public class TileManager {
+  /** Average size of a value whose type has no estimate, in bytes. */
+  private static final double DEFAULT_VALUE_SIZE = 8d;
+
+  private static final RelMdSize SIZE = new RelMdSize() { };
+
+  private final Map<TileKey, TileInfo> tiles = new LinkedHashMap<>();
+
+  /** Maximum total size of tiles, in bytes; 0 means no limit. */
+  private long budget;
+
+  TileManager(long budget) {
+    setBudget(budget);
+  }
+
+  /** Returns the maximum total size of tiles, in bytes; 0 means no
+   * limit. */
+  public synchronized long getBudget() {
+    return budget;
+  }
+
+  /** Sets the maximum total size of tiles, in bytes; 0 means no limit. The
+   * new budget is enforced when the next tile is built. */
+  public synchronized void setBudget(long budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget must be non-negative: "
+          + budget);
+    }
+    this.budget = budget;
+  }
+
+  /** Returns the total size of the tiles, in bytes. */
+  public synchronized long size() {
+    long size = 0;
+    for (TileInfo tile : tiles.values()) {
+      size += tile.size;
+    }
+    return size;
+  }
+
+  /** Records that a tile has been used to answer a query. */
+  synchronized void hit(TileKey tileKey) {
+    final TileInfo tile = tiles.get(tileKey);
+    if (tile != null) {
+      ++tile.hitCount;
+    }
+  }
+
+  /** Returns whether a tile with a given estimated row count and row type is
+   * worth building. Its size is estimated as in {@link #add}.
+   *
+   * <p>Until a tile has been built, its build time is not known; we assume
+   * that it will be the average build time of the existing tiles of the same
+   * lattice. A tile is admitted if it fits within the budget, and if its
+   * benefit is at least the total benefit of the tiles that would be evicted
+   * to make room for it. */
+  synchronized boolean admit(Lattice lattice, double rowCount,
+      RelDataType rowType) {
+    if (budget == 0) {
+      return true;
+    }
+    final long size = (long) Math.ceil(rowCount * averageRowSize(rowType));
+    if (size > budget) {
+      return false;
+    }
+    long excess = size() + size - budget;
+    if (excess <= 0) {
+      return true;
+    }
+    final double benefit = averageBuildNanos(lattice);
+    double lostBenefit = 0d;
+    for (TileInfo tile : byDensity()) {
+      if (excess <= 0) {
+        break;
+      }
+      lostBenefit += (tile.hitCount + 1d) * tile.buildNanos;
+      excess -= tile.size;
+    }
+    return benefit >= lostBenefit;
+  }
+
+  /** Registers a tile that has just been built, and returns the tiles that
+   * must be evicted to bring the total size within budget. The caller is
+   * responsible for dropping the evicted tiles.
+   *
+   * <p>If the tile is itself larger than the budget, the only tile returned is
+   * the new tile. */
+  synchronized List<TileKey> add(TileKey tileKey,
+      CalciteSchema.TableEntry tableEntry, RelDataType rowType,
+      double rowCount, long buildNanos) {
+    final long size = (long) Math.ceil(rowCount * averageRowSize(rowType));
+    tiles.put(tileKey,
+        new TileInfo(tableEntry, (long) rowCount, size, buildNanos));
+    final List<TileKey> victims = new ArrayList<>();
+    if (budget == 0) {
+      return victims;
+    }
+    if (size > budget) {
+      tiles.remove(tileKey);
+      victims.add(tileKey);
+      return victims;
+    }
+    long excess = size() - budget;
+    if (excess <= 0) {
+      return victims;
+    }
+    final List<Map.Entry<TileKey, TileInfo>> candidates =
+        new ArrayList<>(tiles.entrySet());
+    candidates.sort(
+        Comparator.comparingDouble(entry -> entry.getValue().density()));
+    for (Map.Entry<TileKey, TileInfo> entry : candidates) {
+      if (excess <= 0) {
+        break;
+      }
+      if (!entry.getKey().equals(tileKey)) {
+        victims.add(entry.getKey());
+        excess -= entry.getValue().size;
+      }
+    }
+    for (TileKey victim : victims) {
+      tiles.remove(victim);
+    }
+    return victims;
+  }
+
+  /** Forgets a tile. Returns whether the tile was known. */
+  synchronized boolean remove(TileKey tileKey) {
+    return tiles.remove(tileKey) != null;
+  }
+
+  /** Returns statistics for each tile whose lattice belongs to a given root
+   * schema. */
+  public synchronized List<TileStatistic> statistics(
+      CalciteSchema rootSchema) {
+    final List<TileStatistic> list = new ArrayList<>();
+    for (Map.Entry<TileKey, TileInfo> entry : tiles.entrySet()) {
+      final TileKey tileKey = entry.getKey();
+      if (tileKey.lattice.rootSchema.schema == rootSchema.schema) {
+        list.add(new TileStatistic(tileKey, entry.getValue()));
+      }
+    }
+    return list;
+  }
+
+  /** Removes all tiles. */
+  synchronized void clear() {
+    tiles.clear();
+  }
+
+  /** Returns the average build time of the tiles of a lattice, or of all
+   * tiles if the lattice has none, in nanoseconds. */
+  private double averageBuildNanos(Lattice lattice) {
+    long latticeNanos = 0L;
+    int latticeCount = 0;
+    long nanos = 0L;
+    for (Map.Entry<TileKey, TileInfo> entry : tiles.entrySet()) {
+      final long buildNanos = entry.getValue().buildNanos;
+      if (entry.getKey().lattice == lattice) {
+        latticeNanos += buildNanos;
+        ++latticeCount;
+      }
+      nanos += buildNanos;
+    }
+    if (latticeCount > 0) {
+      return (double) latticeNanos / latticeCount;
+    }
+    return tiles.isEmpty() ? 0d : (double) nanos / tiles.size();
+  }
+
+  /** Returns the tiles, least benefit per byte first. */
+  private List<TileInfo> byDensity() {
+    final List<TileInfo> list = new ArrayList<>(tiles.values());
+    list.sort(Comparator.comparingDouble(TileInfo::density));
+    return list;
+  }
+
+  private static double averageRowSize(RelDataType rowType) {
+    double size = 0d;
+    for (RelDataTypeField field : rowType.getFieldList()) {
+      final Double fieldSize = SIZE.averageTypeValueSize(field.getType());
+      size += fieldSize == null ? DEFAULT_VALUE_SIZE : fieldSize;
+    }
+    return size;
+  }
+
+  /** Mutable information about a tile. */
+  private static class TileInfo {
+    final CalciteSchema.TableEntry tableEntry;
+    final long rowCount;
+    final long size;
+    final long buildNanos;
+    int hitCount;
+
+    TileInfo(CalciteSchema.TableEntry tableEntry, long rowCount, long size,
+        long buildNanos) {
+      this.tableEntry = tableEntry;
+      this.rowCount = rowCount;
+      this.size = size;
+      this.buildNanos = buildNanos;
+    }
+
+    /** Returns the benefit of this tile per byte. */
+    double density() {
+      return (hitCount + 1d) * buildNanos / Math.max(size, 1L);
+    }
+  }
+
+  /** Statistics about a tile, as seen by the "TILES" metadata table. */
+  public static class TileStatistic {
+    public final String tableSchem;
+    public final String tableName;
+    public final String dimensions;
+    public final String measures;
+    public final long rowCount;
+    public final long size;
+    public final long buildMillis;
+    public final int hitCount;
+
+    TileStatistic(TileKey tileKey, TileInfo tile) {
+      this.tableSchem = tile.tableEntry.schema.name;
+      this.tableName = tile.tableEntry.name;
+      this.dimensions = dimensions(tileKey.lattice, tileKey.dimensions);
+      this.measures = tileKey.measures.toString();
+      this.rowCount = tile.rowCount;
+      this.size = tile.size;
+      this.buildMillis = tile.buildNanos / 1_000_000L;
+      this.hitCount = tile.hitCount;
+    }
+
+    private static String dimensions(Lattice lattice,
+        ImmutableBitSet dimensions) {
+      final List<String> aliases = new ArrayList<>();
+      for (int i : dimensions) {
+        aliases.add(lattice.columns.get(i).alias);
+      }
+      return aliases.toString();
+    }
+  }
+}
+
+// End TileManager.java
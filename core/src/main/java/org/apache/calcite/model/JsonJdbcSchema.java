@@ -16,6 +16,8 @@
  */
 package org.apache.calcite.model;
 
+import java.util.Map;
+
 /**
  * JSON object representing a schema that maps to a JDBC database.
  *
@@ -69,6 +71,54 @@ public class JsonJdbcSchema extends JsonSchema {
    */
   public String jdbcSchema;
 
+  /** Number of rows to fetch from the database in each round trip.
+   *
+   * <p>Optional. If not specified, uses the JDBC driver's default. Some
+   * drivers read the whole result into memory unless this is set.
+   */
+  public Integer fetchSize;
+
+  /** Whether to turn off auto-commit while a statement runs, if
+   * {@link #fetchSize} is positive.
+   *
+   * <p>Optional. If not specified, false. Some drivers (such as
+   * PostgreSQL's) ignore the fetch size in auto-commit mode. If true, each
+   * statement runs in a transaction that is committed, and auto-commit
+   * restored, when its result set is closed.
+   */
+  public Boolean disableAutoCommitForFetch;
+
+  /** Number of rows that a background thread may read from the database
+   * ahead of the consumer.
+   *
+   * <p>Optional. If not specified, or 0, rows are read in the consumer's
+   * thread.
+   */
+  public Integer prefetchSize;
+
+  /** Number of concurrent queries into which a scan of a table is split.
+   *
+   * <p>Optional. If not specified, or 0 or 1, scans are not split. A scan
+   * is split only if its table has a split column; see
+   * {@link #splitColumns}.
+   */
+  public Integer splitDegree;
+
+  /** Minimum estimated number of rows that a scan must return to be split.
+   *
+   * <p>Optional. If not specified, 10,000. If 0,
+   * every scan is split. The estimate comes from the table's statistics;
+   * a table without statistics is estimated to have 100 rows.
+   */
+  public Integer splitRowCount;
+
+  /** Column on which to split scans of each table, keyed by table name.
+   *
+   * <p>Optional. A table that is not in the map is split on its primary key,
+   * if the key is a single column of integer type.
+   */
+  public Map<String, String> splitColumns;
+
   @Override public void accept(ModelHandler handler) {
     handler.visit(this);
   }
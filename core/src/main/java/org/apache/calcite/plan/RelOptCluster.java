@@ -37,6 +37,13 @@
  * optimization of a query.
  */
 public class RelOptCluster {
+  /** Metadata query that the current thread uses instead of the cluster's
+   * own, or null. A planner sets it in threads that fire rules concurrently
+   * with other threads, because a {@link RelMetadataQuery} is not
+   * thread-safe. */
+  public static final ThreadLocal<RelMetadataQuery> THREAD_METADATA_QUERY =
+      new ThreadLocal<>();
+
   //~ Instance fields --------------------------------------------------------
 
   private final RelDataTypeFactory typeFactory;
@@ -148,6 +155,10 @@ public MetadataFactory getMetadataFactory() {
    * for example if you are in a {@link RelOptRule#onMatch(RelOptRuleCall)}
    * method, then use {@link RelOptRuleCall#getMetadataQuery()} instead. */
   public RelMetadataQuery getMetadataQuery() {
+    final RelMetadataQuery threadMq = THREAD_METADATA_QUERY.get();
+    if (threadMq != null) {
+      return threadMq;
+    }
     if (mq == null) {
       mq = RelMetadataQuery.instance();
     }
@@ -156,7 +167,8 @@ public RelMetadataQuery getMetadataQuery() {
 
   /**
    * Should be called whenever the current {@link RelMetadataQuery} becomes
-   * invalid. Typically invoked from {@link RelOptRuleCall#transformTo}.
+   * invalid. {@link org.apache.calcite.plan.volcano.VolcanoPlanner} does not
+   * call it, but removes only the metadata that has changed.
    */
   public void invalidateMetadataQuery() {
     mq = null;
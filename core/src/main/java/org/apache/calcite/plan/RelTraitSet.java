@@ -537,14 +537,15 @@ public RelTraitSet simplify() {
     return x;
   }
 
-  /** Cache of trait sets. */
+  /** Cache of trait sets. It is synchronized because a planner may fire
+   * rules, and therefore create trait sets, in several threads. */
   private static class Cache {
     final Map<List<RelTrait>, RelTraitSet> map = new HashMap<>();
 
     Cache() {
     }
 
-    RelTraitSet getOrAdd(List<RelTrait> traits) {
+    synchronized RelTraitSet getOrAdd(List<RelTrait> traits) {
       RelTraitSet traitSet1 = map.get(traits);
       if (traitSet1 != null) {
         return traitSet1;
@@ -353,6 +353,7 @@ void mergeWith(
     }
 
     // Make sure the cost changes as a result of merging are propagated.
+    planner.clearCache(this);
     final Set<RelSubset> activeSet = new HashSet<>();
     final RelMetadataQuery mq = rel.getCluster().getMetadataQuery();
     for (RelNode parentRel : getParentRels()) {
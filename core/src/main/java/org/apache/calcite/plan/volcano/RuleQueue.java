@@ -430,6 +430,17 @@ private void dump(PrintWriter pw) {
    *                              {@link #phaseCompleted(VolcanoPlannerPhase)}.
    */
   VolcanoRuleMatch popMatch(VolcanoPlannerPhase phase) {
+    return popMatch(phase, null);
+  }
+
+  /**
+   * Removes the rule match with the highest importance whose first operand
+   * belongs to a given set, and returns it; or, if the set is null, behaves
+   * the same as {@link #popMatch(VolcanoPlannerPhase)}.
+   *
+   * <p>Returns {@code null} if there are no more such matches.</p>
+   */
+  VolcanoRuleMatch popMatch(VolcanoPlannerPhase phase, RelSet set) {
     dump();
 
     PhaseMatchList phaseMatchList = matchListMap.get(phase);
@@ -446,7 +457,11 @@ VolcanoRuleMatch popMatch(VolcanoPlannerPhase phase) {
       }
       if (LOGGER.isTraceEnabled()) {
         matchList.sort(MATCH_COMPARATOR);
-        match = matchList.remove(0);
+        final int pos = indexOf(matchList, set);
+        if (pos < 0) {
+          return null;
+        }
+        match = matchList.remove(pos);
 
         StringBuilder b = new StringBuilder();
         b.append("Sorted rule queue:");
@@ -467,12 +482,18 @@ VolcanoRuleMatch popMatch(VolcanoPlannerPhase phase) {
         int i = -1;
         for (VolcanoRuleMatch match2 : matchList) {
           ++i;
+          if (set != null && planner.getSet(match2.rels[0]) != set) {
+            continue;
+          }
           if (match == null
               || MATCH_COMPARATOR.compare(match2, match) < 0) {
             bestPos = i;
             match = match2;
           }
         }
+        if (match == null) {
+          return null;
+        }
         match = matchList.remove(bestPos);
       }
 
@@ -495,6 +516,28 @@ VolcanoRuleMatch popMatch(VolcanoPlannerPhase phase) {
     return match;
   }
 
+  /** Returns whether there is a match in a given phase whose first operand
+   * belongs to a given set. */
+  boolean hasMatch(VolcanoPlannerPhase phase, RelSet set) {
+    final PhaseMatchList phaseMatchList = matchListMap.get(phase);
+    return phaseMatchList != null
+        && indexOf(phaseMatchList.list, set) >= 0;
+  }
+
+  /** Returns the position of the first match in a list whose first operand
+   * belongs to a given set, or of the first match if the set is null; or -1
+   * if there is no such match. */
+  private int indexOf(List<VolcanoRuleMatch> matchList, RelSet set) {
+    int i = 0;
+    for (VolcanoRuleMatch match : matchList) {
+      if (set == null || planner.getSet(match.rels[0]) == set) {
+        return i;
+      }
+      ++i;
+    }
+    return -1;
+  }
+
   /** Returns whether to skip a match. This happens if any of the
    * {@link RelNode}s have importance zero. */
   private boolean skipMatch(VolcanoRuleMatch match) {
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.plan.volcano;
+
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.trace.CalciteTrace;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drives a {@link VolcanoPlanner} top-down, in the manner of the Cascades
+ * framework, rather than by firing the most important rule match in the
+ * whole queue.
+ *
+ * <p>A <dfn>goal</dfn> is a {@link RelSubset} and an upper bound on the cost
+ * of the plan that we are looking for. To optimize a goal, the optimizer
+ * fires the pending rule matches whose first operand is in the subset's set,
+ * then, for each expression in the subset, in increasing order of its own
+ * cost, it optimizes the input subsets as goals. The upper bound of an input
+ * goal is the parent's upper bound (or the subset's best cost, if lower)
+ * minus the expression's own cost and the best costs of the inputs
+ * optimized so far.
+ *
+ * <p>An expression whose lower bound (its own cost plus the best costs of
+ * the inputs that have been optimized) exceeds its goal's upper bound is
+ * pruned: its remaining inputs are not optimized, and so rule matches in
+ * sets that are reachable only through it never fire.
+ *
+ * <p>Matches that are still in the queue when the root goal has been
+ * optimized are discarded. If the root has no implementation at that point,
+ * the planner falls back to its usual search.
+ */
+class TopDownOptimizer {
+  private static final Logger LOGGER = CalciteTrace.getPlannerTracer();
+
+  private final VolcanoPlanner planner;
+  private final VolcanoPlannerPhase phase;
+
+  /** Upper bound with which each subset has been optimized. */
+  private final Map<RelSubset, RelOptCost> optimized = new HashMap<>();
+
+  /** Subsets that are being optimized. A subset that is an input to one of
+   * its own expressions is not optimized again. */
+  private final Set<RelSubset> active = new HashSet<>();
+
+  /** Number of expressions pruned. */
+  private int prunedCount;
+
+  TopDownOptimizer(VolcanoPlanner planner, VolcanoPlannerPhase phase) {
+    this.planner = planner;
+    this.phase = phase;
+  }
+
+  /** Optimizes a subset with an unbounded cost; returns the subset, which may
+   * be different if its set has been merged into another. */
+  RelSubset optimize(RelSubset root) {
+    optimize(root, planner.getCostFactory().makeInfiniteCost());
+    LOGGER.debug("Top-down optimization of phase {} optimized {} subsets, "
+        + "pruned {} expressions", phase, optimized.size(), prunedCount);
+    return planner.canonize(root);
+  }
+
+  /** Optimizes a goal. */
+  private void optimize(RelSubset subset, RelOptCost upperBound) {
+    subset = planner.canonize(subset);
+    final RelOptCost previousBound = optimized.get(subset);
+    if (previousBound != null
+        && (upperBound.isLe(previousBound)
+            || subset.bestCost.isLe(previousBound))) {
+      // Already optimized, and either we are not prepared to spend more
+      // than last time, or last time's bound found a plan.
+      return;
+    }
+    final RelSubset goal = subset;
+    if (!active.add(goal)) {
+      return;
+    }
+    try {
+      do {
+        explore(subset.set);
+        subset = planner.canonize(subset);
+        for (RelNode rel : sortBySelfCost(subset.getRelList())) {
+          optimizeInputs(rel, min(upperBound, subset.bestCost));
+          subset = planner.canonize(subset);
+        }
+      } while (planner.ruleQueue.hasMatch(phase, subset.set));
+      optimized.put(subset, upperBound);
+    } finally {
+      active.remove(goal);
+    }
+  }
+
+  /** Fires the pending rule matches whose first operand is in a set,
+   * including those that firing the matches creates. */
+  private void explore(RelSet set) {
+    while (planner.fireNext(phase, set) > 0) {
+      set = VolcanoPlanner.equivRoot(set);
+    }
+  }
+
+  /** Optimizes the inputs of an expression, stopping when its lower bound
+   * exceeds a given upper bound. */
+  private void optimizeInputs(RelNode rel, RelOptCost upperBound) {
+    final RelMetadataQuery mq = rel.getCluster().getMetadataQuery();
+    RelOptCost lowerBound = planner.getSelfCost(rel, mq);
+    for (RelNode input : rel.getInputs()) {
+      if (!lowerBound.isLe(upperBound)) {
+        ++prunedCount;
+        return;
+      }
+      final RelSubset inputSubset = (RelSubset) input;
+      optimize(inputSubset, upperBound.minus(lowerBound));
+      lowerBound = lowerBound.plus(planner.canonize(inputSubset).bestCost);
+    }
+  }
+
+  /** Returns the expressions that may be part of a plan, cheapest first.
+   * Expressions that have no calling convention cannot, and have infinite
+   * cost. */
+  private List<RelNode> sortBySelfCost(List<RelNode> rels) {
+    final List<Pair<RelOptCost, RelNode>> pairs = new ArrayList<>();
+    for (RelNode rel : rels) {
+      final RelOptCost cost =
+          planner.getSelfCost(rel, rel.getCluster().getMetadataQuery());
+      if (!cost.isInfinite()) {
+        pairs.add(Pair.of(cost, rel));
+      }
+    }
+    pairs.sort((p0, p1) ->
+        p0.left.isLt(p1.left) ? -1 : p1.left.isLt(p0.left) ? 1 : 0);
+    return Pair.right(pairs);
+  }
+
+  private static RelOptCost min(RelOptCost cost0, RelOptCost cost1) {
+    return cost1.isLt(cost0) ? cost1 : cost0;
+  }
+}
+
+// End TopDownOptimizer.java
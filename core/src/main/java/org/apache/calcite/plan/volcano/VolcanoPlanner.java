@@ -51,6 +51,7 @@
 import org.apache.calcite.rel.rules.AggregateJoinTransposeRule;
 import org.apache.calcite.rel.rules.AggregateProjectMergeRule;
 import org.apache.calcite.rel.rules.AggregateRemoveRule;
+import org.apache.calcite.rel.rules.AggregateStarTableRule;
 import org.apache.calcite.rel.rules.CalcRemoveRule;
 import org.apache.calcite.rel.rules.FilterJoinRule;
 import org.apache.calcite.rel.rules.JoinAssociateRule;
@@ -90,6 +91,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -100,6 +107,18 @@
 public class VolcanoPlanner extends AbstractRelOptPlanner {
   protected static final double COST_IMPROVEMENT = .5;
 
+  /** Number of rule matches per thread that the planner fires concurrently,
+   * if {@link #parallelism} is greater than 1. */
+  private static final int MATCHES_PER_THREAD = 4;
+
+  /** Pools in which planners fire rule matches concurrently, keyed by
+   * parallelism, unless a planner has been given an executor. They are
+   * separate from the pools that execute queries, so that planning does not
+   * queue behind execution. Pools are never shut down; their threads are
+   * daemons. */
+  private static final ConcurrentMap<Integer, ExecutorService> POOLS =
+      new ConcurrentHashMap<>();
+
   //~ Instance fields --------------------------------------------------------
 
   protected RelSubset root;
@@ -128,6 +147,25 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
    */
   protected boolean impatient = false;
 
+  /**
+   * Number of threads that fire rule matches; see
+   * {@link #setParallelism(int)}.
+   */
+  private int parallelism = 1;
+
+  /**
+   * Executor in which to fire rule matches concurrently, or null to use a
+   * pool shared by planners of the same parallelism; see
+   * {@link #setExecutor(ExecutorService)}.
+   */
+  private ExecutorService executor;
+
+  /**
+   * Whether to search top-down, with cost-based pruning; see
+   * {@link #setTopDownOpt(boolean)}.
+   */
+  private boolean topDownOpt = false;
+
   /**
    * Operands that apply to a given class of {@link RelNode}.
    *
@@ -238,6 +276,10 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
 
   final Deque<VolcanoRuleCall> ruleCallStack = new ArrayDeque<>();
 
+  /** Rule call that the current thread is firing concurrently with other
+   * threads, or null. */
+  final ThreadLocal<VolcanoRuleCall> concurrentCall = new ThreadLocal<>();
+
   /** Zero cost, according to {@link #costFactory}. Not necessarily a
    * {@link org.apache.calcite.plan.volcano.VolcanoCost}. */
   private final RelOptCost zeroCost;
@@ -532,6 +574,21 @@ public RelNode changeTraits(final RelNode rel, RelTraitSet toTraits) {
     assert !rel.getTraitSet().equals(toTraits);
     assert toTraits.allSimple();
 
+    if (concurrentCall.get() != null) {
+      // The memo is read-only; use the subset if it already exists
+      final RelSubset subset = getSubset(rel);
+      if (subset != null) {
+        if (subset.getTraitSet().equals(toTraits)) {
+          return subset;
+        }
+        final RelSubset subset2 = subset.set.getSubset(toTraits.simplify());
+        if (subset2 != null) {
+          return subset2;
+        }
+      }
+      throw VolcanoRuleCall.RetrySerially.INSTANCE;
+    }
+
     RelSubset rel2 = ensureRegistered(rel, null);
     if (rel2.getTraitSet().equals(toTraits)) {
       return rel2;
@@ -581,6 +638,15 @@ public RelNode findBestExp() {
     for (VolcanoPlannerPhase phase : VolcanoPlannerPhase.values()) {
       setInitialImportance();
 
+      if (topDownOpt) {
+        root = new TopDownOptimizer(this, phase).optimize(root);
+        if (!root.bestCost.isInfinite()) {
+          ruleQueue.phaseCompleted(phase);
+          continue;
+        }
+        // No implementation yet; continue with the usual search
+      }
+
       RelOptCost targetCost = costFactory.makeHugeCost();
       int tick = 0;
       int firstFiniteTick = -1;
@@ -628,13 +694,11 @@ public RelNode findBestExp() {
         LOGGER.debug("PLANNER = {}; TICK = {}/{}; PHASE = {}; COST = {}",
             this, cumulativeTicks, tick, phase.toString(), root.bestCost);
 
-        VolcanoRuleMatch match = ruleQueue.popMatch(phase);
-        if (match == null) {
+        final int fired = fireNext(phase, null);
+        if (fired == 0) {
           break;
         }
-
-        assert match.getRule().matches(match);
-        match.onMatch();
+        cumulativeTicks += fired - 1;
 
         // The root may have been merged with another
         // subset. Find the new root subset.
@@ -660,6 +724,104 @@ public RelNode findBestExp() {
     return cheapest;
   }
 
+  /**
+   * Fires the next rule match whose first operand belongs to a given set, or
+   * to any set if the set is null; or, if rules fire concurrently, the next
+   * batch of such matches.
+   *
+   * @return Number of matches fired; 0 if there were none
+   */
+  int fireNext(VolcanoPlannerPhase phase, RelSet set) {
+    if (parallelism > 1 && listener == null) {
+      final List<VolcanoRuleMatch> matches = popMatches(phase, set);
+      if (!matches.isEmpty()) {
+        fireConcurrently(matches);
+      }
+      return matches.size();
+    }
+    final VolcanoRuleMatch match = ruleQueue.popMatch(phase, set);
+    if (match == null) {
+      return 0;
+    }
+    assert match.getRule().matches(match);
+    match.onMatch();
+    return 1;
+  }
+
+  /** Removes from the rule queue the matches to fire concurrently. */
+  private List<VolcanoRuleMatch> popMatches(VolcanoPlannerPhase phase,
+      RelSet set) {
+    final List<VolcanoRuleMatch> matches = new ArrayList<>();
+    while (matches.size() < parallelism * MATCHES_PER_THREAD) {
+      final VolcanoRuleMatch match = ruleQueue.popMatch(phase, set);
+      if (match == null) {
+        break;
+      }
+      matches.add(match);
+    }
+    return matches;
+  }
+
+  /** Fires a batch of rule matches concurrently, then registers what they
+   * produced, in queue order. Matches that cannot fire concurrently, or that
+   * tried to modify the memo, fire serially in their turn. */
+  private void fireConcurrently(List<VolcanoRuleMatch> matches) {
+    final JaninoRelMetadataProvider provider =
+        RelMetadataQuery.THREAD_PROVIDERS.get();
+    final ExecutorService executor = this.executor != null
+        ? this.executor
+        : POOLS.computeIfAbsent(parallelism,
+            p -> new ForkJoinPool(p,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+    final List<Future<Boolean>> tasks = new ArrayList<>();
+    for (VolcanoRuleMatch match : matches) {
+      assert match.getRule().matches(match);
+      tasks.add(
+          canFireConcurrently(match.getRule())
+              ? executor.submit(() -> match.onMatchConcurrently(provider))
+              : null);
+    }
+
+    // The memo must not change until every task has finished.
+    final List<Boolean> fired = new ArrayList<>();
+    for (Future<Boolean> task : tasks) {
+      fired.add(task != null && join(task));
+    }
+    for (Pair<VolcanoRuleMatch, Boolean> pair : Pair.zip(matches, fired)) {
+      if (pair.right) {
+        pair.left.applyDeferred();
+      } else {
+        pair.left.onMatch();
+      }
+    }
+  }
+
+  /** Waits for a rule match that is firing concurrently, and returns whether
+   * it fired. */
+  private static boolean join(Future<Boolean> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Util.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /** Returns whether a rule may fire in a worker thread, concurrently with
+   * other rules; see {@link #setParallelism(int)}.
+   *
+   * <p>The default implementation returns false for rules that depend on
+   * state held by the planning thread; for example,
+   * {@link AggregateStarTableRule} creates tiles using the thread's
+   * {@link org.apache.calcite.materialize.MaterializationService}. Override
+   * this method if you have rules of your own that do so. */
+  protected boolean canFireConcurrently(RelOptRule rule) {
+    return !(rule instanceof AggregateStarTableRule);
+  }
+
   /** Informs {@link JaninoRelMetadataProvider} about the different kinds of
    * {@link RelNode} that we will be dealing with. It will reduce the number
    * of times that we need to re-generate the provider. */
@@ -835,6 +997,7 @@ public RelSubset register(
       RelNode rel,
       RelNode equivRel) {
     assert !isRegistered(rel) : "pre: isRegistered(rel)";
+    checkSerial();
     final RelSet set;
     if (equivRel == null) {
       set = null;
@@ -864,6 +1027,7 @@ public RelSubset ensureRegistered(RelNode rel, RelNode equivRel) {
       if (equivRel != null) {
         final RelSubset equivSubset = getSubset(equivRel);
         if (subset.set != equivSubset.set) {
+          checkSerial();
           merge(equivSubset.set, subset.set);
         }
       }
@@ -873,6 +1037,17 @@ public RelSubset ensureRegistered(RelNode rel, RelNode equivRel) {
     }
   }
 
+  /**
+   * Throws if the current thread is firing a rule concurrently with other
+   * threads, and therefore must not modify the memo. The planner will fire
+   * the rule again, serially.
+   */
+  private void checkSerial() {
+    if (concurrentCall.get() != null) {
+      throw VolcanoRuleCall.RetrySerially.INSTANCE;
+    }
+  }
+
   /**
    * Checks internal consistency.
    */
@@ -938,11 +1113,91 @@ public void setNoneConventionHasInfiniteCost(boolean infinite) {
     this.noneConventionHasInfiniteCost = infinite;
   }
 
+  /**
+   * Sets the number of threads that fire rule matches.
+   *
+   * <p>If greater than 1, {@link #findBestExp()} removes a batch of matches
+   * from the rule queue and fires them concurrently, in the executor set by
+   * {@link #setExecutor(ExecutorService)} or, by default, in a pool of that
+   * many threads that is shared by planners but not used to execute
+   * queries. The memo is read-only while
+   * the batch is firing: the rule calls record the expressions that they
+   * produce, and once they have all finished, the planner registers those
+   * expressions in queue order. A rule call that needs to modify the memo
+   * directly (say, to create a subset with new traits) is abandoned and
+   * fired again, serially, in its turn.
+   *
+   * <p>The default, 1, fires matches one at a time in the current thread.
+   * A planner that has a {@link RelOptListener} always fires serially.
+   *
+   * @param parallelism Number of threads
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: "
+          + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Sets the executor in which to fire rule matches concurrently, if
+   * {@link #setParallelism(int) parallelism} is greater than 1; for example,
+   * a pool owned by the connection that is planning the query.
+   *
+   * <p>The planner does not shut the executor down. If null, the default,
+   * uses a pool of {@code parallelism} threads that is shared by planners.
+   *
+   * @param executor Executor, or null
+   */
+  public void setExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Sets whether the planner searches top-down.
+   *
+   * <p>If true, each phase of {@link #findBestExp()} optimizes the root as a
+   * goal, in the manner of the Cascades framework. It explores the sets that
+   * the physical expressions of each goal need, and prunes expressions whose
+   * lower bound costs more than the best plan known so far, so it fires
+   * fewer rule matches than the default search. It fires the matches of a
+   * set in the same way as the default search, so it honors
+   * {@link #setParallelism(int)}. See {@link TopDownOptimizer} for details.
+   *
+   * <p>Because matches in pruned sets never fire, the search may miss
+   * plans that only those matches would have found, such as plans that use a
+   * materialized view or lattice tile.
+   *
+   * <p>The default, false, fires the most important match in the rule queue
+   * until the queue is empty or the planner gives up.
+   *
+   * @param topDownOpt Whether to search top-down
+   */
+  public void setTopDownOpt(boolean topDownOpt) {
+    this.topDownOpt = topDownOpt;
+  }
+
   public RelOptCost getCost(RelNode rel, RelMetadataQuery mq) {
     assert rel != null : "pre-condition: rel != null";
     if (rel instanceof RelSubset) {
       return ((RelSubset) rel).bestCost;
     }
+    RelOptCost cost = getSelfCost(rel, mq);
+    if (cost.isInfinite()) {
+      return cost;
+    }
+    for (RelNode input : rel.getInputs()) {
+      cost = cost.plus(getCost(input, mq));
+    }
+    return cost;
+  }
+
+  /**
+   * Returns the cost of a relational expression, not including the cost of
+   * its inputs.
+   */
+  RelOptCost getSelfCost(RelNode rel, RelMetadataQuery mq) {
     if (noneConventionHasInfiniteCost
         && rel.getTraitSet().getTrait(ConventionTraitDef.INSTANCE) == Convention.NONE) {
       return costFactory.makeInfiniteCost();
@@ -952,9 +1207,6 @@ public RelOptCost getCost(RelNode rel, RelMetadataQuery mq) {
       // cost must be positive, so nudge it
       cost = costFactory.makeTinyCost();
     }
-    for (RelNode input : rel.getInputs()) {
-      cost = cost.plus(getCost(input, mq));
-    }
     return cost;
   }
 
@@ -1149,6 +1401,11 @@ void checkForSatisfiedConverters(
 
   public void setImportance(RelNode rel, double importance) {
     assert rel != null;
+    final VolcanoRuleCall call = concurrentCall.get();
+    if (call != null) {
+      call.defer(() -> setImportance(rel, importance));
+      return;
+    }
     if (importance == 0d) {
       relImportances.put(rel, importance);
     }
@@ -1513,7 +1770,7 @@ void reregister(
    * @param subset Subset
    * @return Leader of subset's equivalence class
    */
-  private RelSubset canonize(final RelSubset subset) {
+  RelSubset canonize(final RelSubset subset) {
     if (subset.set.equivalentSet == null) {
       return subset;
     }
@@ -1608,7 +1865,7 @@ private RelSet merge(RelSet set, RelSet set2) {
     return set;
   }
 
-  private static RelSet equivRoot(RelSet s) {
+  static RelSet equivRoot(RelSet s) {
     RelSet p = s; // iterates at twice the rate, to detect cycles
     while (s.equivalentSet != null) {
       p = forward2(s, p);
@@ -1836,6 +2093,7 @@ private RelSubset registerImpl(
   private RelSubset addRelToSet(RelNode rel, RelSet set) {
     RelSubset subset = set.add(rel);
     mapRel2Subset.put(rel, subset);
+    clearCache(set);
 
     // While a tree of RelNodes is being registered, sometimes nodes' costs
     // improve and the subset doesn't hear about it. You can end up with
@@ -1849,6 +2107,55 @@ private RelSubset addRelToSet(RelNode rel, RelSet set) {
     return subset;
   }
 
+  /**
+   * Removes cached metadata that may have changed because the expressions in
+   * a set, or their costs, have changed: the metadata of the set's subsets,
+   * and of every expression that uses one of them as an input, directly or
+   * indirectly.
+   *
+   * <p>Metadata of other expressions stays in the cache, so it is not
+   * recomputed after each rule firing.
+   *
+   * <p>The walk stops at a set if neither its subsets nor the expressions
+   * that use them have cached metadata. Expressions that use a subset get its
+   * metadata through the cache, so if nothing has been cached since the set
+   * was last invalidated, nothing further up has been computed from it
+   * either.
+   *
+   * @param set Set that has changed
+   */
+  void clearCache(RelSet set) {
+    final RelMetadataQuery mq = set.rel.getCluster().getMetadataQuery();
+    if (mq.map.isEmpty()) {
+      return;
+    }
+    final Set<RelSet> visited = new HashSet<>();
+    final Deque<RelSet> queue = new ArrayDeque<>();
+    visited.add(set);
+    queue.add(set);
+    while (!queue.isEmpty()) {
+      final RelSet set2 = queue.remove();
+      boolean cleared = false;
+      for (RelSubset subset : set2.subsets) {
+        cleared |= mq.clearCache(subset);
+      }
+      final List<RelNode> parents = set2.getParentRels();
+      for (RelNode parent : parents) {
+        cleared |= mq.clearCache(parent);
+      }
+      if (!cleared) {
+        // Already invalidated, and not used since
+        continue;
+      }
+      for (RelNode parent : parents) {
+        final RelSet parentSet = getSet(parent);
+        if (parentSet != null && visited.add(parentSet)) {
+          queue.add(parentSet);
+        }
+      }
+    }
+  }
+
   private RelSubset registerSubset(
       RelSet set,
       RelSubset subset) {
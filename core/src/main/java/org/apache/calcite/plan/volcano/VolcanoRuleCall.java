@@ -16,12 +16,16 @@
  */
 package org.apache.calcite.plan.volcano;
 
+import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptListener;
 import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.plan.RelOptRuleOperand;
 import org.apache.calcite.plan.RelTraitPropagationVisitor;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.metadata.JaninoRelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ControlFlowException;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -47,6 +51,13 @@ public class VolcanoRuleCall extends RelOptRuleCall {
    */
   private List<RelNode> generatedRelList;
 
+  /**
+   * Actions that this call has deferred because it is firing concurrently
+   * with other calls, and the memo is read-only; null if the call is firing
+   * serially.
+   */
+  private List<Runnable> deferredActions;
+
   //~ Constructors -----------------------------------------------------------
 
   /**
@@ -87,6 +98,10 @@ protected VolcanoRuleCall(
 
   // implement RelOptRuleCall
   public void transformTo(RelNode rel, Map<RelNode, RelNode> equiv) {
+    if (deferredActions != null) {
+      defer(() -> transformTo(rel, equiv));
+      return;
+    }
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("Transform to: rel#{} via {}{}", rel.getId(), getRule(),
           equiv.isEmpty() ? "" : " with equivalences " + equiv);
@@ -133,7 +148,6 @@ public void transformTo(RelNode rel, Map<RelNode, RelNode> equiv) {
             entry.getKey(), entry.getValue(), this);
       }
       volcanoPlanner.ensureRegistered(rel, rels[0], this);
-      rels[0].getCluster().invalidateMetadataQuery();
 
       if (volcanoPlanner.listener != null) {
         RelOptListener.RuleProductionEvent event =
@@ -209,11 +223,25 @@ protected void onMatch() {
         this.generatedRelList = new ArrayList<>();
       }
 
-      volcanoPlanner.ruleCallStack.push(this);
-      try {
+      if (deferredActions != null) {
         getRule().onMatch(this);
-      } finally {
-        volcanoPlanner.ruleCallStack.pop();
+      } else {
+        // Metadata of expressions that the rule creates but that are not
+        // registered (such as intermediate results, or duplicates of
+        // registered expressions) would otherwise stay in the cache until
+        // planning ends
+        final RelMetadataQuery mq = getMetadataQuery();
+        final boolean tracking = mq.startTracking();
+        volcanoPlanner.ruleCallStack.push(this);
+        try {
+          getRule().onMatch(this);
+        } finally {
+          volcanoPlanner.ruleCallStack.pop();
+          if (tracking) {
+            mq.stopTracking(r ->
+                r instanceof RelSubset || volcanoPlanner.isRegistered(r));
+          }
+        }
       }
 
       if (LOGGER.isDebugEnabled()) {
@@ -236,12 +264,70 @@ protected void onMatch() {
                 false);
         volcanoPlanner.listener.ruleAttempted(event);
       }
+    } catch (RetrySerially e) {
+      throw e;
     } catch (Exception e) {
       throw new RuntimeException("Error while applying rule " + getRule()
           + ", args " + Arrays.toString(rels), e);
     }
   }
 
+  /**
+   * Fires this rule call in a worker thread, concurrently with other calls.
+   *
+   * <p>The memo must not change until all calls have finished. Meanwhile,
+   * this call defers the registration of the expressions that it produces
+   * until {@link #applyDeferred()}, and uses its own metadata query.
+   *
+   * @param provider Metadata provider of the thread that is planning
+   * @return Whether the call fired; false if it tried to modify the memo and
+   * must be fired again, serially
+   */
+  boolean onMatchConcurrently(JaninoRelMetadataProvider provider) {
+    final JaninoRelMetadataProvider previousProvider =
+        RelMetadataQuery.THREAD_PROVIDERS.get();
+    RelMetadataQuery.THREAD_PROVIDERS.set(provider);
+    RelOptCluster.THREAD_METADATA_QUERY.set(RelMetadataQuery.instance());
+    volcanoPlanner.concurrentCall.set(this);
+    deferredActions = new ArrayList<>();
+    try {
+      onMatch();
+      return true;
+    } catch (RetrySerially e) {
+      deferredActions = null;
+      return false;
+    } finally {
+      volcanoPlanner.concurrentCall.remove();
+      RelOptCluster.THREAD_METADATA_QUERY.remove();
+      RelMetadataQuery.THREAD_PROVIDERS.set(previousProvider);
+    }
+  }
+
+  /**
+   * Performs, in the planning thread, the actions that this call deferred
+   * while it was firing concurrently with other calls.
+   */
+  void applyDeferred() {
+    final List<Runnable> actions = deferredActions;
+    deferredActions = null;
+    if (actions.isEmpty()) {
+      return;
+    }
+    volcanoPlanner.ruleCallStack.push(this);
+    try {
+      for (Runnable action : actions) {
+        action.run();
+      }
+    } finally {
+      volcanoPlanner.ruleCallStack.pop();
+    }
+  }
+
+  /** Defers an action until {@link #applyDeferred()}. */
+  void defer(Runnable action) {
+    deferredActions.add(action);
+  }
+
   /**
    * Applies this rule, with a given relational expression in the first slot.
    */
@@ -342,6 +428,13 @@ private void matchRecurse(int solve) {
       }
     }
   }
+
+  /** Thrown by the planner if a rule call that is firing concurrently with
+   * other calls tries to modify the memo. The call is abandoned, and fired
+   * again serially. */
+  static class RetrySerially extends ControlFlowException {
+    static final RetrySerially INSTANCE = new RetrySerially();
+  }
 }
 
 // End VolcanoRuleCall.java
@@ -108,10 +108,12 @@
 import org.apache.calcite.runtime.Bindable;
 import org.apache.calcite.runtime.Hook;
 import org.apache.calcite.runtime.Typed;
+import org.apache.calcite.schema.SchemaVersion;
 import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.server.CalciteServerStatement;
 import org.apache.calcite.sql.SqlBinaryOperator;
+import org.apache.calcite.sql.SqlDynamicParam;
 import org.apache.calcite.sql.SqlExecutableStatement;
 import org.apache.calcite.sql.SqlExplainFormat;
 import org.apache.calcite.sql.SqlExplainLevel;
@@ -127,6 +129,7 @@
 import org.apache.calcite.sql.type.ExtraSqlTypes;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.util.ChainedSqlOperatorTable;
+import org.apache.calcite.sql.util.SqlShuttle;
 import org.apache.calcite.sql.validate.SqlConformance;
 import org.apache.calcite.sql.validate.SqlValidator;
 import org.apache.calcite.sql2rel.SqlRexConvertletTable;
@@ -208,6 +211,7 @@ public class CalcitePrepareImpl implements CalcitePrepare {
           EnumerableRules.ENUMERABLE_TABLE_MODIFICATION_RULE,
           EnumerableRules.ENUMERABLE_VALUES_RULE,
           EnumerableRules.ENUMERABLE_WINDOW_RULE,
+          EnumerableRules.ENUMERABLE_EXCHANGE_RULE,
           EnumerableRules.ENUMERABLE_TABLE_SCAN_RULE,
           EnumerableRules.ENUMERABLE_TABLE_FUNCTION_SCAN_RULE);
 
@@ -515,6 +519,8 @@ protected RelOptPlanner createPlanner(
     }
     final VolcanoPlanner planner =
         new VolcanoPlanner(costFactory, externalContext);
+    planner.setParallelism(prepareContext.config().plannerParallelism());
+    planner.setTopDownOpt(prepareContext.config().plannerTopDown());
     planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
     if (ENABLE_COLLATION_TRAIT) {
       planner.addRelTraitDef(RelCollationTraitDef.INSTANCE);
@@ -736,15 +742,8 @@ <T> CalciteSignature<T> prepare2_(
       if (parserFactory != null) {
         parserConfig.setParserFactory(parserFactory);
       }
-      SqlParser parser = createParser(query.sql,  parserConfig);
-      SqlNode sqlNode;
-      try {
-        sqlNode = parser.parseStmt();
-        statementType = getStatementType(sqlNode.getKind());
-      } catch (SqlParseException e) {
-        throw new RuntimeException(
-            "parse failed: " + e.getMessage(), e);
-      }
+      SqlNode sqlNode = parse(query.sql, parserConfig);
+      statementType = getStatementType(sqlNode.getKind());
 
       Hook.PARSE_TREE.run(new Object[] {query.sql, sqlNode});
 
@@ -759,6 +758,23 @@ <T> CalciteSignature<T> prepare2_(
             Meta.StatementType.OTHER_DDL);
       }
 
+      final int planCacheSize = config.preparedPlanCacheSize();
+      if (planCacheSize > 0 && sqlNode.isA(SqlKind.QUERY)) {
+        final PreparedPlanCache planCache =
+            PreparedPlanCache.of(context.getMutableRootSchema(),
+                planCacheSize);
+        final CalciteSignature<T> signature =
+            prepareCached(context, query.sql, planCache, sqlNode,
+                parserConfig, elementType, maxRowCount, catalogReader,
+                preparingStmt);
+        if (signature != null) {
+          return signature;
+        }
+        // The query could not be normalized; the parse tree may have been
+        // modified while trying, so parse it again.
+        sqlNode = parse(query.sql, parserConfig);
+      }
+
       final SqlValidator validator =
           createSqlValidator(context, catalogReader);
       validator.setIdentifierExpansion(true);
@@ -792,18 +808,18 @@ <T> CalciteSignature<T> prepare2_(
     final List<AvaticaParameter> parameters = new ArrayList<>();
     final RelDataType parameterRowType = preparedResult.getParameterRowType();
     for (RelDataTypeField field : parameterRowType.getFieldList()) {
-      RelDataType type = field.getType();
-      parameters.add(
-          new AvaticaParameter(
-              false,
-              getPrecision(type),
-              getScale(type),
-              getTypeOrdinal(type),
-              getTypeName(type),
-              getClassName(type),
-              field.getName()));
+      parameters.add(parameter(field.getType(), field.getName()));
     }
+    return signature(context, preparingStmt, query.sql, parameters, x,
+        preparedResult, maxRowCount, statementType);
+  }
 
+  private <T> CalciteSignature<T> signature(Context context,
+      CalcitePreparingStmt preparingStmt, String sql,
+      List<AvaticaParameter> parameters, RelDataType x,
+      Prepare.PreparedResult preparedResult, long maxRowCount,
+      Meta.StatementType statementType) {
+    final JavaTypeFactory typeFactory = context.getTypeFactory();
     RelDataType jdbcType = makeStruct(typeFactory, x);
     final List<List<String>> originList = preparedResult.getFieldOrigins();
     final List<ColumnMetaData> columns =
@@ -819,7 +835,7 @@ <T> CalciteSignature<T> prepare2_(
     //noinspection unchecked
     final Bindable<T> bindable = preparedResult.getBindable(cursorFactory);
     return new CalciteSignature<>(
-        query.sql,
+        sql,
         parameters,
         preparingStmt.internalParameters,
         jdbcType,
@@ -834,6 +850,144 @@ <T> CalciteSignature<T> prepare2_(
         statementType);
   }
 
+  private SqlNode parse(String sql, SqlParser.ConfigBuilder parserConfig) {
+    final SqlParser parser = createParser(sql, parserConfig);
+    try {
+      return parser.parseStmt();
+    } catch (SqlParseException e) {
+      throw new RuntimeException(
+          "parse failed: " + e.getMessage(), e);
+    }
+  }
+
+  /** Prepares a query using the cache of prepared plans.
+   *
+   * <p>Replaces literals in the query with dynamic parameters, and looks
+   * for a plan for the resulting query in the cache. If there is none,
+   * prepares the query and adds its plan to the cache.
+   *
+   * <p>Returns null if the query cannot be prepared this way, for example
+   * because the value of a literal cannot be represented exactly in the type
+   * that validation infers for its parameter. Such queries are recorded in
+   * the cache, so that the next time they are seen, this method returns null
+   * without trying again.
+   */
+  private <T> CalciteSignature<T> prepareCached(Context context, String sql,
+      PreparedPlanCache planCache, SqlNode sqlNode,
+      SqlParser.ConfigBuilder parserConfig, Type elementType,
+      long maxRowCount, CalciteCatalogReader catalogReader,
+      CalcitePreparingStmt preparingStmt) {
+    final SchemaVersion version =
+        context.getMutableRootSchema().getModificationVersion();
+    final String prefix = elementType + ":" + enableBindable + ":"
+        + context.getDefaultSchemaPath() + ":";
+    // Key of this statement, as opposed to all statements that differ only
+    // in the values of their literals
+    final String sqlKey = prefix + sql;
+    if (planCache.isUncacheable(sqlKey, version)) {
+      planCache.recordMiss();
+      return null;
+    }
+    PreparedPlanCache.Normalized normalized =
+        PreparedPlanCache.normalize(sqlNode);
+    if (normalized == null) {
+      planCache.putUncacheable(sqlKey, version);
+      planCache.recordMiss();
+      return null;
+    }
+    final String key = prefix + normalized.node;
+    if (planCache.isUncacheable(key, version)) {
+      planCache.recordMiss();
+      return null;
+    }
+    final PreparedPlanCache.Entry entry = planCache.get(key, version);
+    if (entry != null) {
+      final Map<String, Object> values =
+          PreparedPlanCache.values(normalized, entry.literalTypes);
+      if (values == null) {
+        planCache.putUncacheable(sqlKey, version);
+        planCache.recordMiss();
+        return null;
+      }
+      planCache.recordHit();
+      return entry.signature(sql, context.getRootSchema(), maxRowCount,
+          values);
+    }
+    planCache.recordMiss();
+
+    // Validate the normalized query to find out the types of the parameters
+    // that replaced literals. Validation modifies the parse tree, so we
+    // normalize a new copy for the real preparation.
+    final SqlValidator validator0 =
+        createSqlValidator(context, catalogReader);
+    validator0.setIdentifierExpansion(true);
+    final List<RelDataType> literalTypes = new ArrayList<>();
+    final List<AvaticaParameter> parameters = new ArrayList<>();
+    try {
+      validator0.validate(normalized.node);
+      for (SqlDynamicParam param : normalized.params) {
+        literalTypes.add(validator0.getValidatedNodeType(param));
+      }
+      final RelDataType[] types = new RelDataType[normalized.parameterCount];
+      normalized.node.accept(
+          new SqlShuttle() {
+            @Override public SqlNode visit(SqlDynamicParam param) {
+              if (param.getIndex() < types.length) {
+                types[param.getIndex()] =
+                    validator0.getValidatedNodeType(param);
+              }
+              return param;
+            }
+          });
+      for (int i = 0; i < types.length; i++) {
+        parameters.add(parameter(types[i], "?" + i));
+      }
+    } catch (RuntimeException e) {
+      // Some literals cannot be replaced by parameters; for example,
+      // the type of a parameter cannot always be inferred
+      planCache.putUncacheable(key, version);
+      return null;
+    }
+    final Map<String, Object> values =
+        PreparedPlanCache.values(normalized, literalTypes);
+    if (values == null) {
+      planCache.putUncacheable(sqlKey, version);
+      return null;
+    }
+
+    normalized =
+        PreparedPlanCache.normalize(parse(sql, parserConfig));
+    final SqlValidator validator =
+        createSqlValidator(context, catalogReader);
+    validator.setIdentifierExpansion(true);
+    validator.setDefaultNullCollation(
+        context.config().defaultNullCollation());
+    final Prepare.PreparedResult preparedResult =
+        preparingStmt.prepareSql(normalized.node, Object.class, validator,
+            true);
+    final RelDataType x = validator.getValidatedNodeType(normalized.node);
+    final CalciteSignature<T> signature =
+        signature(context, preparingStmt, sql, parameters, x,
+            preparedResult, -1, Meta.StatementType.SELECT);
+    final PreparedPlanCache.Entry entry2 =
+        new PreparedPlanCache.Entry(version, signature, parameters,
+            literalTypes);
+    planCache.put(key, entry2);
+    return entry2.signature(sql, context.getRootSchema(), maxRowCount,
+        values);
+  }
+
+  private AvaticaParameter parameter(RelDataType type, String name) {
+    return new AvaticaParameter(
+        false,
+        getPrecision(type),
+        getScale(type),
+        getTypeOrdinal(type),
+        getTypeName(type),
+        getClassName(type),
+        name);
+  }
+
   private SqlValidator createSqlValidator(Context context,
       CalciteCatalogReader catalogReader) {
     final SqlOperatorTable opTab0 =
@@ -1230,6 +1384,10 @@ protected SqlValidator createSqlValidator(CatalogReader catalogReader) {
           CatalogReader.THREAD_LOCAL.set(catalogReader);
           final SqlConformance conformance = context.config().conformance();
           internalParameters.put("_conformance", conformance);
+          internalParameters.put("_spillRowThreshold",
+              context.config().spillRowThreshold());
+          internalParameters.put("_parallelism",
+              context.config().parallelism());
           bindable = EnumerableInterpretable.toBindable(internalParameters,
               context.spark(), enumerable, prefer);
         } finally {
@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.prepare;
+
+import org.apache.calcite.avatica.AvaticaParameter;
+import org.apache.calcite.jdbc.CalcitePrepare;
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.schema.SchemaVersion;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlCharStringLiteral;
+import org.apache.calcite.sql.SqlDynamicParam;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlLiteral;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNumericLiteral;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.apache.calcite.sql.util.SqlShuttle;
+import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of prepared statements, keyed by SQL text in which literals have
+ * been replaced by dynamic parameters.
+ *
+ * <p>Statements such as
+ *
+ * <blockquote><code>select * from emps where deptno = 10</code></blockquote>
+ *
+ * <p>and
+ *
+ * <blockquote><code>select * from emps where deptno = 20</code></blockquote>
+ *
+ * <p>share one prepared plan, that of
+ *
+ * <blockquote><code>select * from emps where deptno = ?</code></blockquote>
+ *
+ * <p>and a hit skips validation, conversion to relational algebra,
+ * optimization and code generation. The values of the literals are passed to
+ * the plan as internal parameters.
+ *
+ * <p>Only literals that are compared, using {@code =}, {@code <>},
+ * {@code <}, {@code <=}, {@code >} or {@code >=}, to an expression that is
+ * neither a literal nor a dynamic parameter are replaced. A literal is
+ * only passed as a parameter if its value can be represented exactly in the
+ * type that validation infers for the parameter; otherwise the statement is
+ * prepared as usual, and its plan is not cached. Because the plan is
+ * optimized without knowing the values of the literals, it cannot use a
+ * materialized view whose definition depends on those values.
+ *
+ * <p>Statements that cannot be prepared this way are remembered, so that
+ * the next time they are seen they are prepared as usual without first
+ * trying to replace their literals.
+ *
+ * <p>There is one cache per root schema. Plans are discarded when the
+ * {@link CalciteSchema#getModificationVersion() version} of the root schema
+ * changes, for example because a table has been added.
+ *
+ * @see org.apache.calcite.config.CalciteConnectionProperty#PREPARED_PLAN_CACHE_SIZE
+ */
+public class PreparedPlanCache {
+  /** Caches, keyed by root schema. The schema is held weakly and compared
+   * by identity. */
+  private static final Cache<CalciteSchema, PreparedPlanCache> CACHES =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final Cache<String, Entry> cache;
+  /** Keys of statements that cannot be prepared using the cache, and the
+   * schema version at which that was found. */
+  private final Cache<String, SchemaVersion> uncacheable;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  private PreparedPlanCache(int maximumSize) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .recordStats()
+        .build();
+    this.uncacheable = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .build();
+  }
+
+  /** Returns the cache of prepared plans for a root schema, or null if none
+   * has been created. */
+  public static PreparedPlanCache of(CalciteSchema rootSchema) {
+    return CACHES.getIfPresent(rootSchema.root());
+  }
+
+  /** Returns the cache of prepared plans for a root schema, creating it if
+   * necessary. */
+  static PreparedPlanCache of(CalciteSchema rootSchema, int maximumSize) {
+    try {
+      return CACHES.get(rootSchema.root(),
+          () -> new PreparedPlanCache(maximumSize));
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Returns hit, miss and eviction statistics.
+   *
+   * <p>A hit is a query that re-used a plan; a miss is a query that was
+   * prepared from scratch, whether or not its plan was then cached. */
+  public CacheStats stats() {
+    return new CacheStats(hitCount.get(), missCount.get(), 0, 0, 0,
+        cache.stats().evictionCount());
+  }
+
+  /** Returns the number of plans in the cache. */
+  public long size() {
+    return cache.size();
+  }
+
+  /** Returns the number of statements that are known not to be
+   * cacheable. */
+  long uncacheableSize() {
+    return uncacheable.size();
+  }
+
+  /** Removes all plans. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+    uncacheable.invalidateAll();
+  }
+
+  /** Returns the entry for a key if it was created at a given schema
+   * version. Removes the entry if it was created at an earlier version. */
+  Entry get(String key, SchemaVersion version) {
+    // Unlike getIfPresent, does not count a hit or miss
+    final Entry entry = cache.asMap().get(key);
+    if (entry != null && !entry.version.equals(version)) {
+      cache.invalidate(key);
+      return null;
+    }
+    return entry;
+  }
+
+  /** Returns whether a statement has been found, at a given schema version,
+   * to be impossible to prepare using the cache. */
+  boolean isUncacheable(String key, SchemaVersion version) {
+    final SchemaVersion version0 = uncacheable.getIfPresent(key);
+    if (version0 != null && !version0.equals(version)) {
+      uncacheable.invalidate(key);
+      return false;
+    }
+    return version0 != null;
+  }
+
+  /** Records that a statement cannot be prepared using the cache, so that
+   * the next time it is seen, it is prepared as usual without first trying
+   * to replace its literals. */
+  void putUncacheable(String key, SchemaVersion version) {
+    uncacheable.put(key, version);
+  }
+
+  void recordHit() {
+    hitCount.incrementAndGet();
+  }
+
+  void recordMiss() {
+    missCount.incrementAndGet();
+  }
+
+  void put(String key, Entry entry) {
+    cache.put(key, entry);
+  }
+
+  /** Replaces literals in a parse tree with dynamic parameters.
+   *
+   * <p>Does not modify the tree; sub-trees that contain no replaced literals
+   * are shared between the original and the result.
+   *
+   * @param node Parse tree of a query
+   * @return Normalized query, or null if the query cannot be normalized
+   */
+  static Normalized normalize(SqlNode node) {
+    final int[] parameterCount = {0};
+    node.accept(
+        new SqlBasicVisitor<Void>() {
+          @Override public Void visit(SqlDynamicParam param) {
+            parameterCount[0] =
+                Math.max(parameterCount[0], param.getIndex() + 1);
+            return null;
+          }
+        });
+    final LiteralReplacer replacer = new LiteralReplacer(parameterCount[0]);
+    final SqlNode node2;
+    try {
+      node2 = node.accept(replacer);
+    } catch (RuntimeException e) {
+      // Some kinds of call cannot be re-created from their operands
+      return null;
+    }
+    return new Normalized(node2, parameterCount[0],
+        ImmutableList.copyOf(replacer.literals),
+        ImmutableList.copyOf(replacer.params));
+  }
+
+  /** Converts the value of a literal to the representation of a parameter of
+   * a given type, or returns null if the type cannot represent the value
+   * exactly. */
+  static Object value(SqlLiteral literal, RelDataType type) {
+    if (literal instanceof SqlNumericLiteral) {
+      final SqlNumericLiteral numericLiteral = (SqlNumericLiteral) literal;
+      if (!numericLiteral.isExact()) {
+        return null;
+      }
+      final BigDecimal v = numericLiteral.bigDecimalValue();
+      switch (type.getSqlTypeName()) {
+      case TINYINT:
+        return numericLiteral.isInteger()
+            && inRange(v, Byte.MIN_VALUE, Byte.MAX_VALUE)
+            ? (Object) v.byteValue() : null;
+      case SMALLINT:
+        return numericLiteral.isInteger()
+            && inRange(v, Short.MIN_VALUE, Short.MAX_VALUE)
+            ? (Object) v.shortValue() : null;
+      case INTEGER:
+        return numericLiteral.isInteger()
+            && inRange(v, Integer.MIN_VALUE, Integer.MAX_VALUE)
+            ? (Object) v.intValue() : null;
+      case BIGINT:
+        return numericLiteral.isInteger()
+            && inRange(v, Long.MIN_VALUE, Long.MAX_VALUE)
+            ? (Object) v.longValue() : null;
+      case DECIMAL:
+        return v.scale() <= type.getScale()
+            && v.precision() - v.scale()
+                <= type.getPrecision() - type.getScale()
+            ? v : null;
+      default:
+        return null;
+      }
+    }
+    if (literal instanceof SqlCharStringLiteral) {
+      final NlsString nlsString = (NlsString) literal.getValue();
+      final String v = nlsString.getValue();
+      if (nlsString.getCharsetName() != null
+          || nlsString.getCollation() != null
+          || !Util.getDefaultCharset().newEncoder().canEncode(v)) {
+        // Validation of the literal would check its character set
+        return null;
+      }
+      switch (type.getSqlTypeName()) {
+      case VARCHAR:
+        return (type.getCharset() == null
+                || type.getCharset().newEncoder().canEncode(v))
+            && (type.getPrecision() == RelDataType.PRECISION_NOT_SPECIFIED
+                || v.length() <= type.getPrecision())
+            ? v : null;
+      default:
+        // CHAR would pad the value; other types would need a conversion
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static boolean inRange(BigDecimal v, long min, long max) {
+    return v.compareTo(BigDecimal.valueOf(min)) >= 0
+        && v.compareTo(BigDecimal.valueOf(max)) <= 0;
+  }
+
+  /** Converts the values of literals to parameter values. Returns null if
+   * any of the values cannot be represented in the type of its
+   * parameter. */
+  static Map<String, Object> values(Normalized normalized,
+      List<RelDataType> types) {
+    final ImmutableMap.Builder<String, Object> map = ImmutableMap.builder();
+    for (int i = 0; i < normalized.literals.size(); i++) {
+      final Object value = value(normalized.literals.get(i), types.get(i));
+      if (value == null) {
+        return null;
+      }
+      map.put("?" + normalized.params.get(i).getIndex(), value);
+    }
+    return map.build();
+  }
+
+  /** Query in which literals have been replaced with dynamic parameters. */
+  static class Normalized {
+    final SqlNode node;
+    /** Number of dynamic parameters in the original query. */
+    final int parameterCount;
+    /** Literals that were replaced, in the order that they were found. */
+    final List<SqlLiteral> literals;
+    /** Dynamic parameters that replaced {@link #literals}. */
+    final List<SqlDynamicParam> params;
+
+    Normalized(SqlNode node, int parameterCount, List<SqlLiteral> literals,
+        List<SqlDynamicParam> params) {
+      this.node = Objects.requireNonNull(node);
+      this.parameterCount = parameterCount;
+      this.literals = Objects.requireNonNull(literals);
+      this.params = Objects.requireNonNull(params);
+    }
+  }
+
+  /** Prepared plan, and the information needed to re-use it for a query
+   * that has different literal values. */
+  static class Entry {
+    final SchemaVersion version;
+    final CalcitePrepare.CalciteSignature<?> signature;
+    /** Parameters of the original query; excludes the parameters that
+     * replaced literals. */
+    final List<AvaticaParameter> parameters;
+    /** Types of the parameters that replaced literals. */
+    final List<RelDataType> literalTypes;
+
+    Entry(SchemaVersion version, CalcitePrepare.CalciteSignature<?> signature,
+        List<AvaticaParameter> parameters, List<RelDataType> literalTypes) {
+      this.version = Objects.requireNonNull(version);
+      this.signature = Objects.requireNonNull(signature);
+      this.parameters = ImmutableList.copyOf(parameters);
+      this.literalTypes = ImmutableList.copyOf(literalTypes);
+    }
+
+    /** Creates a signature for a query that has this entry's plan. */
+    @SuppressWarnings("unchecked")
+    <T> CalcitePrepare.CalciteSignature<T> signature(String sql,
+        CalciteSchema rootSchema, long maxRowCount,
+        Map<String, Object> values) {
+      final Map<String, Object> internalParameters =
+          ImmutableMap.<String, Object>builder()
+              .putAll(signature.internalParameters)
+              .putAll(values)
+              .build();
+      return new CalcitePrepare.CalciteSignature<>(sql, parameters,
+          internalParameters, signature.rowType, signature.columns,
+          signature.cursorFactory, rootSchema, signature.getCollationList(),
+          maxRowCount,
+          ((CalcitePrepare.CalciteSignature<T>) signature)::enumerable,
+          signature.statementType);
+    }
+  }
+
+  /** Shuttle that replaces literals that are compared to expressions with
+   * dynamic parameters. */
+  private static class LiteralReplacer extends SqlShuttle {
+    private int nextIndex;
+    final List<SqlLiteral> literals = new ArrayList<>();
+    final List<SqlDynamicParam> params = new ArrayList<>();
+
+    LiteralReplacer(int nextIndex) {
+      this.nextIndex = nextIndex;
+    }
+
+    @Override public SqlNode visit(SqlCall call) {
+      if (call.getKind() == SqlKind.IN
+          || !call.getKind().belongsTo(SqlKind.COMPARISON)
+          || call.operandCount() != 2) {
+        return super.visit(call);
+      }
+      final SqlNode[] operands = call.getOperandList().toArray(new SqlNode[0]);
+      boolean changed = false;
+      for (int i = 0; i < 2; i++) {
+        final SqlNode operand = operands[i];
+        final SqlNode other = operands[1 - i];
+        if (isReplaceable(operand)
+            && !(other instanceof SqlLiteral)
+            && !(other instanceof SqlDynamicParam)) {
+          final SqlDynamicParam param =
+              new SqlDynamicParam(nextIndex++, operand.getParserPosition());
+          literals.add((SqlLiteral) operand);
+          params.add(param);
+          operands[i] = param;
+          changed = true;
+        } else {
+          final SqlNode operand2 = operand.accept(this);
+          changed |= operand2 != operand;
+          operands[i] = operand2;
+        }
+      }
+      return changed
+          ? call.getOperator().createCall(call.getFunctionQuantifier(),
+              call.getParserPosition(), operands)
+          : call;
+    }
+
+    private static boolean isReplaceable(SqlNode node) {
+      return node instanceof SqlNumericLiteral
+          && ((SqlNumericLiteral) node).isExact()
+          || node instanceof SqlCharStringLiteral;
+    }
+  }
+}
+
+// End PreparedPlanCache.java
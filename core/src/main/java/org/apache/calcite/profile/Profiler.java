@@ -117,6 +117,33 @@ public Object toMap(JsonBuilder jsonBuilder) {
     }
   }
 
+  /** Sample from which the other statistics were estimated. */
+  class Sample implements Statistic {
+    final int sampleRowCount;
+    final int rowCount;
+
+    public Sample(int sampleRowCount, int rowCount) {
+      this.sampleRowCount = sampleRowCount;
+      this.rowCount = rowCount;
+    }
+
+    /** Returns the factor by which an estimated cardinality may differ from
+     * the true cardinality, {@code sqrt(rowCount / sampleRowCount)}. */
+    public double errorBound() {
+      return Math.sqrt((double) rowCount / sampleRowCount);
+    }
+
+    public Object toMap(JsonBuilder jsonBuilder) {
+      final Map<String, Object> map = jsonBuilder.map();
+      map.put("type", "sample");
+      map.put("sampleRowCount", sampleRowCount);
+      map.put("rowCount", rowCount);
+      map.put("errorBound",
+          new BigDecimal(errorBound(), Distribution.ROUND3));
+      return map;
+    }
+  }
+
   /** Unique key. */
   class Unique implements Statistic {
     final NavigableSet<Column> columns;
@@ -239,6 +266,9 @@ class Profile {
     public final List<FunctionalDependency> functionalDependencyList;
     public final List<Distribution> distributionList;
     public final List<Unique> uniqueList;
+    /** Sample from which the statistics were estimated, or null if every
+     * row was profiled. */
+    public final Sample sample;
 
     private final Map<ImmutableBitSet, Distribution> distributionMap;
     private final List<Distribution> singletonDistributionList;
@@ -246,7 +276,16 @@ class Profile {
     Profile(List<Column> columns, RowCount rowCount,
         Iterable<FunctionalDependency> functionalDependencyList,
         Iterable<Distribution> distributionList, Iterable<Unique> uniqueList) {
+      this(columns, rowCount, functionalDependencyList, distributionList,
+          uniqueList, null);
+    }
+
+    Profile(List<Column> columns, RowCount rowCount,
+        Iterable<FunctionalDependency> functionalDependencyList,
+        Iterable<Distribution> distributionList, Iterable<Unique> uniqueList,
+        Sample sample) {
       this.rowCount = rowCount;
+      this.sample = sample;
       this.functionalDependencyList =
           ImmutableList.copyOf(functionalDependencyList);
       this.distributionList = ImmutableList.copyOf(distributionList);
@@ -267,9 +306,12 @@ class Profile {
     }
 
     public List<Statistic> statistics() {
-      return ImmutableList.<Statistic>builder()
-          .add(rowCount)
-          .addAll(functionalDependencyList)
+      final ImmutableList.Builder<Statistic> b = ImmutableList.builder();
+      b.add(rowCount);
+      if (sample != null) {
+        b.add(sample);
+      }
+      return b.addAll(functionalDependencyList)
           .addAll(distributionList)
           .addAll(uniqueList)
           .build();
@@ -32,6 +32,7 @@
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.yahoo.sketches.hll.HllSketch;
 
 import java.nio.ByteBuffer;
@@ -49,9 +50,14 @@
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 
 import static org.apache.calcite.profile.ProfilerImpl.CompositeCollector.OF;
@@ -74,6 +80,31 @@ public class ProfilerImpl implements Profiler {
   /** Whether a successor is considered interesting enough to analyze. */
   private final Predicate<Pair<Space, Column>> predicate;
 
+  /** The number of threads that compute combinations during each pass.
+   * Each thread owns a subset of the combinations, and sees every row. */
+  private final int parallelism;
+
+  /** The maximum number of rows to profile, or 0 to profile every row. If
+   * the data set has more rows, the profiler profiles a random sample. */
+  private final int sampleSize;
+
+  /** Number of rows that are read before being handed to the threads of a
+   * parallel pass. */
+  private static final int BATCH_SIZE = 1_024;
+
+  /** Seed for the random number generator that chooses the sample, so that
+   * profiling the same data set gives the same result. */
+  private static final long SEED = 0L;
+
+  /** Computes combinations of columns in parallel passes. Threads are
+   * created on demand, and do not prevent the JVM from exiting. */
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("calcite-profiler-%d")
+              .build());
+
   public static Builder builder() {
     return new Builder();
   }
@@ -90,16 +121,78 @@ public static Builder builder() {
    */
   ProfilerImpl(int combinationsPerPass,
       int interestingCount, Predicate<Pair<Space, Column>> predicate) {
+    this(combinationsPerPass, interestingCount, predicate, 1, 0);
+  }
+
+  /**
+   * Creates a {@code ProfilerImpl} that may compute in parallel and profile a
+   * sample of the rows.
+   *
+   * @param combinationsPerPass Maximum number of columns (or combinations of
+   *   columns) to compute each pass
+   * @param interestingCount Minimum number of combinations considered
+   *   interesting
+   * @param predicate Whether a successor is considered interesting enough to
+   *   analyze
+   * @param parallelism Number of threads that compute combinations each pass
+   * @param sampleSize Maximum number of rows to profile, or 0 for all rows
+   */
+  ProfilerImpl(int combinationsPerPass, int interestingCount,
+      Predicate<Pair<Space, Column>> predicate, int parallelism,
+      int sampleSize) {
     Preconditions.checkArgument(combinationsPerPass > 2);
     Preconditions.checkArgument(interestingCount > 2);
+    Preconditions.checkArgument(parallelism > 0);
+    Preconditions.checkArgument(sampleSize >= 0);
     this.combinationsPerPass = combinationsPerPass;
     this.interestingCount = interestingCount;
     this.predicate = predicate;
+    this.parallelism = parallelism;
+    this.sampleSize = sampleSize;
   }
 
   public Profile profile(Iterable<List<Comparable>> rows,
       final List<Column> columns, Collection<ImmutableBitSet> initialGroups) {
-    return new Run(columns, initialGroups).profile(rows);
+    if (sampleSize == 0) {
+      return new Run(columns, initialGroups, -1).profile(rows);
+    }
+    // Read the rows once, to draw the sample and count the rows. Subsequent
+    // passes read the sample, which is in memory.
+    final List<List<Comparable>> sample = new ArrayList<>();
+    final int rowCount = sample(rows, sample);
+    if (rowCount <= sampleSize) {
+      // The sample is the whole data set; no need to estimate.
+      return new Run(columns, initialGroups, -1).profile(sample);
+    }
+    return new Run(columns, initialGroups, rowCount).profile(sample);
+  }
+
+  /** Populates {@code sample} with a uniform random sample of at most
+   * {@link #sampleSize} rows, using reservoir sampling (Vitter's
+   * "Algorithm R"), and returns the number of rows. */
+  private int sample(Iterable<List<Comparable>> rows,
+      List<List<Comparable>> sample) {
+    final Random random = new Random(SEED);
+    int rowCount = 0;
+    for (List<Comparable> row : rows) {
+      if (rowCount < sampleSize) {
+        sample.add(copy(row));
+      } else {
+        final int i = random.nextInt(rowCount + 1);
+        if (i < sampleSize) {
+          sample.set(i, copy(row));
+        }
+      }
+      ++rowCount;
+    }
+    return rowCount;
+  }
+
+  /** Copies a row, in case the iterator re-uses it. Rows contain
+   * {@link NullSentinel#INSTANCE} rather than null, but we do not rely on
+   * it. */
+  private static List<Comparable> copy(List<Comparable> row) {
+    return Arrays.asList(row.toArray(new Comparable[0]));
   }
 
   /** A run of the profiler. */
@@ -142,6 +235,12 @@ class Run {
     private final List<ImmutableBitSet> keyOrdinalLists =
         new ArrayList<>();
     private int rowCount;
+    /** Number of rows being profiled; less than {@link #rowCount} if they
+     * are a sample. */
+    private int sampleRowCount;
+    /** Number of rows in the data set if the rows being profiled are a
+     * sample, otherwise -1. */
+    private final int populationRowCount;
 
     /**
      * Creates a Run.
@@ -150,9 +249,13 @@ class Run {
      *
      * @param initialGroups List of combinations of columns that should be
      *                     profiled early, because they may be interesting
+     * @param populationRowCount Number of rows in the data set, if the rows
+     *                     to be profiled are a sample of it, otherwise -1
      */
-    Run(final List<Column> columns, Collection<ImmutableBitSet> initialGroups) {
+    Run(final List<Column> columns, Collection<ImmutableBitSet> initialGroups,
+        int populationRowCount) {
       this.columns = ImmutableList.copyOf(columns);
+      this.populationRowCount = populationRowCount;
       for (Ord<Column> column : Ord.zip(columns)) {
         if (column.e.ordinal != column.i) {
           throw new IllegalArgumentException();
@@ -182,9 +285,11 @@ class Run {
         }
       }
       // The surprise queue must have enough room for all singleton groups
-      // plus all initial groups.
-      surprises = new SurpriseQueue(1 + columns.size() + initialGroups.size(),
-          interestingCount);
+      // plus all initial groups, and must warm up for at least 4 entries.
+      surprises =
+          new SurpriseQueue(
+              Math.max(1 + columns.size() + initialGroups.size(), 4),
+              interestingCount);
     }
 
     Profile profile(Iterable<List<Comparable>> rows) {
@@ -205,7 +310,13 @@ Profile profile(Iterable<List<Comparable>> rows) {
         }
       }
       return new Profile(columns, new RowCount(rowCount),
-          functionalDependencies, distributions.values(), uniques);
+          functionalDependencies, distributions.values(), uniques,
+          sampled() ? new Sample(sampleRowCount, rowCount) : null);
+    }
+
+    /** Returns whether the rows being profiled are a sample. */
+    boolean sampled() {
+      return populationRowCount >= 0;
     }
 
     /** Populates {@code spaces} with the next batch.
@@ -281,17 +392,22 @@ void pass(int pass, List<Space> spaces, Iterable<List<Comparable>> rows) {
             + ", distributions.size: " + distributions.size());
       }
 
+      // If the rows are a sample, collect exact values, and count the values
+      // that occur once, so that we can estimate the cardinality of the whole
+      // data set. The sample is bounded, so memory use is too.
       for (Space space : spaces) {
-        space.collector = Collector.create(space, 1000);
+        space.collector = sampled()
+            ? Collector.create(space, Integer.MAX_VALUE, true)
+            : Collector.create(space, 1000, false);
       }
 
-      int rowCount = 0;
-      for (final List<Comparable> row : rows) {
-        ++rowCount;
-        for (Space space : spaces) {
-          space.collector.add(row);
-        }
+      final int sampleRowCount;
+      if (parallelism > 1 && spaces.size() > 1) {
+        sampleRowCount = addRowsInParallel(spaces, rows);
+      } else {
+        sampleRowCount = addRows(spaces, rows);
       }
+      final int rowCount = sampled() ? populationRowCount : sampleRowCount;
 
       // Populate unique keys.
       // If [x, y] is a key,
@@ -301,6 +417,9 @@ void pass(int pass, List<Space> spaces, Iterable<List<Comparable>> rows) {
       for (Space space : spaces) {
         space.collector.finish();
         space.collector = null;
+        if (sampled()) {
+          estimate(space, sampleRowCount, rowCount);
+        }
 //        results.add(space);
 
         int nonMinimal = 0;
@@ -356,7 +475,12 @@ void pass(int pass, List<Space> spaces, Iterable<List<Comparable>> rows) {
             && !space.unique
             && !containsKey(space.columnOrdinals);
         space.expectedCardinality = expectedCardinality;
-        if (minimal) {
+        // Always keep the distribution of a single column; the profile
+        // needs it to estimate the cardinality of combinations. A single
+        // column is not minimal if the table has only one row, because then
+        // the empty set of columns is a key.
+        final boolean singleton = space.columnOrdinals.cardinality() == 1;
+        if (minimal || singleton) {
           final Distribution distribution =
               new Distribution(space.columns, space.valueSet, space.cardinality,
                   space.nullCount, expectedCardinality, minimal);
@@ -368,7 +492,9 @@ void pass(int pass, List<Space> spaces, Iterable<List<Comparable>> rows) {
                 + ", expected: " + distribution.expectedCardinality
                 + ", surprise: " + distribution.surprise());
           }
-          if (surprises.offer(surprise)) {
+          if (!minimal) {
+            distributions.putIfAbsent(space.columnOrdinals, distribution);
+          } else if (surprises.offer(surprise) || singleton) {
             distributions.put(space.columnOrdinals, distribution);
             keyPoset.add(space.columnOrdinals);
             doneQueue.add(space);
@@ -385,9 +511,117 @@ void pass(int pass, List<Space> spaces, Iterable<List<Comparable>> rows) {
 
       if (pass == 0) {
         this.rowCount = rowCount;
+        this.sampleRowCount = sampleRowCount;
       }
     }
 
+    /** Adds each row to the collector of each space, and returns the number
+     * of rows. */
+    private int addRows(List<Space> spaces, Iterable<List<Comparable>> rows) {
+      int rowCount = 0;
+      for (final List<Comparable> row : rows) {
+        ++rowCount;
+        for (Space space : spaces) {
+          space.collector.add(row);
+        }
+      }
+      return rowCount;
+    }
+
+    /** As {@link #addRows}, but divides the spaces among several threads.
+     *
+     * <p>Each thread owns its spaces and their collectors, so collectors need
+     * no synchronization, and the result is the same as if the rows were
+     * added in a single thread. This thread reads the next batch of rows
+     * while the worker threads process the current batch. */
+    private int addRowsInParallel(List<Space> spaces,
+        Iterable<List<Comparable>> rows) {
+      final int shardCount = Math.min(parallelism, spaces.size());
+      final List<List<Space>> shards = new ArrayList<>();
+      for (int i = 0; i < shardCount; i++) {
+        shards.add(new ArrayList<>());
+      }
+      for (Ord<Space> space : Ord.zip(spaces)) {
+        shards.get(space.i % shardCount).add(space.e);
+      }
+      int rowCount = 0;
+      List<Future<?>> futures = ImmutableList.of();
+      List<List<Comparable>> batch = new ArrayList<>(BATCH_SIZE);
+      for (final List<Comparable> row : rows) {
+        ++rowCount;
+        batch.add(copy(row));
+        if (batch.size() == BATCH_SIZE) {
+          await(futures);
+          futures = submit(shards, batch);
+          batch = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      await(futures);
+      await(submit(shards, batch));
+      return rowCount;
+    }
+
+    private List<Future<?>> submit(List<List<Space>> shards,
+        List<List<Comparable>> batch) {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (List<Space> shard : shards) {
+        futures.add(
+            EXECUTOR.submit(() -> {
+              for (List<Comparable> row : batch) {
+                for (Space space : shard) {
+                  space.collector.add(row);
+                }
+              }
+            }));
+      }
+      return futures;
+    }
+
+    private void await(List<Future<?>> futures) {
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+          Util.throwIfUnchecked(e.getCause());
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    }
+
+    /** Converts the statistics of a space, computed over a sample of
+     * {@code n} rows, to estimates for the whole data set of {@code N}
+     * rows.
+     *
+     * <p>Cardinality is estimated using the Guaranteed-Error Estimator
+     * (GEE) of Charikar, Chaudhuri, Motwani and Narasayya, "Towards
+     * Estimation Error Guarantees for Distinct Values" (PODS 2000):
+     * {@code sqrt(N / n) * f1 + (d - f1)}, where {@code d} is the number of
+     * distinct values in the sample and {@code f1} the number that occur
+     * exactly once. Its ratio error is at most about {@code sqrt(N / n)}.
+     * As an exception, if every sampled row has a distinct value, the
+     * columns are assumed to be a key.
+     *
+     * <p>The null count is scaled, and the list of values is discarded,
+     * because the sample may not contain every value. */
+    private void estimate(Space space, int sampleRowCount, int rowCount) {
+      if (space.cardinality == sampleRowCount && space.nullCount == 0) {
+        space.cardinality = rowCount;
+      } else {
+        final int d = space.cardinality;
+        final int f1 = space.singletonCount;
+        final double gee =
+            Math.sqrt((double) rowCount / sampleRowCount) * f1 + (d - f1);
+        space.cardinality = (int) Math.max(d, Math.min(rowCount - 1, gee));
+      }
+      space.nullCount =
+          (int) Math.round((double) space.nullCount * rowCount
+              / sampleRowCount);
+      space.valueSet = null;
+    }
+
     /** Estimates the cardinality of a collection of columns represented by
      * {@code columnOrdinals}, drawing on existing distributions. */
     private double cardinality(double rowCount, ImmutableBitSet columns) {
@@ -452,6 +686,9 @@ static class Space {
     /** Number of distinct values. Null is counted as a value, if present.
      * Assigned by {@link Collector#finish()}. */
     int cardinality;
+    /** Number of values that occur in exactly one row, if the collector
+     * counts them. Assigned by {@link Collector#finish()}. */
+    int singletonCount;
     /** Assigned by {@link Collector#finish()}. */
     SortedSet<Comparable> valueSet;
 
@@ -486,9 +723,12 @@ public Distribution distribution() {
   public static class Builder {
     int combinationsPerPass = 100;
     Predicate<Pair<Space, Column>> predicate = p -> true;
+    int parallelism = 1;
+    int sampleSize = 0;
 
     public ProfilerImpl build() {
-      return new ProfilerImpl(combinationsPerPass, 200, predicate);
+      return new ProfilerImpl(combinationsPerPass, 200, predicate,
+          parallelism, sampleSize);
     }
 
     public Builder withPassSize(int passSize) {
@@ -496,6 +736,21 @@ public Builder withPassSize(int passSize) {
       return this;
     }
 
+    /** Sets the number of threads that compute combinations of columns
+     * during each pass. The default is 1. */
+    public Builder withParallelism(int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /** Sets the maximum number of rows to profile. If the data set has more
+     * rows, the profiler reads it once to draw a random sample, and estimates
+     * cardinalities from the sample. The default, 0, profiles every row. */
+    public Builder withSampleSize(int sampleSize) {
+      this.sampleSize = sampleSize;
+      return this;
+    }
+
     public Builder withMinimumSurprise(double v) {
       predicate =
           spaceColumnPair -> {
@@ -519,13 +774,21 @@ abstract static class Collector {
 
     /** Creates an initial collector of the appropriate kind. */
     public static Collector create(Space space, int sketchThreshold) {
+      return create(space, sketchThreshold, false);
+    }
+
+    /** Creates an initial collector of the appropriate kind, optionally
+     * counting values that occur exactly once. */
+    public static Collector create(Space space, int sketchThreshold,
+        boolean countSingletons) {
       final List<Integer> columnOrdinalList = space.columnOrdinals.asList();
       if (columnOrdinalList.size() == 1) {
         return new SingletonCollector(space, columnOrdinalList.get(0),
-            sketchThreshold);
+            sketchThreshold, countSingletons);
       } else {
         return new CompositeCollector(space,
-            (int[]) Primitive.INT.toArray(columnOrdinalList), sketchThreshold);
+            (int[]) Primitive.INT.toArray(columnOrdinalList), sketchThreshold,
+            countSingletons);
       }
     }
   }
@@ -533,22 +796,35 @@ public static Collector create(Space space, int sketchThreshold) {
   /** Collector that collects values of a single column. */
   static class SingletonCollector extends Collector {
     final SortedSet<Comparable> values = new TreeSet<>();
+    /** Values that occur more than once, or null if we are not counting
+     * values that occur once. */
+    final Set<Comparable> repeatedValues;
     final int columnOrdinal;
     final int sketchThreshold;
     int nullCount = 0;
 
     SingletonCollector(Space space, int columnOrdinal, int sketchThreshold) {
+      this(space, columnOrdinal, sketchThreshold, false);
+    }
+
+    SingletonCollector(Space space, int columnOrdinal, int sketchThreshold,
+        boolean countSingletons) {
       super(space);
       this.columnOrdinal = columnOrdinal;
       this.sketchThreshold = sketchThreshold;
+      this.repeatedValues = countSingletons ? new HashSet<>() : null;
     }
 
     public void add(List<Comparable> row) {
       final Comparable v = row.get(columnOrdinal);
       if (v == NullSentinel.INSTANCE) {
         nullCount++;
+      } else if (!values.add(v)) {
+        if (repeatedValues != null) {
+          repeatedValues.add(v);
+        }
       } else {
-        if (values.add(v) && values.size() == sketchThreshold) {
+        if (values.size() == sketchThreshold) {
           // Too many values. Switch to a sketch collector.
           final HllSingletonCollector collector =
               new HllSingletonCollector(space, columnOrdinal);
@@ -564,6 +840,10 @@ public void finish() {
       space.nullCount = nullCount;
       space.cardinality = values.size() + (nullCount > 0 ? 1 : 0);
       space.valueSet = values.size() < 20 ? values : null;
+      if (repeatedValues != null) {
+        space.singletonCount = values.size() - repeatedValues.size()
+            + (nullCount == 1 ? 1 : 0);
+      }
     }
   }
 
@@ -571,16 +851,25 @@ public void finish() {
   static class CompositeCollector extends Collector {
     protected static final ImmutableBitSet OF = ImmutableBitSet.of(2, 13);
     final Set<FlatLists.ComparableList> values = new HashSet<>();
+    /** Values that occur more than once, or null if we are not counting
+     * values that occur once. */
+    final Set<FlatLists.ComparableList> repeatedValues;
     final int[] columnOrdinals;
     final Comparable[] columnValues;
     int nullCount = 0;
     private final int sketchThreshold;
 
     CompositeCollector(Space space, int[] columnOrdinals, int sketchThreshold) {
+      this(space, columnOrdinals, sketchThreshold, false);
+    }
+
+    CompositeCollector(Space space, int[] columnOrdinals, int sketchThreshold,
+        boolean countSingletons) {
       super(space);
       this.columnOrdinals = columnOrdinals;
       this.columnValues = new Comparable[columnOrdinals.length];
       this.sketchThreshold = sketchThreshold;
+      this.repeatedValues = countSingletons ? new HashSet<>() : null;
     }
 
     public void add(List<Comparable> row) {
@@ -597,9 +886,14 @@ public void add(List<Comparable> row) {
         }
         columnValues[i] = value;
       }
+      final List<Comparable> key = FlatLists.copyOf(columnValues);
       //noinspection unchecked
-      if (((Set) values).add(FlatLists.copyOf(columnValues))
-          && values.size() == sketchThreshold) {
+      if (!((Set) values).add(key)) {
+        if (repeatedValues != null) {
+          //noinspection unchecked
+          ((Set) repeatedValues).add(key);
+        }
+      } else if (values.size() == sketchThreshold) {
         // Too many values. Switch to a sketch collector.
         final HllCompositeCollector collector =
             new HllCompositeCollector(space, columnOrdinals);
@@ -625,6 +919,9 @@ public void finish() {
       space.nullCount = nullCount;
       space.cardinality = values.size() + (nullCount > 0 ? 1 : 0);
       space.valueSet = null;
+      if (repeatedValues != null) {
+        space.singletonCount = values.size() - repeatedValues.size();
+      }
     }
 
   }
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.profile;
+
+import org.apache.calcite.config.CalciteSystemProperty;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.schema.Table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Catalog of the statistics that have been computed for tables, for example
+ * by {@code ANALYZE TABLE}.
+ *
+ * <p>Statistics are held in memory, keyed by table, and are discarded when
+ * the table is garbage-collected. If
+ * {@link CalciteSystemProperty#STATISTICS_DIRECTORY} is set, statistics are
+ * also written to a file in that directory, named after the qualified name of
+ * the table, and are read from that file the first time that they are needed
+ * for a table; thus they survive a restart.
+ *
+ * <p>Statistics are recorded with a stamp, the full type of the table's rows
+ * when they were computed, and are ignored if the table's row type has
+ * changed since. Dropping a table should call {@link #remove}, so that a
+ * table re-created with the same name and columns does not inherit them.
+ *
+ * @see org.apache.calcite.rel.metadata.RelMdRowCount
+ * @see org.apache.calcite.rel.metadata.RelMdDistinctRowCount
+ * @see org.apache.calcite.rel.metadata.RelMdSelectivity
+ */
+public class StatisticsCatalog {
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(StatisticsCatalog.class);
+
+  /** Marks a table that has no statistics, so that we do not look for its
+   * file again. */
+  private static final Entry MISSING = new Entry("", null);
+
+  public static final StatisticsCatalog INSTANCE =
+      new StatisticsCatalog(
+          CalciteSystemProperty.STATISTICS_DIRECTORY.value().isEmpty()
+              ? null
+              : new File(CalciteSystemProperty.STATISTICS_DIRECTORY.value()));
+
+  private final File directory;
+  private final Map<Table, Entry> map =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /** Creates a StatisticsCatalog.
+   *
+   * @param directory Directory in which to store statistics, or null to hold
+   *                  them only in memory
+   */
+  public StatisticsCatalog(File directory) {
+    this.directory = directory;
+  }
+
+  /** Records the statistics of a table, replacing any previous statistics.
+   *
+   * @param qualifiedName Qualified name of the table
+   * @param table Table
+   * @param rowType Full type of the table's rows; see
+   *                {@link RelDataType#getFullTypeString()}
+   * @param statistics Statistics
+   */
+  public void put(List<String> qualifiedName, Table table, String rowType,
+      TableStatistics statistics) {
+    final Entry entry = new Entry(rowType, statistics);
+    map.put(table, entry);
+    if (directory != null) {
+      try {
+        write(file(qualifiedName), entry);
+      } catch (IOException e) {
+        LOGGER.warn("Failed to write statistics of {}", qualifiedName, e);
+      }
+    }
+  }
+
+  /** Removes the statistics of a table, from memory and from its file.
+   *
+   * @param qualifiedName Qualified name of the table
+   * @param table Table, or null if not known
+   */
+  public void remove(List<String> qualifiedName, Table table) {
+    if (table != null) {
+      map.remove(table);
+    }
+    if (directory != null) {
+      try {
+        Files.deleteIfExists(file(qualifiedName).toPath());
+      } catch (IOException e) {
+        LOGGER.warn("Failed to delete statistics of {}", qualifiedName, e);
+      }
+    }
+  }
+
+  /** Returns the statistics of a table, or null if there are none, or if
+   * they are stale. */
+  public TableStatistics get(RelOptTable relOptTable) {
+    final Table table = relOptTable.unwrap(Table.class);
+    if (table == null) {
+      return null;
+    }
+    return get(relOptTable.getQualifiedName(), table,
+        relOptTable.getRowType().getFullTypeString());
+  }
+
+  /** Returns the statistics of a table, or null if there are none, or if
+   * they were computed when the table had a different row type.
+   *
+   * @param qualifiedName Qualified name of the table
+   * @param table Table
+   * @param rowType Full type of the table's rows
+   */
+  public TableStatistics get(List<String> qualifiedName, Table table,
+      String rowType) {
+    Entry entry = map.get(table);
+    if (entry == null) {
+      entry = read(qualifiedName);
+      if (entry == null) {
+        entry = MISSING;
+      }
+      map.put(table, entry);
+    }
+    if (entry == MISSING || !entry.rowType.equals(rowType)) {
+      return null;
+    }
+    return entry.statistics;
+  }
+
+  private Entry read(List<String> qualifiedName) {
+    if (directory == null) {
+      return null;
+    }
+    try {
+      final File file = file(qualifiedName);
+      if (!file.exists()) {
+        return null;
+      }
+      try (InputStream in = Files.newInputStream(file.toPath());
+           ObjectInputStream o = new ObjectInputStream(in)) {
+        return (Entry) o.readObject();
+      }
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      LOGGER.warn("Failed to read statistics of {}", qualifiedName, e);
+      return null;
+    }
+  }
+
+  /** Writes statistics to a temporary file, then renames it, so that a
+   * reader never sees a partial file. */
+  private static void write(File file, Entry entry)
+      throws IOException {
+    Files.createDirectories(file.getParentFile().toPath());
+    final File tempFile = new File(file.getPath() + ".tmp");
+    boolean success = false;
+    try (OutputStream out = Files.newOutputStream(tempFile.toPath());
+         ObjectOutputStream o = new ObjectOutputStream(out)) {
+      o.writeObject(entry);
+      success = true;
+    } finally {
+      if (!success) {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    }
+    Files.move(tempFile.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Returns the file that holds the statistics of a table. Each part of the
+   * name is encoded, so that the file name is valid and unambiguous. */
+  private File file(List<String> qualifiedName) throws IOException {
+    final List<String> parts = new ArrayList<>();
+    for (String name : qualifiedName) {
+      try {
+        parts.add(URLEncoder.encode(name, "UTF-8").replace(".", "%2E"));
+      } catch (UnsupportedEncodingException e) {
+        throw new IOException(e);
+      }
+    }
+    return new File(directory, String.join(".", parts) + ".stats");
+  }
+
+  /** Statistics of a table, and the row type of the table when they were
+   * computed. This is what is written to a file. */
+  private static class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final String rowType;
+    final TableStatistics statistics;
+
+    Entry(String rowType, TableStatistics statistics) {
+      this.rowType = rowType;
+      this.statistics = statistics;
+    }
+  }
+}
+
+// End StatisticsCatalog.java
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.profile;
+
+import org.apache.calcite.rel.metadata.NullSentinel;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Statistics about the columns of a table, computed by reading its rows.
+ *
+ * <p>For each column there are the number of distinct values, the fraction
+ * of values that are null, and, for numeric and character columns, the
+ * minimum and maximum values and an equi-depth histogram. The histogram
+ * allows the planner to estimate the selectivity of range predicates, and
+ * reveals values that are so frequent that they fill one or more buckets.
+ *
+ * <p>Numeric values are held as {@link Double}, so that values of different
+ * numeric types can be compared.
+ *
+ * @see StatisticsCatalog
+ */
+public class TableStatistics implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  public final double rowCount;
+  public final ImmutableList<String> columnNames;
+  public final ImmutableList<ColumnStatistics> columns;
+
+  public TableStatistics(double rowCount, List<String> columnNames,
+      List<ColumnStatistics> columns) {
+    Preconditions.checkArgument(columnNames.size() == columns.size());
+    this.rowCount = rowCount;
+    this.columnNames = ImmutableList.copyOf(columnNames);
+    this.columns = ImmutableList.copyOf(columns);
+  }
+
+  @Override public String toString() {
+    return "{rowCount: " + rowCount + ", columns: " + columnNames + "}";
+  }
+
+  /** Computes statistics by reading rows.
+   *
+   * <p>The number of distinct values and nulls of each column come from a
+   * {@link ProfilerImpl}. The histograms are built from a random sample of
+   * at most {@code sampleSize} rows; the minimum and maximum are exact.
+   *
+   * <p>The rows are read only once, and at most two samples of
+   * {@code sampleSize} rows are held in memory, so {@code rows} may read
+   * them, as they are needed, from a table of any size.
+   *
+   * @param rows Rows; nulls are represented by {@link NullSentinel#INSTANCE};
+   *             iterated over once
+   * @param columnNames Names of columns
+   * @param bucketCount Number of buckets in each histogram
+   * @param sampleSize Maximum number of rows to profile and to build
+   *                   histograms from; must be positive
+   * @return Statistics
+   */
+  public static TableStatistics analyze(Iterable<List<Comparable>> rows,
+      List<String> columnNames, int bucketCount, int sampleSize) {
+    Preconditions.checkArgument(bucketCount > 0);
+    Preconditions.checkArgument(sampleSize > 0);
+    final int n = columnNames.size();
+    final List<Profiler.Column> profilerColumns = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      profilerColumns.add(new Profiler.Column(i, columnNames.get(i)));
+    }
+
+    // Because it has a sample size, the profiler reads the rows only once,
+    // to draw its sample. As it reads each row, find the minimum and maximum
+    // values, and sample values for the histograms.
+    final Accumulator accumulator = new Accumulator(n, sampleSize);
+    final Iterable<List<Comparable>> accumulatedRows =
+        Iterables.transform(rows, row -> {
+          accumulator.add(row);
+          return row;
+        });
+
+    // Profile single columns only. "withMinimumSurprise" deems every
+    // combination of columns uninteresting.
+    final Profiler.Profile profile =
+        ProfilerImpl.builder()
+            .withPassSize(Math.max(n + 1, 3))
+            .withMinimumSurprise(0D)
+            .withParallelism(Runtime.getRuntime().availableProcessors())
+            .withSampleSize(sampleSize)
+            .build()
+            .profile(accumulatedRows, profilerColumns, ImmutableList.of());
+    final int rowCount = accumulator.rowCount;
+    final Comparable[] mins = accumulator.mins;
+    final Comparable[] maxes = accumulator.maxes;
+    final List<List<Comparable>> sample = accumulator.sample;
+
+    final Map<ImmutableBitSet, Profiler.Distribution> distributions =
+        new HashMap<>();
+    for (Profiler.Distribution distribution : profile.distributionList) {
+      distributions.put(distribution.columnOrdinals(), distribution);
+    }
+    final List<ColumnStatistics> columns = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final Profiler.Distribution distribution =
+          distributions.get(ImmutableBitSet.of(i));
+      double nullFraction = 0D;
+      double distinctCount = 0D;
+      if (distribution != null && rowCount > 0) {
+        nullFraction = Math.min((double) distribution.nullCount / rowCount, 1D);
+        // The profiler counts null as a value
+        distinctCount = distribution.nullCount > 0
+            ? distribution.cardinality - 1
+            : distribution.cardinality;
+      }
+      final List<Comparable> values = new ArrayList<>();
+      for (List<Comparable> row : sample) {
+        if (row.get(i) != null) {
+          values.add(row.get(i));
+        }
+      }
+      columns.add(
+          new ColumnStatistics(Math.max(distinctCount, 0D), nullFraction,
+              mins[i], maxes[i], bounds(values, bucketCount)));
+    }
+    return new TableStatistics(rowCount, columnNames, columns);
+  }
+
+  /** Converts a value to the form held in statistics: {@link Double} for
+   * numbers, {@link String} for character strings. Returns null for null
+   * values and values of other types. */
+  static Comparable normalize(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof String) {
+      return (String) value;
+    } else {
+      return null;
+    }
+  }
+
+  /** Returns the bounds of an equi-depth histogram; or null if there are no
+   * values. Bucket {@code i} contains the values between bounds {@code i}
+   * and {@code i + 1}, and each bucket contains the same number of values;
+   * thus a fraction {@code i / bucketCount} of the values are less than
+   * bound {@code i}. The last bound is the largest value. */
+  private static List<Comparable> bounds(List<Comparable> values,
+      int bucketCount) {
+    if (values.isEmpty()) {
+      return null;
+    }
+    values.sort(TableStatistics::compare);
+    final List<Comparable> bounds = new ArrayList<>();
+    for (int i = 0; i <= bucketCount; i++) {
+      final int j = (int) ((long) i * values.size() / bucketCount);
+      bounds.add(values.get(Math.min(j, values.size() - 1)));
+    }
+    return ImmutableList.copyOf(bounds);
+  }
+
+  private static int compare(Comparable v0, Comparable v1) {
+    //noinspection unchecked
+    return v0.compareTo(v1);
+  }
+
+  /** Returns the statistics of the column with a given name, or null. */
+  public ColumnStatistics column(String name) {
+    final int i = columnNames.indexOf(name);
+    return i < 0 ? null : columns.get(i);
+  }
+
+  /** Computes the minimum and maximum value of each column, and draws a
+   * random sample of rows using reservoir sampling, as rows are read. */
+  private static class Accumulator {
+    final Comparable[] mins;
+    final Comparable[] maxes;
+    final List<List<Comparable>> sample = new ArrayList<>();
+    private final int sampleSize;
+    private final Random random = new Random(0L);
+    int rowCount;
+
+    Accumulator(int columnCount, int sampleSize) {
+      this.mins = new Comparable[columnCount];
+      this.maxes = new Comparable[columnCount];
+      this.sampleSize = sampleSize;
+    }
+
+    void add(List<Comparable> row) {
+      final Comparable[] values = new Comparable[mins.length];
+      for (int i = 0; i < values.length; i++) {
+        final Comparable value = normalize(row.get(i));
+        values[i] = value;
+        if (value != null) {
+          if (mins[i] == null || compare(value, mins[i]) < 0) {
+            mins[i] = value;
+          }
+          if (maxes[i] == null || compare(value, maxes[i]) > 0) {
+            maxes[i] = value;
+          }
+        }
+      }
+      if (rowCount < sampleSize) {
+        sample.add(Arrays.asList(values));
+      } else {
+        final int j = random.nextInt(rowCount + 1);
+        if (j < sampleSize) {
+          sample.set(j, Arrays.asList(values));
+        }
+      }
+      ++rowCount;
+    }
+  }
+
+  /** Statistics about one column. */
+  public static class ColumnStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Number of distinct values, not counting null. */
+    public final double distinctCount;
+    /** Fraction of rows in which the column is null. */
+    public final double nullFraction;
+    /** Minimum value, or null if the column has no values or its type is not
+     * numeric or character. */
+    public final Comparable min;
+    /** Maximum value, or null. */
+    public final Comparable max;
+    /** Bounds of the buckets of an equi-depth histogram, or null. */
+    public final List<Comparable> bounds;
+
+    public ColumnStatistics(double distinctCount, double nullFraction,
+        Comparable min, Comparable max, List<Comparable> bounds) {
+      this.distinctCount = distinctCount;
+      this.nullFraction = nullFraction;
+      this.min = min;
+      this.max = max;
+      this.bounds = bounds == null ? null : ImmutableList.copyOf(bounds);
+    }
+
+    @Override public String toString() {
+      return "{distinctCount: " + distinctCount
+          + ", nullFraction: " + nullFraction
+          + ", min: " + min
+          + ", max: " + max
+          + ", bounds: " + bounds + "}";
+    }
+
+    /** Returns the fraction of rows in which the column equals a given
+     * value.
+     *
+     * <p>Assumes that non-null values are evenly distributed among the
+     * distinct values, unless the value fills a bucket of the histogram, in
+     * which case it occurs at least as often as the number of buckets that it
+     * starts suggests. */
+    public double equalSelectivity(Comparable value) {
+      final double nonNull = 1D - nullFraction;
+      if (distinctCount == 0D) {
+        return 0D;
+      }
+      if (value != null && min != null && isComparable(value)
+          && (compare(value, min) < 0 || compare(value, max) > 0)) {
+        return 0D;
+      }
+      double selectivity = nonNull / distinctCount;
+      if (value != null && bounds != null && isComparable(value)) {
+        final int bucketCount = bounds.size() - 1;
+        int start = 0;
+        boolean filled = false;
+        for (int i = 0; i < bucketCount; i++) {
+          if (compare(bounds.get(i), value) == 0) {
+            ++start;
+            filled |= compare(bounds.get(i + 1), value) == 0;
+          }
+        }
+        if (filled) {
+          selectivity =
+              Math.max(selectivity, nonNull * start / bucketCount);
+        }
+      }
+      return selectivity;
+    }
+
+    /** Returns the fraction of rows in which the column is between two
+     * values, or -1 if the histogram cannot estimate it. Either bound may be
+     * null, meaning unbounded. Rows whose value equals an inclusive bound are
+     * included. */
+    public double rangeSelectivity(Comparable lower, boolean lowerInclusive,
+        Comparable upper, boolean upperInclusive) {
+      if (bounds == null
+          || lower != null && !isComparable(lower)
+          || upper != null && !isComparable(upper)) {
+        return -1D;
+      }
+      final double nonNull = 1D - nullFraction;
+      final double hi = upper == null ? 1D : cumulativeFraction(upper);
+      final double lo = lower == null ? 0D : cumulativeFraction(lower);
+      double selectivity = Math.max(hi - lo, 0D) * nonNull;
+      if (lower != null && !lowerInclusive) {
+        selectivity -= equalSelectivity(lower);
+      }
+      if (upper != null && upperInclusive) {
+        selectivity += equalSelectivity(upper);
+      }
+      return Math.min(Math.max(selectivity, 0D), nonNull);
+    }
+
+    /** Returns the estimated fraction of non-null values that are less than
+     * a given value. Interpolates linearly within a bucket of numbers; takes
+     * the middle of a bucket of strings. */
+    private double cumulativeFraction(Comparable value) {
+      final int bucketCount = bounds.size() - 1;
+      if (compare(value, bounds.get(0)) <= 0) {
+        return 0D;
+      }
+      if (compare(value, bounds.get(bucketCount)) > 0) {
+        return 1D;
+      }
+      int i = Collections.binarySearch(bounds, value,
+          TableStatistics::compare);
+      if (i >= 0) {
+        // Equal to a bound. Find the first bucket that starts with it.
+        while (i > 0 && compare(bounds.get(i - 1), value) == 0) {
+          --i;
+        }
+        return (double) i / bucketCount;
+      }
+      final int bucket = -(i + 1) - 1;
+      final Comparable lo = bounds.get(bucket);
+      final Comparable hi = bounds.get(bucket + 1);
+      final double within;
+      if (value instanceof Double) {
+        within = ((Double) value - (Double) lo) / ((Double) hi - (Double) lo);
+      } else {
+        within = 0.5D;
+      }
+      return (bucket + within) / bucketCount;
+    }
+
+    /** Returns whether a value can be compared with the values in this
+     * column's statistics. */
+    private boolean isComparable(Comparable value) {
+      final Comparable sample = min != null ? min
+          : bounds != null ? bounds.get(0)
+          : null;
+      return sample != null
+          && Objects.equals(sample.getClass(), value.getClass());
+    }
+  }
+}
+
+// End TableStatistics.java
@@ -52,11 +52,20 @@
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.JsonBuilder;
+import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
+import org.apache.calcite.util.TimeString;
+import org.apache.calcite.util.TimestampString;
 import org.apache.calcite.util.Util;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -327,9 +336,12 @@ private Object toJson(RexNode node) {
       return map;
     case LITERAL:
       final RexLiteral literal = (RexLiteral) node;
-      final Object value = literal.getValue3();
       map = jsonBuilder.map();
-      map.put("literal", value);
+      if (literal.getTypeName() == SqlTypeName.SARG) {
+        map.put("sarg", toJson((Sarg) literal.getValue()));
+      } else {
+        map.put("literal", literal.getValue3());
+      }
       map.put("type", toJson(node.getType()));
       return map;
     case INPUT_REF:
@@ -378,6 +390,38 @@ private Object toJson(RexNode node) {
     }
   }
 
+  /** Converts a search argument to a list of ranges. Each range has
+   * optional "lower" and "upper" bounds, each with a type, "CLOSED" or
+   * "OPEN". */
+  private Object toJson(Sarg<?> sarg) {
+    final List<Object> list = jsonBuilder.list();
+    for (Range<?> range : sarg.rangeSet.asRanges()) {
+      final Map<String, Object> map = jsonBuilder.map();
+      if (range.hasLowerBound()) {
+        map.put("lower", toJsonValue(range.lowerEndpoint()));
+        map.put("lower-type", range.lowerBoundType().name());
+      }
+      if (range.hasUpperBound()) {
+        map.put("upper", toJsonValue(range.upperEndpoint()));
+        map.put("upper-type", range.upperBoundType().name());
+      }
+      list.add(map);
+    }
+    return list;
+  }
+
+  /** Converts a value held in a search argument to a JSON value: a number,
+   * boolean or string. */
+  private static Object toJsonValue(Object value) {
+    if (value instanceof NlsString) {
+      return ((NlsString) value).getValue();
+    }
+    if (value instanceof Number || value instanceof Boolean) {
+      return value;
+    }
+    return value.toString();
+  }
+
   private Object toJson(RexWindow window) {
     final Map<String, Object> map = jsonBuilder.map();
     if (window.partitionKeys.size() > 0) {
@@ -505,6 +549,11 @@ RexNode toRex(RelInput relInput, Object o) {
         RelDataType type = toType(typeFactory, jsonType);
         return rexBuilder.makeCorrel(type, new CorrelationId(correl));
       }
+      if (map.containsKey("sarg")) {
+        final RelDataType type = toType(typeFactory, map.get("type"));
+        return rexBuilder.makeSearchArgumentLiteral(
+            toSarg(rexBuilder, (List) map.get("sarg"), type), type);
+      }
       if (map.containsKey("literal")) {
         final Object literal = map.get("literal");
         final RelDataType type = toType(typeFactory, map.get("type"));
@@ -538,6 +587,56 @@ RexNode toRex(RelInput relInput, Object o) {
     }
   }
 
+  /** Converts a list of ranges, as written by {@link #toJson(Sarg)}, to a
+   * search argument whose values have a given type. */
+  @SuppressWarnings("unchecked")
+  private Sarg toSarg(RexBuilder rexBuilder, List<Map<String, Object>> ranges,
+      RelDataType type) {
+    final RangeSet rangeSet = TreeRangeSet.create();
+    for (Map<String, Object> range : ranges) {
+      final Comparable lower = range.containsKey("lower")
+          ? toSargValue(rexBuilder, range.get("lower"), type)
+          : null;
+      final Comparable upper = range.containsKey("upper")
+          ? toSargValue(rexBuilder, range.get("upper"), type)
+          : null;
+      if (lower == null) {
+        rangeSet.add(
+            Range.upTo(upper,
+                BoundType.valueOf((String) range.get("upper-type"))));
+      } else if (upper == null) {
+        rangeSet.add(
+            Range.downTo(lower,
+                BoundType.valueOf((String) range.get("lower-type"))));
+      } else {
+        rangeSet.add(
+            Range.range(lower,
+                BoundType.valueOf((String) range.get("lower-type")),
+                upper,
+                BoundType.valueOf((String) range.get("upper-type"))));
+      }
+    }
+    return Sarg.of(rangeSet);
+  }
+
+  /** Converts a JSON value to the form in which a literal of a given type,
+   * and therefore a search argument, holds it. */
+  private static Comparable toSargValue(RexBuilder rexBuilder, Object o,
+      RelDataType type) {
+    switch (type.getSqlTypeName()) {
+    case DATE:
+      o = new DateString((String) o);
+      break;
+    case TIME:
+      o = new TimeString((String) o);
+      break;
+    case TIMESTAMP:
+      o = new TimestampString((String) o);
+      break;
+    }
+    return ((RexLiteral) rexBuilder.makeLiteral(o, type, false)).getValue();
+  }
+
   private List<RexFieldCollation> toRexFieldCollationList(
       RelInput relInput, List<Map<String, Object>> order) {
     if (order == null) {
@@ -603,6 +702,10 @@ private List<RexNode> toRexList(RelInput relInput, List operands) {
   SqlOperator toOp(RelInput relInput, String op, Map<String, Object> map) {
     // TODO: build a map, for more efficient lookup
     // TODO: look up based on SqlKind
+    if (op.equals(SqlStdOperatorTable.SEARCH.getName())) {
+      // SEARCH is internal, and is written only for search arguments
+      return SqlStdOperatorTable.SEARCH;
+    }
     final List<SqlOperator> operatorList =
         SqlStdOperatorTable.instance().getOperatorList();
     for (SqlOperator operator : operatorList) {
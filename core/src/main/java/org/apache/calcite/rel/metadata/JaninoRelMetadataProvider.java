@@ -78,6 +78,7 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
@@ -109,6 +110,15 @@ public class JaninoRelMetadataProvider implements RelMetadataProvider {
                   load3(key.def, key.provider.handlers(key.def),
                       key.relClasses)));
 
+  /** Cache of handlers for the default provider that were generated and
+   * compiled when Calcite was built, by kind of metadata. A value is empty if
+   * there is no such handler (for example, if Calcite was built by an IDE
+   * that does not run {@link MetadataHandlerProcessor}); then we generate one
+   * using Janino. */
+  private static final LoadingCache<MetadataDef, Optional<MetadataHandler>>
+      DEFAULT_HANDLERS = CacheBuilder.newBuilder()
+          .build(CacheLoader.from(JaninoRelMetadataProvider::loadDefault));
+
   // Pre-register the most common relational operators, to reduce the number of
   // times we re-generate.
   static {
@@ -195,133 +205,20 @@ private static <M extends Metadata> MetadataHandler<M> load3(
       MetadataDef<M> def, Multimap<Method, MetadataHandler<M>> map,
       ImmutableList<Class<? extends RelNode>> relClasses) {
     final StringBuilder buff = new StringBuilder();
-    final String name =
-        "GeneratedMetadataHandler_" + def.metadataClass.getSimpleName();
-    final Set<MetadataHandler> providerSet = new HashSet<>();
-    final List<Pair<String, MetadataHandler>> providerList = new ArrayList<>();
+    final String name = className(def);
     //noinspection unchecked
     final ReflectiveRelMetadataProvider.Space space =
         new ReflectiveRelMetadataProvider.Space((Multimap) map);
-    for (MetadataHandler provider : space.providerMap.values()) {
-      if (providerSet.add(provider)) {
-        providerList.add(Pair.of("provider" + (providerSet.size() - 1),
-            provider));
-      }
-    }
+    final List<Pair<String, MetadataHandler>> providerList =
+        providerList(space);
 
     buff.append("  private final java.util.List relClasses;\n");
-    for (Pair<String, MetadataHandler> pair : providerList) {
-      buff.append("  public final ").append(pair.right.getClass().getName())
-          .append(' ').append(pair.left).append(";\n");
-    }
-    buff.append("  public ").append(name).append("(java.util.List relClasses");
-    for (Pair<String, MetadataHandler> pair : providerList) {
-      buff.append(",\n")
-          .append("      ")
-          .append(pair.right.getClass().getName())
-          .append(' ')
-          .append(pair.left);
-    }
-    buff.append(") {\n")
-        .append("    this.relClasses = relClasses;\n");
-
-    for (Pair<String, MetadataHandler> pair : providerList) {
-      buff.append("    this.").append(pair.left).append(" = ").append(pair.left)
-          .append(";\n");
-    }
-    buff.append("  }\n")
-        .append("  public ")
-        .append(MetadataDef.class.getName())
-        .append(" getDef() {\n")
-        .append("    return ")
-        .append(def.metadataClass.getName())
-        .append(".DEF;\n")
+    appendConstructor(buff, name, "java.util.List relClasses", providerList);
+    buff.append("    this.relClasses = relClasses;\n")
         .append("  }\n");
+    appendGetDef(buff, def);
     for (Ord<Method> method : Ord.zip(def.methods)) {
-      buff.append("  public ")
-          .append(method.e.getReturnType().getName())
-          .append(" ")
-          .append(method.e.getName())
-          .append("(\n")
-          .append("      ")
-          .append(RelNode.class.getName())
-          .append(" r,\n")
-          .append("      ")
-          .append(RelMetadataQuery.class.getName())
-          .append(" mq");
-      paramList(buff, method.e)
-          .append(") {\n");
-      buff.append("    final java.util.List key = ")
-          .append(
-              (method.e.getParameterTypes().length < 4
-              ? org.apache.calcite.runtime.FlatLists.class
-              : ImmutableList.class).getName())
-          .append(".of(")
-          .append(def.metadataClass.getName());
-      if (method.i == 0) {
-        buff.append(".DEF");
-      } else {
-        buff.append(".DEF.methods.get(")
-            .append(method.i)
-            .append(")");
-      }
-      buff.append(", r");
-      safeArgList(buff, method.e)
-          .append(");\n")
-          .append("    final Object v = mq.map.get(key);\n")
-          .append("    if (v != null) {\n")
-          .append("      if (v == ")
-          .append(NullSentinel.class.getName())
-          .append(".ACTIVE) {\n")
-          .append("        throw ")
-          .append(CyclicMetadataException.class.getName())
-          .append(".INSTANCE;\n")
-          .append("      }\n")
-          .append("      if (v == ")
-          .append(NullSentinel.class.getName())
-          .append(".INSTANCE) {\n")
-          .append("        return null;\n")
-          .append("      }\n")
-          .append("      return (")
-          .append(method.e.getReturnType().getName())
-          .append(") v;\n")
-          .append("    }\n")
-          .append("    mq.map.put(key,")
-          .append(NullSentinel.class.getName())
-          .append(".ACTIVE);\n")
-          .append("    try {\n")
-          .append("      final ")
-          .append(method.e.getReturnType().getName())
-          .append(" x = ")
-          .append(method.e.getName())
-          .append("_(r, mq");
-      argList(buff, method.e)
-          .append(");\n")
-          .append("      mq.map.put(key, ")
-          .append(NullSentinel.class.getName())
-          .append(".mask(x));\n")
-          .append("      return x;\n")
-          .append("    } catch (")
-          .append(Exception.class.getName())
-          .append(" e) {\n")
-          .append("      mq.map.remove(key);\n")
-          .append("      throw e;\n")
-          .append("    }\n")
-          .append("  }\n")
-          .append("\n")
-          .append("  private ")
-          .append(method.e.getReturnType().getName())
-          .append(" ")
-          .append(method.e.getName())
-          .append("_(\n")
-          .append("      ")
-          .append(RelNode.class.getName())
-          .append(" r,\n")
-          .append("      ")
-          .append(RelMetadataQuery.class.getName())
-          .append(" mq");
-      paramList(buff, method.e)
-          .append(") {\n");
+      appendMethod(buff, def, method);
       buff.append("    switch (relClasses.indexOf(r.getClass())) {\n");
 
       // Build a list of clauses, grouping clauses that have the same action.
@@ -329,31 +226,16 @@ private static <M extends Metadata> MetadataHandler<M> load3(
       final StringBuilder buf2 = new StringBuilder();
       for (Ord<Class<? extends RelNode>> relClass : Ord.zip(relClasses)) {
         if (relClass.e == HepRelVertex.class) {
-          buf2.append("      return ")
-              .append(method.e.getName())
-              .append("(((")
-              .append(relClass.e.getName())
-              .append(") r).getCurrentRel(), mq");
-          argList(buf2, method.e)
-              .append(");\n");
+          appendHepRelVertexCall(buf2, method.e);
         } else {
           final Method handler = space.find(relClass.e, method.e);
-          final String v = findProvider(providerList, handler.getDeclaringClass());
-          buf2.append("      return ")
-              .append(v)
-              .append(".")
-              .append(method.e.getName())
-              .append("((")
-              .append(handler.getParameterTypes()[0].getName())
-              .append(") r, mq");
-          argList(buf2, method.e)
-              .append(");\n");
+          appendHandlerCall(buf2, providerList, handler, method.e);
         }
         clauses.put(buf2.toString(), relClass.i);
         buf2.setLength(0);
       }
       buf2.append("      throw new ")
-          .append(NoHandler.class.getName())
+          .append(NoHandler.class.getCanonicalName())
           .append("(r.getClass());\n")
           .append("    }\n")
           .append("  }\n");
@@ -379,6 +261,272 @@ private static <M extends Metadata> MetadataHandler<M> load3(
     }
   }
 
+  /** Generates the source code of a handler class for the default provider,
+   * {@link DefaultRelMetadataProvider#INSTANCE}.
+   *
+   * <p>Unlike the classes generated by {@link #load3}, which switch on the
+   * position of the relational expression's class in a list of registered
+   * classes, the class uses a {@link Dispatcher} to find the handler method.
+   * It therefore does not depend on which classes have been registered, and
+   * can be compiled when Calcite is built; see
+   * {@link MetadataHandlerProcessor}.
+   *
+   * <p>The class has a constant {@code SOURCE_HASH}, the hash code of the
+   * rest of its source code. If the providers change after the class is
+   * compiled, the hash no longer matches, and {@link #loadDefault} ignores
+   * the class. */
+  static String generateDefault(MetadataDef<?> def) {
+    final String source = defaultSource(def);
+    return source
+        + "  public static final int SOURCE_HASH = " + source.hashCode()
+        + ";\n"
+        + "}\n";
+  }
+
+  /** Generates the source code of a handler class for the default provider,
+   * except for the {@code SOURCE_HASH} constant and the closing brace. */
+  private static String defaultSource(MetadataDef<?> def) {
+    final StringBuilder buff = new StringBuilder();
+    final String name = className(def);
+    //noinspection unchecked
+    final ReflectiveRelMetadataProvider.Space space =
+        new ReflectiveRelMetadataProvider.Space(
+            (Multimap) DefaultRelMetadataProvider.INSTANCE.handlers(def));
+    final List<Pair<String, MetadataHandler>> providerList =
+        providerList(space);
+
+    buff.append("package ")
+        .append(JaninoRelMetadataProvider.class.getPackage().getName())
+        .append(";\n")
+        .append("\n")
+        .append("/** Handler for ")
+        .append(def.metadataClass.getCanonicalName())
+        .append(" metadata, generated by\n")
+        .append(" * ")
+        .append(MetadataHandlerProcessor.class.getSimpleName())
+        .append(". Do not edit. */\n")
+        // Handler methods for generic metadata, such as AllPredicates, cast
+        // cached values to parameterized types
+        .append("@SuppressWarnings(\"unchecked\")\n")
+        .append("public final class ")
+        .append(name)
+        .append(" implements ")
+        .append(def.handlerClass.getCanonicalName())
+        .append(" {\n")
+        .append("  private final ")
+        .append(Dispatcher.class.getCanonicalName())
+        .append(" dispatcher;\n");
+    appendConstructor(buff, name,
+        Dispatcher.class.getCanonicalName() + " dispatcher", providerList);
+    buff.append("    this.dispatcher = dispatcher;\n")
+        .append("  }\n");
+    appendGetDef(buff, def);
+    for (Ord<Method> method : Ord.zip(def.methods)) {
+      appendMethod(buff, def, method);
+      buff.append("    switch (dispatcher.dispatch(r.getClass(), ")
+          .append(method.i)
+          .append(")) {\n")
+          .append("    case 0:\n");
+      appendHepRelVertexCall(buff, method.e);
+      for (Ord<Class<RelNode>> relClass
+          : Ord.zip(space.handledClasses(method.e))) {
+        final Method handler = space.find(relClass.e, method.e);
+        buff.append("    case ").append(relClass.i + 1).append(":\n");
+        appendHandlerCall(buff, providerList, handler, method.e);
+      }
+      buff.append("    default:\n")
+          .append("      throw new ")
+          .append(NoHandler.class.getCanonicalName())
+          .append("(r.getClass());\n")
+          .append("    }\n")
+          .append("  }\n");
+    }
+    return buff.toString();
+  }
+
+  /** Returns the simple name of the handler class for a kind of metadata. */
+  static String className(MetadataDef<?> def) {
+    return "GeneratedMetadataHandler_" + def.metadataClass.getSimpleName();
+  }
+
+  /** Returns the distinct providers in a work space, each with the name of
+   * the field that will hold it. */
+  private static List<Pair<String, MetadataHandler>> providerList(
+      ReflectiveRelMetadataProvider.Space space) {
+    final Set<MetadataHandler> providerSet = new HashSet<>();
+    final List<Pair<String, MetadataHandler>> providerList = new ArrayList<>();
+    for (MetadataHandler provider : space.providerMap.values()) {
+      if (providerSet.add(provider)) {
+        providerList.add(Pair.of("provider" + (providerSet.size() - 1),
+            provider));
+      }
+    }
+    return providerList;
+  }
+
+  /** Appends the provider fields of a handler class, and its constructor up
+   * to and including the assignments to those fields. */
+  private static void appendConstructor(StringBuilder buff, String name,
+      String firstParam, List<Pair<String, MetadataHandler>> providerList) {
+    for (Pair<String, MetadataHandler> pair : providerList) {
+      buff.append("  public final ")
+          .append(pair.right.getClass().getCanonicalName())
+          .append(' ').append(pair.left).append(";\n");
+    }
+    buff.append("  public ").append(name).append("(").append(firstParam);
+    for (Pair<String, MetadataHandler> pair : providerList) {
+      buff.append(",\n")
+          .append("      ")
+          .append(pair.right.getClass().getCanonicalName())
+          .append(' ')
+          .append(pair.left);
+    }
+    buff.append(") {\n");
+    for (Pair<String, MetadataHandler> pair : providerList) {
+      buff.append("    this.").append(pair.left).append(" = ").append(pair.left)
+          .append(";\n");
+    }
+  }
+
+  private static void appendGetDef(StringBuilder buff, MetadataDef<?> def) {
+    buff.append("  public ")
+        .append(MetadataDef.class.getCanonicalName())
+        .append(" getDef() {\n")
+        .append("    return ")
+        .append(def.metadataClass.getCanonicalName())
+        .append(".DEF;\n")
+        .append("  }\n");
+  }
+
+  /** Appends the public method that implements a metadata method, caching
+   * its results and detecting cycles, and the start of the private method
+   * that computes a result. The caller appends the body of the private
+   * method. */
+  private static void appendMethod(StringBuilder buff, MetadataDef<?> def,
+      Ord<Method> method) {
+    final String metadataClassName = def.metadataClass.getCanonicalName();
+    final String returnTypeName = method.e.getReturnType().getCanonicalName();
+    final String nullSentinelName = NullSentinel.class.getCanonicalName();
+    buff.append("  public ")
+        .append(returnTypeName)
+        .append(" ")
+        .append(method.e.getName())
+        .append("(\n")
+        .append("      ")
+        .append(RelNode.class.getCanonicalName())
+        .append(" r,\n")
+        .append("      ")
+        .append(RelMetadataQuery.class.getCanonicalName())
+        .append(" mq");
+    paramList(buff, method.e)
+        .append(") {\n");
+    buff.append("    final java.util.List key = ")
+        .append(
+            (method.e.getParameterTypes().length < 4
+            ? org.apache.calcite.runtime.FlatLists.class
+            : ImmutableList.class).getCanonicalName())
+        .append(".of(")
+        .append(metadataClassName);
+    if (method.i == 0) {
+      buff.append(".DEF");
+    } else {
+      buff.append(".DEF.methods.get(")
+          .append(method.i)
+          .append(")");
+    }
+    safeArgList(buff, method.e)
+        .append(");\n")
+        .append("    final Object v = mq.map.get(r, key);\n")
+        .append("    if (v != null) {\n")
+        .append("      if (v == ")
+        .append(nullSentinelName)
+        .append(".ACTIVE) {\n")
+        .append("        throw ")
+        .append(CyclicMetadataException.class.getCanonicalName())
+        .append(".INSTANCE;\n")
+        .append("      }\n")
+        .append("      mq.cacheHit(")
+        .append(metadataClassName)
+        .append(".DEF);\n")
+        .append("      if (v == ")
+        .append(nullSentinelName)
+        .append(".INSTANCE) {\n")
+        .append("        return null;\n")
+        .append("      }\n")
+        .append("      return (")
+        .append(returnTypeName)
+        .append(") v;\n")
+        .append("    }\n")
+        .append("    mq.cacheMiss(")
+        .append(metadataClassName)
+        .append(".DEF);\n")
+        .append("    mq.map.put(r, key,")
+        .append(nullSentinelName)
+        .append(".ACTIVE);\n")
+        .append("    try {\n")
+        .append("      final ")
+        .append(returnTypeName)
+        .append(" x = ")
+        .append(method.e.getName())
+        .append("_(r, mq");
+    argList(buff, method.e)
+        .append(");\n")
+        .append("      mq.map.put(r, key, ")
+        .append(nullSentinelName)
+        .append(".mask(x));\n")
+        .append("      return x;\n")
+        .append("    } catch (")
+        .append(Exception.class.getCanonicalName())
+        .append(" e) {\n")
+        .append("      mq.map.remove(r, key);\n")
+        .append("      throw e;\n")
+        .append("    }\n")
+        .append("  }\n")
+        .append("\n")
+        .append("  private ")
+        .append(returnTypeName)
+        .append(" ")
+        .append(method.e.getName())
+        .append("_(\n")
+        .append("      ")
+        .append(RelNode.class.getCanonicalName())
+        .append(" r,\n")
+        .append("      ")
+        .append(RelMetadataQuery.class.getCanonicalName())
+        .append(" mq");
+    paramList(buff, method.e)
+        .append(") {\n");
+  }
+
+  /** Appends a statement that applies a metadata method to the current
+   * relational expression of a {@link HepRelVertex}. */
+  private static void appendHepRelVertexCall(StringBuilder buff,
+      Method method) {
+    buff.append("      return ")
+        .append(method.getName())
+        .append("(((")
+        .append(HepRelVertex.class.getCanonicalName())
+        .append(") r).getCurrentRel(), mq");
+    argList(buff, method)
+        .append(");\n");
+  }
+
+  /** Appends a statement that calls a handler method. */
+  private static void appendHandlerCall(StringBuilder buff,
+      List<Pair<String, MetadataHandler>> providerList, Method handler,
+      Method method) {
+    final String v = findProvider(providerList, handler.getDeclaringClass());
+    buff.append("      return ")
+        .append(v)
+        .append(".")
+        .append(method.getName())
+        .append("((")
+        .append(handler.getParameterTypes()[0].getCanonicalName())
+        .append(") r, mq");
+    argList(buff, method)
+        .append(");\n");
+  }
+
   private static String findProvider(
       List<Pair<String, MetadataHandler>> providerList,
       Class<?> declaringClass) {
@@ -409,7 +557,7 @@ private static StringBuilder safeArgList(StringBuilder buff, Method method) {
         buff.append(", a").append(t.i).append(" == null ? \"\" : a")
             .append(t.i).append(".toString()");
       } else {
-        buff.append(", ") .append(NullSentinel.class.getName())
+        buff.append(", ") .append(NullSentinel.class.getCanonicalName())
             .append(".mask(a").append(t.i).append(")");
       }
     }
@@ -419,7 +567,8 @@ private static StringBuilder safeArgList(StringBuilder buff, Method method) {
   /** Returns e.g. ",\n boolean ignoreNulls". */
   private static StringBuilder paramList(StringBuilder buff, Method method) {
     for (Ord<Class<?>> t : Ord.zip(method.getParameterTypes())) {
-      buff.append(",\n      ").append(t.e.getName()).append(" a").append(t.i);
+      buff.append(",\n      ").append(t.e.getCanonicalName()).append(" a")
+          .append(t.i);
     }
     return buff;
   }
@@ -466,9 +615,60 @@ static <M extends Metadata> MetadataHandler<M> compile(String className,
     return def.handlerClass.cast(o);
   }
 
+  /** Loads and instantiates the pre-compiled handler class for the default
+   * provider, if it exists and was generated from the current providers. */
+  private static Optional<MetadataHandler> loadDefault(MetadataDef def) {
+    final Class<?> handlerClass;
+    try {
+      handlerClass = Class.forName(
+          JaninoRelMetadataProvider.class.getPackage().getName() + "."
+              + className(def), true,
+          JaninoRelMetadataProvider.class.getClassLoader());
+      if (handlerClass.getField("SOURCE_HASH").getInt(null)
+          != defaultSource(def).hashCode()) {
+        // The class is out of date; for example, an incremental build changed
+        // a provider but did not re-run MetadataHandlerProcessor.
+        return Optional.empty();
+      }
+    } catch (ClassNotFoundException
+        | NoSuchFieldException
+        | IllegalAccessException e) {
+      return Optional.empty();
+    }
+    //noinspection unchecked
+    final ReflectiveRelMetadataProvider.Space space =
+        new ReflectiveRelMetadataProvider.Space(
+            (Multimap) DefaultRelMetadataProvider.INSTANCE.handlers(def));
+    final Constructor constructor = handlerClass.getConstructors()[0];
+    final List<Object> argList = new ArrayList<>();
+    argList.add(new Dispatcher(space, def));
+    for (Class<?> type : Util.skip(Arrays.asList(constructor.getParameterTypes()))) {
+      argList.add(
+          space.providerMap.values().stream()
+              .filter(provider -> provider.getClass() == type)
+              .findFirst()
+              .orElseThrow(() -> new AssertionError("not found: " + type)));
+    }
+    try {
+      return Optional.of(
+          (MetadataHandler) constructor.newInstance(argList.toArray()));
+    } catch (InstantiationException
+        | IllegalAccessException
+        | InvocationTargetException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   synchronized <M extends Metadata, H extends MetadataHandler<M>> H create(
       MetadataDef<M> def) {
     try {
+      if (provider.equals(DefaultRelMetadataProvider.INSTANCE)) {
+        final Optional<MetadataHandler> handler = DEFAULT_HANDLERS.get(def);
+        if (handler.isPresent()) {
+          //noinspection unchecked
+          return (H) handler.get();
+        }
+      }
       final Key key = new Key((MetadataDef) def, provider,
           ImmutableList.copyOf(ALL_RELS));
       //noinspection unchecked
@@ -521,6 +721,72 @@ public NoHandler(Class<? extends RelNode> relClass) {
     }
   }
 
+  /** Chooses the clause of a pre-compiled handler's {@code switch} statement
+   * that applies a metadata method to a relational expression.
+   *
+   * <p>Clause 0 recurses into the current relational expression of a
+   * {@link HepRelVertex}; clause <i>i</i> + 1 calls the handler for the
+   * <i>i</i>th class returned by
+   * {@link ReflectiveRelMetadataProvider.Space#handledClasses}. The clause
+   * for each class of relational expression is computed the first time it is
+   * seen, so, unlike handlers generated by Janino, a pre-compiled handler
+   * never needs to be re-generated. */
+  static class Dispatcher {
+    private final ReflectiveRelMetadataProvider.Space space;
+    private final List<Method> methods;
+    private final List<List<Class<RelNode>>> handledClasses;
+    private final ClassValue<int[]> clauses = new ClassValue<int[]>() {
+      @Override protected int[] computeValue(Class<?> type) {
+        final int[] clauses = new int[methods.size()];
+        for (int i = 0; i < clauses.length; i++) {
+          clauses[i] = clause(type, i);
+        }
+        return clauses;
+      }
+    };
+
+    Dispatcher(ReflectiveRelMetadataProvider.Space space,
+        MetadataDef<?> def) {
+      this.space = space;
+      this.methods = def.methods;
+      final ImmutableList.Builder<List<Class<RelNode>>> builder =
+          ImmutableList.builder();
+      for (Method method : methods) {
+        builder.add(space.handledClasses(method));
+      }
+      this.handledClasses = builder.build();
+    }
+
+    private int clause(Class<?> type, int i) {
+      if (type == HepRelVertex.class) {
+        return 0;
+      }
+      try {
+        //noinspection unchecked
+        final Method handler =
+            space.find((Class<? extends RelNode>) type, methods.get(i));
+        return 1 + handledClasses.get(i).indexOf(handler.getParameterTypes()[0]);
+      } catch (IllegalArgumentException e) {
+        return -1;
+      }
+    }
+
+    /** Returns the clause that applies the {@code i}th metadata method to
+     * a relational expression of a given class.
+     *
+     * <p>Called from generated code. */
+    public int dispatch(Class<? extends RelNode> relClass, int i) {
+      final int clause = clauses.get(relClass)[i];
+      if (clause < 0) {
+        // There is no handler, and never will be. Throw the error that says
+        // so, rather than NoHandler, which would cause us to re-generate.
+        space.find(relClass, methods.get(i));
+        throw new AssertionError(relClass);
+      }
+      return clause;
+    }
+  }
+
   /** Key for the cache. */
   private static class Key {
     public final MetadataDef def;
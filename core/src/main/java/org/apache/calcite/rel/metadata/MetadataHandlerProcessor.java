@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.rel.metadata;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates the handler classes for the default
+ * metadata provider, {@link DefaultRelMetadataProvider#INSTANCE}, when
+ * Calcite is built.
+ *
+ * <p>Otherwise {@link JaninoRelMetadataProvider} would generate and compile
+ * each handler class using Janino the first time that it is needed in each
+ * JVM, which noticeably slows down the first query.
+ *
+ * <p>The processor is not registered as a service, so does not run when
+ * compiling code that depends on Calcite. Calcite's build runs it in a second
+ * compilation of the core module, after the main compilation, because it
+ * needs the metadata providers to have been compiled. It generates a source
+ * file for each kind of metadata in {@link BuiltInMetadata} that the default
+ * provider handles, which the compiler then compiles.
+ */
+@SupportedAnnotationTypes("*")
+public class MetadataHandlerProcessor extends AbstractProcessor {
+  private boolean generated;
+
+  @Override public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override public boolean process(Set<? extends TypeElement> annotations,
+      RoundEnvironment roundEnv) {
+    if (generated) {
+      return false;
+    }
+    generated = true;
+    for (MetadataDef<?> def : defs()) {
+      if (DefaultRelMetadataProvider.INSTANCE.handlers(def).isEmpty()) {
+        continue;
+      }
+      final String className =
+          MetadataHandlerProcessor.class.getPackage().getName() + "."
+              + JaninoRelMetadataProvider.className(def);
+      try {
+        final JavaFileObject file =
+            processingEnv.getFiler().createSourceFile(className);
+        try (Writer w = file.openWriter()) {
+          w.write(JaninoRelMetadataProvider.generateDefault(def));
+        }
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Error generating " + className + ": " + e);
+      }
+    }
+    return false;
+  }
+
+  /** Returns the definition of each kind of metadata in
+   * {@link BuiltInMetadata}, sorted by name. */
+  static List<MetadataDef<?>> defs() {
+    final List<MetadataDef<?>> defs = new ArrayList<>();
+    for (Class<?> c : BuiltInMetadata.class.getClasses()) {
+      if (Metadata.class.isAssignableFrom(c)) {
+        try {
+          final Field field = c.getField("DEF");
+          defs.add((MetadataDef<?>) field.get(null));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+          throw new AssertionError("no DEF in " + c, e);
+        }
+      }
+    }
+    defs.sort(Comparator.comparing(def -> def.metadataClass.getSimpleName()));
+    return defs;
+  }
+}
+
+// End MetadataHandlerProcessor.java
@@ -36,6 +36,7 @@
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -178,7 +179,7 @@ private static RelMetadataProvider reflectiveSource(
                   }
                   key1 = FlatLists.copyOf(args2);
                 }
-                if (mq.map.put(key1, NullSentinel.INSTANCE) != null) {
+                if (mq.map.put(rel, key1, NullSentinel.INSTANCE) != null) {
                   throw CyclicMetadataException.INSTANCE;
                 }
                 try {
@@ -188,7 +189,7 @@ private static RelMetadataProvider reflectiveSource(
                   Util.throwIfUnchecked(e.getCause());
                   throw new RuntimeException(e.getCause());
                 } finally {
-                  mq.map.remove(key1);
+                  mq.map.remove(rel, key1);
                 }
               });
       methodsMap.put(key, function);
@@ -322,6 +323,19 @@ Method find(final Class<? extends RelNode> relNodeClass, Method method) {
         }
       }
     }
+
+    /** Returns the classes that have an implementation of a method, sorted
+     * by name so that the order does not depend on the order of hashing. */
+    List<Class<RelNode>> handledClasses(Method method) {
+      final List<Class<RelNode>> list = new ArrayList<>();
+      for (Pair<Class<RelNode>, Method> key : handlerMap.keySet()) {
+        if (key.right.equals(method)) {
+          list.add(key.left);
+        }
+      }
+      list.sort(Comparator.comparing(Class::getName));
+      return list;
+    }
   }
 
   /** Extended work space. */
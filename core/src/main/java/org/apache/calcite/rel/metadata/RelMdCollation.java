@@ -16,6 +16,7 @@
  */
 package org.apache.calcite.rel.metadata;
 
+import org.apache.calcite.adapter.enumerable.EnumerableBatchNestedLoopJoin;
 import org.apache.calcite.adapter.enumerable.EnumerableCorrelate;
 import org.apache.calcite.adapter.enumerable.EnumerableJoin;
 import org.apache.calcite.adapter.enumerable.EnumerableMergeJoin;
@@ -164,6 +165,15 @@ public ImmutableList<RelCollation> collations(EnumerableSemiJoin join,
     );
   }
 
+  /** Returns the collation of an {@link EnumerableBatchNestedLoopJoin},
+   * which is that of its left input. */
+  public ImmutableList<RelCollation> collations(
+      EnumerableBatchNestedLoopJoin join, RelMetadataQuery mq) {
+    return ImmutableList.copyOf(
+        RelMdCollation.enumerableBatchNestedLoopJoin(mq, join.getLeft(),
+            join.getRight(), join.getJoinType()));
+  }
+
   public ImmutableList<RelCollation> collations(Sort sort,
       RelMetadataQuery mq) {
     return ImmutableList.copyOf(
@@ -436,6 +446,16 @@ public static List<RelCollation> enumerableCorrelate(RelMetadataQuery mq,
     return mq.collations(left);
   }
 
+  /**
+   * Returns the collation of {@link EnumerableBatchNestedLoopJoin} based on
+   * its inputs and the join type.
+   */
+  public static List<RelCollation> enumerableBatchNestedLoopJoin(
+      RelMetadataQuery mq, RelNode left, RelNode right, JoinRelType joinType) {
+    // The current implementation always preserve the sort order of the left input
+    return mq.collations(left);
+  }
+
   public static List<RelCollation> enumerableSemiJoin(RelMetadataQuery mq,
       RelNode left, RelNode right) {
     // The current implementation always preserve the sort order of the left input
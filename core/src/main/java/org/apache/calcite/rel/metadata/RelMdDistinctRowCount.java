@@ -18,6 +18,8 @@
 
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.volcano.RelSubset;
+import org.apache.calcite.profile.StatisticsCatalog;
+import org.apache.calcite.profile.TableStatistics;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.Exchange;
@@ -26,6 +28,7 @@
 import org.apache.calcite.rel.core.Project;
 import org.apache.calcite.rel.core.SemiJoin;
 import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.core.Union;
 import org.apache.calcite.rel.core.Values;
 import org.apache.calcite.rex.RexBuilder;
@@ -222,6 +225,34 @@ public Double getDistinctRowCount(Values rel, RelMetadataQuery mq,
     return RelMdUtil.numDistinctVals(nRows, nRows * selectivity);
   }
 
+  /** Returns the number of distinct values of columns of a table scan. If
+   * the table has statistics, multiplies the number of distinct values of
+   * each column, counting null as a value, and reduces the result to allow
+   * for the predicate; otherwise uses the catch-all implementation. */
+  public Double getDistinctRowCount(TableScan rel, RelMetadataQuery mq,
+      ImmutableBitSet groupKey, RexNode predicate) {
+    final TableStatistics statistics =
+        StatisticsCatalog.INSTANCE.get(rel.getTable());
+    if (statistics == null) {
+      return getDistinctRowCount((RelNode) rel, mq, groupKey, predicate);
+    }
+    double distinctRowCount = 1D;
+    for (int ordinal : groupKey) {
+      final TableStatistics.ColumnStatistics column =
+          statistics.columns.get(ordinal);
+      distinctRowCount *=
+          column.distinctCount + (column.nullFraction > 0D ? 1D : 0D);
+    }
+    distinctRowCount =
+        Math.max(Math.min(distinctRowCount, statistics.rowCount), 1D);
+    if (predicate == null || predicate.isAlwaysTrue()) {
+      return distinctRowCount;
+    }
+    final Double selectivity = mq.getSelectivity(rel, predicate);
+    return RelMdUtil.numDistinctVals(distinctRowCount,
+        statistics.rowCount * selectivity);
+  }
+
   public Double getDistinctRowCount(Project rel, RelMetadataQuery mq,
       ImmutableBitSet groupKey, RexNode predicate) {
     if (predicate == null || predicate.isAlwaysTrue()) {
@@ -18,6 +18,8 @@
 
 import org.apache.calcite.adapter.enumerable.EnumerableLimit;
 import org.apache.calcite.plan.volcano.RelSubset;
+import org.apache.calcite.profile.StatisticsCatalog;
+import org.apache.calcite.profile.TableStatistics;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.SingleRel;
 import org.apache.calcite.rel.core.Aggregate;
@@ -215,7 +217,15 @@ public Double getRowCount(Aggregate rel, RelMetadataQuery mq) {
     return distinctRowCount;
   }
 
+  /** Returns the number of rows in a table scan. Uses the row count
+   * recorded by {@code ANALYZE TABLE}, if there is one, otherwise the
+   * table's estimate. */
   public Double getRowCount(TableScan rel, RelMetadataQuery mq) {
+    final TableStatistics statistics =
+        StatisticsCatalog.INSTANCE.get(rel.getTable());
+    if (statistics != null) {
+      return statistics.rowCount;
+    }
     return rel.estimateRowCount(mq);
   }
 
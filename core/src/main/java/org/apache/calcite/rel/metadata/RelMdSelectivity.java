@@ -17,20 +17,33 @@
 package org.apache.calcite.rel.metadata;
 
 import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.profile.StatisticsCatalog;
+import org.apache.calcite.profile.TableStatistics;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.Filter;
 import org.apache.calcite.rel.core.Project;
 import org.apache.calcite.rel.core.SemiJoin;
 import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.core.Union;
 import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.util.BuiltInMethod;
 import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
 
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -182,6 +195,183 @@ public Double getSelectivity(Project rel, RelMetadataQuery mq,
     }
   }
 
+  /** Returns the selectivity of a predicate on a table scan. If the table
+   * has statistics, estimates comparisons between a column and a literal
+   * using the column's histogram and number of distinct values; otherwise
+   * guesses. */
+  public Double getSelectivity(TableScan rel, RelMetadataQuery mq,
+      RexNode predicate) {
+    final TableStatistics statistics =
+        StatisticsCatalog.INSTANCE.get(rel.getTable());
+    if (statistics == null || predicate == null) {
+      return RelMdUtil.guessSelectivity(predicate);
+    }
+    return selectivity(statistics, predicate);
+  }
+
+  private static double selectivity(TableStatistics statistics,
+      RexNode predicate) {
+    switch (predicate.getKind()) {
+    case AND:
+      double product = 1D;
+      for (RexNode e : RelOptUtil.conjunctions(predicate)) {
+        product *= selectivity(statistics, e);
+      }
+      return product;
+    case OR:
+      double complement = 1D;
+      for (RexNode e : RelOptUtil.disjunctions(predicate)) {
+        complement *= 1D - selectivity(statistics, e);
+      }
+      return 1D - complement;
+    case NOT:
+      return 1D - selectivity(statistics, ((RexCall) predicate).operands.get(0));
+    case IS_NULL:
+    case IS_NOT_NULL:
+      final TableStatistics.ColumnStatistics column =
+          column(statistics, ((RexCall) predicate).operands.get(0));
+      if (column != null) {
+        return predicate.getKind() == SqlKind.IS_NULL
+            ? column.nullFraction
+            : 1D - column.nullFraction;
+      }
+      break;
+    case EQUALS:
+    case NOT_EQUALS:
+    case LESS_THAN:
+    case LESS_THAN_OR_EQUAL:
+    case GREATER_THAN:
+    case GREATER_THAN_OR_EQUAL:
+      final double selectivity =
+          comparisonSelectivity(statistics, (RexCall) predicate);
+      if (selectivity >= 0D) {
+        return selectivity;
+      }
+      break;
+    case SEARCH:
+      final double searchSelectivity =
+          searchSelectivity(statistics, (RexCall) predicate);
+      if (searchSelectivity >= 0D) {
+        return searchSelectivity;
+      }
+      break;
+    }
+    return RelMdUtil.guessSelectivity(predicate);
+  }
+
+  /** Returns the selectivity of a comparison between a column and a
+   * literal, or -1 if the statistics cannot estimate it. */
+  private static double comparisonSelectivity(TableStatistics statistics,
+      RexCall call) {
+    SqlKind kind = call.getKind();
+    RexNode ref = call.operands.get(0);
+    RexNode literal = call.operands.get(1);
+    if (literal instanceof RexInputRef || literal.isA(SqlKind.CAST)) {
+      ref = call.operands.get(1);
+      literal = call.operands.get(0);
+      kind = kind.reverse();
+    }
+    final TableStatistics.ColumnStatistics column = column(statistics, ref);
+    if (column == null || !(literal instanceof RexLiteral)) {
+      return -1D;
+    }
+    final Comparable value = value((RexLiteral) literal);
+    if (value == null) {
+      // Comparison with null is never true
+      return 0D;
+    }
+    switch (kind) {
+    case EQUALS:
+      return column.equalSelectivity(value);
+    case NOT_EQUALS:
+      return Math.max(
+          1D - column.nullFraction - column.equalSelectivity(value), 0D);
+    case LESS_THAN:
+      return column.rangeSelectivity(null, false, value, false);
+    case LESS_THAN_OR_EQUAL:
+      return column.rangeSelectivity(null, false, value, true);
+    case GREATER_THAN:
+      return column.rangeSelectivity(value, false, null, false);
+    case GREATER_THAN_OR_EQUAL:
+      return column.rangeSelectivity(value, true, null, false);
+    default:
+      return -1D;
+    }
+  }
+
+  /** Returns the selectivity of a {@code SEARCH} call, the sum of the
+   * selectivities of its values and ranges, or -1 if the statistics cannot
+   * estimate it. */
+  private static double searchSelectivity(TableStatistics statistics,
+      RexCall call) {
+    final TableStatistics.ColumnStatistics column =
+        column(statistics, call.operands.get(0));
+    if (column == null || !(call.operands.get(1) instanceof RexLiteral)) {
+      return -1D;
+    }
+    final Sarg<?> sarg =
+        ((RexLiteral) call.operands.get(1)).getValueAs(Sarg.class);
+    double sum = 0D;
+    for (Range<?> range : sarg.rangeSet.asRanges()) {
+      if (Sarg.isPoint((Range) range)) {
+        sum += column.equalSelectivity(value(range.lowerEndpoint()));
+      } else {
+        sum += column.rangeSelectivity(
+            range.hasLowerBound() ? value(range.lowerEndpoint()) : null,
+            range.hasLowerBound()
+                && range.lowerBoundType() == BoundType.CLOSED,
+            range.hasUpperBound() ? value(range.upperEndpoint()) : null,
+            range.hasUpperBound()
+                && range.upperBoundType() == BoundType.CLOSED);
+      }
+    }
+    return Math.min(sum, 1D - column.nullFraction);
+  }
+
+  /** Returns the statistics of the column that an expression references,
+   * or null if the expression is not a reference, optionally cast, to a
+   * column. */
+  private static TableStatistics.ColumnStatistics column(
+      TableStatistics statistics, RexNode e) {
+    if (e.isA(SqlKind.CAST)) {
+      e = ((RexCall) e).operands.get(0);
+    }
+    if (e instanceof RexInputRef) {
+      return statistics.columns.get(((RexInputRef) e).getIndex());
+    }
+    return null;
+  }
+
+  /** Converts a literal to a value that can be compared with the values in
+   * statistics, or returns null. */
+  private static Comparable value(RexLiteral literal) {
+    if (literal.isNull()) {
+      return null;
+    }
+    switch (literal.getTypeName().getFamily()) {
+    case NUMERIC:
+      return literal.getValueAs(BigDecimal.class).doubleValue();
+    case CHARACTER:
+      return literal.getValueAs(String.class);
+    default:
+      // Will not be comparable with the column's values, and so the
+      // statistics will assume that the value is typical.
+      return literal.getValue();
+    }
+  }
+
+  /** Converts a value in a search argument to a value that can be compared
+   * with the values in statistics. */
+  private static Comparable value(Object value) {
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).doubleValue();
+    }
+    if (value instanceof NlsString) {
+      return ((NlsString) value).getValue();
+    }
+    return (Comparable) value;
+  }
+
   // Catch-all rule when none of the others apply.
   public Double getSelectivity(RelNode rel, RelMetadataQuery mq,
       RexNode predicate) {
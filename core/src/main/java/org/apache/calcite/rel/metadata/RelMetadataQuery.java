@@ -27,17 +27,22 @@
 import org.apache.calcite.sql.SqlExplainLevel;
 import org.apache.calcite.util.ImmutableBitSet;
 
+import com.google.common.collect.ForwardingTable;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Table;
 
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * RelMetadataQuery provides a strongly-typed facade on top of
@@ -75,8 +80,22 @@
  * plugin mechanism.
  */
 public class RelMetadataQuery {
-  /** Set of active metadata queries, and cache of previous results. */
-  public final Map<List, Object> map = new HashMap<>();
+  /** Set of active metadata queries, and cache of previous results, keyed by
+   * relational expression, so that the results for one expression can be
+   * removed without clearing the whole cache.
+   *
+   * <p>The cache is not bounded. A planner that keeps a query for a long
+   * time must remove the metadata of expressions that it discards; see
+   * {@link #startTracking()}. */
+  public final Table<RelNode, List, Object> map = new CacheTable();
+
+  /** Relational expressions whose metadata was first cached since
+   * {@link #startTracking()}, or null if not tracking. */
+  private List<RelNode> trackedRels;
+
+  /** Number of times that the cache was used for each kind of metadata, or
+   * null if not counting; see {@link #setCountingCacheUsage(boolean)}. */
+  private Map<MetadataDef, CacheCounts> cacheCounts;
 
   public final JaninoRelMetadataProvider metadataProvider;
 
@@ -186,6 +205,99 @@ private RelMetadataQuery(boolean dummy) {
     this.uniqueKeysHandler = initialHandler(BuiltInMetadata.UniqueKeys.Handler.class);
   }
 
+  /** Removes the cached metadata of a relational expression. Call this method
+   * when something that the metadata depends upon, such as the best
+   * expression of an input {@link org.apache.calcite.plan.volcano.RelSubset},
+   * has changed.
+   *
+   * @param rel Relational expression
+   * @return Whether any metadata was removed
+   */
+  public boolean clearCache(RelNode rel) {
+    final Map<List, Object> row = map.rowMap().remove(rel);
+    return row != null && !row.isEmpty();
+  }
+
+  /** Starts recording the relational expressions whose metadata is
+   * cached, so that {@link #stopTracking(Predicate)} can remove the
+   * metadata of those that turn out to be temporary.
+   *
+   * <p>For example, {@link org.apache.calcite.plan.volcano.VolcanoPlanner}
+   * tracks each rule call, and afterwards removes the metadata of
+   * expressions that the rule created but that were not registered.
+   *
+   * @return Whether tracking started; false if it was already on
+   */
+  public boolean startTracking() {
+    if (trackedRels != null) {
+      return false;
+    }
+    trackedRels = new ArrayList<>();
+    return true;
+  }
+
+  /** Stops recording the relational expressions whose metadata is cached,
+   * and removes the cached metadata of those recorded since
+   * {@link #startTracking()} that do not satisfy a predicate.
+   *
+   * @param retain Returns whether to keep the metadata of an expression
+   * @return Number of expressions whose metadata was removed
+   */
+  public int stopTracking(Predicate<RelNode> retain) {
+    final List<RelNode> rels = trackedRels;
+    trackedRels = null;
+    int count = 0;
+    for (RelNode rel : rels) {
+      if (!retain.test(rel) && clearCache(rel)) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  /** Sets whether to count, for each kind of metadata, the requests that
+   * were and were not satisfied from the cache. Counting is off by default,
+   * because it costs a hash lookup per request. Turning it on resets the
+   * counts. */
+  public void setCountingCacheUsage(boolean counting) {
+    cacheCounts = counting ? new HashMap<>() : null;
+  }
+
+  /** Records that a request for a kind of metadata was satisfied from the
+   * cache. Called by generated handlers. */
+  public void cacheHit(MetadataDef def) {
+    if (cacheCounts != null) {
+      cacheCounts.computeIfAbsent(def, d -> new CacheCounts()).hitCount++;
+    }
+  }
+
+  /** Records that a request for a kind of metadata had to be computed. Called
+   * by generated handlers. */
+  public void cacheMiss(MetadataDef def) {
+    if (cacheCounts != null) {
+      cacheCounts.computeIfAbsent(def, d -> new CacheCounts()).missCount++;
+    }
+  }
+
+  /** Returns the number of requests for a kind of metadata, such as
+   * {@link BuiltInMetadata.RowCount#DEF}, that were satisfied from the
+   * cache. Returns 0 unless counting has been turned on by
+   * {@link #setCountingCacheUsage(boolean)}. */
+  public long getCacheHitCount(MetadataDef def) {
+    final CacheCounts counts =
+        cacheCounts == null ? null : cacheCounts.get(def);
+    return counts == null ? 0L : counts.hitCount;
+  }
+
+  /** Returns the number of requests for a kind of metadata that were not
+   * satisfied from the cache. Returns 0 unless counting has been turned on
+   * by {@link #setCountingCacheUsage(boolean)}. */
+  public long getCacheMissCount(MetadataDef def) {
+    final CacheCounts counts =
+        cacheCounts == null ? null : cacheCounts.get(def);
+    return counts == null ? 0L : counts.missCount;
+  }
+
   /** Re-generates the handler for a given kind of metadata, adding support for
    * {@code class_} if it is not already present. */
   protected <M extends Metadata, H extends MetadataHandler<M>> H
@@ -907,6 +1019,29 @@ private static Double validateResult(Double result) {
     return result;
   }
 
+  /** Cache of metadata results that records, while tracking is on, the
+   * relational expressions for which it creates a row. */
+  private class CacheTable extends ForwardingTable<RelNode, List, Object> {
+    private final Table<RelNode, List, Object> delegate =
+        HashBasedTable.create();
+
+    @Override protected Table<RelNode, List, Object> delegate() {
+      return delegate;
+    }
+
+    @Override public Object put(RelNode rel, List key, Object value) {
+      if (trackedRels != null && !delegate.containsRow(rel)) {
+        trackedRels.add(rel);
+      }
+      return delegate.put(rel, key, value);
+    }
+  }
+
+  /** Numbers of cache hits and misses for a kind of metadata. */
+  private static class CacheCounts {
+    long hitCount;
+    long missCount;
+  }
 }
 
 // End RelMetadataQuery.java
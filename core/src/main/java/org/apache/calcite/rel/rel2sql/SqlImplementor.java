@@ -39,6 +39,7 @@
 import org.apache.calcite.rex.RexPatternFieldRef;
 import org.apache.calcite.rex.RexProgram;
 import org.apache.calcite.rex.RexSubQuery;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.rex.RexWindow;
 import org.apache.calcite.rex.RexWindowBound;
 import org.apache.calcite.sql.JoinType;
@@ -68,13 +69,16 @@
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.validate.SqlValidatorUtil;
 import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.TimeString;
 import org.apache.calcite.util.TimestampString;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Range;
 
 import java.math.BigDecimal;
 import java.util.AbstractList;
@@ -587,6 +591,16 @@ public SqlNode toSql(RexProgram program, RexNode rex) {
               new SqlNodeList(cols.subList(1, cols.size()), POS));
         }
 
+      case SEARCH:
+        final RexCall search = (RexCall) rex;
+        RexNode sargLiteral = search.operands.get(1);
+        if (sargLiteral instanceof RexLocalRef) {
+          sargLiteral = program.getExprList()
+              .get(((RexLocalRef) sargLiteral).getIndex());
+        }
+        return toSql(program, search.operands.get(0),
+            (RexLiteral) sargLiteral);
+
       case EXISTS:
       case SCALAR_QUERY:
         subQuery = (RexSubQuery) rex;
@@ -641,6 +655,80 @@ public SqlNode toSql(RexProgram program, RexNode rex) {
       }
     }
 
+    /** Converts a call to {@code SEARCH} to SQL: an {@code IN} list if the
+     * search argument is a list of values, a {@code NOT IN} list if it is
+     * all but a list of values, otherwise a disjunction of comparisons. */
+    private SqlNode toSql(RexProgram program, RexNode ref,
+        RexLiteral literal) {
+      final SqlNode node = toSql(program, ref);
+      final Sarg<?> sarg = literal.getValueAs(Sarg.class);
+      if (sarg.isPoints()) {
+        return toSql(program, node, SqlStdOperatorTable.EQUALS,
+            SqlStdOperatorTable.IN, sarg, literal.getType());
+      }
+      final Sarg<?> complement = sarg.complement();
+      if (complement.isPoints()) {
+        return toSql(program, node, SqlStdOperatorTable.NOT_EQUALS,
+            SqlStdOperatorTable.NOT_IN, complement, literal.getType());
+      }
+      final List<SqlNode> orList = new ArrayList<>();
+      for (Range<?> range : sarg.rangeSet.asRanges()) {
+        final List<SqlNode> andList = new ArrayList<>();
+        if (Sarg.isPoint((Range) range)) {
+          andList.add(
+              SqlStdOperatorTable.EQUALS.createCall(POS, node,
+                  toSql(program, range.lowerEndpoint(), literal.getType())));
+        } else {
+          if (range.hasLowerBound()) {
+            andList.add(
+                (range.lowerBoundType() == BoundType.CLOSED
+                    ? SqlStdOperatorTable.GREATER_THAN_OR_EQUAL
+                    : SqlStdOperatorTable.GREATER_THAN)
+                    .createCall(POS, node,
+                        toSql(program, range.lowerEndpoint(),
+                            literal.getType())));
+          }
+          if (range.hasUpperBound()) {
+            andList.add(
+                (range.upperBoundType() == BoundType.CLOSED
+                    ? SqlStdOperatorTable.LESS_THAN_OR_EQUAL
+                    : SqlStdOperatorTable.LESS_THAN)
+                    .createCall(POS, node,
+                        toSql(program, range.upperEndpoint(),
+                            literal.getType())));
+          }
+        }
+        orList.add(andList.size() == 1
+            ? andList.get(0)
+            : createLeftCall(SqlStdOperatorTable.AND, andList));
+      }
+      return orList.size() == 1
+          ? orList.get(0)
+          : createLeftCall(SqlStdOperatorTable.OR, orList);
+    }
+
+    /** Converts a list of values to a comparison, if there is one value,
+     * or to an {@code IN} or {@code NOT IN} list. */
+    private SqlNode toSql(RexProgram program, SqlNode node,
+        SqlOperator comparisonOp, SqlOperator listOp, Sarg<?> sarg,
+        RelDataType type) {
+      final List<SqlNode> values = new ArrayList<>();
+      for (Range<?> range : sarg.rangeSet.asRanges()) {
+        values.add(toSql(program, range.lowerEndpoint(), type));
+      }
+      if (values.size() == 1) {
+        return comparisonOp.createCall(POS, node, values.get(0));
+      }
+      return listOp.createCall(POS, node, new SqlNodeList(values, POS));
+    }
+
+    /** Converts a value in a search argument to a literal. */
+    private SqlNode toSql(RexProgram program, Object value,
+        RelDataType type) {
+      return toSql(program,
+          RexUtil.sargValueLiteral((Comparable) value, type));
+    }
+
     protected Context getAliasContext(RexCorrelVariable variable) {
       throw new UnsupportedOperationException();
     }
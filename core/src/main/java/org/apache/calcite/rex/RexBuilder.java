@@ -20,6 +20,7 @@
 import org.apache.calcite.avatica.util.DateTimeUtils;
 import org.apache.calcite.avatica.util.Spaces;
 import org.apache.calcite.avatica.util.TimeUnit;
+import org.apache.calcite.config.CalciteSystemProperty;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.CorrelationId;
@@ -45,11 +46,16 @@
 import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.NlsString;
 import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.TimeString;
 import org.apache.calcite.util.TimestampString;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -95,6 +101,14 @@ public class RexBuilder {
   private final RexLiteral constantNull;
   private final SqlStdOperatorTable opTab = SqlStdOperatorTable.instance();
 
+  /** Expressions that {@link RexSimplify} has simplified using this builder,
+   * and their simplified forms. Created on first use. */
+  final Supplier<Cache<RexSimplify.Key, Pair<RexNode, RexNode>>>
+      simplifyCache = Suppliers.memoize(() ->
+          CacheBuilder.newBuilder()
+              .maximumSize(CalciteSystemProperty.SIMPLIFY_CACHE_MAX_SIZE.value())
+              .build());
+
   //~ Constructors -----------------------------------------------------------
 
   /**
@@ -1212,6 +1226,33 @@ public RexDynamicParam makeDynamicParam(
     return new RexDynamicParam(type, index);
   }
 
+  /**
+   * Creates a literal whose value is a search argument, for use as the
+   * second operand of {@link SqlStdOperatorTable#SEARCH}.
+   *
+   * @param sarg Search argument
+   * @param type Type of the values in the search argument
+   * @return Search argument literal
+   */
+  public RexLiteral makeSearchArgumentLiteral(Sarg sarg, RelDataType type) {
+    return new RexLiteral(sarg,
+        typeFactory.createTypeWithNullability(type, false), SqlTypeName.SARG);
+  }
+
+  /**
+   * Creates a call to {@link SqlStdOperatorTable#SEARCH}, which tests whether
+   * an expression belongs to a set of values, or ranges of values.
+   *
+   * @param arg  Expression to search for
+   * @param sarg Search argument
+   * @param type Type of the values in the search argument
+   * @return Call to SEARCH
+   */
+  public RexNode makeSearch(RexNode arg, Sarg sarg, RelDataType type) {
+    return makeCall(SqlStdOperatorTable.SEARCH, arg,
+        makeSearchArgumentLiteral(sarg, type));
+  }
+
   /**
    * Creates a literal whose value is NULL, with a particular type.
    *
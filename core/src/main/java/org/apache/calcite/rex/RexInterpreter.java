@@ -20,10 +20,16 @@
 import org.apache.calcite.avatica.util.TimeUnit;
 import org.apache.calcite.avatica.util.TimeUnitRange;
 import org.apache.calcite.rel.metadata.NullSentinel;
+import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
+import org.apache.calcite.util.TimeString;
+import org.apache.calcite.util.TimestampString;
 import org.apache.calcite.util.Util;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Range;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -151,6 +157,8 @@ public Comparable visitCall(RexCall call) {
       return compare(values, c -> c < 0);
     case LESS_THAN_OR_EQUAL:
       return compare(values, c -> c <= 0);
+    case SEARCH:
+      return search(values);
     case AND:
       return values.stream().map(Truthy::of).min(Comparator.naturalOrder())
           .get().toComparable();
@@ -344,6 +352,50 @@ private Comparable compare(List<Comparable> values, IntPredicate p) {
     return p.test(c);
   }
 
+  private Comparable search(List<Comparable> values) {
+    Comparable v = values.get(0);
+    if (v == N) {
+      return N;
+    }
+    final Sarg sarg = (Sarg) values.get(1);
+    if (v instanceof Number) {
+      v = number(v);
+    }
+    for (Object o : sarg.rangeSet.asRanges()) {
+      final Range range = (Range) o;
+      if (range.hasLowerBound()) {
+        final int c = v.compareTo(value(range.lowerEndpoint()));
+        if (c < 0 || c == 0 && range.lowerBoundType() == BoundType.OPEN) {
+          // Ranges are sorted, so the value is not in this or any later range
+          return false;
+        }
+      }
+      if (range.hasUpperBound()) {
+        final int c = v.compareTo(value(range.upperEndpoint()));
+        if (c > 0 || c == 0 && range.upperBoundType() == BoundType.OPEN) {
+          continue;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /** Converts a value of a {@link Sarg}, which is in the form held by
+   * {@link RexLiteral#getValueAs(Class) RexLiteral.getValueAs(Comparable)},
+   * to the form returned by {@link RexLiteral#getValue4()}. */
+  private static Comparable value(Comparable v) {
+    if (v instanceof DateString) {
+      return ((DateString) v).getDaysSinceEpoch();
+    } else if (v instanceof TimeString) {
+      return ((TimeString) v).getMillisOfDay();
+    } else if (v instanceof TimestampString) {
+      return ((TimestampString) v).getMillisSinceEpoch();
+    } else {
+      return v;
+    }
+  }
+
   private boolean containsNull(List<Comparable> values) {
     for (Comparable value : values) {
       if (value == N) {
@@ -33,6 +33,7 @@
 import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.Litmus;
 import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.TimeString;
 import org.apache.calcite.util.TimestampString;
 import org.apache.calcite.util.Unsafe;
@@ -363,6 +364,8 @@ public static boolean valueMatchesType(
     case ROW:
     case MULTISET:
       return value instanceof List;
+    case SARG:
+      return value instanceof Sarg;
     case ANY:
       // Literal of type ANY is not legal. "CAST(2 AS ANY)" remains
       // an integer literal surrounded by a cast function.
@@ -384,7 +387,7 @@ private static String toJavaString(
     }
     StringWriter sw = new StringWriter();
     PrintWriter pw = new PrintWriter(sw);
-    printAsJava(value, pw, typeName, false, includeType);
+    printAsJava(value, pw, typeName, type, false, includeType);
     pw.flush();
 
     if (includeType != RexDigestIncludeType.NO_TYPE) {
@@ -551,7 +554,8 @@ private static int width(TimeUnit timeUnit) {
    * Prints the value this literal as a Java string constant.
    */
   public void printAsJava(PrintWriter pw) {
-    printAsJava(value, pw, typeName, true, RexDigestIncludeType.NO_TYPE);
+    printAsJava(value, pw, typeName, type, true,
+        RexDigestIncludeType.NO_TYPE);
   }
 
   /**
@@ -570,12 +574,14 @@ public void printAsJava(PrintWriter pw) {
    *  @param value    Value
    * @param pw       Writer to write to
    * @param typeName Type family
+   * @param type     Type
    * @param includeType if representation should include data type
    */
   private static void printAsJava(
       Comparable value,
       PrintWriter pw,
       SqlTypeName typeName,
+      RelDataType type,
       boolean java, RexDigestIncludeType includeType) {
     switch (typeName) {
     case CHAR:
@@ -666,6 +672,20 @@ private static void printAsJava(
         pw.print("null");
       }
       break;
+    case SARG:
+      assert value instanceof Sarg;
+      //noinspection unchecked
+      pw.print(
+          ((Sarg) value).printTo(new StringBuilder(), (sb, v) -> {
+            final Comparable c = (Comparable) v;
+            final StringWriter sw = new StringWriter();
+            final PrintWriter pw2 = new PrintWriter(sw);
+            printAsJava(c, pw2, sargValueTypeName(c, type), type, java,
+                RexDigestIncludeType.NO_TYPE);
+            pw2.flush();
+            ((StringBuilder) sb).append(sw);
+          }));
+      break;
     case MULTISET:
     case ROW:
       @SuppressWarnings("unchecked") final List<RexLiteral> list = (List) value;
@@ -686,6 +706,23 @@ public int size() {
     }
   }
 
+  /** Returns the type name of a literal that holds a given value of a
+   * {@link Sarg} whose values have a given type. */
+  static SqlTypeName sargValueTypeName(Comparable value, RelDataType type) {
+    final SqlTypeName typeName = type.getSqlTypeName();
+    if (value instanceof NlsString) {
+      return SqlTypeName.CHAR;
+    } else if (value instanceof ByteString) {
+      return SqlTypeName.BINARY;
+    } else if (value instanceof BigDecimal) {
+      return SqlTypeName.APPROX_TYPES.contains(typeName) ? SqlTypeName.DOUBLE
+          : SqlTypeName.EXACT_TYPES.contains(typeName) ? SqlTypeName.DECIMAL
+          : typeName;
+    } else {
+      return typeName;
+    }
+  }
+
   /**
    * Converts a Jdbc string into a RexLiteral. This method accepts a string,
    * as returned by the Jdbc method ResultSet.getString(), and restores the
@@ -18,6 +18,7 @@
 
 import org.apache.calcite.avatica.util.TimeUnit;
 import org.apache.calcite.avatica.util.TimeUnitRange;
+import org.apache.calcite.config.CalciteSystemProperty;
 import org.apache.calcite.plan.RelOptPredicateList;
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.Strong;
@@ -31,15 +32,21 @@
 import org.apache.calcite.sql.type.SqlTypeUtil;
 import org.apache.calcite.util.Bug;
 import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.Util;
 
+import com.google.common.cache.Cache;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
 import com.google.common.collect.Sets;
+import com.google.common.collect.TreeRangeSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -47,11 +54,13 @@
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.apache.calcite.rex.RexUnknownAs.FALSE;
 import static org.apache.calcite.rex.RexUnknownAs.UNKNOWN;
@@ -60,6 +69,16 @@
  * Context required to simplify a row-expression.
  */
 public class RexSimplify {
+  /** Types of the literals that may occur in a call to
+   * {@link org.apache.calcite.sql.fun.SqlStdOperatorTable#SEARCH}; for
+   * instance, those that {@link #searchTerms(List, SqlKind)} can combine. */
+  public static final Set<SqlTypeName> SEARCH_TYPES =
+      ImmutableSet.<SqlTypeName>builder()
+          .addAll(SqlTypeName.NUMERIC_TYPES)
+          .addAll(SqlTypeName.CHAR_TYPES)
+          .add(SqlTypeName.DATE, SqlTypeName.TIME, SqlTypeName.TIMESTAMP)
+          .build();
+
   private final boolean paranoid;
   public final RexBuilder rexBuilder;
   private final RelOptPredicateList predicates;
@@ -256,13 +275,13 @@ RexNode simplify(RexNode e, RexUnknownAs unknownAs) {
     }
     switch (e.getKind()) {
     case AND:
-      return simplifyAnd((RexCall) e, unknownAs);
+      return cached(e, unknownAs, () -> simplifyAnd((RexCall) e, unknownAs));
     case OR:
-      return simplifyOr((RexCall) e, unknownAs);
+      return cached(e, unknownAs, () -> simplifyOr((RexCall) e, unknownAs));
     case NOT:
       return simplifyNot((RexCall) e, unknownAs);
     case CASE:
-      return simplifyCase((RexCall) e, unknownAs);
+      return cached(e, unknownAs, () -> simplifyCase((RexCall) e, unknownAs));
     case COALESCE:
       return simplifyCoalesce((RexCall) e);
     case CAST:
@@ -294,6 +313,31 @@ RexNode simplify(RexNode e, RexUnknownAs unknownAs) {
     }
   }
 
+  /** Returns the simplified form of an expression from the cache of the
+   * {@link RexBuilder}, computing it if it is not present.
+   *
+   * <p>The same condition is often simplified many times during planning, by
+   * different rules, each time with the same predicates. */
+  private RexNode cached(RexNode e, RexUnknownAs unknownAs,
+      Supplier<RexNode> supplier) {
+    if (CalciteSystemProperty.SIMPLIFY_CACHE_MAX_SIZE.value() == 0) {
+      return supplier.get();
+    }
+    final Cache<Key, Pair<RexNode, RexNode>> cache =
+        rexBuilder.simplifyCache.get();
+    final Key key =
+        new Key(e, unknownAs, predicates, predicateElimination, executor);
+    final Pair<RexNode, RexNode> pair = cache.getIfPresent(key);
+    if (pair != null) {
+      // If the cached expression did not change, return the expression we
+      // were given; callers use "==" to detect that nothing changed.
+      return pair.right == pair.left ? e : pair.right;
+    }
+    final RexNode simplified = supplier.get();
+    cache.put(key, Pair.of(e, simplified));
+    return simplified;
+  }
+
   /**
    * Runs simplification inside a non-specialized node.
    */
@@ -454,6 +498,7 @@ RexNode simplifyAnds(Iterable<? extends RexNode> nodes,
     }
     simplifyList(terms, UNKNOWN);
     simplifyList(notTerms, UNKNOWN);
+    searchTerms(terms, SqlKind.AND);
     if (unknownAs == FALSE) {
       return simplifyAnd2ForUnknownAsFalse(terms, notTerms);
     }
@@ -469,16 +514,25 @@ private void simplifyList(List<RexNode> terms, RexUnknownAs unknownAs) {
 
   private void simplifyAndTerms(List<RexNode> terms, RexUnknownAs unknownAs) {
     RexSimplify simplify = this;
+    // Terms that have been simplified but not yet added to the predicates of
+    // "simplify". Adding terms one at a time takes time quadratic in the
+    // number of terms, so we wait until we reach a term whose simplification
+    // might use them. The simplification of "x <> literal", such as the terms
+    // of "x NOT IN (1, 2, ...)", does not use predicates.
+    final List<RexNode> pending = new ArrayList<>();
     for (int i = 0; i < terms.size(); i++) {
       RexNode t = terms.get(i);
       if (Predicate.of(t) == null) {
         continue;
       }
+      final Comparison comparison = Comparison.of(t);
+      if (comparison == null || comparison.kind != SqlKind.NOT_EQUALS) {
+        simplify = simplify.withTerms(pending);
+      }
       terms.set(i, simplify.simplify(t, unknownAs));
-      RelOptPredicateList newPredicates = simplify.predicates.union(rexBuilder,
-          RelOptPredicateList.of(rexBuilder, terms.subList(i, i + 1)));
-      simplify = simplify.withPredicates(newPredicates);
+      pending.add(terms.get(i));
     }
+    simplify = simplify.withTerms(pending);
     for (int i = 0; i < terms.size(); i++) {
       RexNode t = terms.get(i);
       if (Predicate.of(t) != null) {
@@ -488,6 +542,18 @@ private void simplifyAndTerms(List<RexNode> terms, RexUnknownAs unknownAs) {
     }
   }
 
+  /** Returns a RexSimplify the same as this but whose predicates also
+   * include some terms; clears the list of terms. */
+  private RexSimplify withTerms(List<RexNode> terms) {
+    if (terms.isEmpty()) {
+      return this;
+    }
+    final RelOptPredicateList newPredicates = predicates.union(rexBuilder,
+        RelOptPredicateList.of(rexBuilder, terms));
+    terms.clear();
+    return withPredicates(newPredicates);
+  }
+
   private void simplifyOrTerms(List<RexNode> terms, RexUnknownAs unknownAs) {
     // Suppose we are processing "e1(x) OR e2(x) OR e3(x)". When we are
     // visiting "e3(x)" we know both "e1(x)" and "e2(x)" are not true (they
@@ -528,6 +594,17 @@ private RexNode simplifyNot(RexCall call, RexUnknownAs unknownAs) {
           && !RexLiteral.isNullLiteral(a)) {
         return rexBuilder.makeLiteral(!RexLiteral.booleanValue(a));
       }
+      break;
+    case SEARCH:
+      // NOT SEARCH(x, sarg) ==> SEARCH(x, complement of sarg)
+      final RexCall search = (RexCall) a;
+      if (search.operands.get(1) instanceof RexLiteral) {
+        final RexLiteral literal = (RexLiteral) search.operands.get(1);
+        return simplify(
+            rexBuilder.makeSearch(search.operands.get(0),
+                literal.getValueAs(Sarg.class).complement(),
+                literal.getType()), unknownAs);
+      }
     }
     final SqlKind negateKind = a.getKind().negate();
     if (a.getKind() != negateKind) {
@@ -1155,6 +1232,7 @@ RexNode simplifyAnd(RexCall e, RexUnknownAs unknownAs) {
     }
 
     simplifyList(notTerms, unknownAs.negate());
+    searchTerms(terms, SqlKind.AND);
 
     switch (unknownAs) {
     case FALSE:
@@ -1542,6 +1620,33 @@ private <C extends Comparable<C>> Range<C> residue(RexNode ref, Range<C> r0,
     return r0;
   }
 
+  /** Returns whether each of a list of disjunctions compares the same
+   * reference to a non-null literal using "=", as does
+   * {@code x = 1 OR x = 2 OR x = 3}, which is what {@code x IN (1, 2, 3)}
+   * becomes.
+   *
+   * <p>No such term can be simplified using the others (except if it is a
+   * duplicate, and duplicates are removed when the terms are combined), so we
+   * skip the predicate elimination that would otherwise take time quadratic
+   * in the number of terms. */
+  private static boolean isInList(List<RexNode> terms) {
+    if (terms.size() < 2) {
+      return false;
+    }
+    RexNode ref = null;
+    for (RexNode term : terms) {
+      final Comparison comparison = Comparison.of(term);
+      if (comparison == null
+          || comparison.kind != SqlKind.EQUALS
+          || comparison.literal.getValue() == null
+          || ref != null && !comparison.ref.equals(ref)) {
+        return false;
+      }
+      ref = comparison.ref;
+    }
+    return true;
+  }
+
   /** Simplifies OR(x, x) into x, and similar.
    * The simplified expression returns UNKNOWN values as is (not as FALSE). */
   @Deprecated // to be removed before 2.0
@@ -1553,7 +1658,7 @@ public RexNode simplifyOr(RexCall call) {
   private RexNode simplifyOr(RexCall call, RexUnknownAs unknownAs) {
     assert call.getKind() == SqlKind.OR;
     final List<RexNode> terms = RelOptUtil.disjunctions(call);
-    if (predicateElimination) {
+    if (predicateElimination && !isInList(terms)) {
       simplifyOrTerms(terms, unknownAs);
     }
     return simplifyOrs(terms, unknownAs);
@@ -1599,9 +1704,101 @@ private RexNode simplifyOrs(List<RexNode> terms, RexUnknownAs unknownAs) {
       }
       terms.set(i, term);
     }
+    searchTerms(terms, SqlKind.OR);
     return RexUtil.composeDisjunction(rexBuilder, terms);
   }
 
+  /** Combines the terms of an AND or OR that compare the same column with
+   * literals into a single call to {@link SqlStdOperatorTable#SEARCH}.
+   * Modifies the list in place.
+   *
+   * <p>Terms are combined if there are at least
+   * {@link CalciteSystemProperty#SIMPLIFY_SEARCH_THRESHOLD} of them, or if
+   * one of them is already a call to SEARCH. For example, if the threshold
+   * is 3, {@code x = 1 OR x = 2 OR x = 5 OR y = 3} becomes
+   * {@code SEARCH(x, Sarg[1, 2, 5]) OR y = 3}, and
+   * {@code x <> 1 AND x <> 2 AND x > 0 AND x < 10} becomes
+   * {@code SEARCH(x, Sarg[(0..1), (1..2), (2..10)])}.
+   *
+   * <p>Terms are not combined if their literals have different types, or if
+   * the result would be always true or always false (except for null
+   * values); other rules simplify those. */
+  private <C extends Comparable<C>> void searchTerms(List<RexNode> terms,
+      SqlKind kind) {
+    final int threshold =
+        CalciteSystemProperty.SIMPLIFY_SEARCH_THRESHOLD.value();
+    if (threshold == 0
+        || terms.size() < 2
+        || terms.size() < threshold
+        && terms.stream().noneMatch(t -> t.getKind() == SqlKind.SEARCH)) {
+      return;
+    }
+    final Map<RexNode, SearchGroup<C>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < terms.size(); i++) {
+      final RexNode term = terms.get(i);
+      final RexNode ref;
+      final RexLiteral literal;
+      final RangeSet<C> rangeSet;
+      if (term.getKind() == SqlKind.SEARCH) {
+        final RexCall search = (RexCall) term;
+        if (!(search.operands.get(1) instanceof RexLiteral)) {
+          continue;
+        }
+        ref = search.operands.get(0);
+        literal = (RexLiteral) search.operands.get(1);
+        //noinspection unchecked
+        rangeSet = literal.getValueAs(Sarg.class).rangeSet;
+      } else {
+        final Comparison comparison = Comparison.of(term);
+        if (comparison == null
+            || comparison.literal.isNull()
+            || !SEARCH_TYPES.contains(
+                comparison.literal.getType().getSqlTypeName())) {
+          continue;
+        }
+        ref = comparison.ref;
+        literal = comparison.literal;
+        //noinspection unchecked
+        final C value = (C) literal.getValueAs(Comparable.class);
+        if (comparison.kind == SqlKind.NOT_EQUALS) {
+          rangeSet = ImmutableRangeSet.of(Range.singleton(value)).complement();
+        } else {
+          rangeSet = ImmutableRangeSet.of(range(comparison.kind, value));
+        }
+      }
+      final RelDataType type =
+          rexBuilder.typeFactory.createTypeWithNullability(literal.getType(),
+              false);
+      groups.computeIfAbsent(ref, r -> new SearchGroup<>(type))
+          .add(i, type, rangeSet, term.getKind() == SqlKind.SEARCH, kind);
+    }
+    final Set<Integer> removed = new HashSet<>();
+    for (Map.Entry<RexNode, SearchGroup<C>> entry : groups.entrySet()) {
+      final SearchGroup<C> group = entry.getValue();
+      if (group.type == null
+          || group.ordinals.size() < 2
+          || group.ordinals.size() < threshold && !group.containsSearch
+          || group.rangeSet.isEmpty()
+          || group.rangeSet.encloses(Range.all())) {
+        continue;
+      }
+      terms.set(group.ordinals.get(0),
+          rexBuilder.makeSearch(entry.getKey(), Sarg.of(group.rangeSet),
+              group.type));
+      removed.addAll(Util.skip(group.ordinals));
+    }
+    if (!removed.isEmpty()) {
+      final List<RexNode> retained = new ArrayList<>();
+      for (int i = 0; i < terms.size(); i++) {
+        if (!removed.contains(i)) {
+          retained.add(terms.get(i));
+        }
+      }
+      terms.clear();
+      terms.addAll(retained);
+    }
+  }
+
   private void verify(RexNode before, RexNode simplified, RexUnknownAs unknownAs) {
     if (simplified.isAlwaysFalse()
         && before.isAlwaysTrue()) {
@@ -2015,6 +2212,41 @@ private static <C extends Comparable<C>> Range<C> range(SqlKind comparison,
     }
   }
 
+  /** Terms of an AND or OR that compare the same expression with literals,
+   * and the values that satisfy them.
+   *
+   * @see #searchTerms(List, SqlKind)
+   *
+   * @param <C> Value type */
+  private static class SearchGroup<C extends Comparable<C>> {
+    /** Type of the literals, or null if they do not all have the same
+     * type. */
+    RelDataType type;
+    final List<Integer> ordinals = new ArrayList<>();
+    final RangeSet<C> rangeSet = TreeRangeSet.create();
+    boolean containsSearch;
+
+    SearchGroup(RelDataType type) {
+      this.type = type;
+    }
+
+    void add(int ordinal, RelDataType type, RangeSet<C> rangeSet,
+        boolean search, SqlKind kind) {
+      if (!type.equals(this.type)) {
+        this.type = null;
+      }
+      if (ordinals.isEmpty()) {
+        this.rangeSet.addAll(rangeSet);
+      } else if (kind == SqlKind.AND) {
+        this.rangeSet.removeAll(rangeSet.complement());
+      } else {
+        this.rangeSet.addAll(rangeSet);
+      }
+      ordinals.add(ordinal);
+      containsSearch |= search;
+    }
+  }
+
   /** Marker interface for predicates (expressions that evaluate to BOOLEAN). */
   private interface Predicate {
     /** Wraps an expression in a Predicate or returns null. */
@@ -2027,6 +2259,68 @@ static Predicate of(RexNode t) {
     }
   }
 
+  /** Key in the cache of simplified expressions.
+   *
+   * <p>Two keys are equal if their expressions have the same digest, the
+   * same operators and the same types, and if they are simplified in the
+   * same context: the same predicates (compared by identity) and the same
+   * treatment of unknown values. */
+  static class Key {
+    final RexNode e;
+    final RexUnknownAs unknownAs;
+    final RelOptPredicateList predicates;
+    final boolean predicateElimination;
+    final RexExecutor executor;
+
+    Key(RexNode e, RexUnknownAs unknownAs, RelOptPredicateList predicates,
+        boolean predicateElimination, RexExecutor executor) {
+      this.e = e;
+      this.unknownAs = unknownAs;
+      this.predicates = predicates;
+      this.predicateElimination = predicateElimination;
+      this.executor = executor;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash(e, unknownAs, System.identityHashCode(predicates),
+          predicateElimination, System.identityHashCode(executor));
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj == this
+          || obj instanceof Key
+          && unknownAs == ((Key) obj).unknownAs
+          && predicates == ((Key) obj).predicates
+          && predicateElimination == ((Key) obj).predicateElimination
+          && executor == ((Key) obj).executor
+          && e.equals(((Key) obj).e)
+          && sameStructure(e, ((Key) obj).e);
+    }
+
+    /** Returns whether two expressions with the same digest have the same
+     * types and operators. The digest of an input reference, for instance,
+     * does not include its type. */
+    private static boolean sameStructure(RexNode e0, RexNode e1) {
+      if (!e0.getType().equals(e1.getType())) {
+        return false;
+      }
+      if (e0 instanceof RexCall) {
+        final RexCall call0 = (RexCall) e0;
+        final RexCall call1 = (RexCall) e1;
+        if (call0.getOperator() != call1.getOperator()) {
+          return false;
+        }
+        for (Pair<RexNode, RexNode> pair
+            : Pair.zip(call0.operands, call1.operands)) {
+          if (!sameStructure(pair.left, pair.right)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
   /** Represents a simple Comparision.
    *
    * Left hand side is a {@link RexNode}, right hand side is a literal.
@@ -42,13 +42,16 @@
 import org.apache.calcite.util.ControlFlowException;
 import org.apache.calcite.util.Litmus;
 import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.Util;
 import org.apache.calcite.util.mapping.Mappings;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -2066,6 +2069,87 @@ public static Set<RelTableRef> gatherTableReferences(final List<RexNode> nodes)
     return occurrences;
   }
 
+  /**
+   * Expands each call to {@link SqlStdOperatorTable#SEARCH} in an expression
+   * into comparisons, for consumers that do not understand search arguments.
+   *
+   * @param rexBuilder Rex builder
+   * @param program    Program in which to resolve local references, or null
+   * @param node       Expression
+   * @return Equivalent expression that contains no calls to SEARCH
+   */
+  public static RexNode expandSearch(RexBuilder rexBuilder,
+      RexProgram program, RexNode node) {
+    return node.accept(new SearchExpandingShuttle(program, rexBuilder));
+  }
+
+  /**
+   * Converts a search argument on an expression into comparisons.
+   *
+   * <p>If the search argument consists of points, the result is an OR of
+   * equalities, like {@code x IN (...)}; if everything but points, an AND of
+   * not-equals, like {@code x NOT IN (...)}; otherwise an OR of ranges.
+   *
+   * @param rexBuilder Rex builder
+   * @param ref        Expression being searched for
+   * @param sarg       Search argument
+   * @param type       Type of the values in the search argument
+   * @return Equivalent expression
+   */
+  public static <C extends Comparable<C>> RexNode sargRef(
+      RexBuilder rexBuilder, RexNode ref, Sarg<C> sarg, RelDataType type) {
+    final List<RexNode> terms = new ArrayList<>();
+    final Sarg<C> complement = sarg.complement();
+    if (!sarg.isPoints() && complement.isPoints()) {
+      for (Range<C> range : complement.rangeSet.asRanges()) {
+        terms.add(
+            rexBuilder.makeCall(SqlStdOperatorTable.NOT_EQUALS, ref,
+                sargValueLiteral(range.lowerEndpoint(), type)));
+      }
+      return composeConjunction(rexBuilder, terms);
+    }
+    for (Range<C> range : sarg.rangeSet.asRanges()) {
+      if (Sarg.isPoint(range)) {
+        terms.add(
+            rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, ref,
+                sargValueLiteral(range.lowerEndpoint(), type)));
+        continue;
+      }
+      final List<RexNode> bounds = new ArrayList<>(2);
+      if (range.hasLowerBound()) {
+        bounds.add(
+            rexBuilder.makeCall(
+                range.lowerBoundType() == BoundType.CLOSED
+                    ? SqlStdOperatorTable.GREATER_THAN_OR_EQUAL
+                    : SqlStdOperatorTable.GREATER_THAN,
+                ref, sargValueLiteral(range.lowerEndpoint(), type)));
+      }
+      if (range.hasUpperBound()) {
+        bounds.add(
+            rexBuilder.makeCall(
+                range.upperBoundType() == BoundType.CLOSED
+                    ? SqlStdOperatorTable.LESS_THAN_OR_EQUAL
+                    : SqlStdOperatorTable.LESS_THAN,
+                ref, sargValueLiteral(range.upperEndpoint(), type)));
+      }
+      terms.add(composeConjunction(rexBuilder, bounds));
+    }
+    return composeDisjunction(rexBuilder, terms);
+  }
+
+  /**
+   * Creates a literal for a value of a search argument.
+   *
+   * @param value Value, in the form held by {@link Sarg}
+   * @param type  Type of the values in the search argument
+   * @return Literal
+   */
+  public static RexLiteral sargValueLiteral(Comparable value,
+      RelDataType type) {
+    return new RexLiteral(value, type,
+        RexLiteral.sargValueTypeName(value, type));
+  }
+
   //~ Inner Classes ----------------------------------------------------------
 
   /**
@@ -2484,6 +2568,35 @@ private static class RexShiftShuttle extends RexShuttle {
     }
   }
 
+  /** Shuttle that expands calls to {@link SqlStdOperatorTable#SEARCH} into
+   * comparisons.
+   *
+   * @see #expandSearch(RexBuilder, RexProgram, RexNode) */
+  private static class SearchExpandingShuttle extends RexShuttle {
+    private final RexProgram program;
+    private final RexBuilder rexBuilder;
+
+    SearchExpandingShuttle(RexProgram program, RexBuilder rexBuilder) {
+      this.program = program;
+      this.rexBuilder = rexBuilder;
+    }
+
+    @Override public RexNode visitCall(RexCall call) {
+      final RexNode e = super.visitCall(call);
+      if (e.getKind() != SqlKind.SEARCH) {
+        return e;
+      }
+      final RexCall search = (RexCall) e;
+      RexNode operand = search.operands.get(1);
+      if (program != null && operand instanceof RexLocalRef) {
+        operand = program.getExprList().get(((RexLocalRef) operand).getIndex());
+      }
+      final RexLiteral literal = (RexLiteral) operand;
+      return sargRef(rexBuilder, search.operands.get(0),
+          literal.getValueAs(Sarg.class), literal.getType());
+    }
+  }
+
   /** Visitor that throws {@link org.apache.calcite.util.Util.FoundOne} if
    * applied to an expression that contains a {@link RexCorrelVariable}. */
   private static class CorrelationFinder extends RexVisitorImpl<Void> {
@@ -86,7 +86,17 @@ public enum Hook {
   /** Called with a query that has been generated to send to a back-end system.
    * The query might be a SQL string (for the JDBC adapter), a list of Mongo
    * pipeline expressions (for the MongoDB adapter), et cetera. */
-  QUERY_PLAN;
+  QUERY_PLAN,
+
+  /** Called when an operator has written rows to a temporary file because
+   * its input did not fit in memory. The argument is the number of bytes
+   * written, as a {@link Long}. */
+  SPILL,
+
+  /** Returns the cache of compiled plans, a
+   * {@link org.apache.calcite.adapter.enumerable.CompiledPlanCache}, or null
+   * to generate code for every plan. */
+  COMPILED_PLAN_CACHE;
 
   private final List<Consumer<Object>> handlers =
       new CopyOnWriteArrayList<>();
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.function.Deterministic;
+import org.apache.calcite.util.Pair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiled SQL {@code LIKE} or {@code SIMILAR TO} pattern.
+ *
+ * <p>The factory methods are deterministic, so if the pattern is a literal,
+ * generated code creates the matcher once, in a static field, rather than
+ * once per row. If the pattern is not a literal, the factory methods return
+ * matchers from a bounded cache.
+ *
+ * <p>A {@code LIKE} pattern whose only wildcards are {@code %} at its start
+ * or end, such as {@code 'abc'}, {@code 'abc%'}, {@code '%abc'} or
+ * {@code '%abc%'}, is matched by comparing strings; other patterns are
+ * translated to a {@link Pattern regular expression}.
+ */
+public abstract class LikeMatcher {
+  /** Maximum number of matchers that are cached for patterns that are not
+   * literals. */
+  private static final int CACHE_SIZE = 1_000;
+
+  private static final Cache<Pair<String, String>, LikeMatcher> LIKE_CACHE =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  private static final Cache<Pair<String, String>, LikeMatcher> SIMILAR_CACHE =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  /** Returns whether a string matches the pattern. */
+  public abstract boolean matches(String s);
+
+  /** Returns a matcher for a SQL {@code LIKE} pattern. */
+  @Deterministic
+  public static LikeMatcher like(String pattern) {
+    return like(pattern, null);
+  }
+
+  /** Returns a matcher for a SQL {@code LIKE} pattern with escape. */
+  @Deterministic
+  public static LikeMatcher like(String pattern, String escape) {
+    final Pair<String, String> key = Pair.of(pattern, escape);
+    LikeMatcher matcher = LIKE_CACHE.getIfPresent(key);
+    if (matcher == null) {
+      matcher = compileLike(pattern, escape);
+      LIKE_CACHE.put(key, matcher);
+    }
+    return matcher;
+  }
+
+  /** Returns a matcher for a SQL {@code SIMILAR TO} pattern. */
+  @Deterministic
+  public static LikeMatcher similar(String pattern) {
+    return similar(pattern, null);
+  }
+
+  /** Returns a matcher for a SQL {@code SIMILAR TO} pattern with escape. */
+  @Deterministic
+  public static LikeMatcher similar(String pattern, String escape) {
+    final Pair<String, String> key = Pair.of(pattern, escape);
+    LikeMatcher matcher = SIMILAR_CACHE.getIfPresent(key);
+    if (matcher == null) {
+      matcher =
+          new RegexMatcher(
+              Pattern.compile(Like.sqlToRegexSimilar(pattern, escape)));
+      SIMILAR_CACHE.put(key, matcher);
+    }
+    return matcher;
+  }
+
+  /** Compiles a {@code LIKE} pattern. Uses a string comparison if the only
+   * wildcards are {@code %} at the start and end of the pattern, otherwise
+   * a regular expression. */
+  static LikeMatcher compileLike(String pattern, String escape) {
+    if (escape != null && escape.length() != 1) {
+      return regexLike(pattern, escape);
+    }
+    final char escapeChar = escape == null ? 0 : escape.charAt(0);
+    final StringBuilder buf = new StringBuilder();
+    boolean leading = false;
+    boolean trailing = false;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (escape != null && c == escapeChar) {
+        if (trailing || i == pattern.length() - 1) {
+          return regexLike(pattern, escape);
+        }
+        c = pattern.charAt(++i);
+        if (c != '_' && c != '%' && c != escapeChar) {
+          return regexLike(pattern, escape);
+        }
+        buf.append(c);
+      } else if (c == '_') {
+        return regexLike(pattern, escape);
+      } else if (c == '%') {
+        if (buf.length() == 0) {
+          leading = true;
+        } else {
+          trailing = true;
+        }
+      } else if (trailing) {
+        // A '%' in the middle of the pattern, as in 'a%b'
+        return regexLike(pattern, escape);
+      } else {
+        buf.append(c);
+      }
+    }
+    final String s = buf.toString();
+    if (leading && trailing) {
+      return new ContainsMatcher(s);
+    } else if (leading) {
+      return s.isEmpty() ? new ContainsMatcher(s) : new SuffixMatcher(s);
+    } else if (trailing) {
+      return new PrefixMatcher(s);
+    } else {
+      return new ExactMatcher(s);
+    }
+  }
+
+  private static LikeMatcher regexLike(String pattern, String escape) {
+    return new RegexMatcher(
+        Pattern.compile(Like.sqlToRegexLike(pattern, escape)));
+  }
+
+  /** Matcher for a pattern that has no wildcards, such as {@code 'abc'}. */
+  static class ExactMatcher extends LikeMatcher {
+    private final String s;
+
+    ExactMatcher(String s) {
+      this.s = s;
+    }
+
+    public boolean matches(String s) {
+      return this.s.equals(s);
+    }
+  }
+
+  /** Matcher for a pattern such as {@code 'abc%'}. */
+  static class PrefixMatcher extends LikeMatcher {
+    private final String prefix;
+
+    PrefixMatcher(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public boolean matches(String s) {
+      return s.startsWith(prefix);
+    }
+  }
+
+  /** Matcher for a pattern such as {@code '%abc'}. */
+  static class SuffixMatcher extends LikeMatcher {
+    private final String suffix;
+
+    SuffixMatcher(String suffix) {
+      this.suffix = suffix;
+    }
+
+    public boolean matches(String s) {
+      return s.endsWith(suffix);
+    }
+  }
+
+  /** Matcher for a pattern such as {@code '%abc%'} or {@code '%'}. */
+  static class ContainsMatcher extends LikeMatcher {
+    private final String infix;
+
+    ContainsMatcher(String infix) {
+      this.infix = infix;
+    }
+
+    public boolean matches(String s) {
+      return s.contains(infix);
+    }
+  }
+
+  /** Matcher that uses a regular expression. */
+  static class RegexMatcher extends LikeMatcher {
+    private final Pattern pattern;
+
+    RegexMatcher(Pattern pattern) {
+      this.pattern = pattern;
+    }
+
+    public boolean matches(String s) {
+      return pattern.matcher(s).matches();
+    }
+  }
+}
+
+// End LikeMatcher.java
@@ -0,0 +1,495 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.Function1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utilities for evaluating parts of a plan on other threads.
+ *
+ * <p>Used by generated code for
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableExchange}.
+ */
+public class ParallelEnumerables {
+  /** Number of rows that a producer hands to its consumer in one go. */
+  static final int BATCH_SIZE = 256;
+
+  /** Number of batches that a producer may get ahead of its consumer. */
+  static final int BATCH_COUNT = 4;
+
+  /** How long a blocked producer or consumer waits before checking whether
+   * the other side has gone away. */
+  private static final long POLL_MILLIS = 100;
+
+  /** Sentinel that marks the end of the rows of a producer. */
+  private static final Object END = new Object();
+
+  /** Thread pools, keyed by parallelism. Pools are shared by all statements
+   * and are never shut down; their threads are daemons. */
+  private static final ConcurrentMap<Integer, ForkJoinPool> POOLS =
+      new ConcurrentHashMap<>();
+
+  private ParallelEnumerables() {}
+
+  /** Returns the pool used by exchanges of a given parallelism. */
+  public static ForkJoinPool pool(int parallelism) {
+    return POOLS.computeIfAbsent(Math.max(parallelism, 1),
+        p -> new ForkJoinPool(p,
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+  }
+
+  /** Returns an enumerable whose enumerators read {@code source} on a thread
+   * of a {@link ForkJoinPool}, so that the source is evaluated concurrently
+   * with the operator that consumes it.
+   *
+   * <p>Rows arrive in the same order that {@code source} produces them. If
+   * the source throws, the exception is re-thrown to the consumer. Closing
+   * the enumerator stops the producer, and waits until the producer has
+   * closed its enumerator of the source.
+   *
+   * @param source Input rows
+   * @param parallelism Number of threads in the pool that runs producers
+   * @param <T> Row type
+   * @return Enumerable that reads ahead
+   */
+  public static <T> Enumerable<T> exchange(final Enumerable<T> source,
+      final int parallelism) {
+    return new AbstractEnumerable<T>() {
+      public Enumerator<T> enumerator() {
+        final Channel channel = new Channel();
+        final CountDownLatch stopped = new CountDownLatch(1);
+        pool(parallelism).execute(() -> produce(source, channel, stopped));
+        return new ChannelEnumerator<>(channel, 1, () -> await(stopped));
+      }
+    };
+  }
+
+  /** Returns a partitioner that splits the rows of {@code source} into
+   * {@code partitionCount} partitions by the hash of their key.
+   *
+   * <p>The partitioner does nothing until a {@link #merge} that it is
+   * passed to is enumerated. Each enumeration of the merge reads
+   * {@code source} once, on a thread of a {@link ForkJoinPool}.
+   *
+   * @param source Input rows
+   * @param keySelector Returns the key of a row; rows with equal keys go to
+   *                    the same partition
+   * @param partitionCount Number of partitions
+   * @param parallelism Number of threads in the pool that runs producers
+   * @param <T> Row type
+   * @return Partitioner
+   */
+  public static <T> Partitioner<T> partitioner(Enumerable<T> source,
+      Function1<T, ?> keySelector, int partitionCount, int parallelism) {
+    return new Partitioner<>(source, keySelector, partitionCount,
+        parallelism);
+  }
+
+  /** Returns an enumerable that evaluates {@code partitionCount} copies of
+   * part of a plan concurrently, and returns the rows of all copies.
+   *
+   * <p>Copy {@code i} is the enumerable that {@code copies} returns for
+   * {@code i}; it typically reads partition {@code i} of each partitioner.
+   * Each enumeration of the result starts each partitioner and each copy
+   * afresh. Rows of one copy arrive in order, but rows of different copies
+   * are interleaved. If a copy or a partitioner throws, the exception is
+   * re-thrown to the consumer. Closing the enumerator stops the copies and
+   * the partitioners, and waits until they have closed their enumerators.
+   *
+   * @param copies Function that returns the copy for a partition
+   * @param partitionCount Number of partitions
+   * @param parallelism Number of threads in the pool that runs producers
+   * @param partitioners Partitioners that the copies read
+   * @param <T> Row type
+   * @return Enumerable that merges the rows of the copies
+   */
+  public static <T> Enumerable<T> merge(
+      final Function1<Integer, Enumerable<T>> copies,
+      final int partitionCount, final int parallelism,
+      final Partitioner<?>[] partitioners) {
+    return new AbstractEnumerable<T>() {
+      public Enumerator<T> enumerator() {
+        final List<Partitioner<?>.Round> rounds = new ArrayList<>();
+        for (Partitioner<?> partitioner : partitioners) {
+          rounds.add(partitioner.open());
+        }
+        final Channel channel = new Channel();
+        final CountDownLatch stopped = new CountDownLatch(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+          final Enumerable<T> copy = copies.apply(i);
+          pool(parallelism).execute(() -> produce(copy, channel, stopped));
+        }
+        return new ChannelEnumerator<>(channel, partitionCount, () -> {
+          // Closing the partitions releases copies that are waiting for
+          // rows; they then notice that the channel is closed
+          rounds.forEach(round -> round.close());
+          await(stopped);
+          rounds.forEach(round -> round.await());
+        });
+      }
+    };
+  }
+
+  /** Returns the partition of a key. */
+  static int partitionOf(Object key, int partitionCount) {
+    // Spread the bits, so that keys that are multiples of the partition count
+    // do not all go to the same partition
+    int h = Objects.hashCode(key) * 0x9E3779B9;
+    h ^= h >>> 16;
+    return Math.floorMod(h, partitionCount);
+  }
+
+  /** Reads a source and writes batches of its rows into a channel; runs in
+   * a pool. Counts down {@code stopped} when it has finished and has closed
+   * its enumerator of the source. */
+  private static <T> void produce(Enumerable<T> source, Channel channel,
+      CountDownLatch stopped) {
+    try {
+      if (!channel.closed) {
+        produceRows(source, channel);
+      }
+    } finally {
+      stopped.countDown();
+    }
+  }
+
+  private static <T> void produceRows(Enumerable<T> source,
+      Channel channel) {
+    List<T> rows = new ArrayList<>(BATCH_SIZE);
+    try (Enumerator<T> enumerator = source.enumerator()) {
+      while (!channel.closed && enumerator.moveNext()) {
+        rows.add(enumerator.current());
+        if (rows.size() == BATCH_SIZE) {
+          if (!channel.put(rows)) {
+            return;
+          }
+          rows = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+    } catch (Throwable e) {
+      // Deliver the rows read before the failure, then the failure
+      if (rows.isEmpty() || channel.put(rows)) {
+        channel.put(new Failure(e));
+      }
+      return;
+    }
+    if (rows.isEmpty() || channel.put(rows)) {
+      channel.put(END);
+    }
+  }
+
+  /** Blocks the current thread until {@code blocker} is released, allowing
+   * the pool to compensate if the current thread is one of its workers. */
+  private static void block(Blocker blocker) {
+    try {
+      ForkJoinPool.managedBlock(blocker);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Waits until a latch has counted down to zero. */
+  private static void await(CountDownLatch latch) {
+    block(new Blocker() {
+      public boolean isReleasable() {
+        return done || (done = latch.getCount() == 0);
+      }
+
+      void await() throws InterruptedException {
+        done = latch.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    });
+  }
+
+  /** Splits the rows of a source into partitions, each read by one copy of
+   * the plan above it.
+   *
+   * <p>Generated code for a hash-distributed
+   * {@link org.apache.calcite.adapter.enumerable.EnumerableExchange} creates
+   * a partitioner, and reads partition {@code i} in copy {@code i} of the
+   * plan between it and the merging exchange above.
+   *
+   * @param <T> Row type */
+  public static class Partitioner<T> {
+    private final Enumerable<T> source;
+    private final Function1<T, ?> keySelector;
+    private final int partitionCount;
+    private final int parallelism;
+    /** The round started by the most recent call to {@link #open}. */
+    private Round round;
+
+    private Partitioner(Enumerable<T> source, Function1<T, ?> keySelector,
+        int partitionCount, int parallelism) {
+      this.source = Objects.requireNonNull(source);
+      this.keySelector = Objects.requireNonNull(keySelector);
+      this.partitionCount = partitionCount;
+      this.parallelism = parallelism;
+    }
+
+    /** Starts reading the source. */
+    Round open() {
+      final Round round = new Round();
+      pool(parallelism).execute(round::produce);
+      this.round = round;
+      return round;
+    }
+
+    /** Returns the rows of a partition of the current round. Must be called
+     * after {@link #open}, on the same thread. */
+    public Enumerable<T> partition(int i) {
+      final Round round = Objects.requireNonNull(this.round, "not open");
+      return new AbstractEnumerable<T>() {
+        public Enumerator<T> enumerator() {
+          return new ChannelEnumerator<>(round.channels.get(i), 1, () -> { });
+        }
+      };
+    }
+
+    /** One read of the source, writing each row into the channel of its
+     * partition. */
+    class Round {
+      final List<Channel> channels = new ArrayList<>();
+      private volatile boolean closed;
+      private final CountDownLatch stopped = new CountDownLatch(1);
+
+      Round() {
+        for (int i = 0; i < partitionCount; i++) {
+          channels.add(new Channel());
+        }
+      }
+
+      void produce() {
+        try {
+          if (!closed) {
+            produceRows();
+          }
+        } finally {
+          stopped.countDown();
+        }
+      }
+
+      private void produceRows() {
+        final List<List<T>> rows = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+          rows.add(new ArrayList<>(BATCH_SIZE));
+        }
+        try (Enumerator<T> enumerator = source.enumerator()) {
+          while (!closed && enumerator.moveNext()) {
+            final T row = enumerator.current();
+            final int i = partitionOf(keySelector.apply(row), partitionCount);
+            final Channel channel = channels.get(i);
+            if (channel.closed) {
+              // The copy that reads this partition has stopped
+              continue;
+            }
+            rows.get(i).add(row);
+            if (rows.get(i).size() == BATCH_SIZE) {
+              channel.put(rows.get(i));
+              rows.set(i, new ArrayList<>(BATCH_SIZE));
+            }
+          }
+        } catch (Throwable e) {
+          for (int i = 0; i < partitionCount; i++) {
+            if (rows.get(i).isEmpty() || channels.get(i).put(rows.get(i))) {
+              channels.get(i).put(new Failure(e));
+            }
+          }
+          return;
+        }
+        for (int i = 0; i < partitionCount; i++) {
+          if (rows.get(i).isEmpty() || channels.get(i).put(rows.get(i))) {
+            channels.get(i).put(END);
+          }
+        }
+      }
+
+      /** Stops the producer, and releases consumers that are waiting for
+       * rows. */
+      void close() {
+        closed = true;
+        channels.forEach(Channel::close);
+      }
+
+      /** Waits until the producer has closed its enumerator of the
+       * source. */
+      void await() {
+        ParallelEnumerables.await(stopped);
+      }
+    }
+  }
+
+  /** Bounded queue through which producers pass batches of rows to a
+   * consumer. */
+  private static class Channel {
+    private final BlockingQueue<Object> queue =
+        new ArrayBlockingQueue<>(BATCH_COUNT);
+    volatile boolean closed;
+
+    /** Adds an element to the queue, waiting if the queue is full. Returns
+     * false if the channel was closed while we were waiting. */
+    boolean put(Object o) {
+      final Blocker blocker = new Blocker() {
+        public boolean isReleasable() {
+          return done || closed || (done = queue.offer(o));
+        }
+
+        void await() throws InterruptedException {
+          done = queue.offer(o, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+      };
+      block(blocker);
+      return blocker.done;
+    }
+
+    /** Removes an element from the queue, waiting if the queue is empty.
+     * Returns {@link #END} if the channel is closed. */
+    Object take() {
+      final Object[] holder = {null};
+      block(new Blocker() {
+        public boolean isReleasable() {
+          if (!done && closed) {
+            holder[0] = END;
+            done = true;
+          }
+          return done || (done = (holder[0] = queue.poll()) != null);
+        }
+
+        void await() throws InterruptedException {
+          done = (holder[0] = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS))
+              != null;
+        }
+      });
+      return holder[0];
+    }
+
+    void close() {
+      closed = true;
+      queue.clear();
+    }
+  }
+
+  /** Enumerator that consumes rows that one or more producer tasks write into
+   * a channel.
+   *
+   * @param <T> Row type */
+  private static class ChannelEnumerator<T> implements Enumerator<T> {
+    private final Channel channel;
+    /** Number of producers that have not yet finished. */
+    private int producerCount;
+    /** Called after the channel is closed; typically waits for the
+     * producers to stop. */
+    private final Runnable onClose;
+    private List<T> batch;
+    private int i;
+
+    ChannelEnumerator(Channel channel, int producerCount, Runnable onClose) {
+      this.channel = channel;
+      this.producerCount = producerCount;
+      this.onClose = onClose;
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean moveNext() {
+      if (batch != null && ++i < batch.size()) {
+        return true;
+      }
+      batch = null;
+      while (producerCount > 0) {
+        final Object o = channel.take();
+        if (o == END) {
+          --producerCount;
+          continue;
+        }
+        if (o instanceof Failure) {
+          producerCount = 0;
+          final Throwable e = ((Failure) o).e;
+          if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+          }
+          if (e instanceof Error) {
+            throw (Error) e;
+          }
+          throw new RuntimeException(e);
+        }
+        batch = (List<T>) o;
+        i = 0;
+        return true;
+      }
+      return false;
+    }
+
+    public T current() {
+      if (batch == null) {
+        throw new NoSuchElementException();
+      }
+      return batch.get(i);
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      channel.close();
+      // A producer notices within POLL_MILLIS if it is waiting to put, or
+      // after its current row if it is reading its source
+      onClose.run();
+    }
+  }
+
+  /** Waits in short intervals until an operation on a queue succeeds. */
+  private abstract static class Blocker
+      implements ForkJoinPool.ManagedBlocker {
+    boolean done;
+
+    abstract void await() throws InterruptedException;
+
+    public boolean block() throws InterruptedException {
+      while (!isReleasable()) {
+        await();
+      }
+      return true;
+    }
+  }
+
+  /** Exception thrown by a producer, passed to its consumer. */
+  private static class Failure {
+    final Throwable e;
+
+    Failure(Throwable e) {
+      this.e = e;
+    }
+  }
+}
+
+// End ParallelEnumerables.java
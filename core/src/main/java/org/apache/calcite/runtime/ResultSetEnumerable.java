@@ -26,6 +26,10 @@
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.util.Static;
+import org.apache.calcite.util.Util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,11 +56,32 @@
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import javax.sql.DataSource;
 
 /**
  * Executes a SQL statement and returns the result as an {@link Enumerable}.
  *
+ * <p>If a {@link #setFetchSize(int) fetch size} is set, it is passed to the
+ * JDBC driver as a hint for how many rows to fetch in each round trip; some
+ * drivers otherwise read the whole result into memory before returning the
+ * first row.
+ *
+ * <p>Some drivers, such as PostgreSQL's, honor the fetch size only outside
+ * auto-commit mode. If {@link #setDisableAutoCommitForFetch(boolean)} is
+ * set, and if the fetch size is positive and the connection is in auto-commit
+ * mode, auto-commit is turned off while the statement runs; the transaction
+ * is committed and auto-commit restored when the result set is closed.
+ *
+ * <p>If a {@link #setPrefetchSize(int) prefetch size} is set, a background
+ * thread reads rows into a bounded buffer, so that fetching rows over the
+ * network overlaps with processing them.
+ *
  * @param <T> Element type
  */
 public class ResultSetEnumerable<T> extends AbstractEnumerable<T> {
@@ -68,9 +93,26 @@
   private static final Logger LOGGER = LoggerFactory.getLogger(
       ResultSetEnumerable.class);
 
+  /** Number of rows buffered by {@link #concurrent} if the queries have no
+   * prefetch size. */
+  public static final int DEFAULT_PREFETCH_SIZE = 1_024;
+
+  /** Reads rows from result sets in the background. Each enumerator that
+   * prefetches needs a thread of its own for as long as it is open, so the
+   * pool is unbounded. */
+  private static final ExecutorService PREFETCH_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("calcite-jdbc-prefetch-%d")
+              .build());
+
   private Long queryStart;
   private long timeout;
   private boolean timeoutSetFailed;
+  private int fetchSize;
+  private boolean disableAutoCommitForFetch;
+  private int prefetchSize;
 
   private static final Function1<ResultSet, Function0<Object>> AUTO_ROW_BUILDER_FACTORY =
       resultSet -> {
@@ -180,6 +222,34 @@ public void setTimeout(DataContext context) {
     }
   }
 
+  /** Sets the number of rows that the JDBC driver should fetch from the
+   * database in each round trip. Zero, the default, leaves the driver's
+   * default. The value is passed to {@link Statement#setFetchSize(int)}, so
+   * driver-specific values (such as {@link Integer#MIN_VALUE}, which causes
+   * the MySQL driver to stream rows) are allowed. */
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  /** Sets whether to turn off auto-commit while a statement runs, if the
+   * fetch size is positive. Some drivers, such as PostgreSQL's, ignore the
+   * fetch size in auto-commit mode. The default is false, because the
+   * statement then runs in a transaction, which holds locks and a snapshot
+   * until the result set is closed. */
+  public void setDisableAutoCommitForFetch(boolean disableAutoCommitForFetch) {
+    this.disableAutoCommitForFetch = disableAutoCommitForFetch;
+  }
+
+  /** Sets the number of rows that a background thread may read ahead of the
+   * consumer. Zero, the default, reads rows in the consumer's thread. */
+  public void setPrefetchSize(int prefetchSize) {
+    if (prefetchSize < 0) {
+      throw new IllegalArgumentException("prefetch size must be non-negative: "
+          + prefetchSize);
+    }
+    this.prefetchSize = prefetchSize;
+  }
+
   /** Called from generated code that proposes to create a
    * {@code ResultSetEnumerable} over a prepared statement. */
   public static PreparedStatementEnricher createEnricher(Integer[] indexes,
@@ -246,63 +316,179 @@ private static void setDynamicParam(PreparedStatement preparedStatement,
     }
   }
 
+  /** Returns an enumerable that executes several queries concurrently and
+   * returns the union of their results, in no particular order.
+   *
+   * <p>Called from generated code when a scan of a JDBC table is split into
+   * several queries. Each query runs in a background thread, on a connection
+   * of its own, and the threads put rows into a buffer shared by all of the
+   * queries. The buffer holds as many rows as the prefetch size of the first
+   * query, or {@link #DEFAULT_PREFETCH_SIZE} if it has none. */
+  @SafeVarargs
+  public static <T> Enumerable<T> concurrent(
+      ResultSetEnumerable<T>... enumerables) {
+    final List<ResultSetEnumerable<T>> list = ImmutableList.copyOf(enumerables);
+    final int capacity = list.get(0).prefetchSize > 0
+        ? list.get(0).prefetchSize
+        : DEFAULT_PREFETCH_SIZE;
+    return new AbstractEnumerable<T>() {
+      public Enumerator<T> enumerator() {
+        final List<Supplier<Enumerator<T>>> sources = new ArrayList<>();
+        for (ResultSetEnumerable<T> enumerable : list) {
+          sources.add(() -> enumerable.enumerator(0));
+        }
+        return new PrefetchEnumerator<>(sources, capacity);
+      }
+    };
+  }
+
   public Enumerator<T> enumerator() {
+    return enumerator(prefetchSize);
+  }
+
+  private Enumerator<T> enumerator(int prefetchSize) {
     if (preparedStatementEnricher == null) {
-      return enumeratorBasedOnStatement();
+      return enumeratorBasedOnStatement(prefetchSize);
     } else {
-      return enumeratorBasedOnPreparedStatement();
+      return enumeratorBasedOnPreparedStatement(prefetchSize);
     }
   }
 
-  private Enumerator<T> enumeratorBasedOnStatement() {
+  private Enumerator<T> enumeratorBasedOnStatement(int prefetchSize) {
     Connection connection = null;
     Statement statement = null;
+    boolean restoreAutoCommit = false;
     try {
       connection = dataSource.getConnection();
+      restoreAutoCommit = disableAutoCommitIfNeeded(connection);
       statement = connection.createStatement();
       setTimeoutIfPossible(statement);
+      setFetchSizeIfPossible(statement);
       if (statement.execute(sql)) {
         final ResultSet resultSet = statement.getResultSet();
         statement = null;
         connection = null;
-        return new ResultSetEnumerator<>(resultSet, rowBuilderFactory);
+        return enumerator(resultSet, prefetchSize, restoreAutoCommit);
       } else {
         Integer updateCount = statement.getUpdateCount();
+        if (restoreAutoCommit) {
+          restoreAutoCommit(connection, true);
+          restoreAutoCommit = false;
+        }
         return Linq4j.singletonEnumerator((T) updateCount);
       }
     } catch (SQLException e) {
       throw Static.RESOURCE.exceptionWhilePerformingQueryOnJdbcSubSchema(sql)
           .ex(e);
     } finally {
+      if (connection != null && restoreAutoCommit) {
+        restoreAutoCommit(connection, false);
+      }
       closeIfPossible(connection, statement);
     }
   }
 
-  private Enumerator<T> enumeratorBasedOnPreparedStatement() {
+  private Enumerator<T> enumeratorBasedOnPreparedStatement(
+      int prefetchSize) {
     Connection connection = null;
     PreparedStatement preparedStatement = null;
+    boolean restoreAutoCommit = false;
     try {
       connection = dataSource.getConnection();
+      restoreAutoCommit = disableAutoCommitIfNeeded(connection);
       preparedStatement = connection.prepareStatement(sql);
       setTimeoutIfPossible(preparedStatement);
+      setFetchSizeIfPossible(preparedStatement);
       preparedStatementEnricher.enrich(preparedStatement);
       if (preparedStatement.execute()) {
         final ResultSet resultSet = preparedStatement.getResultSet();
         preparedStatement = null;
         connection = null;
-        return new ResultSetEnumerator<>(resultSet, rowBuilderFactory);
+        return enumerator(resultSet, prefetchSize, restoreAutoCommit);
       } else {
         Integer updateCount = preparedStatement.getUpdateCount();
+        if (restoreAutoCommit) {
+          restoreAutoCommit(connection, true);
+          restoreAutoCommit = false;
+        }
         return Linq4j.singletonEnumerator((T) updateCount);
       }
     } catch (SQLException e) {
       throw Static.RESOURCE.exceptionWhilePerformingQueryOnJdbcSubSchema(sql)
           .ex(e);
     } finally {
+      if (connection != null && restoreAutoCommit) {
+        restoreAutoCommit(connection, false);
+      }
       closeIfPossible(connection, preparedStatement);
     }
   }
 
+  /** Creates an enumerator over a result set, reading ahead in a background
+   * thread if there is a prefetch size. */
+  private Enumerator<T> enumerator(ResultSet resultSet, int prefetchSize,
+      boolean restoreAutoCommit) {
+    final Enumerator<T> enumerator =
+        new ResultSetEnumerator<>(resultSet, rowBuilderFactory,
+            restoreAutoCommit);
+    if (prefetchSize == 0) {
+      return enumerator;
+    }
+    return new PrefetchEnumerator<>(ImmutableList.of(() -> enumerator),
+        prefetchSize);
+  }
+
+  /** Turns off auto-commit if requested, the fetch size is positive and the
+   * connection is in auto-commit mode. Some drivers, such as PostgreSQL's,
+   * ignore the fetch size and read the whole result in auto-commit mode.
+   *
+   * <p>Returns whether auto-commit was turned off, in which case the caller
+   * must call {@link #restoreAutoCommit(Connection, boolean)} before it
+   * closes the connection. */
+  private boolean disableAutoCommitIfNeeded(Connection connection) {
+    if (!disableAutoCommitForFetch || fetchSize <= 0) {
+      return false;
+    }
+    try {
+      if (connection.getAutoCommit()) {
+        connection.setAutoCommit(false);
+        return true;
+      }
+    } catch (SQLException e) {
+      LOGGER.debug("Failed to turn off auto-commit", e);
+    }
+    return false;
+  }
+
+  /** Ends the transaction that began when auto-commit was turned off, and
+   * turns auto-commit back on, so that a pooled connection is returned in
+   * the state in which it was borrowed. */
+  private static void restoreAutoCommit(Connection connection,
+      boolean commit) {
+    try {
+      if (commit) {
+        connection.commit();
+      } else {
+        connection.rollback();
+      }
+      connection.setAutoCommit(true);
+    } catch (SQLException e) {
+      LOGGER.debug("Failed to restore auto-commit", e);
+    }
+  }
+
+  private void setFetchSizeIfPossible(Statement statement) {
+    if (fetchSize == 0) {
+      return;
+    }
+    try {
+      statement.setFetchSize(fetchSize);
+    } catch (SQLException e) {
+      // The fetch size is only a hint; some drivers reject some values
+      LOGGER.debug("Failed to set fetch size {}", fetchSize, e);
+    }
+  }
+
   private void setTimeoutIfPossible(Statement statement) throws SQLException {
     if (timeout == 0) {
       return;
@@ -352,13 +538,16 @@ private void closeIfPossible(Connection connection, Statement statement) {
    * @param <T> element type */
   private static class ResultSetEnumerator<T> implements Enumerator<T> {
     private final Function0<T> rowBuilder;
+    private final boolean restoreAutoCommit;
     private ResultSet resultSet;
 
     ResultSetEnumerator(
         ResultSet resultSet,
-        Function1<ResultSet, Function0<T>> rowBuilderFactory) {
+        Function1<ResultSet, Function0<T>> rowBuilderFactory,
+        boolean restoreAutoCommit) {
       this.resultSet = resultSet;
       this.rowBuilder = rowBuilderFactory.apply(resultSet);
+      this.restoreAutoCommit = restoreAutoCommit;
     }
 
     public T current() {
@@ -392,6 +581,9 @@ public void close() {
             final Connection connection = statement.getConnection();
             statement.close();
             if (connection != null) {
+              if (restoreAutoCommit) {
+                restoreAutoCommit(connection, true);
+              }
               connection.close();
             }
           }
@@ -402,6 +594,111 @@ public void close() {
     }
   }
 
+  /** Implementation of {@link Enumerator} that reads rows from one or more
+   * enumerators, each in a background thread, and buffers at most a given
+   * number of rows.
+   *
+   * <p>Each background thread opens its enumerator, and closes it when it has
+   * read all rows, fails, or sees that this enumerator has been closed. If
+   * there are several enumerators, their rows are interleaved.
+   *
+   * @param <T> element type */
+  private static class PrefetchEnumerator<T> implements Enumerator<T> {
+    /** Marks the end of the rows. */
+    private static final Object END = new Object();
+
+    /** Represents a null row, because the queue does not allow nulls. */
+    private static final Object NULL = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private volatile boolean closed;
+    private volatile Throwable error;
+    private T current;
+    /** Number of background threads that have not yet finished. */
+    private int running;
+
+    PrefetchEnumerator(List<Supplier<Enumerator<T>>> sources, int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      this.running = sources.size();
+      for (Supplier<Enumerator<T>> source : sources) {
+        PREFETCH_EXECUTOR.execute(() -> run(source));
+      }
+    }
+
+    private void run(Supplier<Enumerator<T>> source) {
+      try (Enumerator<T> enumerator = source.get()) {
+        while (!closed && enumerator.moveNext()) {
+          final T row = enumerator.current();
+          if (!put(row == null ? NULL : row)) {
+            return;
+          }
+        }
+      } catch (Throwable e) {
+        error = e;
+      }
+      try {
+        put(END);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /** Adds an element to the queue, waiting for space; returns false if the
+     * consumer has closed this enumerator. */
+    private boolean put(Object o) throws InterruptedException {
+      while (!closed) {
+        if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public T current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      for (;;) {
+        if (running == 0 || error != null) {
+          current = null;
+          if (error != null) {
+            close();
+            Util.throwIfUnchecked(error);
+            throw new RuntimeException(error);
+          }
+          return false;
+        }
+        final Object o;
+        try {
+          o = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+        if (o == END) {
+          --running;
+          continue;
+        }
+        //noinspection unchecked
+        current = o == NULL ? null : (T) o;
+        return true;
+      }
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      closed = true;
+      running = 0;
+      current = null;
+      // Make room, in case the background thread is waiting for it
+      queue.clear();
+    }
+  }
+
   private static Function1<ResultSet, Function0<Object>>
       primitiveRowBuilderFactory(final Primitive[] primitives) {
     return resultSet -> {
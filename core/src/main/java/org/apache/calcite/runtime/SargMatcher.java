@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.function.Deterministic;
+
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Tests whether a value belongs to a set of values, or ranges of values.
+ *
+ * <p>This is the runtime form of a {@link org.apache.calcite.util.Sarg}, as
+ * used by the {@code SEARCH} operator. Values are in their Java
+ * representation: {@link Long} for integral, date and time values,
+ * {@link Double} for approximate numeric values, and {@link String} or
+ * {@link java.math.BigDecimal} for others.
+ *
+ * <p>Generated code creates a matcher by calling {@link #of(String[])} with
+ * constant arguments, so the matcher is created once, in a static field. The
+ * ranges are passed as serialized strings rather than as an array
+ * initializer, because the array initializer for a large {@code IN} list
+ * would exceed the maximum size of a Java method.
+ *
+ * <p>If every range is a single value, the values are held in a sorted
+ * array; otherwise in an {@link ImmutableRangeSet}. Either way,
+ * {@link #contains} uses binary search.
+ */
+public abstract class SargMatcher {
+  /** Maximum length of each string returned by {@link #encode}. Java
+   * limits string constants to 65,535 bytes. */
+  private static final int CHUNK_SIZE = 32_000;
+
+  /** Returns whether the set contains an integral value. */
+  public abstract boolean contains(long v);
+
+  /** Returns whether the set contains a value. */
+  public abstract boolean contains(Comparable v);
+
+  /** Returns a matcher for a set of ranges that has been converted to
+   * strings by {@link #encode(RangeSet)}. */
+  @Deterministic
+  public static SargMatcher of(String[] chunks) {
+    final byte[] bytes = Base64.getDecoder().decode(String.join("", chunks));
+    try (ObjectInputStream in =
+             new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return create((RangeSet) in.readObject());
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("invalid search argument", e);
+    }
+  }
+
+  /** Converts a set of ranges to strings that {@link #of(String[])} can
+   * read. */
+  public static String[] encode(RangeSet<? extends Comparable> rangeSet) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(ImmutableRangeSet.copyOf((RangeSet) rangeSet));
+    } catch (IOException e) {
+      throw new IllegalStateException("invalid search argument", e);
+    }
+    final String s = Base64.getEncoder().encodeToString(bytes.toByteArray());
+    final List<String> chunks = new ArrayList<>();
+    for (int i = 0; i < s.length(); i += CHUNK_SIZE) {
+      chunks.add(s.substring(i, Math.min(i + CHUNK_SIZE, s.length())));
+    }
+    return chunks.toArray(new String[0]);
+  }
+
+  /** Creates a matcher for a set of ranges. */
+  public static SargMatcher create(RangeSet<? extends Comparable> rangeSet) {
+    final List<Comparable> points = new ArrayList<>();
+    for (Range<? extends Comparable> range : rangeSet.asRanges()) {
+      if (!range.hasLowerBound()
+          || !range.hasUpperBound()
+          || !range.lowerEndpoint().equals(range.upperEndpoint())) {
+        return new RangeSetMatcher(ImmutableRangeSet.copyOf((RangeSet) rangeSet));
+      }
+      points.add(range.lowerEndpoint());
+    }
+    if (points.stream().allMatch(p -> p instanceof Long)) {
+      final long[] values = new long[points.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (Long) points.get(i);
+      }
+      return new LongPointMatcher(values);
+    }
+    return new PointMatcher(points.toArray(new Comparable[0]));
+  }
+
+  /** Matcher for integral values, each range being a single value. */
+  private static class LongPointMatcher extends SargMatcher {
+    private final long[] values;
+
+    LongPointMatcher(long[] values) {
+      this.values = values;
+    }
+
+    public boolean contains(long v) {
+      return Arrays.binarySearch(values, v) >= 0;
+    }
+
+    public boolean contains(Comparable v) {
+      return contains(((Number) v).longValue());
+    }
+  }
+
+  /** Matcher for values other than integers, each range being a single
+   * value. */
+  private static class PointMatcher extends SargMatcher {
+    private final Comparable[] values;
+
+    PointMatcher(Comparable[] values) {
+      this.values = values;
+    }
+
+    public boolean contains(long v) {
+      return contains((Comparable) v);
+    }
+
+    public boolean contains(Comparable v) {
+      return Arrays.binarySearch(values, v) >= 0;
+    }
+  }
+
+  /** Matcher for general ranges. */
+  private static class RangeSetMatcher extends SargMatcher {
+    private final ImmutableRangeSet rangeSet;
+
+    RangeSetMatcher(ImmutableRangeSet rangeSet) {
+      this.rangeSet = rangeSet;
+    }
+
+    public boolean contains(long v) {
+      return contains((Comparable) v);
+    }
+
+    public boolean contains(Comparable v) {
+      //noinspection unchecked
+      return rangeSet.contains(v);
+    }
+  }
+}
+
+// End SargMatcher.java
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Temporary file to which an operator writes rows that do not fit in memory,
+ * and from which it later reads them back.
+ *
+ * <p>Rows are written using Java serialization, so they must be
+ * {@link java.io.Serializable}. Rows of SQL values in the
+ * {@link org.apache.calcite.adapter.enumerable.JavaRowFormat#ARRAY ARRAY} and
+ * {@link org.apache.calcite.adapter.enumerable.JavaRowFormat#SCALAR SCALAR}
+ * formats are, unless a field holds an arbitrary Java object; callers use
+ * {@link #isSerializable(Object)} to check rows before they start to
+ * spill.
+ *
+ * <p>The life cycle is: call {@link #add} for each row, then
+ * {@link #finish}, then read any number of times using
+ * {@link #enumerable()}, then {@link #close} to delete the file.
+ * When the file is finished, {@link Hook#SPILL} is called with the number of
+ * bytes written.
+ *
+ * @param <E> Row type
+ */
+public class SpillFile<E> implements AutoCloseable {
+  /** Number of rows after which the output stream forgets the objects it has
+   * written. Otherwise its handle table would keep every row in memory. */
+  private static final int RESET_INTERVAL = 1024;
+
+  private final Path path;
+  private ObjectOutputStream out;
+  private int rowCount;
+  private long byteCount = -1;
+
+  private SpillFile(Path path, ObjectOutputStream out) {
+    this.path = path;
+    this.out = out;
+  }
+
+  /** Creates a spill file in the default temporary directory. */
+  public static <E> SpillFile<E> create() {
+    try {
+      final Path path = Files.createTempFile("calcite-spill-", ".bin");
+      final ObjectOutputStream out =
+          new ObjectOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(path)));
+      return new SpillFile<>(path, out);
+    } catch (IOException e) {
+      throw new RuntimeException("while creating spill file", e);
+    }
+  }
+
+  /** Returns whether a row can be written to a spill file: whether it is
+   * null or serializable and, if it is an array, a collection or a map,
+   * whether its elements are too. */
+  public static boolean isSerializable(Object row) {
+    if (row == null) {
+      return true;
+    }
+    if (row instanceof Object[]) {
+      for (Object o : (Object[]) row) {
+        if (!isSerializable(o)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (!(row instanceof Serializable)) {
+      return false;
+    }
+    if (row instanceof Collection) {
+      for (Object o : (Collection<?>) row) {
+        if (!isSerializable(o)) {
+          return false;
+        }
+      }
+    } else if (row instanceof Map) {
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) row).entrySet()) {
+        if (!isSerializable(e.getKey()) || !isSerializable(e.getValue())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether every row in a list can be written to a spill file. */
+  public static boolean isSerializable(List<?> rows) {
+    for (Object row : rows) {
+      if (!isSerializable(row)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Writes a row. */
+  public void add(E row) {
+    try {
+      out.writeObject(row);
+      if (++rowCount % RESET_INTERVAL == 0) {
+        out.reset();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("while writing to spill file " + path, e);
+    }
+  }
+
+  /** Finishes writing, and reports the number of bytes written to
+   * {@link Hook#SPILL}. */
+  public void finish() {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.close();
+      out = null;
+      byteCount = Files.size(path);
+    } catch (IOException e) {
+      throw new RuntimeException("while writing to spill file " + path, e);
+    }
+    Hook.SPILL.run(byteCount);
+  }
+
+  /** Returns the number of rows written. */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /** Returns the number of bytes written, or -1 if the file is not
+   * finished. */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /** Returns an enumerable that reads the rows in the order they were
+   * written. Each call to {@link Enumerable#enumerator()} re-reads the
+   * file. */
+  public Enumerable<E> enumerable() {
+    finish();
+    return new AbstractEnumerable<E>() {
+      public Enumerator<E> enumerator() {
+        return new SpillFileEnumerator();
+      }
+    };
+  }
+
+  /** Deletes the file. */
+  public void close() {
+    try {
+      if (out != null) {
+        out.close();
+        out = null;
+      }
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw new RuntimeException("while deleting spill file " + path, e);
+    }
+  }
+
+  /** Enumerator that reads the rows of a spill file. */
+  private class SpillFileEnumerator implements Enumerator<E> {
+    private ObjectInputStream in;
+    private int remaining = rowCount;
+    private E current;
+
+    public E current() {
+      if (in == null) {
+        throw new NoSuchElementException();
+      }
+      return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean moveNext() {
+      if (remaining == 0) {
+        close();
+        return false;
+      }
+      try {
+        if (in == null) {
+          in = new ObjectInputStream(
+              new BufferedInputStream(Files.newInputStream(path)));
+        }
+        current = (E) in.readObject();
+        --remaining;
+        return true;
+      } catch (IOException | ClassNotFoundException e) {
+        throw new RuntimeException("while reading spill file " + path, e);
+      }
+    }
+
+    public void reset() {
+      close();
+      remaining = rowCount;
+    }
+
+    public void close() {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          throw new RuntimeException("while reading spill file " + path, e);
+        }
+        in = null;
+      }
+      current = null;
+    }
+  }
+}
+
+// End SpillFile.java
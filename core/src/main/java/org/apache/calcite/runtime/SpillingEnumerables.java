@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Implementations of relational operators that write rows to temporary files
+ * (see {@link SpillFile}) if their input has more rows than a given
+ * threshold.
+ *
+ * <p>If the input is below the threshold, the result is the same as the
+ * corresponding in-memory method in
+ * {@link org.apache.calcite.linq4j.EnumerableDefaults}. So it is if the
+ * rows held in memory when the threshold is reached are not all
+ * serializable (see {@link SpillFile#isSerializable(Object)}); the operator
+ * then keeps the rest of its input in memory, as if there were no
+ * threshold.
+ */
+public class SpillingEnumerables {
+  /** Number of partitions into which {@link #join} splits each input if the
+   * inner input does not fit in memory. */
+  static final int JOIN_PARTITION_COUNT = 32;
+
+  private SpillingEnumerables() {}
+
+  /** Sorts the elements of a sequence, using an external merge sort if there
+   * are more than {@code threshold} elements.
+   *
+   * <p>Each batch of {@code threshold} elements is sorted in memory and
+   * written to a spill file as a "run"; the runs are then merged. Elements
+   * with equal keys are returned in input order, as
+   * {@link Enumerable#orderBy(Function1, Comparator)} does.
+   *
+   * @param source Input
+   * @param keySelector Function that computes the sort key of an element
+   * @param comparator Comparator of keys, or null to use natural ordering
+   * @param threshold Maximum number of elements to hold in memory
+   */
+  public static <TSource, TKey> Enumerable<TSource> orderBy(
+      final Enumerable<TSource> source,
+      final Function1<TSource, TKey> keySelector,
+      Comparator<TKey> comparator, final long threshold) {
+    @SuppressWarnings("unchecked")
+    final Comparator<TKey> keyComparator = comparator != null
+        ? comparator
+        : (Comparator<TKey>) Comparator.naturalOrder();
+    final Comparator<TSource> rowComparator = (o1, o2) ->
+        keyComparator.compare(keySelector.apply(o1), keySelector.apply(o2));
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        final List<SpillFile<TSource>> runs = new ArrayList<>();
+        final List<TSource> buffer = new ArrayList<>();
+        boolean spill = true;
+        try (Enumerator<TSource> enumerator = source.enumerator()) {
+          while (enumerator.moveNext()) {
+            buffer.add(enumerator.current());
+            if (spill && buffer.size() >= threshold) {
+              if (!SpillFile.isSerializable(buffer)) {
+                // Rows cannot be written to disk; sort in memory
+                spill = false;
+                continue;
+              }
+              runs.add(spill(buffer, rowComparator));
+              buffer.clear();
+            }
+          }
+        } catch (RuntimeException e) {
+          closeAll(runs);
+          throw e;
+        }
+        buffer.sort(rowComparator); // stable
+        if (runs.isEmpty()) {
+          return Linq4j.enumerator(buffer);
+        }
+        final List<Enumerator<TSource>> enumerators = new ArrayList<>();
+        for (SpillFile<TSource> run : runs) {
+          enumerators.add(run.enumerable().enumerator());
+        }
+        enumerators.add(Linq4j.enumerator(buffer));
+        return new MergeEnumerator<>(enumerators, keySelector, keyComparator,
+            runs);
+      }
+    };
+  }
+
+  private static <E> SpillFile<E> spill(List<E> buffer,
+      Comparator<E> comparator) {
+    buffer.sort(comparator); // stable
+    final SpillFile<E> run = SpillFile.create();
+    for (E e : buffer) {
+      run.add(e);
+    }
+    run.finish();
+    return run;
+  }
+
+  private static void closeAll(List<? extends SpillFile<?>> files) {
+    for (SpillFile<?> file : files) {
+      file.close();
+    }
+  }
+
+  /** Correlates the elements of two sequences based on matching keys, using
+   * a "grace" hash join if the inner sequence has more than
+   * {@code threshold} elements.
+   *
+   * <p>If the inner sequence is too large, both sequences are partitioned by
+   * the hash of their key into {@link #JOIN_PARTITION_COUNT} spill files,
+   * and each pair of partitions is joined in memory. Since elements with
+   * equal keys land in the same partition, outer join semantics are
+   * preserved. A partition that is still too large is joined in memory
+   * regardless.
+   *
+   * @see EnumerableDefaults#join(Enumerable, Enumerable, Function1, Function1, Function2, EqualityComparer, boolean, boolean)
+   */
+  public static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+      final Enumerable<TSource> outer, final Enumerable<TInner> inner,
+      final Function1<TSource, TKey> outerKeySelector,
+      final Function1<TInner, TKey> innerKeySelector,
+      final Function2<TSource, TInner, TResult> resultSelector,
+      final EqualityComparer<TKey> comparer,
+      final boolean generateNullsOnLeft, final boolean generateNullsOnRight,
+      final long threshold) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        final List<TInner> buffer = new ArrayList<>();
+        final Enumerator<TInner> inners = inner.enumerator();
+        boolean more;
+        try {
+          while ((more = inners.moveNext()) && buffer.size() < threshold) {
+            buffer.add(inners.current());
+          }
+          if (more && !SpillFile.isSerializable(buffer)) {
+            // Rows cannot be written to disk; read the rest of the inner
+            // input into memory
+            do {
+              buffer.add(inners.current());
+            } while (inners.moveNext());
+            more = false;
+          }
+          if (!more) {
+            inners.close();
+            return EnumerableDefaults.join(outer, Linq4j.asEnumerable(buffer),
+                outerKeySelector, innerKeySelector, resultSelector, comparer,
+                generateNullsOnLeft, generateNullsOnRight).enumerator();
+          }
+        } catch (RuntimeException e) {
+          inners.close();
+          throw e;
+        }
+
+        // The inner input does not fit in memory. Partition both inputs.
+        final List<SpillFile<TInner>> innerPartitions =
+            partitions(JOIN_PARTITION_COUNT);
+        final List<SpillFile<TSource>> outerPartitions =
+            partitions(JOIN_PARTITION_COUNT);
+        final List<SpillFile<?>> files = new ArrayList<>();
+        files.addAll(innerPartitions);
+        files.addAll(outerPartitions);
+        try {
+          for (TInner row : buffer) {
+            innerPartitions.get(partition(innerKeySelector.apply(row), comparer))
+                .add(row);
+          }
+          buffer.clear();
+          do {
+            final TInner row = inners.current();
+            innerPartitions.get(partition(innerKeySelector.apply(row), comparer))
+                .add(row);
+          } while (inners.moveNext());
+          inners.close();
+          try (Enumerator<TSource> outers = outer.enumerator()) {
+            while (outers.moveNext()) {
+              final TSource row = outers.current();
+              final TKey key = row == null ? null : outerKeySelector.apply(row);
+              outerPartitions.get(partition(key, comparer)).add(row);
+            }
+          }
+        } catch (RuntimeException e) {
+          inners.close();
+          closeAll(files);
+          throw e;
+        }
+        final List<Enumerable<TResult>> joins = new ArrayList<>();
+        for (int i = 0; i < JOIN_PARTITION_COUNT; i++) {
+          joins.add(
+              EnumerableDefaults.join(outerPartitions.get(i).enumerable(),
+                  innerPartitions.get(i).enumerable(), outerKeySelector,
+                  innerKeySelector, resultSelector, comparer,
+                  generateNullsOnLeft, generateNullsOnRight));
+        }
+        return new SpillFileClosingEnumerator<>(
+            Linq4j.concat(joins).enumerator(), files);
+      }
+    };
+  }
+
+  private static <E> List<SpillFile<E>> partitions(int count) {
+    final List<SpillFile<E>> list = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      list.add(SpillFile.create());
+    }
+    return list;
+  }
+
+  private static <TKey> int partition(TKey key,
+      EqualityComparer<TKey> comparer) {
+    if (key == null) {
+      return 0;
+    }
+    final int h = comparer == null ? key.hashCode() : comparer.hashCode(key);
+    // Mix the bits, so that keys that differ only in high bits are spread
+    final int h2 = h ^ (h >>> 16);
+    return (h2 & Integer.MAX_VALUE) % JOIN_PARTITION_COUNT;
+  }
+
+  /** Enumerator that deletes spill files when it is closed.
+   *
+   * @param <E> element type */
+  private static class SpillFileClosingEnumerator<E> implements Enumerator<E> {
+    private final Enumerator<E> enumerator;
+    private final List<? extends SpillFile<?>> files;
+
+    SpillFileClosingEnumerator(Enumerator<E> enumerator,
+        List<? extends SpillFile<?>> files) {
+      this.enumerator = enumerator;
+      this.files = files;
+    }
+
+    public E current() {
+      return enumerator.current();
+    }
+
+    public boolean moveNext() {
+      return enumerator.moveNext();
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      try {
+        enumerator.close();
+      } finally {
+        closeAll(files);
+      }
+    }
+  }
+
+  /** Enumerator that merges several sorted enumerators.
+   *
+   * <p>If two elements have equal keys, the one from the enumerator earlier
+   * in the list is returned first.
+   *
+   * @param <E> element type
+   * @param <K> key type */
+  private static class MergeEnumerator<E, K> implements Enumerator<E> {
+    private final List<Enumerator<E>> enumerators;
+    private final Function1<E, K> keySelector;
+    private final List<? extends SpillFile<?>> files;
+    private final PriorityQueue<Cursor<E, K>> queue;
+    private E current;
+
+    MergeEnumerator(List<Enumerator<E>> enumerators,
+        Function1<E, K> keySelector, Comparator<K> keyComparator,
+        List<? extends SpillFile<?>> files) {
+      this.enumerators = enumerators;
+      this.keySelector = keySelector;
+      this.files = files;
+      final Comparator<Cursor<E, K>> cursorComparator = (c1, c2) -> {
+        final int c = keyComparator.compare(c1.key, c2.key);
+        return c != 0 ? c : Integer.compare(c1.ordinal, c2.ordinal);
+      };
+      this.queue = new PriorityQueue<>(enumerators.size(), cursorComparator);
+      for (int i = 0; i < enumerators.size(); i++) {
+        final Cursor<E, K> cursor = new Cursor<>(enumerators.get(i), i);
+        if (cursor.advance(keySelector)) {
+          queue.add(cursor);
+        }
+      }
+    }
+
+    public E current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      final Cursor<E, K> cursor = queue.poll();
+      if (cursor == null) {
+        current = null;
+        return false;
+      }
+      current = cursor.element;
+      if (cursor.advance(keySelector)) {
+        queue.add(cursor);
+      }
+      return true;
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      try {
+        for (Enumerator<E> enumerator : enumerators) {
+          enumerator.close();
+        }
+      } finally {
+        closeAll(files);
+      }
+    }
+  }
+
+  /** Position in one of the inputs to a {@link MergeEnumerator}.
+   *
+   * @param <E> element type
+   * @param <K> key type */
+  private static class Cursor<E, K> {
+    final Enumerator<E> enumerator;
+    final int ordinal;
+    E element;
+    K key;
+
+    Cursor(Enumerator<E> enumerator, int ordinal) {
+      this.enumerator = enumerator;
+      this.ordinal = ordinal;
+    }
+
+    boolean advance(Function1<E, K> keySelector) {
+      if (!enumerator.moveNext()) {
+        element = null;
+        key = null;
+        return false;
+      }
+      element = enumerator.current();
+      key = keySelector.apply(element);
+      return true;
+    }
+  }
+}
+
+// End SpillingEnumerables.java
@@ -181,7 +181,15 @@ public static Expression tableExpression(SchemaPlus schema, Type elementType,
 
   public static DataContext createDataContext(
       Connection connection, SchemaPlus rootSchema) {
-    return new DummyDataContext((CalciteConnection) connection, rootSchema);
+    return createDataContext(connection, rootSchema, ImmutableMap.of());
+  }
+
+  /** Creates a data context that contains the given variables, such as the
+   * internal parameters of a prepared statement. */
+  public static DataContext createDataContext(Connection connection,
+      SchemaPlus rootSchema, Map<String, Object> map) {
+    return new DummyDataContext((CalciteConnection) connection, rootSchema,
+        ImmutableMap.copyOf(map));
   }
 
   /** Returns a {@link Queryable}, given a fully-qualified table name. */
@@ -546,10 +554,11 @@ private static class DummyDataContext implements DataContext {
     private final SchemaPlus rootSchema;
     private final ImmutableMap<String, Object> map;
 
-    DummyDataContext(CalciteConnection connection, SchemaPlus rootSchema) {
+    DummyDataContext(CalciteConnection connection, SchemaPlus rootSchema,
+        ImmutableMap<String, Object> map) {
       this.connection = connection;
       this.rootSchema = rootSchema;
-      this.map = ImmutableMap.of();
+      this.map = map;
     }
 
     public SchemaPlus getRootSchema() {
@@ -297,6 +297,15 @@ public enum SqlKind {
    */
   NOT_IN("NOT IN"),
 
+  /**
+   * The "SEARCH" operator. Tests whether its first operand belongs to the
+   * set of values, or ranges of values, held in its second operand, which is
+   * a literal whose value is a {@link org.apache.calcite.util.Sarg}.
+   *
+   * <p>Only occurs in RexNode trees.
+   */
+  SEARCH,
+
   /**
    * The less-than operator, "&lt;".
    */
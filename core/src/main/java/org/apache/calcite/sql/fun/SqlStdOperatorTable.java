@@ -2094,6 +2094,27 @@ public boolean argumentMustBeScalar(int ordinal) {
   public static final SqlInternalOperator STRUCT_ACCESS =
       new SqlInternalOperator("$STRUCT_ACCESS", SqlKind.OTHER);
 
+  /**
+   * The internal "SEARCH" operator tests whether a value belongs to a set of
+   * values, or ranges of values. Its second operand is a literal whose value
+   * is a {@link org.apache.calcite.util.Sarg}.
+   *
+   * <p>It never appears in an {@link SqlNode} tree.
+   * {@link org.apache.calcite.rex.RexSimplify} creates it from comparisons
+   * between a column and many literals, such as a large {@code IN} list, and
+   * {@link org.apache.calcite.rex.RexUtil#expandSearch} converts it back to
+   * comparisons.
+   */
+  public static final SqlInternalOperator SEARCH =
+      new SqlInternalOperator(
+          "SEARCH",
+          SqlKind.SEARCH,
+          30,
+          true,
+          ReturnTypes.BOOLEAN_NULLABLE,
+          InferTypes.FIRST_KNOWN,
+          OperandTypes.ANY_ANY);
+
   /**
    * The CARDINALITY operator, used to retrieve the number of elements in a
    * MULTISET, ARRAY or MAP.
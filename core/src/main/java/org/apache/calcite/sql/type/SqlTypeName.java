@@ -120,7 +120,12 @@ public enum SqlTypeName {
       SqlTypeFamily.COLUMN_LIST),
   DYNAMIC_STAR(PrecScale.NO_NO | PrecScale.YES_NO | PrecScale.YES_YES, true,
       Types.JAVA_OBJECT, SqlTypeFamily.ANY),
-  GEOMETRY(PrecScale.NO_NO, true, ExtraSqlTypes.GEOMETRY, SqlTypeFamily.GEO);
+  GEOMETRY(PrecScale.NO_NO, true, ExtraSqlTypes.GEOMETRY, SqlTypeFamily.GEO),
+  /** Search argument. Occurs only as the type name of a
+   * {@link org.apache.calcite.rex.RexLiteral} whose value is a
+   * {@link org.apache.calcite.util.Sarg}; the literal's type is the type of
+   * the values in the Sarg. */
+  SARG(PrecScale.NO_NO, true, Types.OTHER, null);
 
   public static final int MAX_DATETIME_PRECISION = 3;
 
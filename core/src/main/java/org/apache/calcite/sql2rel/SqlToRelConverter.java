@@ -17,6 +17,7 @@
 package org.apache.calcite.sql2rel;
 
 import org.apache.calcite.avatica.util.Spaces;
+import org.apache.calcite.config.CalciteSystemProperty;
 import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.RelOptCluster;
@@ -83,6 +84,7 @@
 import org.apache.calcite.rex.RexPatternFieldRef;
 import org.apache.calcite.rex.RexRangeRef;
 import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexSimplify;
 import org.apache.calcite.rex.RexSubQuery;
 import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.rex.RexWindowBound;
@@ -169,6 +171,7 @@
 import org.apache.calcite.util.NlsString;
 import org.apache.calcite.util.NumberUtil;
 import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.Util;
 import org.apache.calcite.util.trace.CalciteTrace;
 
@@ -178,6 +181,9 @@
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
 
 import org.slf4j.Logger;
 
@@ -1072,6 +1078,21 @@ private void substituteSubQuery(Blackboard bb, SubQuery subQuery) {
           return;
         }
 
+        // A long list of literals becomes a SEARCH, which is cheaper than
+        // a join to an inline table.
+        if (!containsNullLiteral(valueList)) {
+          final RexNode search =
+              convertInToSearch(
+                  bb,
+                  leftKeys,
+                  valueList,
+                  (SqlInOperator) call.getOperator());
+          if (search != null) {
+            subQuery.expr = search;
+            return;
+          }
+        }
+
         // Otherwise, let convertExists translate
         // values list into an inline table for the
         // reference to Q below.
@@ -1459,6 +1480,63 @@ private RexNode convertInToOr(
     }
   }
 
+  /**
+   * Converts "x IN (1, 2, ...)" to "SEARCH(x, Sarg[1, 2, ...])", and
+   * "x NOT IN (1, 2, ...)" to a SEARCH of the complement.
+   *
+   * <p>Returns null if the list cannot be converted: if there is more than
+   * one key, if a value is not a literal, or if the literals do not all have
+   * the same type. Also returns null if the list is shorter than
+   * {@link CalciteSystemProperty#SIMPLIFY_SEARCH_THRESHOLD}, the same
+   * threshold at which {@link RexSimplify} combines comparisons into a
+   * SEARCH, or if that threshold is 0, which disables SEARCH.
+   *
+   * @param leftKeys   LHS
+   * @param valuesList RHS
+   * @param op         The operator (IN, NOT IN, &gt; SOME, ...)
+   * @return converted expression, or null
+   */
+  private <C extends Comparable<C>> RexNode convertInToSearch(
+      final Blackboard bb,
+      final List<RexNode> leftKeys,
+      SqlNodeList valuesList,
+      SqlInOperator op) {
+    final int threshold =
+        CalciteSystemProperty.SIMPLIFY_SEARCH_THRESHOLD.value();
+    if (leftKeys.size() != 1
+        || op.kind != SqlKind.IN && op.kind != SqlKind.NOT_IN
+        || threshold == 0
+        || valuesList.size() < threshold) {
+      return null;
+    }
+    final RexNode leftKey = leftKeys.get(0);
+    final RangeSet<C> rangeSet = TreeRangeSet.create();
+    RelDataType type = null;
+    for (SqlNode rightVal : valuesList) {
+      final RexNode node =
+          ensureSqlType(leftKey.getType(), bb.convertExpression(rightVal));
+      if (!(node instanceof RexLiteral)
+          || ((RexLiteral) node).isNull()
+          || !RexSimplify.SEARCH_TYPES.contains(
+              node.getType().getSqlTypeName())) {
+        return null;
+      }
+      final RelDataType literalType =
+          typeFactory.createTypeWithNullability(node.getType(), false);
+      if (type == null) {
+        type = literalType;
+      } else if (!type.equals(literalType)) {
+        return null;
+      }
+      //noinspection unchecked
+      final C value = (C) ((RexLiteral) node).getValueAs(Comparable.class);
+      rangeSet.add(Range.singleton(value));
+    }
+    final Sarg<C> sarg = Sarg.of(rangeSet);
+    return rexBuilder.makeSearch(leftKey,
+        op.kind == SqlKind.NOT_IN ? sarg.complement() : sarg, type);
+  }
+
   /** Ensures that an expression has a given {@link SqlTypeName}, applying a
    * cast if necessary. If the expression already has the right type family,
    * returns the expression unchanged. */
@@ -308,7 +308,9 @@ public static Program standard(RelMetadataProvider metadataProvider) {
 
         // Second planner pass to do physical "tweaks". This the first time
         // that EnumerableCalcRel is introduced.
-        calc(metadataProvider));
+        calc(metadataProvider),
+
+        new ExchangeProgram(metadataProvider));
   }
 
   /** Program backed by a {@link RuleSet}. */
@@ -386,6 +388,36 @@ public RelNode run(RelOptPlanner planner, RelNode rel,
     }
   }
 
+  /** Program that places exchanges into a physical plan, so that parts of
+   * the plan are evaluated concurrently, if the connection's
+   * {@link CalciteConnectionConfig#parallelism() parallelism} is greater
+   * than 1. */
+  private static class ExchangeProgram implements Program {
+    private final Program program;
+
+    ExchangeProgram(RelMetadataProvider metadataProvider) {
+      this.program =
+          hep(
+              ImmutableList.of(
+                  EnumerableRules.ENUMERABLE_AGGREGATE_EXCHANGE_RULE,
+                  EnumerableRules.ENUMERABLE_JOIN_EXCHANGE_RULE),
+              true, metadataProvider);
+    }
+
+    public RelNode run(RelOptPlanner planner, RelNode rel,
+        RelTraitSet requiredOutputTraits,
+        List<RelOptMaterialization> materializations,
+        List<RelOptLattice> lattices) {
+      final CalciteConnectionConfig config =
+          planner.getContext().unwrap(CalciteConnectionConfig.class);
+      if (config != null && config.parallelism() > 1) {
+        return program.run(planner, rel, requiredOutputTraits,
+            materializations, lattices);
+      }
+      return rel;
+    }
+  }
+
   /** Program that trims fields. */
   private static class TrimFieldsProgram implements Program {
     public RelNode run(RelOptPlanner planner, RelNode rel,
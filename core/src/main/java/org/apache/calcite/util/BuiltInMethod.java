@@ -42,6 +42,7 @@
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.function.Function2;
 import org.apache.calcite.linq4j.function.Functions;
+import org.apache.calcite.linq4j.function.LongFunction1;
 import org.apache.calcite.linq4j.function.Predicate1;
 import org.apache.calcite.linq4j.function.Predicate2;
 import org.apache.calcite.linq4j.tree.FunctionExpression;
@@ -77,9 +78,13 @@
 import org.apache.calcite.runtime.Bindable;
 import org.apache.calcite.runtime.Enumerables;
 import org.apache.calcite.runtime.FlatLists;
+import org.apache.calcite.runtime.LikeMatcher;
+import org.apache.calcite.runtime.ParallelEnumerables;
 import org.apache.calcite.runtime.RandomFunction;
 import org.apache.calcite.runtime.ResultSetEnumerable;
+import org.apache.calcite.runtime.SargMatcher;
 import org.apache.calcite.runtime.SortedMultiMap;
+import org.apache.calcite.runtime.SpillingEnumerables;
 import org.apache.calcite.runtime.SqlFunctions;
 import org.apache.calcite.runtime.SqlFunctions.FlatProductInputType;
 import org.apache.calcite.runtime.Utilities;
@@ -148,6 +153,15 @@ public enum BuiltInMethod {
   ROW_AS_COPY(Row.class, "asCopy", Object[].class),
   RESULT_SET_ENUMERABLE_SET_TIMEOUT(ResultSetEnumerable.class, "setTimeout",
       DataContext.class),
+  RESULT_SET_ENUMERABLE_SET_FETCH_SIZE(ResultSetEnumerable.class,
+      "setFetchSize", int.class),
+  RESULT_SET_ENUMERABLE_SET_DISABLE_AUTO_COMMIT_FOR_FETCH(
+      ResultSetEnumerable.class, "setDisableAutoCommitForFetch",
+      boolean.class),
+  RESULT_SET_ENUMERABLE_SET_PREFETCH_SIZE(ResultSetEnumerable.class,
+      "setPrefetchSize", int.class),
+  RESULT_SET_ENUMERABLE_CONCURRENT(ResultSetEnumerable.class, "concurrent",
+      ResultSetEnumerable[].class),
   RESULT_SET_ENUMERABLE_OF(ResultSetEnumerable.class, "of", DataSource.class,
       String.class, Function1.class),
   RESULT_SET_ENUMERABLE_OF_PREPARED(ResultSetEnumerable.class, "of",
@@ -157,9 +171,23 @@ public enum BuiltInMethod {
       DataContext.class),
   JOIN(ExtendedEnumerable.class, "join", Enumerable.class, Function1.class,
       Function1.class, Function2.class),
+  HASH_JOIN_LONG(EnumerableDefaults.class, "hashJoinLong", Enumerable.class,
+      Enumerable.class, LongFunction1.class, LongFunction1.class,
+      Function2.class, boolean.class, boolean.class),
   MERGE_JOIN(EnumerableDefaults.class, "mergeJoin", Enumerable.class,
       Enumerable.class, Function1.class, Function1.class, Function2.class,
       boolean.class, boolean.class),
+  SPILLING_JOIN(SpillingEnumerables.class, "join", Enumerable.class,
+      Enumerable.class, Function1.class, Function1.class, Function2.class,
+      EqualityComparer.class, boolean.class, boolean.class, long.class),
+  SPILLING_ORDER_BY(SpillingEnumerables.class, "orderBy", Enumerable.class,
+      Function1.class, Comparator.class, long.class),
+  EXCHANGE(ParallelEnumerables.class, "exchange", Enumerable.class, int.class),
+  PARTITIONER(ParallelEnumerables.class, "partitioner", Enumerable.class,
+      Function1.class, int.class, int.class),
+  PARTITION(ParallelEnumerables.Partitioner.class, "partition", int.class),
+  MERGE(ParallelEnumerables.class, "merge", Function1.class, int.class,
+      int.class, ParallelEnumerables.Partitioner[].class),
   SLICE0(Enumerables.class, "slice0", Enumerable.class),
   SEMI_JOIN(EnumerableDefaults.class, "semiJoin", Enumerable.class,
       Enumerable.class, Function1.class, Function1.class),
@@ -168,6 +196,9 @@ public enum BuiltInMethod {
       boolean.class),
   CORRELATE_JOIN(ExtendedEnumerable.class, "correlateJoin",
       CorrelateJoinType.class, Function1.class, Function2.class),
+  CORRELATE_BATCH_JOIN(EnumerableDefaults.class, "correlateBatchJoin",
+      CorrelateJoinType.class, Enumerable.class, Function1.class,
+      Function2.class, Predicate2.class, int.class),
   SELECT(ExtendedEnumerable.class, "select", Function1.class),
   SELECT2(ExtendedEnumerable.class, "select", Function2.class),
   SELECT_MANY(ExtendedEnumerable.class, "selectMany", Function1.class),
@@ -327,6 +358,12 @@ public enum BuiltInMethod {
   RTRIM(SqlFunctions.class, "rtrim", String.class),
   LIKE(SqlFunctions.class, "like", String.class, String.class),
   SIMILAR(SqlFunctions.class, "similar", String.class, String.class),
+  LIKE_MATCHER(LikeMatcher.class, "like", String.class),
+  SIMILAR_MATCHER(LikeMatcher.class, "similar", String.class),
+  LIKE_MATCHER_MATCHES(LikeMatcher.class, "matches", String.class),
+  SARG_MATCHER(SargMatcher.class, "of", String[].class),
+  SARG_MATCHER_CONTAINS_LONG(SargMatcher.class, "contains", long.class),
+  SARG_MATCHER_CONTAINS(SargMatcher.class, "contains", Comparable.class),
   IS_TRUE(SqlFunctions.class, "isTrue", Boolean.class),
   IS_NOT_FALSE(SqlFunctions.class, "isNotFalse", Boolean.class),
   NOT(SqlFunctions.class, "not", Boolean.class),
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import javax.annotation.Nonnull;
+
+/**
+ * Set of values, or ranges of values, that an expression is searched for.
+ *
+ * <p>The name is short for "search argument", a term from the literature
+ * on access path selection. A Sarg occurs only as the second operand of a
+ * call to {@link org.apache.calcite.sql.fun.SqlStdOperatorTable#SEARCH},
+ * wrapped in a {@link org.apache.calcite.rex.RexLiteral} whose type is the
+ * type of the values.
+ *
+ * <p>For example, {@code x IN (1, 2, 5)} is
+ * {@code SEARCH(x, Sarg[1, 2, 5])}, and
+ * {@code x IN (1, 2) OR x BETWEEN 10 AND 20} is
+ * {@code SEARCH(x, Sarg[1, 2, [10..20]])}.
+ *
+ * <p>A Sarg never contains null, is never empty, and never contains every
+ * value; {@code SEARCH(x, sarg)} returns UNKNOWN if {@code x} is null, as
+ * does {@code x IN (...)}.
+ *
+ * <p>Values are held in the form that {@link org.apache.calcite.rex.RexLiteral}
+ * holds them, for example {@link java.math.BigDecimal} for numeric values
+ * and {@link NlsString} for character values.
+ *
+ * @param <C> Value type
+ */
+public class Sarg<C extends Comparable<C>> implements Comparable<Sarg<C>> {
+  /** Sorted, disjoint ranges of values. */
+  public final ImmutableRangeSet<C> rangeSet;
+
+  private Sarg(ImmutableRangeSet<C> rangeSet) {
+    this.rangeSet = Objects.requireNonNull(rangeSet);
+  }
+
+  /** Creates a Sarg. The range set must not be empty or contain every
+   * value. */
+  public static <C extends Comparable<C>> Sarg<C> of(RangeSet<C> rangeSet) {
+    Preconditions.checkArgument(!rangeSet.isEmpty(), "empty");
+    Preconditions.checkArgument(!rangeSet.encloses(Range.all()), "all");
+    return new Sarg<>(ImmutableRangeSet.copyOf(rangeSet));
+  }
+
+  /** Returns whether each range is a single value, as in
+   * {@code x IN (1, 2, 5)}. */
+  public boolean isPoints() {
+    for (Range<C> range : rangeSet.asRanges()) {
+      if (!isPoint(range)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether a range contains a single value. */
+  public static <C extends Comparable<C>> boolean isPoint(Range<C> range) {
+    return range.hasLowerBound()
+        && range.hasUpperBound()
+        && range.lowerBoundType() == BoundType.CLOSED
+        && range.upperBoundType() == BoundType.CLOSED
+        && range.lowerEndpoint().compareTo(range.upperEndpoint()) == 0;
+  }
+
+  /** Returns the number of ranges. */
+  public int rangeCount() {
+    return rangeSet.asRanges().size();
+  }
+
+  /** Returns a Sarg that contains the values (other than null) that this
+   * Sarg does not contain. */
+  public Sarg<C> complement() {
+    return new Sarg<>(rangeSet.complement());
+  }
+
+  /** Prints this Sarg, using a given function to print each value. */
+  public StringBuilder printTo(StringBuilder sb,
+      BiConsumer<StringBuilder, C> valuePrinter) {
+    sb.append("Sarg[");
+    int i = 0;
+    for (Range<C> range : rangeSet.asRanges()) {
+      if (i++ > 0) {
+        sb.append(", ");
+      }
+      if (isPoint(range)) {
+        valuePrinter.accept(sb, range.lowerEndpoint());
+        continue;
+      }
+      if (range.hasLowerBound()) {
+        sb.append(range.lowerBoundType() == BoundType.CLOSED ? '[' : '(');
+        valuePrinter.accept(sb, range.lowerEndpoint());
+      } else {
+        sb.append("(-\u221e");
+      }
+      sb.append("..");
+      if (range.hasUpperBound()) {
+        valuePrinter.accept(sb, range.upperEndpoint());
+        sb.append(range.upperBoundType() == BoundType.CLOSED ? ']' : ')');
+      } else {
+        sb.append("+\u221e)");
+      }
+    }
+    return sb.append("]");
+  }
+
+  @Override public String toString() {
+    return printTo(new StringBuilder(), StringBuilder::append).toString();
+  }
+
+  @Override public boolean equals(Object o) {
+    return o == this
+        || o instanceof Sarg
+        && rangeSet.equals(((Sarg) o).rangeSet);
+  }
+
+  @Override public int hashCode() {
+    return rangeSet.hashCode();
+  }
+
+  /** {@inheritDoc}
+   *
+   * <p>Sargs have no natural order; they are ordered by their string
+   * representations, which is consistent with {@link #equals}. */
+  public int compareTo(@Nonnull Sarg<C> o) {
+    return toString().compareTo(o.toString());
+  }
+}
+
+// End Sarg.java
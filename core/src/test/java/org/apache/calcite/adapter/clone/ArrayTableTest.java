@@ -22,15 +22,32 @@
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeImpl;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.TimestampString;
+
+import com.google.common.collect.ImmutableList;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit test for {@link ArrayTable} and {@link ColumnLoader}.
@@ -353,6 +370,263 @@ public class ArrayTableTest {
         "Column(representation=ObjectArray(ordinal=2), value=[Bill, Sebastian, Theodore, Eric])");
   }
 
+  /** Tests that {@link ColumnLoader} stores numeric and string columns in
+   * off-heap representations if asked, and that the values are the same as
+   * on the heap. */
+  @Test public void testLoadOffHeap() {
+    final JavaTypeFactoryImpl typeFactory =
+        new JavaTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    final RelDataType rowType =
+        typeFactory.builder()
+            .add("deptno", typeFactory.createType(int.class))
+            .add("empid", typeFactory.createType(int.class))
+            .add("salary", typeFactory.createType(double.class))
+            .add("name", typeFactory.createType(String.class))
+            .add("commission", typeFactory.createType(Integer.class))
+            .build();
+    final Enumerable<Object[]> enumerable =
+        Linq4j.asEnumerable(
+            Arrays.asList(
+                new Object[]{10, 100, 11.5D, "Bill", 1000},
+                new Object[]{20, 200, 8D, "Eric", 500},
+                new Object[]{30, 150, 7D, "Sébastien", null},
+                new Object[]{10, 160, 11.5D, null, 250}));
+    final ColumnLoader<Object[]> loader =
+        new ColumnLoader<>(typeFactory, enumerable,
+            RelDataTypeImpl.proto(rowType), null, true);
+    checkColumn(
+        loader.representationValues.get(0),
+        ArrayTable.RepresentationType.DIRECT_BIT_SLICED_PRIMITIVE_ARRAY,
+        "Column(representation=DirectBitSlicedPrimitiveArray(ordinal=0, bitCount=5, primitive=INT, signed=false), value=[10, 30, 10, 20, 0, 0, 0, 0, 0, 0, 0, 0])");
+    checkColumn(
+        loader.representationValues.get(1),
+        ArrayTable.RepresentationType.DIRECT_BIT_SLICED_PRIMITIVE_ARRAY,
+        "Column(representation=DirectBitSlicedPrimitiveArray(ordinal=1, bitCount=8, primitive=INT, signed=false), value=[100, 150, 160, 200, 0, 0, 0, 0])");
+    checkColumn(
+        loader.representationValues.get(2),
+        ArrayTable.RepresentationType.DIRECT_PRIMITIVE_ARRAY,
+        "Column(representation=DirectPrimitiveArray(ordinal=2, primitive=DOUBLE, p=DOUBLE), value=[11.5, 7.0, 11.5, 8.0])");
+    final ArrayTable.Column name = loader.representationValues.get(3);
+    assertEquals(ArrayTable.RepresentationType.STRING_DICTIONARY,
+        name.representation.getType());
+    assertEquals("StringDictionary(ordinal=3, "
+            + "representation=DirectBitSlicedPrimitiveArray(ordinal=-1, "
+            + "bitCount=2, primitive=INT, signed=false))",
+        name.representation.toString());
+    assertEquals("[Bill, Sébastien, null, Eric]",
+        ArrayTable.Column.asList(name.representation, name.dataSet)
+            .subList(0, 4).toString());
+    assertEquals(4, name.cardinality);
+    // Nullable numeric columns stay on the heap
+    checkColumn(
+        loader.representationValues.get(4),
+        ArrayTable.RepresentationType.OBJECT_ARRAY,
+        "Column(representation=ObjectArray(ordinal=4), value=[1000, null, 250, 500])");
+  }
+
+  @Test public void testDirectPrimitiveArray() {
+    final ColumnLoader.ValueSet valueSet =
+        new ColumnLoader.ValueSet(long.class);
+    valueSet.add(-5L);
+    valueSet.add(Long.MAX_VALUE);
+    valueSet.add(0L);
+    final ArrayTable.Column pair = valueSet.freeze(0, null, true);
+    assertTrue(
+        pair.representation instanceof ArrayTable.DirectPrimitiveArray);
+    assertEquals(3, pair.representation.size(pair.dataSet));
+    assertEquals(-5L, pair.representation.getObject(pair.dataSet, 0));
+    assertEquals(Long.MAX_VALUE,
+        pair.representation.getObject(pair.dataSet, 1));
+    assertEquals(0, pair.representation.getInt(pair.dataSet, 2));
+
+    final Object permuted =
+        pair.representation.permute(pair.dataSet, new int[] {2, 0, 1});
+    assertEquals("[0, -5, 9223372036854775807]",
+        pair.representation.toString(permuted));
+  }
+
+  /** Tests that an {@link ArrayTable} cannot be read after it has been
+   * closed. */
+  @Test public void testClose() {
+    final JavaTypeFactoryImpl typeFactory =
+        new JavaTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    final RelDataType rowType =
+        typeFactory.builder()
+            .add("name", typeFactory.createType(String.class))
+            .build();
+    final ArrayTable table = (ArrayTable)
+        CloneSchema.createCloneTable(typeFactory,
+            RelDataTypeImpl.proto(rowType), ImmutableList.of(), null,
+            Linq4j.asEnumerable(Arrays.asList("a", "b")), true);
+    // Closing a table that has not been loaded does nothing
+    table.close();
+    assertEquals(2D, table.getStatistic().getRowCount(), 0D);
+    table.close();
+    try {
+      final Double rowCount = table.getStatistic().getRowCount();
+      fail("expected error, got " + rowCount);
+    } catch (IllegalStateException e) {
+      assertEquals("table has been closed", e.getMessage());
+    }
+  }
+
+  /** Tests that a cloned table can be written to a snapshot and read back,
+   * both with and without off-heap columns, and that the snapshot is not
+   * used if its version is different or missing. */
+  @Test public void testSnapshot() throws IOException {
+    final JavaTypeFactoryImpl typeFactory =
+        new JavaTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    final RelDataType rowType =
+        typeFactory.builder()
+            .add("empid", typeFactory.createType(int.class))
+            .add("salary", typeFactory.createType(double.class))
+            .add("name", typeFactory.createType(String.class))
+            .add("commission", typeFactory.createType(Integer.class))
+            .add("deptno", typeFactory.createType(int.class))
+            .build();
+    final List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      rows.add(
+          new Object[]{3000 - i, i * 1.5D, "name" + (i % 7),
+              i % 3 == 0 ? null : i, i % 5 == 0 ? 10 : 20});
+    }
+    final Enumerable<Object[]> source = Linq4j.asEnumerable(rows);
+    final Enumerable<Object[]> emptySource =
+        Linq4j.asEnumerable(Collections.emptyList());
+    final File file = File.createTempFile("snapshot", ".bin");
+    file.deleteOnExit();
+    assertTrue(file.delete());
+    for (boolean offHeap : new boolean[] {false, true}) {
+      final ArrayTable table = (ArrayTable)
+          CloneSchema.createCloneTable(typeFactory,
+              RelDataTypeImpl.proto(rowType), ImmutableList.of(), null,
+              source, offHeap, file, "v1");
+      final String expected = toString(table);
+      assertTrue(file.exists());
+
+      // Reads the snapshot, not the (empty) source
+      final ArrayTable table2 = (ArrayTable)
+          CloneSchema.createCloneTable(typeFactory,
+              RelDataTypeImpl.proto(rowType), ImmutableList.of(), null,
+              emptySource, offHeap, file, "v1");
+      assertEquals(expected, toString(table2));
+      assertEquals(table.getStatistic().getCollations(),
+          table2.getStatistic().getCollations());
+      assertTrue(table2.getStatistic().isKey(ImmutableBitSet.of(0)));
+
+      // Different version; reads the source, and replaces the snapshot
+      final ArrayTable table3 = (ArrayTable)
+          CloneSchema.createCloneTable(typeFactory,
+              RelDataTypeImpl.proto(rowType), ImmutableList.of(), null,
+              emptySource, offHeap, file, "v2");
+      assertEquals(0D, table3.getStatistic().getRowCount(), 0D);
+      assertNull(ArrayTableSnapshot.read(file, "v1"));
+      assertTrue(file.delete());
+    }
+
+    // A snapshot requires a version
+    try {
+      CloneSchema.createCloneTable(typeFactory,
+          RelDataTypeImpl.proto(rowType), ImmutableList.of(), null,
+          source, false, file, null);
+      fail("expected error");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().startsWith("snapshotVersion is required"));
+    }
+  }
+
+  @Test public void testZoneMap() {
+    final JavaTypeFactoryImpl typeFactory =
+        new JavaTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    final RexBuilder rexBuilder = new RexBuilder(typeFactory);
+    final RelDataType rowType =
+        typeFactory.builder()
+            .add("ts", SqlTypeName.TIMESTAMP)
+            .add("empid", typeFactory.createType(int.class))
+            .add("commission", typeFactory.createType(Integer.class))
+            .build();
+    final long start = 1_500_000_000_000L;
+    final List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // Commission is null in rows 300 - 399 only
+      rows.add(
+          new Object[]{new Timestamp(start + i * 1000L), i % 50,
+              i >= 300 && i < 400 ? null : i});
+    }
+    final FilterableArrayTable table = (FilterableArrayTable)
+        CloneSchema.createCloneTable(typeFactory,
+            RelDataTypeImpl.proto(rowType), ImmutableList.of(), null,
+            Linq4j.asEnumerable(rows), false, null, null, 100);
+    final RexNode ts = rexBuilder.makeInputRef(rowType, 0);
+    final RexNode empid = rexBuilder.makeInputRef(rowType, 1);
+    final RexNode commission = rexBuilder.makeInputRef(rowType, 2);
+
+    // Rows 250 - 449 are in blocks 2, 3 and 4
+    final RexNode range =
+        rexBuilder.makeCall(SqlStdOperatorTable.AND,
+            rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN_OR_EQUAL, ts,
+                timestamp(rexBuilder, start + 250_000L)),
+            rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, ts,
+                timestamp(rexBuilder, start + 450_000L)));
+    assertEquals(300, count(table, range, empid));
+
+    // Reversed comparison; "450 > ts" is "ts < 450"
+    final RexNode below =
+        rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN,
+            timestamp(rexBuilder, start + 450_000L), ts);
+    assertEquals(500, count(table, below, empid));
+
+    // Every block has an empid of 0, so nothing can be skipped
+    final RexNode equals =
+        rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, empid,
+            rexBuilder.makeExactLiteral(BigDecimal.ZERO));
+    assertEquals(1000, count(table, equals, empid));
+
+    // Only block 3 has nulls; no block has a commission over 1000
+    final RexNode isNull =
+        rexBuilder.makeCall(SqlStdOperatorTable.IS_NULL, commission);
+    assertEquals(100, count(table, isNull, commission));
+    final RexNode over =
+        rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN, commission,
+            rexBuilder.makeExactLiteral(BigDecimal.valueOf(1000)));
+    assertEquals(0, count(table, over, commission));
+    final RexNode under =
+        rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, commission,
+            rexBuilder.makeExactLiteral(BigDecimal.valueOf(50)));
+    final RexNode or =
+        rexBuilder.makeCall(SqlStdOperatorTable.OR, isNull, under);
+    assertEquals(200, count(table, or, commission));
+  }
+
+  private static RexNode timestamp(RexBuilder rexBuilder, long millis) {
+    return rexBuilder.makeTimestampLiteral(
+        TimestampString.fromMillisSinceEpoch(millis), 0);
+  }
+
+  /** Scans a table with a filter and returns the number of rows returned,
+   * checking that the filter is left for the caller to evaluate. */
+  private static int count(FilterableArrayTable table, RexNode filter,
+      RexNode project) {
+    final List<RexNode> filters = new ArrayList<>();
+    filters.add(filter);
+    int n = 0;
+    for (Object[] row : table.scan(null, filters,
+        new int[] {((RexInputRef) project).getIndex()})) {
+      assertEquals(1, row.length);
+      ++n;
+    }
+    assertEquals(1, filters.size());
+    return n;
+  }
+
+  private static String toString(ArrayTable table) {
+    final StringBuilder b = new StringBuilder();
+    for (Object[] row : table.scan(null)) {
+      b.append(Arrays.toString(row)).append('\n');
+    }
+    return b.toString();
+  }
+
   private void checkColumn(ArrayTable.Column x,
       ArrayTable.RepresentationType expectedRepresentationType,
       String expectedString) {
@@ -373,14 +373,14 @@ private void checkFoodMartAll(boolean evolve) throws Exception {
         + " warehouse_class_id:warehouse_class_id)])";
     assertThat(t.s.space.g.toString(), is(expected));
     if (evolve) {
-      // compared to evolve=false, there are a few more nodes (133 vs 117),
-      // the same number of paths, and a lot fewer lattices (27 vs 376)
-      assertThat(t.s.space.nodeMap.size(), is(133));
+      // compared to evolve=false, there are a few more nodes (134 vs 118),
+      // the same number of paths, and a lot fewer lattices (27 vs 388)
+      assertThat(t.s.space.nodeMap.size(), is(134));
       assertThat(t.s.latticeMap.size(), is(27));
       assertThat(t.s.space.pathMap.size(), is(42));
     } else {
-      assertThat(t.s.space.nodeMap.size(), is(117));
-      assertThat(t.s.latticeMap.size(), is(386));
+      assertThat(t.s.space.nodeMap.size(), is(118));
+      assertThat(t.s.latticeMap.size(), is(388));
       assertThat(t.s.space.pathMap.size(), is(42));
     }
   }
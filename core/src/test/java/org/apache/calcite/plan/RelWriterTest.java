@@ -40,10 +40,14 @@
 import org.apache.calcite.test.JdbcTest;
 import org.apache.calcite.tools.Frameworks;
 import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.TestUtil;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
 
 import org.junit.Test;
 
@@ -448,6 +452,58 @@ public class RelWriterTest {
             + "  LogicalTableScan(table=[[hr, emps]])\n"));
   }
 
+  /**
+   * Tests that a call to SEARCH, whose second operand is a search argument,
+   * can be written as JSON and read back.
+   */
+  @Test public void testSearchRoundTrip() {
+    final String[] plans = new String[2];
+    final String s =
+        Frameworks.withPlanner((cluster, relOptSchema, rootSchema) -> {
+          final SchemaPlus schema =
+              rootSchema.add("hr",
+                  new ReflectiveSchema(new JdbcTest.HrSchema()));
+          final LogicalTableScan scan =
+              LogicalTableScan.create(cluster,
+                  relOptSchema.getTableForMember(
+                      Arrays.asList("hr", "emps")));
+          final RexBuilder rexBuilder = cluster.getRexBuilder();
+          final RelDataType intType =
+              cluster.getTypeFactory().createSqlType(SqlTypeName.INTEGER);
+          final RangeSet<BigDecimal> rangeSet = TreeRangeSet.create();
+          rangeSet.add(Range.closed(BigDecimal.TEN, BigDecimal.valueOf(20)));
+          rangeSet.add(Range.singleton(BigDecimal.valueOf(30)));
+          rangeSet.add(Range.greaterThan(BigDecimal.valueOf(40)));
+          rangeSet.add(Range.atMost(BigDecimal.ZERO));
+          final LogicalFilter filter =
+              LogicalFilter.create(scan,
+                  rexBuilder.makeSearch(rexBuilder.makeInputRef(scan, 1),
+                      Sarg.of(rangeSet), intType));
+          plans[0] = RelOptUtil.dumpPlan("", filter, SqlExplainFormat.TEXT,
+              SqlExplainLevel.EXPPLAN_ATTRIBUTES);
+          final String json = RelOptUtil.dumpPlan("", filter,
+              SqlExplainFormat.JSON, SqlExplainLevel.EXPPLAN_ATTRIBUTES);
+          final RelJsonReader reader =
+              new RelJsonReader(cluster, relOptSchema, schema);
+          final RelNode node;
+          try {
+            node = reader.read(json);
+          } catch (IOException e) {
+            throw TestUtil.rethrow(e);
+          }
+          plans[1] = RelOptUtil.dumpPlan("", node, SqlExplainFormat.TEXT,
+              SqlExplainLevel.EXPPLAN_ATTRIBUTES);
+          return json;
+        });
+    assertThat(s.contains("\"op\": \"SEARCH\""), is(true));
+    assertThat(s.contains("\"lower-type\": \"OPEN\""), is(true));
+    assertThat(plans[0],
+        isLinux("LogicalFilter(condition=[SEARCH($1,"
+            + " Sarg[(-\u221e..0], [10..20], 30, (40..+\u221e)])])\n"
+            + "  LogicalTableScan(table=[[hr, emps]])\n"));
+    assertThat(plans[1], is(plans[0]));
+  }
+
   /**
    * Unit test for {@link org.apache.calcite.rel.externalize.RelJsonReader}.
    */
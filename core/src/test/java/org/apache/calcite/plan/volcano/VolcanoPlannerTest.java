@@ -18,6 +18,7 @@
 
 import org.apache.calcite.adapter.enumerable.EnumerableConvention;
 import org.apache.calcite.adapter.enumerable.EnumerableRules;
+import org.apache.calcite.config.CalciteConnectionProperty;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.ConventionTraitDef;
 import org.apache.calcite.plan.RelOptCluster;
@@ -33,7 +34,9 @@
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.core.RelFactories;
 import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.rules.ProjectRemoveRule;
+import org.apache.calcite.test.CalciteAssert;
 import org.apache.calcite.tools.RelBuilder;
 
 import org.junit.Ignore;
@@ -43,6 +46,9 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.calcite.plan.volcano.PlannerTests.GoodSingleRule;
 import static org.apache.calcite.plan.volcano.PlannerTests.NoneLeafRel;
@@ -94,6 +100,53 @@ public VolcanoPlannerTest() {
     assertTrue(result instanceof PhysLeafRel);
   }
 
+  /**
+   * Tests that the planner removes the cached metadata of an expression that
+   * a rule created but did not register.
+   */
+  @Test public void testMetadataOfTemporaryRel() {
+    VolcanoPlanner planner = new VolcanoPlanner();
+    planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
+
+    final List<RelNode> temporaryRels = new ArrayList<>();
+    planner.addRule(
+        new RelOptRule(RelOptRule.operand(NoneLeafRel.class, RelOptRule.any()),
+            "TemporaryRelRule") {
+          @Override public Convention getOutConvention() {
+            return PHYS_CALLING_CONVENTION;
+          }
+
+          public void onMatch(RelOptRuleCall call) {
+            final NoneLeafRel leafRel = call.rel(0);
+            final RelNode temporaryRel =
+                new PhysLeafRel(leafRel.getCluster(), "tmp");
+            call.getMetadataQuery().getRowCount(temporaryRel);
+            assertTrue(call.getMetadataQuery().map.containsRow(temporaryRel));
+            temporaryRels.add(temporaryRel);
+            final RelNode rel = new PhysLeafRel(leafRel.getCluster(), "a");
+            call.getMetadataQuery().getRowCount(rel);
+            call.transformTo(rel);
+          }
+        });
+
+    RelOptCluster cluster = newCluster(planner);
+    NoneLeafRel leafRel =
+        new NoneLeafRel(
+            cluster,
+            "a");
+    RelNode convertedRel =
+        planner.changeTraits(
+            leafRel,
+            cluster.traitSetOf(PHYS_CALLING_CONVENTION));
+    planner.setRoot(convertedRel);
+    RelNode result = planner.chooseDelegate().findBestExp();
+    assertTrue(result instanceof PhysLeafRel);
+    assertThat(temporaryRels.size(), equalTo(1));
+    final RelMetadataQuery mq = cluster.getMetadataQuery();
+    assertThat(mq.map.containsRow(temporaryRels.get(0)), equalTo(false));
+    assertThat(mq.map.containsRow(result), equalTo(true));
+  }
+
   /**
    * Tests transformation of a single+leaf from NONE to PHYS.
    */
@@ -122,6 +175,133 @@ public VolcanoPlannerTest() {
     assertTrue(result instanceof PhysSingleRel);
   }
 
+  /**
+   * Tests transformation of a single+leaf from NONE to PHYS, firing rules in
+   * several threads. {@link GoodSingleRule} needs a new subset, so it fires
+   * again serially.
+   */
+  @Test public void testTransformSingleGoodParallel() {
+    VolcanoPlanner planner = new VolcanoPlanner();
+    planner.setParallelism(4);
+    planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
+
+    planner.addRule(new PhysLeafRule());
+    planner.addRule(new GoodSingleRule());
+
+    RelOptCluster cluster = newCluster(planner);
+    NoneLeafRel leafRel =
+        new NoneLeafRel(
+            cluster,
+            "a");
+    NoneSingleRel singleRel =
+        new NoneSingleRel(
+            cluster,
+            leafRel);
+    RelNode convertedRel =
+        planner.changeTraits(
+            singleRel,
+            cluster.traitSetOf(PHYS_CALLING_CONVENTION));
+    planner.setRoot(convertedRel);
+    RelNode result = planner.chooseDelegate().findBestExp();
+    assertTrue(result instanceof PhysSingleRel);
+    assertTrue(((PhysSingleRel) result).getInput() instanceof PhysLeafRel);
+  }
+
+  /**
+   * Tests that a planner fires rules in the executor that it is given.
+   */
+  @Test public void testTransformSingleGoodExecutor() {
+    final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>());
+    try {
+      VolcanoPlanner planner = new VolcanoPlanner();
+      planner.setParallelism(2);
+      planner.setExecutor(executor);
+      planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
+
+      planner.addRule(new PhysLeafRule());
+      planner.addRule(new GoodSingleRule());
+
+      RelOptCluster cluster = newCluster(planner);
+      NoneLeafRel leafRel =
+          new NoneLeafRel(
+              cluster,
+              "a");
+      NoneSingleRel singleRel =
+          new NoneSingleRel(
+              cluster,
+              leafRel);
+      RelNode convertedRel =
+          planner.changeTraits(
+              singleRel,
+              cluster.traitSetOf(PHYS_CALLING_CONVENTION));
+      planner.setRoot(convertedRel);
+      RelNode result = planner.chooseDelegate().findBestExp();
+      assertTrue(result instanceof PhysSingleRel);
+      assertTrue(executor.getCompletedTaskCount() > 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Plans and executes a query with the default rule set, firing rules in
+   * several threads.
+   */
+  @Test public void testParallelismQuery() {
+    CalciteAssert.hr()
+        .with(CalciteConnectionProperty.PLANNER_PARALLELISM, 4)
+        .query("select e.\"name\", d.\"name\" as \"dname\"\n"
+            + "from \"hr\".\"emps\" as e\n"
+            + "join \"hr\".\"depts\" as d on e.\"deptno\" = d.\"deptno\"\n"
+            + "where e.\"salary\" > 8000")
+        .returnsUnordered("name=Bill; dname=Sales",
+            "name=Theodore; dname=Sales");
+  }
+
+  @Test public void testTransformSingleGoodTopDown() {
+    VolcanoPlanner planner = new VolcanoPlanner();
+    planner.setTopDownOpt(true);
+    planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
+
+    planner.addRule(new PhysLeafRule());
+    planner.addRule(new GoodSingleRule());
+
+    RelOptCluster cluster = newCluster(planner);
+    NoneLeafRel leafRel =
+        new NoneLeafRel(
+            cluster,
+            "a");
+    NoneSingleRel singleRel =
+        new NoneSingleRel(
+            cluster,
+            leafRel);
+    RelNode convertedRel =
+        planner.changeTraits(
+            singleRel,
+            cluster.traitSetOf(PHYS_CALLING_CONVENTION));
+    planner.setRoot(convertedRel);
+    RelNode result = planner.chooseDelegate().findBestExp();
+    assertTrue(result instanceof PhysSingleRel);
+    assertTrue(((PhysSingleRel) result).getInput() instanceof PhysLeafRel);
+  }
+
+  /**
+   * Plans and executes a query with the default rule set, searching
+   * top-down.
+   */
+  @Test public void testTopDownQuery() {
+    CalciteAssert.hr()
+        .with(CalciteConnectionProperty.PLANNER_TOP_DOWN, true)
+        .query("select e.\"name\", d.\"name\" as \"dname\"\n"
+            + "from \"hr\".\"emps\" as e\n"
+            + "join \"hr\".\"depts\" as d on e.\"deptno\" = d.\"deptno\"\n"
+            + "where e.\"salary\" > 8000")
+        .returnsUnordered("name=Bill; dname=Sales",
+            "name=Theodore; dname=Sales");
+  }
+
   /**
    * Tests a rule that is fired once per subset (whereas most rules are fired
    * once per rel in a set or rel in a subset)
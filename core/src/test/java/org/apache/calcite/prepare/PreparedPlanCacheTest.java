@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.prepare;
+
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.schema.impl.AbstractSchema;
+import org.apache.calcite.test.CalciteAssert;
+import org.apache.calcite.test.JdbcTest;
+import org.apache.calcite.util.TestUtil;
+
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit test for {@link PreparedPlanCache}.
+ */
+public class PreparedPlanCacheTest {
+  /** Statements that differ only in the values of literals share a plan. */
+  @Test public void testLiterals() throws Exception {
+    check(connection -> {
+      final PreparedPlanCache cache = cache(connection);
+      assertQuery(connection,
+          "select name from emps where deptno = 10 and name <> 'Bill'",
+          "Sebastian;Theodore;");
+      assertThat(cache.stats().missCount(), is(1L));
+      assertQuery(connection,
+          "select name from emps where deptno = 20 and name <> 'Bill'",
+          "Eric;");
+      assertQuery(connection,
+          "select name from emps where deptno = 10 and name <> 'Theodore'",
+          "Bill;Sebastian;");
+      assertThat(cache.stats().missCount(), is(1L));
+      assertThat(cache.stats().hitCount(), is(2L));
+
+      // Different query, different plan
+      assertQuery(connection,
+          "select name from emps where deptno > 10",
+          "Eric;");
+      assertThat(cache.stats().missCount(), is(2L));
+      assertThat(cache.size(), is(2L));
+    });
+  }
+
+  /** A literal whose value does not fit into the type of the column it is
+   * compared to is not made into a parameter. */
+  @Test public void testLiteralOutOfRange() throws Exception {
+    check(connection -> {
+      final PreparedPlanCache cache = cache(connection);
+      assertQuery(connection,
+          "select name from emps where deptno = 10",
+          "Bill;Sebastian;Theodore;");
+      // 4294967306 is 10 modulo 2^32
+      assertQuery(connection,
+          "select name from emps where deptno = 4294967306",
+          "");
+      assertQuery(connection,
+          "select name from emps where deptno = 10.5",
+          "");
+      assertThat(cache.size(), is(1L));
+    });
+  }
+
+  /** A statement that cannot use the cache is remembered, and is not
+   * validated with parameters again. */
+  @Test public void testUncacheable() throws Exception {
+    check(connection -> {
+      final PreparedPlanCache cache = cache(connection);
+      final String sql = "select name from emps where deptno = 4294967306";
+      assertQuery(connection, sql, "");
+      assertThat(cache.size(), is(0L));
+      assertThat(cache.uncacheableSize(), is(1L));
+      assertQuery(connection, sql, "");
+      assertThat(cache.uncacheableSize(), is(1L));
+      assertThat(cache.stats().missCount(), is(2L));
+      assertThat(cache.stats().hitCount(), is(0L));
+
+      // The plan of a similar statement is cached as usual
+      assertQuery(connection, "select name from emps where deptno = 20",
+          "Eric;");
+      assertThat(cache.size(), is(1L));
+    });
+  }
+
+  /** Parameters in the original query are numbered before the parameters
+   * that replace literals. */
+  @Test public void testDynamicParameters() throws Exception {
+    check(connection -> {
+      final PreparedPlanCache cache = cache(connection);
+      final String sql = "select name from emps\n"
+          + "where deptno = 10 and empid > ? and name <> 'Bill'";
+      for (int i = 0; i < 2; i++) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+          assertThat(statement.getParameterMetaData().getParameterCount(),
+              is(1));
+          statement.setInt(1, 140);
+          assertThat(toString(statement.executeQuery()), is("Sebastian;"));
+        } catch (SQLException e) {
+          throw TestUtil.rethrow(e);
+        }
+      }
+      assertThat(cache.stats().missCount(), is(1L));
+      assertThat(cache.stats().hitCount(), is(1L));
+    });
+  }
+
+  /** Adding an object to the schema invalidates the cached plans. */
+  @Test public void testSchemaChange() throws Exception {
+    check(connection -> {
+      final PreparedPlanCache cache = cache(connection);
+      final String sql = "select name from emps where deptno = 20";
+      assertThat(query(connection, sql), is("Eric;"));
+      assertThat(query(connection, sql), is("Eric;"));
+      assertThat(cache.stats().hitCount(), is(1L));
+      connection.getRootSchema().getSubSchema("s")
+          .add("extra", new AbstractSchema());
+      assertThat(query(connection, sql), is("Eric;"));
+      assertThat(cache.stats().hitCount(), is(1L));
+      assertThat(cache.stats().missCount(), is(2L));
+    });
+  }
+
+  private static void check(Consumer<CalciteConnection> consumer)
+      throws Exception {
+    CalciteAssert.that()
+        .with(CalciteConnectionProperty.LEX, Lex.JAVA)
+        .with(CalciteConnectionProperty.PREPARED_PLAN_CACHE_SIZE, 10)
+        .withSchema("s", new ReflectiveSchema(new JdbcTest.HrSchema()))
+        .doWithConnection(connection -> {
+          // Start with an empty cache, even if the connection's schema has
+          // been used before
+          cache(connection).invalidateAll();
+          consumer.accept(connection);
+        });
+  }
+
+  /** Returns the cache for a connection, creating it if necessary. */
+  private static PreparedPlanCache cache(CalciteConnection connection) {
+    final CalciteSchema rootSchema =
+        CalciteSchema.from(connection.getRootSchema());
+    final PreparedPlanCache cache = PreparedPlanCache.of(rootSchema);
+    return cache != null ? cache : PreparedPlanCache.of(rootSchema, 10);
+  }
+
+  private static void assertQuery(CalciteConnection connection, String sql,
+      String expected) {
+    assertThat(query(connection, sql), is(expected));
+  }
+
+  private static String query(CalciteConnection connection, String sql) {
+    try (Statement statement = connection.createStatement()) {
+      return toString(statement.executeQuery(sql));
+    } catch (SQLException e) {
+      throw TestUtil.rethrow(e);
+    }
+  }
+
+  private static String toString(ResultSet resultSet) throws SQLException {
+    final StringBuilder b = new StringBuilder();
+    while (resultSet.next()) {
+      b.append(resultSet.getString(1)).append(';');
+    }
+    return b.toString();
+  }
+}
+
+// End PreparedPlanCacheTest.java
@@ -20,6 +20,10 @@
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.rel.metadata.NullSentinel;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.test.CalciteAssert;
 import org.apache.calcite.test.Matchers;
 import org.apache.calcite.test.SlowTests;
@@ -38,6 +42,9 @@
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -50,10 +57,13 @@
 import java.util.Objects;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
@@ -240,6 +250,57 @@ public class ProfilerTest {
         "{type:distribution,columns:[],cardinality:1,expectedCardinality:1,surprise:0}");
   }
 
+  /** As {@link #testProfileScott3()}, but computes combinations in several
+   * threads. Results should be the same. */
+  @Test public void testProfileScottParallel() throws Exception {
+    scott().factory(Fluid.PARALLEL_FACTORY).unordered(
+        "{type:distribution,columns:[COMM],values:[0.00,300.00,500.00,1400.00],cardinality:5,nullCount:10,expectedCardinality:14,surprise:0.474}",
+        "{type:distribution,columns:[DEPTNO,DEPTNO0,DNAME,LOC],cardinality:3,expectedCardinality:7.2698,surprise:0.416}",
+        "{type:distribution,columns:[DEPTNO,DEPTNO0],cardinality:3,expectedCardinality:7.2698,surprise:0.416}",
+        "{type:distribution,columns:[DEPTNO,DNAME],cardinality:3,expectedCardinality:7.2698,surprise:0.416}",
+        "{type:distribution,columns:[DEPTNO,LOC],cardinality:3,expectedCardinality:7.2698,surprise:0.416}",
+        "{type:distribution,columns:[DEPTNO0,DNAME,LOC],cardinality:3,expectedCardinality:14,surprise:0.647}",
+        "{type:distribution,columns:[DEPTNO0],values:[10,20,30],cardinality:3,expectedCardinality:14,surprise:0.647}",
+        "{type:distribution,columns:[DEPTNO],values:[10,20,30],cardinality:3,expectedCardinality:14,surprise:0.647}",
+        "{type:distribution,columns:[DNAME],values:[ACCOUNTING,RESEARCH,SALES],cardinality:3,expectedCardinality:14,surprise:0.647}",
+        "{type:distribution,columns:[EMPNO],values:[7369,7499,7521,7566,7654,7698,7782,7788,7839,7844,7876,7900,7902,7934],cardinality:14,expectedCardinality:14,surprise:0}",
+        "{type:distribution,columns:[ENAME],values:[ADAMS,ALLEN,BLAKE,CLARK,FORD,JAMES,JONES,KING,MARTIN,MILLER,SCOTT,SMITH,TURNER,WARD],cardinality:14,expectedCardinality:14,surprise:0}",
+        "{type:distribution,columns:[HIREDATE],values:[1980-12-17,1981-01-05,1981-02-04,1981-02-20,1981-02-22,1981-06-09,1981-09-08,1981-09-28,1981-11-17,1981-12-03,1982-01-23,1987-04-19,1987-05-23],cardinality:13,expectedCardinality:14,surprise:0.0370}",
+        "{type:distribution,columns:[JOB],values:[ANALYST,CLERK,MANAGER,PRESIDENT,SALESMAN],cardinality:5,expectedCardinality:14,surprise:0.474}",
+        "{type:distribution,columns:[LOC],values:[CHICAGO,DALLAS,NEWYORK],cardinality:3,expectedCardinality:14,surprise:0.647}",
+        "{type:distribution,columns:[MGR],values:[7566,7698,7782,7788,7839,7902],cardinality:7,nullCount:1,expectedCardinality:14,surprise:0.333}",
+        "{type:distribution,columns:[SAL],values:[800.00,950.00,1100.00,1250.00,1300.00,1500.00,1600.00,2450.00,2850.00,2975.00,3000.00,5000.00],cardinality:12,expectedCardinality:14,surprise:0.0769}",
+        "{type:distribution,columns:[],cardinality:1,expectedCardinality:1,surprise:0}");
+  }
+
+  /** Profiles a sample of 10 of the 14 rows, and estimates cardinalities of
+   * the whole data set from the sample. Every sampled value of HIREDATE and
+   * SAL is distinct, so they are assumed to be keys (they have 13 and 12
+   * distinct values); the sample misses some values of COMM and MGR. */
+  @Test public void testProfileScottSample() throws Exception {
+    sql("select * from \"scott\".emp")
+        .factory(Fluid.SAMPLING_FACTORY)
+        .where(s -> s instanceof Profiler.Sample
+            || s instanceof Profiler.RowCount
+            || s instanceof Profiler.Distribution
+            && ((Profiler.Distribution) s).columns.size() == 1)
+        .project(
+            ImmutableList.<String>builder().addAll(Fluid.DEFAULT_COLUMNS)
+                .add("sampleRowCount", "errorBound")
+                .build())
+        .unordered(
+            "{type:distribution,columns:[COMM],cardinality:3,nullCount:11}",
+            "{type:distribution,columns:[DEPTNO],cardinality:3}",
+            "{type:distribution,columns:[EMPNO],cardinality:14}",
+            "{type:distribution,columns:[ENAME],cardinality:14}",
+            "{type:distribution,columns:[HIREDATE],cardinality:14}",
+            "{type:distribution,columns:[JOB],cardinality:5}",
+            "{type:distribution,columns:[MGR],cardinality:6,nullCount:1}",
+            "{type:distribution,columns:[SAL],cardinality:14}",
+            "{type:rowCount,rowCount:14}",
+            "{type:sample,sampleRowCount:10,rowCount:14,errorBound:1.18}");
+  }
+
   /** As {@link #testProfileScott3()}, but uses the breadth-first profiler
    * and deems everything uninteresting. Only first-level combinations (those
    * consisting of a single column) are computed. */
@@ -370,6 +431,90 @@ public class ProfilerTest {
     assertThat(q.isValid(), is(true));
   }
 
+  /** Tests {@link TableStatistics}, the statistics that
+   * {@code ANALYZE TABLE} computes. */
+  @Test public void testTableStatistics() {
+    // Column "i" has values 0 .. 999; column "s" is null in 1 row in 10,
+    // and half of the rows have the value "x".
+    final List<List<Comparable>> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      final Comparable s = i % 10 == 0 ? NullSentinel.INSTANCE
+          : i < 500 ? "x"
+          : "y" + (i % 7);
+      rows.add(ImmutableList.of(i, s));
+    }
+    final AtomicInteger readCount = new AtomicInteger();
+    final Iterable<List<Comparable>> rowsOnce = () -> {
+      readCount.incrementAndGet();
+      return rows.iterator();
+    };
+    final TableStatistics statistics =
+        TableStatistics.analyze(rowsOnce, ImmutableList.of("i", "s"), 10,
+            10_000);
+    assertThat(readCount.get(), is(1));
+    assertThat(statistics.rowCount, is(1000D));
+
+    final TableStatistics.ColumnStatistics i = statistics.column("i");
+    // Number of distinct values is estimated, and is close to 1000
+    assertThat(Math.abs(i.distinctCount - 1000D) < 20D, is(true));
+    assertThat(i.nullFraction, is(0D));
+    assertThat(i.min, is((Comparable) 0D));
+    assertThat(i.max, is((Comparable) 999D));
+    assertThat(i.bounds.size(), is(11));
+    // Interpolates within the bucket [200, 300)
+    assertThat(i.rangeSelectivity(null, false, 250D, false), is(0.25D));
+    assertThat(i.rangeSelectivity(500D, true, null, false), is(0.5D));
+    assertThat(i.equalSelectivity(-1D), is(0D));
+    assertThat(i.equalSelectivity(1_000D), is(0D));
+
+    final TableStatistics.ColumnStatistics s = statistics.column("s");
+    assertThat(s.distinctCount, is(8D));
+    assertThat(s.nullFraction, is(0.1D));
+    assertThat(s.min, is((Comparable) "x"));
+    assertThat(s.max, is((Comparable) "y6"));
+    // "x" fills half of the buckets, so is more frequent than the 1 in 8
+    // that the number of distinct values suggests
+    assertThat(s.equalSelectivity("x"), is(0.45D));
+    assertThat(s.equalSelectivity("y3"), is(0.9D / 8D));
+    assertThat(s.equalSelectivity("z"), is(0D));
+  }
+
+  /** Tests that {@link StatisticsCatalog} ignores statistics that were
+   * computed for a different row type, and forgets statistics that have been
+   * removed, including those written to its directory. */
+  @Test public void testStatisticsCatalog() throws IOException {
+    final File directory = Files.createTempDirectory("stats").toFile();
+    final List<String> name = ImmutableList.of("s", "t");
+    final String rowType = "RecordType(INTEGER i)";
+    final Table table = new AbstractTable() {
+      public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    final TableStatistics statistics =
+        TableStatistics.analyze(ImmutableList.of(ImmutableList.of(1)),
+            ImmutableList.of("i"), 10, 10);
+    new StatisticsCatalog(directory).put(name, table, rowType, statistics);
+
+    // A new catalog reads the statistics from the file, but only if the row
+    // type matches
+    assertThat(new StatisticsCatalog(directory).get(name, table, rowType),
+        notNullValue());
+    assertThat(
+        new StatisticsCatalog(directory)
+            .get(name, table, "RecordType(BIGINT i)"),
+        nullValue());
+
+    // After the statistics are removed, such as when the table is dropped, a
+    // table with the same name and row type has no statistics
+    final StatisticsCatalog catalog = new StatisticsCatalog(directory);
+    assertThat(catalog.get(name, table, rowType), notNullValue());
+    catalog.remove(name, table);
+    assertThat(catalog.get(name, table, rowType), nullValue());
+    assertThat(new StatisticsCatalog(directory).get(name, table, rowType),
+        nullValue());
+  }
+
   private Fluid scott() throws Exception {
     final String sql = "select * from \"scott\".emp\n"
         + "join \"scott\".dept on emp.deptno = dept.deptno";
@@ -454,6 +599,12 @@ public int compare(Profiler.Statistic left,
           return distribution.surprise() >= 0.3D;
         });
 
+    static final Supplier<Profiler> PARALLEL_FACTORY =
+        () -> new ProfilerImpl(600, 200, p -> true, 4, 0);
+
+    static final Supplier<Profiler> SAMPLING_FACTORY =
+        () -> new ProfilerImpl(600, 200, p -> true, 1, 10);
+
     private static final Supplier<Profiler> INCURIOUS_PROFILER_FACTORY =
         () -> new ProfilerImpl(10, 200, p -> false);
 
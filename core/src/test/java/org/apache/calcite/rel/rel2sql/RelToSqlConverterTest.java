@@ -60,6 +60,7 @@
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -352,6 +353,52 @@ private static String toSql(RelNode root, SqlDialect dialect) {
     assertThat(toSql(root), notNullValue());
   }
 
+  /** Tests that a filter that has been simplified to a call to
+   * {@code SEARCH} becomes an {@code IN} list, a {@code NOT IN} list, or a
+   * disjunction of comparisons. */
+  @Test public void testSearch() {
+    final RelBuilder builder = relBuilder().scan("EMP");
+    final List<RexNode> equals = new ArrayList<>();
+    final List<RexNode> notEquals = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      equals.add(
+          builder.equals(builder.field("EMPNO"), builder.literal(7900 + i)));
+      notEquals.add(
+          builder.call(SqlStdOperatorTable.NOT_EQUALS, builder.field("EMPNO"),
+              builder.literal(7900 + i)));
+    }
+    final String values = IntStream.range(7900, 7920)
+        .mapToObj(String::valueOf)
+        .collect(Collectors.joining(", "));
+    final RelNode in = builder.filter(builder.or(equals)).build();
+    final String expectedIn = "SELECT *\n"
+        + "FROM \"scott\".\"EMP\"\n"
+        + "WHERE \"EMPNO\" IN (" + values + ")";
+    assertThat(toSql(in), isLinux(expectedIn));
+
+    final RelNode notIn = builder.scan("EMP")
+        .filter(builder.and(notEquals))
+        .build();
+    final String expectedNotIn = "SELECT *\n"
+        + "FROM \"scott\".\"EMP\"\n"
+        + "WHERE \"EMPNO\" NOT IN (" + values + ")";
+    assertThat(toSql(notIn), isLinux(expectedNotIn));
+
+    builder.scan("EMP");
+    equals.add(
+        builder.call(SqlStdOperatorTable.GREATER_THAN, builder.field("EMPNO"),
+            builder.literal(8000)));
+    final RelNode range = builder.filter(builder.or(equals)).build();
+    final String expectedRange = "SELECT *\n"
+        + "FROM \"scott\".\"EMP\"\n"
+        + "WHERE "
+        + IntStream.range(7900, 7920)
+            .mapToObj(i -> "\"EMPNO\" = " + i + " OR ")
+            .collect(Collectors.joining())
+        + "\"EMPNO\" > 8000";
+    assertThat(toSql(range), isLinux(expectedRange));
+  }
+
   /** Test case for
    * <a href="https://issues.apache.org/jira/browse/CALCITE-1946">[CALCITE-1946]
    * JDBC adapter should generate sub-SELECT if dialect does not support nested
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link ParallelEnumerables}.
+ */
+public class ParallelEnumerablesTest {
+  private static List<Integer> ints(int count) {
+    final List<Integer> list = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      list.add(i);
+    }
+    return list;
+  }
+
+  /** Rows arrive in order, across several batches, and the enumerable can be
+   * read more than once. */
+  @Test public void testExchange() {
+    final List<Integer> ints = ints(ParallelEnumerables.BATCH_SIZE * 10 + 3);
+    final Enumerable<Integer> exchange =
+        ParallelEnumerables.exchange(Linq4j.asEnumerable(ints), 2);
+    assertThat(exchange.toList(), equalTo(ints));
+    assertThat(exchange.toList(), equalTo(ints));
+    assertThat(ParallelEnumerables.exchange(Linq4j.asEnumerable(ints(0)), 2)
+        .toList().isEmpty(), is(true));
+  }
+
+  /** Exchanges nested within exchanges do not starve each other of
+   * threads. */
+  @Test public void testNestedExchange() {
+    final List<Integer> ints = ints(10_000);
+    Enumerable<Integer> e = Linq4j.asEnumerable(ints);
+    for (int i = 0; i < 8; i++) {
+      e = ParallelEnumerables.exchange(e, 1);
+    }
+    assertThat(e.toList(), equalTo(ints));
+  }
+
+  /** An exception in the producer is thrown to the consumer. */
+  @Test public void testExchangeFails() {
+    final Enumerable<Integer> exchange =
+        ParallelEnumerables.exchange(
+            Linq4j.asEnumerable(ints(1_000)).select(i -> {
+              if (i == 700) {
+                throw new IllegalStateException("bad row " + i);
+              }
+              return i;
+            }), 2);
+    final AtomicInteger count = new AtomicInteger();
+    try (Enumerator<Integer> enumerator = exchange.enumerator()) {
+      while (enumerator.moveNext()) {
+        count.incrementAndGet();
+      }
+      fail("expected error");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("bad row 700"));
+    }
+    assertThat(count.get(), is(700));
+  }
+
+  /** Closing the consumer early stops the producer. */
+  @Test public void testExchangeClose() throws InterruptedException {
+    final AtomicInteger produced = new AtomicInteger();
+    final Enumerable<Integer> exchange =
+        ParallelEnumerables.exchange(
+            Linq4j.asEnumerable(ints(1_000_000))
+                .select(i -> produced.incrementAndGet()), 2);
+    try (Enumerator<Integer> enumerator = exchange.enumerator()) {
+      assertThat(enumerator.moveNext(), is(true));
+      assertThat(enumerator.current(), is(1));
+    }
+    Thread.sleep(500);
+    final int n = produced.get();
+    Thread.sleep(200);
+    assertThat(produced.get(), is(n));
+    assertThat(n < 1_000_000, is(true));
+  }
+
+  /** Closing the consumer waits until the producer has closed its enumerator
+   * of the source. */
+  @Test public void testExchangeCloseWaitsForProducer() {
+    final AtomicInteger open = new AtomicInteger();
+    final Enumerable<Integer> source = new AbstractEnumerable<Integer>() {
+      public Enumerator<Integer> enumerator() {
+        open.incrementAndGet();
+        final Enumerator<Integer> enumerator =
+            Linq4j.enumerator(ints(1_000_000));
+        return new Enumerator<Integer>() {
+          public Integer current() {
+            return enumerator.current();
+          }
+
+          public boolean moveNext() {
+            return enumerator.moveNext();
+          }
+
+          public void reset() {
+            enumerator.reset();
+          }
+
+          public void close() {
+            open.decrementAndGet();
+          }
+        };
+      }
+    };
+    final Enumerable<Integer> exchange =
+        ParallelEnumerables.exchange(source, 2);
+    for (int i = 0; i < 10; i++) {
+      try (Enumerator<Integer> enumerator = exchange.enumerator()) {
+        assertThat(enumerator.moveNext(), is(true));
+      }
+      assertThat(open.get(), is(0));
+    }
+  }
+
+  /** Each row goes to exactly one partition, rows with equal keys go to the
+   * same partition, and the merge returns the rows of every copy. The merge
+   * can be read more than once. */
+  @Test public void testPartitionMerge() {
+    final List<Integer> ints = ints(ParallelEnumerables.BATCH_SIZE * 20 + 7);
+    final ParallelEnumerables.Partitioner<Integer> partitioner =
+        ParallelEnumerables.partitioner(Linq4j.asEnumerable(ints),
+            i -> i % 100, 4, 4);
+    // Each copy returns [key, partition] for each row
+    final Enumerable<List<Integer>> merge =
+        ParallelEnumerables.merge(
+            partition -> partitioner.partition(partition)
+                .select(i -> Arrays.asList(i, partition)),
+            4, 4, new ParallelEnumerables.Partitioner[] {partitioner});
+    for (int round = 0; round < 2; round++) {
+      final List<Integer> values = new ArrayList<>();
+      final Map<Integer, Integer> partitions = new HashMap<>();
+      for (List<Integer> pair : merge) {
+        values.add(pair.get(0));
+        final Integer previous = partitions.put(pair.get(0) % 100, pair.get(1));
+        assertThat(previous == null || previous.equals(pair.get(1)), is(true));
+      }
+      Collections.sort(values);
+      assertThat(values, equalTo(ints));
+      assertThat(new HashSet<>(partitions.values()).size(), is(4));
+    }
+  }
+
+  /** An exception while partitioning is thrown to the consumer of the
+   * merge. */
+  @Test public void testPartitionFails() {
+    final ParallelEnumerables.Partitioner<Integer> partitioner =
+        ParallelEnumerables.partitioner(
+            Linq4j.asEnumerable(ints(1_000)).select(i -> {
+              if (i == 700) {
+                throw new IllegalStateException("bad row " + i);
+              }
+              return i;
+            }), i -> i, 3, 2);
+    final Enumerable<Integer> merge =
+        ParallelEnumerables.merge(partitioner::partition, 3, 2,
+            new ParallelEnumerables.Partitioner[] {partitioner});
+    try {
+      merge.toList();
+      fail("expected error");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("bad row 700"));
+    }
+  }
+
+  /** Closing the merge early stops the partitioner and the copies. */
+  @Test public void testMergeClose() throws InterruptedException {
+    final AtomicInteger produced = new AtomicInteger();
+    final ParallelEnumerables.Partitioner<Integer> partitioner =
+        ParallelEnumerables.partitioner(
+            Linq4j.asEnumerable(ints(1_000_000))
+                .select(i -> produced.incrementAndGet()), i -> i, 4, 4);
+    final Enumerable<Integer> merge =
+        ParallelEnumerables.merge(partitioner::partition, 4, 4,
+            new ParallelEnumerables.Partitioner[] {partitioner});
+    try (Enumerator<Integer> enumerator = merge.enumerator()) {
+      assertThat(enumerator.moveNext(), is(true));
+    }
+    final int n = produced.get();
+    Thread.sleep(200);
+    assertThat(produced.get(), is(n));
+    assertThat(n < 1_000_000, is(true));
+  }
+}
+
+// End ParallelEnumerablesTest.java
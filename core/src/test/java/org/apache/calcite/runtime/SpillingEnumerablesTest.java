@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function2;
+import org.apache.calcite.test.CalciteAssert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link SpillingEnumerables} and {@link SpillFile}.
+ */
+public class SpillingEnumerablesTest {
+  /** Rows of the form [id, key], with keys repeating and out of order. */
+  private static List<Object[]> rows(int count, int keyCount) {
+    final List<Object[]> list = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      list.add(new Object[] {i, (i * 7) % keyCount});
+    }
+    return list;
+  }
+
+  @Test public void testOrderBy() {
+    final List<Object[]> rows = rows(1000, 13);
+    final AtomicLong spilled = new AtomicLong();
+    final List<Object[]> expected =
+        Linq4j.asEnumerable(rows)
+            .orderBy(row -> (Integer) row[1])
+            .toList();
+    final List<Object[]> actual;
+    try (Hook.Closeable ignore =
+             Hook.SPILL.addThread((Consumer<Long>) spilled::addAndGet)) {
+      actual =
+          SpillingEnumerables.orderBy(Linq4j.asEnumerable(rows),
+              row -> (Integer) row[1], null, 64L)
+              .toList();
+    }
+    // Same order, including the order of rows with equal keys
+    assertThat(toString(actual), equalTo(toString(expected)));
+    assertThat(spilled.get() > 0, is(true));
+  }
+
+  @Test public void testOrderByFitsInMemory() {
+    final List<Object[]> rows = rows(10, 3);
+    final AtomicLong spilled = new AtomicLong();
+    final List<Object[]> actual;
+    try (Hook.Closeable ignore =
+             Hook.SPILL.addThread((Consumer<Long>) spilled::addAndGet)) {
+      actual =
+          SpillingEnumerables.orderBy(Linq4j.asEnumerable(rows),
+              row -> (Integer) row[1], Collections.reverseOrder(), 64L)
+              .toList();
+    }
+    assertThat(toString(actual),
+        equalTo("[2, 2] [5, 2] [8, 2] [1, 1] [4, 1] [7, 1] [0, 0] [3, 0] "
+            + "[6, 0] [9, 0]"));
+    assertThat(spilled.get(), is(0L));
+  }
+
+  @Test public void testJoin() {
+    final List<Object[]> lefts = rows(500, 50);
+    final List<Object[]> rights = rows(300, 70);
+    lefts.add(new Object[] {-1, null});
+    rights.add(new Object[] {-2, null});
+    final Function2<Object[], Object[], String> resultSelector =
+        (left, right) -> (left == null ? null : left[0])
+            + ":" + (right == null ? null : right[0]);
+    for (boolean generateNullsOnLeft : new boolean[] {false, true}) {
+      for (boolean generateNullsOnRight : new boolean[] {false, true}) {
+        final Enumerable<String> expected =
+            EnumerableDefaults.join(Linq4j.asEnumerable(lefts),
+                Linq4j.asEnumerable(rights), row -> (Integer) row[1],
+                row -> (Integer) row[1], resultSelector, null,
+                generateNullsOnLeft, generateNullsOnRight);
+        final AtomicLong spilled = new AtomicLong();
+        final Enumerable<String> actual;
+        try (Hook.Closeable ignore =
+                 Hook.SPILL.addThread((Consumer<Long>) spilled::addAndGet)) {
+          actual =
+              SpillingEnumerables.join(Linq4j.asEnumerable(lefts),
+                  Linq4j.asEnumerable(rights), row -> (Integer) row[1],
+                  row -> (Integer) row[1], resultSelector, null,
+                  generateNullsOnLeft, generateNullsOnRight, 100L);
+          assertThat(sorted(actual), equalTo(sorted(expected)));
+        }
+        assertThat(spilled.get() > 0, is(true));
+      }
+    }
+  }
+
+  /** Rows that cannot be serialized are sorted and joined in memory, rather
+   * than failing when the threshold is reached. */
+  @Test public void testNotSerializable() {
+    final List<Object[]> rows = new ArrayList<>();
+    for (Object[] row : rows(200, 13)) {
+      rows.add(new Object[] {row[0], row[1], new Object()});
+    }
+    assertThat(SpillFile.isSerializable(rows.get(0)), is(false));
+    assertThat(SpillFile.isSerializable(rows(1, 1).get(0)), is(true));
+    final AtomicLong spilled = new AtomicLong();
+    try (Hook.Closeable ignore =
+             Hook.SPILL.addThread((Consumer<Long>) spilled::addAndGet)) {
+      final List<Object[]> sorted =
+          SpillingEnumerables.orderBy(Linq4j.asEnumerable(rows),
+              row -> (Integer) row[1], null, 16L)
+              .toList();
+      assertThat(sorted,
+          equalTo(
+              Linq4j.asEnumerable(rows)
+                  .orderBy(row -> (Integer) row[1])
+                  .toList()));
+
+      final Function2<Object[], Object[], String> resultSelector =
+          (left, right) -> left[0] + ":" + right[0];
+      final Enumerable<String> expected =
+          EnumerableDefaults.join(Linq4j.asEnumerable(rows),
+              Linq4j.asEnumerable(rows), row -> (Integer) row[1],
+              row -> (Integer) row[1], resultSelector, null, false, false);
+      final Enumerable<String> actual =
+          SpillingEnumerables.join(Linq4j.asEnumerable(rows),
+              Linq4j.asEnumerable(rows), row -> (Integer) row[1],
+              row -> (Integer) row[1], resultSelector, null, false, false,
+              16L);
+      assertThat(sorted(actual), equalTo(sorted(expected)));
+    }
+    assertThat(spilled.get(), is(0L));
+  }
+
+  /** Sorts and joins with a connection that has a small
+   * {@link CalciteConnectionProperty#SPILL_ROW_THRESHOLD}. */
+  @Test public void testSpillRowThreshold() {
+    final AtomicLong spilled = new AtomicLong();
+    try (Hook.Closeable ignore =
+             Hook.SPILL.addThread((Consumer<Long>) spilled::addAndGet)) {
+      CalciteAssert.hr()
+          .with(CalciteConnectionProperty.SPILL_ROW_THRESHOLD, 2)
+          .query("select e.\"name\", d.\"name\" as \"dname\"\n"
+              + "from \"hr\".\"emps\" as e\n"
+              + "join (select \"deptno\", \"name\" from \"hr\".\"depts\") as d\n"
+              + "on e.\"commission\" / 100 = d.\"deptno\"\n"
+              + "order by e.\"name\" desc")
+          .planContains("SpillingEnumerables.join(")
+          .planContains("SpillingEnumerables.orderBy(")
+          .returns("name=Bill; dname=Sales\n");
+    }
+    assertThat(spilled.get() > 0, is(true));
+  }
+
+  private static String toString(List<Object[]> rows) {
+    final StringBuilder b = new StringBuilder();
+    for (Object[] row : rows) {
+      if (b.length() > 0) {
+        b.append(' ');
+      }
+      b.append(Arrays.toString(row));
+    }
+    return b.toString();
+  }
+
+  private static List<String> sorted(Enumerable<String> enumerable) {
+    final List<String> list = new ArrayList<>(enumerable.toList());
+    Collections.sort(list);
+    return list;
+  }
+}
+
+// End SpillingEnumerablesTest.java
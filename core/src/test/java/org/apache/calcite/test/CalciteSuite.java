@@ -31,6 +31,7 @@
 import org.apache.calcite.plan.volcano.VolcanoPlannerTest;
 import org.apache.calcite.plan.volcano.VolcanoPlannerTraitTest;
 import org.apache.calcite.prepare.LookupOperatorOverloadsTest;
+import org.apache.calcite.prepare.PreparedPlanCacheTest;
 import org.apache.calcite.profile.ProfilerTest;
 import org.apache.calcite.rel.RelCollationTest;
 import org.apache.calcite.rel.RelDistributionTest;
@@ -42,6 +43,8 @@
 import org.apache.calcite.rex.RexSqlStandardConvertletTableTest;
 import org.apache.calcite.runtime.BinarySearchTest;
 import org.apache.calcite.runtime.EnumerablesTest;
+import org.apache.calcite.runtime.ParallelEnumerablesTest;
+import org.apache.calcite.runtime.SpillingEnumerablesTest;
 import org.apache.calcite.sql.SqlSetOptionOperatorTest;
 import org.apache.calcite.sql.parser.SqlParserTest;
 import org.apache.calcite.sql.parser.SqlUnParserTest;
@@ -54,7 +57,11 @@
 import org.apache.calcite.sql.type.SqlTypeUtilTest;
 import org.apache.calcite.sql.validate.LexCaseSensitiveTest;
 import org.apache.calcite.sql.validate.SqlValidatorUtilTest;
+import org.apache.calcite.test.enumerable.CompiledPlanCacheTest;
+import org.apache.calcite.test.enumerable.EnumerableBatchNestedLoopJoinTest;
 import org.apache.calcite.test.enumerable.EnumerableCorrelateTest;
+import org.apache.calcite.test.enumerable.EnumerableExchangeTest;
+import org.apache.calcite.test.enumerable.EnumerableJoinTest;
 import org.apache.calcite.test.fuzzer.RexProgramFuzzyTest;
 import org.apache.calcite.tools.FrameworksTest;
 import org.apache.calcite.tools.PlannerTest;
@@ -120,6 +127,8 @@
     RexTransformerTest.class,
     BinarySearchTest.class,
     EnumerablesTest.class,
+    ParallelEnumerablesTest.class,
+    SpillingEnumerablesTest.class,
     ExceptionMessageTest.class,
     InduceGroupingTypeTest.class,
     RelOptPlanReaderTest.class,
@@ -150,7 +159,12 @@
     ChunkListTest.class,
     FrameworksTest.class,
     EnumerableCorrelateTest.class,
+    EnumerableJoinTest.class,
+    EnumerableBatchNestedLoopJoinTest.class,
+    EnumerableExchangeTest.class,
+    CompiledPlanCacheTest.class,
     LookupOperatorOverloadsTest.class,
+    PreparedPlanCacheTest.class,
     LexCaseSensitiveTest.class,
     CollationConversionTest.class,
     TraitConversionTest.class,
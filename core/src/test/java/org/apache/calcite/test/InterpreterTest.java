@@ -18,12 +18,22 @@
 
 import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.config.CalciteSystemProperty;
 import org.apache.calcite.interpreter.Interpreter;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.parser.SqlParser;
+import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.tools.FrameworkConfig;
 import org.apache.calcite.tools.Frameworks;
 import org.apache.calcite.tools.Planner;
@@ -36,9 +46,13 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit tests for {@link org.apache.calcite.interpreter.Interpreter}.
@@ -291,6 +305,268 @@ private static void assertRows(Interpreter interpreter,
     final Interpreter interpreter = new Interpreter(dataContext, convert);
     assertRows(interpreter, "[0]", "[10]", "[20]", "[30]");
   }
+
+  /** Tests executing an inner equi-join using an interpreter. */
+  @Test public void testInterpretJoin() throws Exception {
+    final String sql = "select t.x, t.y, u.z\n"
+        + "from (values (1, 'a'), (2, 'b'), (3, 'c')) as t(x, y)\n"
+        + "join (values (2, 'BB'), (3, 'CC'), (3, 'CX'), (4, 'DD')) as u(x, z)\n"
+        + "on t.x = u.x";
+    final Interpreter interpreter = interpreter(sql);
+    assertRowsUnordered(interpreter, "[2, b, BB]", "[3, c, CC]", "[3, c, CX]");
+  }
+
+  /** Tests executing a left join whose condition is not just equalities
+   * using an interpreter. */
+  @Test public void testInterpretLeftJoin() throws Exception {
+    final String sql = "select t.x, t.y, u.z\n"
+        + "from (values (1, 'a'), (2, 'b'), (3, 'c')) as t(x, y)\n"
+        + "left join (values (2, 'BB'), (3, 'CC'), (3, 'CX')) as u(x, z)\n"
+        + "on t.x = u.x and u.z <> 'CX'";
+    final Interpreter interpreter = interpreter(sql);
+    assertRowsUnordered(interpreter, "[1, a, null]", "[2, b, BB]",
+        "[3, c, CC]");
+  }
+
+  /** Tests executing a right join using an interpreter; the left input is
+   * smaller, so is the build side. */
+  @Test public void testInterpretRightJoin() throws Exception {
+    final String sql = "select t.x, t.y, u.z\n"
+        + "from (values (1, 'a'), (2, 'b')) as t(x, y)\n"
+        + "right join (values (2, 'B'), (3, 'C'), (4, 'D')) as u(x, z)\n"
+        + "on t.x = u.x";
+    final Interpreter interpreter = interpreter(sql);
+    assertRowsUnordered(interpreter,
+        "[2, b, B]", "[null, null, C]", "[null, null, D]");
+  }
+
+  /** Tests executing a full join, with null keys, using an interpreter. */
+  @Test public void testInterpretFullJoin() throws Exception {
+    final String sql = "select t.x, t.y, u.z\n"
+        + "from (select nullif(x, 0) as x, y\n"
+        + "  from (values (1, 'a'), (2, 'b'), (0, 'n')) as t(x, y)) as t\n"
+        + "full join (select nullif(x, 0) as x, z\n"
+        + "  from (values (2, 'B'), (0, 'N')) as u(x, z)) as u\n"
+        + "on t.x = u.x";
+    final Interpreter interpreter = interpreter(sql);
+    assertRowsUnordered(interpreter,
+        "[1, a, null]", "[2, b, B]", "[null, n, null]", "[null, null, N]");
+  }
+
+  /** Tests executing a join without equalities using an interpreter. */
+  @Test public void testInterpretThetaJoin() throws Exception {
+    final String sql = "select t.x, u.x\n"
+        + "from (values 1, 2, 3) as t(x)\n"
+        + "join (values 2, 3) as u(x)\n"
+        + "on t.x > u.x";
+    final Interpreter interpreter = interpreter(sql);
+    assertRowsUnordered(interpreter, "[3, 2]");
+  }
+
+  /** Tests executing an aggregate with several grouping sets using an
+   * interpreter. */
+  @Test public void testAggregateGroupingSets() throws Exception {
+    final String sql = "select x, y, count(*)\n"
+        + "from (values (1, 'a'), (1, 'b'), (2, 'b')) as t(x, y)\n"
+        + "group by grouping sets ((x), (y))";
+    final Interpreter interpreter = interpreter(sql);
+    assertRowsUnordered(interpreter,
+        "[1, null, 2]", "[2, null, 1]", "[null, a, 1]", "[null, b, 2]");
+  }
+
+  private Interpreter interpreter(String sql) throws Exception {
+    SqlNode parse = planner.parse(sql);
+    SqlNode validate = planner.validate(parse);
+    RelNode convert = planner.rel(validate).project();
+    return new Interpreter(dataContext, convert);
+  }
+
+  /** Tests that the interpreter streams rows, so that a query with a limit
+   * over an infinite table terminates. */
+  @Test public void testInterpretLimitInfinite() throws Exception {
+    rootSchema.add("infinite", new InfiniteTable());
+    SqlNode parse =
+        planner.parse("select \"i\" * 2 from \"infinite\"\n"
+            + "where \"i\" > 5 limit 3");
+
+    SqlNode validate = planner.validate(parse);
+    RelNode convert = planner.rel(validate).rel;
+
+    final Interpreter interpreter = new Interpreter(dataContext, convert);
+    assertRows(interpreter, "[12]", "[14]", "[16]");
+  }
+
+  /** Tests that an error in a node of the interpreter is thrown to the
+   * consumer. */
+  @Test public void testInterpretError() throws Exception {
+    rootSchema.add("simple", new ScannableTableTest.SimpleTable());
+    SqlNode parse =
+        planner.parse("select 10 / (\"i\" - 10) from \"simple\"");
+
+    SqlNode validate = planner.validate(parse);
+    RelNode convert = planner.rel(validate).rel;
+
+    final Interpreter interpreter = new Interpreter(dataContext, convert);
+    try {
+      assertRows(interpreter, "[-1]");
+      fail("expected error");
+    } catch (ArithmeticException e) {
+      assertThat(e.getMessage(), equalTo("/ by zero"));
+    }
+  }
+
+  /** Tests that an interpreter can be enumerated more than once. */
+  @Test public void testInterpretTwice() throws Exception {
+    rootSchema.add("simple", new ScannableTableTest.SimpleTable());
+    final Interpreter interpreter =
+        interpreter("select \"i\" * 2 from \"simple\" where \"i\" > 0");
+    assertRows(interpreter, "[20]", "[40]", "[60]");
+    assertRows(interpreter, "[20]", "[40]", "[60]");
+  }
+
+  /** Tests that closing an enumerator that has not been read to the end
+   * stops the nodes of the interpreter, and closes the table's enumerator;
+   * and that a closed interpreter cannot be enumerated. */
+  @Test public void testInterpretClose() throws Exception {
+    final InfiniteTable table = new InfiniteTable();
+    rootSchema.add("infinite", table);
+    final Interpreter interpreter =
+        interpreter("select \"i\" * 2 from \"infinite\"");
+    final Enumerator<Object[]> enumerator = interpreter.enumerator();
+    for (int i = 0; i < 3; i++) {
+      assertThat(enumerator.moveNext(), is(true));
+      assertThat(enumerator.current()[0], is((Object) (i * 2)));
+    }
+    enumerator.close();
+    assertThat(table.openCount.get(), is(0));
+
+    // Closing the interpreter stops enumerations that are in progress
+    final Enumerator<Object[]> enumerator2 = interpreter.enumerator();
+    assertThat(enumerator2.moveNext(), is(true));
+    interpreter.close();
+    assertThat(table.openCount.get(), is(0));
+    try {
+      final Enumerator<Object[]> enumerator3 = interpreter.enumerator();
+      fail("expected error, got " + enumerator3);
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("interpreter is closed"));
+    }
+  }
+
+  /** Tests that the interpreter does not use more threads than
+   * {@link CalciteSystemProperty#INTERPRETER_THREADS}, even if there are
+   * more enumerations in progress than threads; enumerations that cannot get
+   * a thread run their nodes in the calling thread. */
+  @Test public void testInterpretThreadLimit() throws Exception {
+    final int rowCount = 5_000;
+    rootSchema.add("range", new RangeTable(rowCount));
+    final int threadCount = CalciteSystemProperty.INTERPRETER_THREADS.value();
+    final Interpreter interpreter =
+        interpreter("select \"i\" * 2 from \"range\"");
+    final List<Enumerator<Object[]>> enumerators = new ArrayList<>();
+    try {
+      for (int i = 0; i < threadCount + 2; i++) {
+        final Enumerator<Object[]> enumerator = interpreter.enumerator();
+        enumerators.add(enumerator);
+        assertThat(enumerator.moveNext(), is(true));
+        assertThat(enumerator.current()[0], is((Object) 0));
+      }
+      assertTrue(interpreterThreadCount() <= threadCount);
+      for (Enumerator<Object[]> enumerator : enumerators) {
+        int n = 1;
+        while (enumerator.moveNext()) {
+          assertThat(enumerator.current()[0], is((Object) (n * 2)));
+          ++n;
+        }
+        assertThat(n, is(rowCount));
+      }
+    } finally {
+      for (Enumerator<Object[]> enumerator : enumerators) {
+        enumerator.close();
+      }
+    }
+  }
+
+  private static int interpreterThreadCount() {
+    int n = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("calcite-interpreter-")) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  /** Table with one column, whose rows are the integers 0, 1, 2, &hellip;
+   * up to a given count. */
+  private static class RangeTable extends AbstractTable
+      implements ScannableTable {
+    private final int rowCount;
+
+    RangeTable(int rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return typeFactory.builder()
+          .add("i", SqlTypeName.INTEGER)
+          .build();
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      final List<Object[]> rows = new ArrayList<>();
+      for (int i = 0; i < rowCount; i++) {
+        rows.add(new Object[] {i});
+      }
+      return Linq4j.asEnumerable(rows);
+    }
+  }
+
+  /** Table with one column, whose rows are the integers 0, 1, 2, &hellip;
+   * without end. */
+  private static class InfiniteTable extends AbstractTable
+      implements ScannableTable {
+    /** Number of enumerators that have been created and not closed. */
+    final AtomicInteger openCount = new AtomicInteger();
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return typeFactory.builder()
+          .add("i", SqlTypeName.INTEGER)
+          .build();
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      return new AbstractEnumerable<Object[]>() {
+        public Enumerator<Object[]> enumerator() {
+          openCount.incrementAndGet();
+          return new Enumerator<Object[]>() {
+            int i = -1;
+            boolean closed;
+
+            public Object[] current() {
+              return new Object[] {i};
+            }
+
+            public boolean moveNext() {
+              ++i;
+              return true;
+            }
+
+            public void reset() {
+              i = -1;
+            }
+
+            public void close() {
+              if (!closed) {
+                closed = true;
+                openCount.decrementAndGet();
+              }
+            }
+          };
+        }
+      };
+    }
+  }
 }
 
 // End InterpreterTest.java
@@ -752,6 +752,43 @@ private LockWrapper exclusiveCleanDb(Connection c) throws SQLException {
     });
   }
 
+  /** Tests that an INSERT is committed if the schema has a fetch size and
+   * {@code disableAutoCommitForFetch}, which cause statements to run with
+   * auto-commit turned off. */
+  @Test public void testTableModifyInsertWithFetchSize() throws Exception {
+    final String model = JdbcTest.FOODMART_MODEL
+        .replace("jdbcSchema: ", "fetchSize: 100,\n"
+            + "       disableAutoCommitForFetch: true,\n"
+            + "       jdbcSchema: ");
+    assertThat(model.contains("disableAutoCommitForFetch: true"), is(true));
+    final String sql = "INSERT INTO \"foodmart\".\"expense_fact\"(\n"
+        + " \"store_id\", \"account_id\", \"exp_date\", \"time_id\","
+        + " \"category_id\", \"currency_id\", \"amount\")\n"
+        + "VALUES (666, 777, TIMESTAMP '1997-01-01 00:00:00',"
+        + " 666, '666', 666, 666)";
+    final String jdbcSql = "INSERT INTO \"foodmart\".\"expense_fact\""
+        + " (\"store_id\", \"account_id\", \"exp_date\", \"time_id\","
+        + " \"category_id\", \"currency_id\", \"amount\")\n"
+        + "VALUES  (666, 777, TIMESTAMP '1997-01-01 00:00:00', 666, '666', 666, 666.0000)";
+    final AssertThat that =
+        CalciteAssert.model(model)
+            .enable(CalciteAssert.DB == DatabaseInstance.HSQLDB
+                || CalciteAssert.DB == DatabaseInstance.POSTGRESQL);
+    that.doWithConnection(connection -> {
+      try (LockWrapper ignore = exclusiveCleanDb(connection)) {
+        that.query(sql)
+            .planUpdateHasSql(jdbcSql, 1)
+            .planContains("enumerable.setFetchSize(100);")
+            .planContains("enumerable.setDisableAutoCommitForFetch(true);");
+        that.query("select count(*) as c from \"foodmart\".\"expense_fact\"\n"
+            + "where \"store_id\" = 666")
+            .returns("C=2\n");
+      } catch (SQLException e) {
+        throw TestUtil.rethrow(e);
+      }
+    });
+  }
+
   @Test public void testTableModifyInsertMultiValues() throws Exception {
     final String sql = "INSERT INTO \"foodmart\".\"expense_fact\"(\n"
         + " \"store_id\", \"account_id\", \"exp_date\", \"time_id\","
@@ -897,6 +934,98 @@ private LockWrapper exclusiveCleanDb(Connection c) throws SQLException {
         .planHasSql("SELECT \"EMPNO\", \"ENAME\"\nFROM \"SCOTT\".\"EMP\"\nWHERE \"EMPNO\" = ?");
   }
 
+  /** Tests a JDBC schema that sets a fetch size and reads rows ahead in a
+   * background thread. Uses a prefetch buffer smaller than the result, so
+   * that the background thread has to wait for the consumer. */
+  @Test public void testFetchSizeAndPrefetch() {
+    final String model = JdbcTest.SCOTT_MODEL
+        .replace("jdbcSchema: ",
+            "fetchSize: 2,\n       prefetchSize: 3,\n       jdbcSchema: ");
+    assertThat(model.contains("prefetchSize: 3"), is(true));
+    final CalciteAssert.AssertThat with = CalciteAssert.model(model);
+    with.query("select empno, comm from emp where empno < 7600")
+        .planContains("enumerable.setFetchSize(2);")
+        .planContains("enumerable.setPrefetchSize(3);")
+        .returnsUnordered("EMPNO=7369; COMM=null",
+            "EMPNO=7499; COMM=300.00",
+            "EMPNO=7521; COMM=500.00",
+            "EMPNO=7566; COMM=null");
+
+    // One column, with null values
+    with.query("select comm from emp")
+        .returnsCount(14);
+
+    // The consumer stops reading before the end
+    with.query("select empno from emp, dept")
+        .limit(5)
+        .returnsCount(5);
+
+    // Prepared statement
+    with.query("select empno, ename from emp where empno = ?")
+        .consumesPreparedStatement(p -> p.setInt(1, 7566))
+        .returns("EMPNO=7566; ENAME=JONES\n");
+  }
+
+  /** Tests that a scan of a JDBC table can be split into several queries
+   * that run concurrently. */
+  @Test public void testSplitScan() {
+    final String model = JdbcTest.SCOTT_MODEL
+        .replace("jdbcSchema: ",
+            "splitDegree: 3,\n"
+                + "       splitRowCount: 0,\n"
+                + "       splitColumns: {EMP: 'EMPNO', DEPT: 'DNAME'},\n"
+                + "       jdbcSchema: ");
+    assertThat(model.contains("splitDegree: 3"), is(true));
+    final CalciteAssert.AssertThat with = CalciteAssert.model(model);
+    with.query("select empno, ename from emp where deptno = 10")
+        .planHasSql("SELECT \"EMPNO\", \"ENAME\"\n"
+            + "FROM \"SCOTT\".\"EMP\"\n"
+            + "WHERE CAST(\"DEPTNO\" AS INTEGER) = 10"
+            + " AND (MOD(\"EMPNO\", 3) = 0"
+            + " OR \"EMPNO\" IS NULL)")
+        .planHasSql("SELECT \"EMPNO\", \"ENAME\"\n"
+            + "FROM \"SCOTT\".\"EMP\"\n"
+            + "WHERE CAST(\"DEPTNO\" AS INTEGER) = 10"
+            + " AND (MOD(\"EMPNO\", 3) = 2"
+            + " OR MOD(\"EMPNO\", 3) = -2)")
+        .returnsUnordered("EMPNO=7782; ENAME=CLARK",
+            "EMPNO=7839; ENAME=KING",
+            "EMPNO=7934; ENAME=MILLER");
+
+    // Every row is read exactly once
+    with.query("select empno from emp")
+        .returnsUnordered("EMPNO=7369", "EMPNO=7499", "EMPNO=7521",
+            "EMPNO=7566", "EMPNO=7654", "EMPNO=7698", "EMPNO=7782",
+            "EMPNO=7788", "EMPNO=7839", "EMPNO=7844", "EMPNO=7876",
+            "EMPNO=7900", "EMPNO=7902", "EMPNO=7934");
+
+    // DNAME is not an integer column, so scans of DEPT are not split
+    with.query("select * from dept")
+        .planHasSql("SELECT *\nFROM \"SCOTT\".\"DEPT\"")
+        .returnsCount(4);
+
+    // A query that the database aggregates is not split
+    with.query("select deptno, count(*) as c from emp group by deptno")
+        .planHasSql("SELECT \"DEPTNO\", COUNT(*) AS \"C\"\n"
+            + "FROM \"SCOTT\".\"EMP\"\n"
+            + "GROUP BY \"DEPTNO\"")
+        .returnsUnordered("DEPTNO=10; C=3", "DEPTNO=20; C=5",
+            "DEPTNO=30; C=6");
+
+    // The consumer stops reading before the end
+    with.query("select empno from emp")
+        .limit(5)
+        .returnsCount(5);
+
+    // By default, a scan that is estimated to return few rows is not split
+    final String model2 = model.replace("splitRowCount: 0,\n", "");
+    assertThat(model2.contains("splitRowCount"), is(false));
+    CalciteAssert.model(model2)
+        .query("select empno from emp")
+        .planHasSql("SELECT \"EMPNO\"\nFROM \"SCOTT\".\"EMP\"")
+        .returnsCount(14);
+  }
+
   /** Acquires a lock, and releases it when closed. */
   static class LockWrapper implements AutoCloseable {
     private final Lock lock;
@@ -74,7 +74,7 @@ public class JdbcFrontJdbcBackTest {
 
   @Test public void testTablesByType() throws Exception {
     // check with the form recommended by JDBC
-    checkTablesByType("SYSTEM TABLE", is("COLUMNS;TABLES;"));
+    checkTablesByType("SYSTEM TABLE", is("COLUMNS;TABLES;TILES;"));
     // the form we used until 1.14 no longer generates results
     checkTablesByType("SYSTEM_TABLE", is(""));
   }
@@ -2115,9 +2115,9 @@ private static List<Pair<String, String>> querify(String[] queries1) {
             + " UNNEST(d.\"employees\", array[1, 2]) with ordinality as e (ei, d, n, s, c, i, o)\n"
             + "where ei + i > 151")
         .returnsUnordered(
-            "name=HR; EI=200; D=20; N=Eric; S=8000.0; C=500; I=1; O=2",
-            "name=HR; EI=200; D=20; N=Eric; S=8000.0; C=500; I=2; O=4",
-            "name=Sales; EI=150; D=10; N=Sebastian; S=7000.0; C=null; I=2; O=5");
+            "name=HR; EI=200; D=20; N=Eric; S=8000.0; C=500; I=1; O=1",
+            "name=HR; EI=200; D=20; N=Eric; S=8000.0; C=500; I=2; O=2",
+            "name=Sales; EI=150; D=10; N=Sebastian; S=7000.0; C=null; I=2; O=4");
   }
 
   /** Test case for
@@ -2473,6 +2473,18 @@ private void checkNullableTimestamp(CalciteAssert.Config config) {
             + "T=eodore\n");
   }
 
+  /** Tests that a {@code LIKE} pattern that is a literal is compiled once,
+   * into a static field of the generated class. */
+  @Test public void testLikeLiteralPatternIsConstant() {
+    CalciteAssert.hr()
+        .query("select \"name\" from \"hr\".\"emps\"\n"
+            + "where \"name\" like '%ill%'")
+        .planContains("static final org.apache.calcite.runtime.LikeMatcher "
+            + "$L4J$C$org_apache_calcite_runtime_LikeMatcher_like_ill_ = "
+            + "org.apache.calcite.runtime.LikeMatcher.like(\"%ill%\");")
+        .returns("name=Bill\n");
+  }
+
   @Test public void testValues() {
     CalciteAssert.that()
         .query("values (1), (2)")
@@ -5332,7 +5344,8 @@ private CalciteAssert.AssertThat modelWithView(String view,
                   + "TABLE_CAT=null; TABLE_SCHEM=adhoc; TABLE_NAME=MUTABLE_EMPLOYEES; TABLE_TYPE=TABLE; REMARKS=null; TYPE_CAT=null; TYPE_SCHEM=null; TYPE_NAME=null; SELF_REFERENCING_COL_NAME=null; REF_GENERATION=null\n"
                   + "TABLE_CAT=null; TABLE_SCHEM=adhoc; TABLE_NAME=V; TABLE_TYPE=VIEW; REMARKS=null; TYPE_CAT=null; TYPE_SCHEM=null; TYPE_NAME=null; SELF_REFERENCING_COL_NAME=null; REF_GENERATION=null\n"
                   + "TABLE_CAT=null; TABLE_SCHEM=metadata; TABLE_NAME=COLUMNS; TABLE_TYPE=SYSTEM TABLE; REMARKS=null; TYPE_CAT=null; TYPE_SCHEM=null; TYPE_NAME=null; SELF_REFERENCING_COL_NAME=null; REF_GENERATION=null\n"
-                  + "TABLE_CAT=null; TABLE_SCHEM=metadata; TABLE_NAME=TABLES; TABLE_TYPE=SYSTEM TABLE; REMARKS=null; TYPE_CAT=null; TYPE_SCHEM=null; TYPE_NAME=null; SELF_REFERENCING_COL_NAME=null; REF_GENERATION=null\n",
+                  + "TABLE_CAT=null; TABLE_SCHEM=metadata; TABLE_NAME=TABLES; TABLE_TYPE=SYSTEM TABLE; REMARKS=null; TYPE_CAT=null; TYPE_SCHEM=null; TYPE_NAME=null; SELF_REFERENCING_COL_NAME=null; REF_GENERATION=null\n"
+                  + "TABLE_CAT=null; TABLE_SCHEM=metadata; TABLE_NAME=TILES; TABLE_TYPE=SYSTEM TABLE; REMARKS=null; TYPE_CAT=null; TYPE_SCHEM=null; TYPE_NAME=null; SELF_REFERENCING_COL_NAME=null; REF_GENERATION=null\n",
               CalciteAssert.toString(r));
         }
 
@@ -6092,9 +6105,9 @@ public void testGetDate() throws Exception {
     final CalciteAssert.AssertThat with =
         CalciteAssert.that().with(Lex.MYSQL);
     with.query("select COUNT(*) as c from metaData.tAbles")
-        .returns("c=2\n");
+        .returns("c=3\n");
     with.query("select COUNT(*) as c from `metaData`.`tAbles`")
-        .returns("c=2\n");
+        .returns("c=3\n");
 
     // case-sensitive gives error
     final CalciteAssert.AssertThat with2 =
@@ -6123,7 +6136,7 @@ public void testGetDate() throws Exception {
     with.query("select COUNT(*) as c from `metaData`.`zoo`")
         .throws_("Object 'zoo' not found within 'metadata'");
     with.query("select COUNT(*) as c from `metaData`.`tAbLes`")
-        .returns("c=2\n");
+        .returns("c=3\n");
   }
 
   /** Tests case-insensitive resolution of sub-query columns.
@@ -617,6 +617,58 @@ private static CalciteAssert.AssertThat foodmartLatticeModel(
     assertThat(mats.toString(), mats.size(), equalTo(2));
   }
 
+  /** Tests that tiles that do not fit in the memory budget are not built,
+   * and that the "TILES" metadata table shows their statistics. */
+  @Test public void testTileBudget() {
+    MaterializationService.setThreadLocal();
+    final MaterializationService service = MaterializationService.instance();
+    final List<String> mats = new ArrayList<>();
+    final CalciteAssert.AssertThat that = foodmartModel().pooled();
+    final String sql = "select t.\"the_year\", count(*) as c\n"
+        + "from \"foodmart\".\"sales_fact_1997\" as s\n"
+        + "join \"foodmart\".\"time_by_day\" as t using (\"time_id\")\n"
+        + "group by t.\"the_year\"";
+    final String sql2 = "select t.\"quarter\", count(*) as c\n"
+        + "from \"foodmart\".\"sales_fact_1997\" as s\n"
+        + "join \"foodmart\".\"time_by_day\" as t using (\"time_id\")\n"
+        + "group by t.\"quarter\"";
+    final String tileSql = "select \"tableName\", \"dimensions\",\n"
+        + " \"rowCount\", \"hitCount\" > 0 as \"hit\"\n"
+        + "from \"metadata\".\"TILES\"";
+    try {
+      // With no budget, both tiles are kept.
+      for (String s : Arrays.asList(sql, sql, sql2)) {
+        that.query(s)
+            .withHook(Hook.CREATE_MATERIALIZATION, (Consumer<String>) mats::add)
+            .enableMaterializations(true)
+            .returnsCount(s == sql2 ? 4 : 1);
+      }
+      assertThat(mats.toString(), mats.size(), equalTo(2));
+      that.query(tileSql)
+          .returnsUnordered(
+              "tableName=m{32}; dimensions=[the_year]; rowCount=1; hit=true",
+              "tableName=m{36}; dimensions=[quarter]; rowCount=4; hit=false");
+      assertThat(service.getTileManager().size() > 0, is(true));
+
+      // With a tiny budget, no tile fits, so the query is answered without
+      // building a tile, and the existing tiles are not evicted.
+      final long size = service.getTileManager().size();
+      service.getTileManager().setBudget(1);
+      that.query(sql.replace("count(*)", "sum(\"unit_sales\")"))
+          .withHook(Hook.CREATE_MATERIALIZATION, (Consumer<String>) mats::add)
+          .enableMaterializations(true)
+          .returnsCount(1);
+      assertThat(mats.toString(), mats.size(), equalTo(2));
+      assertThat(service.getTileManager().size(), equalTo(size));
+      that.query(tileSql)
+          .returnsUnordered(
+              "tableName=m{32}; dimensions=[the_year]; rowCount=1; hit=true",
+              "tableName=m{36}; dimensions=[quarter]; rowCount=4; hit=false");
+    } finally {
+      service.getTileManager().setBudget(0);
+    }
+  }
+
   /** Rolling up SUM. */
   @Test public void testSum() {
     foodmartModelWithOneTile()
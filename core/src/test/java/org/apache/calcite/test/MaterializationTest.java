@@ -16,8 +16,13 @@
  */
 package org.apache.calcite.test;
 
+import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.materialize.MaterializationKey;
 import org.apache.calcite.materialize.MaterializationService;
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelOptPredicateList;
@@ -31,6 +36,7 @@
 import org.apache.calcite.rel.RelVisitor;
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexInputRef;
@@ -41,8 +47,13 @@
 import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.runtime.Hook;
 import org.apache.calcite.schema.QueryableTable;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.schema.impl.AbstractSchema;
+import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.test.JdbcTest.Department;
 import org.apache.calcite.test.JdbcTest.Dependent;
 import org.apache.calcite.test.JdbcTest.Employee;
@@ -74,6 +85,8 @@
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -1990,6 +2003,94 @@ private void checkSatisfiable(RexNode e, String s) {
     assertThat(substitutedNames, is(list3(new String[][][]{{{"hr", "m0"}}})));
   }
 
+  /** Tests that {@link MaterializationService#refreshAfterInsert} maintains
+   * aggregate materializations incrementally, and recomputes those that
+   * cannot be maintained incrementally. */
+  @Test public void testRefreshAfterInsert() {
+    MaterializationService.setThreadLocal();
+    final MaterializationService service = MaterializationService.instance();
+    final CalciteSchema rootSchema = CalciteSchema.createRootSchema(false);
+    final CalciteSchema schema = rootSchema.add("s", new AbstractSchema());
+    final ListTable sales =
+        new ListTable(new String[] {"deptno", "amount"},
+            new Object[][] {{10, 100}, {10, 50}, {20, 70}});
+    final ListTable depts =
+        new ListTable(new String[] {"deptno", "region"},
+            new Object[][] {{10, "East"}, {20, "West"}, {30, "East"}});
+    schema.add("sales", sales);
+    schema.add("depts", depts);
+    final List<String> path = ImmutableList.of("s");
+    final MaterializationKey key0 =
+        service.defineMaterialization(schema, null,
+            "select d.\"region\", count(*) as c,\n"
+                + "  sum(s.\"amount\") as t, min(s.\"amount\") as lo,\n"
+                + "  max(s.\"amount\") as hi\n"
+                + "from \"sales\" as s\n"
+                + "join \"depts\" as d on s.\"deptno\" = d.\"deptno\"\n"
+                + "group by d.\"region\"", path, "m0", true, false);
+    final MaterializationKey key2 =
+        service.defineMaterialization(schema, null,
+            "select count(*) as c from \"sales\"", path, "m2", true, false);
+    final MaterializationKey key1 =
+        service.defineMaterialization(schema, null,
+            "select avg(\"amount\") as a from \"sales\"", path, "m1", true,
+            false);
+    assertThat(contents(service, key0),
+        is("[East, 2, 150, 50, 100]; [West, 1, 70, 70, 70]"));
+    assertThat(contents(service, key1), is("[73]"));
+    assertThat(contents(service, key2), is("[3]"));
+
+    // Insert into "sales". "m0" and "m2" are maintained incrementally, and do
+    // not read "sales"; "m1" (which uses AVG) is recomputed.
+    final List<Object[]> newSales =
+        Arrays.asList(new Object[] {30, 200}, new Object[] {20, 10},
+            new Object[] {40, 5});
+    sales.rows.addAll(newSales);
+    int scanCount = sales.scanCount;
+    service.refreshAfterInsert(rootSchema, ImmutableList.of("s", "sales"),
+        newSales);
+    assertThat(sales.scanCount, is(scanCount + 1));
+    assertThat(contents(service, key0),
+        is("[East, 3, 350, 50, 200]; [West, 2, 80, 10, 70]"));
+    assertThat(contents(service, key1), is("[72]"));
+    assertThat(contents(service, key2), is("[6]"));
+
+    // Insert into "depts". Only "m0" reads "depts"; to compute the new rows
+    // it must read "sales", but not "depts".
+    final List<Object[]> newDepts =
+        Collections.singletonList(new Object[] {40, "North"});
+    depts.rows.addAll(newDepts);
+    scanCount = depts.scanCount;
+    service.refreshAfterInsert(rootSchema, ImmutableList.of("s", "depts"),
+        newDepts);
+    assertThat(depts.scanCount, is(scanCount));
+    assertThat(contents(service, key0),
+        is("[East, 3, 350, 50, 200]; [North, 1, 5, 5, 5]; "
+            + "[West, 2, 80, 10, 70]"));
+    assertThat(contents(service, key1), is("[72]"));
+
+    // Full refresh replaces the table
+    final Table table1 = service.checkValid(key1).getTable();
+    scanCount = sales.scanCount;
+    service.refresh(key1);
+    assertThat(service.checkValid(key1).getTable(), not(sameInstance(table1)));
+    assertThat(sales.scanCount, is(scanCount + 1));
+    assertThat(contents(service, key1), is("[72]"));
+  }
+
+  /** Returns the rows of a materialization, sorted. */
+  private static String contents(MaterializationService service,
+      MaterializationKey key) {
+    final ScannableTable table =
+        (ScannableTable) service.checkValid(key).getTable();
+    final List<String> rows = new ArrayList<>();
+    for (Object[] row : table.scan(null)) {
+      rows.add(Arrays.toString(row));
+    }
+    Collections.sort(rows);
+    return String.join("; ", rows);
+  }
+
   /** Test case for
    * <a href="https://issues.apache.org/jira/browse/CALCITE-761">[CALCITE-761]
    * Pre-populated materializations</a>. */
@@ -2303,6 +2404,35 @@ List<List<String>> run(RelNode input) {
     }
   }
 
+  /** Table whose rows are held in a list, and that counts how many times it
+   * has been scanned. Fields whose name is "region" are strings, others are
+   * integers. */
+  private static class ListTable extends AbstractTable
+      implements ScannableTable {
+    final String[] names;
+    final List<Object[]> rows;
+    int scanCount;
+
+    ListTable(String[] names, Object[][] rows) {
+      this.names = names;
+      this.rows = new ArrayList<>(Arrays.asList(rows));
+    }
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      final RelDataTypeFactory.Builder builder = typeFactory.builder();
+      for (String name : names) {
+        builder.add(name,
+            name.equals("region") ? SqlTypeName.VARCHAR : SqlTypeName.INTEGER);
+      }
+      return builder.build();
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      ++scanCount;
+      return Linq4j.asEnumerable(rows);
+    }
+  }
+
   /**
    * Hr schema with FK-UK relationship.
    */
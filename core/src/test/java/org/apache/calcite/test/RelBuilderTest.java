@@ -26,6 +26,7 @@
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Correlate;
 import org.apache.calcite.rel.core.Exchange;
+import org.apache.calcite.rel.core.Filter;
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.core.RelFactories;
 import org.apache.calcite.rel.core.TableFunctionScan;
@@ -42,6 +43,7 @@
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.impl.ViewTable;
 import org.apache.calcite.schema.impl.ViewTableMacro;
+import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlMatchRecognize;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.parser.SqlParser;
@@ -70,6 +72,7 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -2109,6 +2112,57 @@ private void project1(int value, SqlTypeName sqlTypeName, String message, String
     }
   }
 
+  /** Tests {@link org.apache.calcite.tools.RelRunner} for a filter that
+   * {@link RelBuilder#filter} simplifies to a call to {@code SEARCH}. */
+  @Test public void testRunSearch() throws Exception {
+    // Equivalent SQL:
+    //   SELECT * FROM (VALUES (0, 'x100'), ..., (29, 'x129')) AS t(a, b)
+    //   WHERE a IN (0, 2, ..., 40) OR a >= 27
+    final RelBuilder builder = RelBuilder.create(config().build());
+    final Object[] values = new Object[60];
+    for (int i = 0; i < 30; i++) {
+      values[i * 2] = i;
+      values[i * 2 + 1] = "x" + (100 + i);
+    }
+    builder.values(new String[]{"a", "b"}, values);
+    final List<RexNode> ints = new ArrayList<>();
+    final List<RexNode> strings = new ArrayList<>();
+    for (int i = 0; i <= 40; i += 2) {
+      ints.add(builder.equals(builder.field("a"), builder.literal(i)));
+      strings.add(
+          builder.equals(builder.field("b"), builder.literal("x" + (100 + i))));
+    }
+    ints.add(
+        builder.call(SqlStdOperatorTable.GREATER_THAN_OR_EQUAL,
+            builder.field("a"), builder.literal(27)));
+    RelNode root = builder.filter(builder.or(ints)).build();
+    assertThat(((Filter) root).getCondition().getKind(), is(SqlKind.SEARCH));
+    final StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 30; i++) {
+      if (i % 2 == 0 || i >= 27) {
+        expected.append("a=").append(i).append("; b=x").append(100 + i)
+            .append("\n");
+      }
+    }
+    try (PreparedStatement preparedStatement = RelRunners.run(root)) {
+      String s = CalciteAssert.toString(preparedStatement.executeQuery());
+      assertThat(s, is(expected.toString()));
+    }
+
+    builder.values(new String[]{"a", "b"}, values);
+    root = builder.filter(builder.or(strings)).build();
+    assertThat(((Filter) root).getCondition().getKind(), is(SqlKind.SEARCH));
+    expected.setLength(0);
+    for (int i = 0; i < 30; i += 2) {
+      expected.append("a=").append(i).append("; b=x").append(100 + i)
+          .append("\n");
+    }
+    try (PreparedStatement preparedStatement = RelRunners.run(root)) {
+      String s = CalciteAssert.toString(preparedStatement.executeQuery());
+      assertThat(s, is(expected.toString()));
+    }
+  }
+
   /** Test case for
    * <a href="https://issues.apache.org/jira/browse/CALCITE-1595">[CALCITE-1595]
    * RelBuilder.call throws NullPointerException if argument types are
@@ -33,6 +33,7 @@
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelRoot;
+import org.apache.calcite.rel.RelVisitor;
 import org.apache.calcite.rel.SingleRel;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.AggregateCall;
@@ -509,6 +510,44 @@ private void checkRowCount(String sql, double expected, double expectedMin,
     checkRowCount(sql, 2, 2, 2);
   }
 
+  /** Tests that {@link RelMetadataQuery} caches metadata, counts cache hits
+   * and misses, and can remove the metadata of one relational expression. */
+  @Test public void testRowCountCache() {
+    final RelNode rel = convertSql("select * from emp where deptno = 10");
+    final RelNode scan = rel.getInput(0).getInput(0);
+    final MetadataDef def = BuiltInMetadata.RowCount.DEF;
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    mq.getRowCount(scan);
+    assertThat(mq.getCacheMissCount(def), is(0L));
+    mq.setCountingCacheUsage(true);
+    assertThat(mq.getCacheHitCount(def), is(0L));
+    assertThat(mq.getCacheMissCount(def), is(0L));
+    mq.clearCache(scan);
+
+    final Double rowCount = mq.getRowCount(rel);
+    final long hitCount = mq.getCacheHitCount(def);
+    final long missCount = mq.getCacheMissCount(def);
+    assertThat(missCount >= 3, is(true));
+
+    // Second time, the result comes from the cache
+    assertThat(mq.getRowCount(rel), is(rowCount));
+    assertThat(mq.getCacheHitCount(def), is(hitCount + 1));
+    assertThat(mq.getCacheMissCount(def), is(missCount));
+
+    // Removing the metadata of the scan does not affect the project
+    assertThat(mq.clearCache(scan), is(true));
+    assertThat(mq.clearCache(scan), is(false));
+    assertThat(mq.getRowCount(rel), is(rowCount));
+    assertThat(mq.getCacheHitCount(def), is(hitCount + 2));
+    assertThat(mq.getCacheMissCount(def), is(missCount));
+
+    // Removing the metadata of the project means it is computed again
+    assertThat(mq.clearCache(rel), is(true));
+    assertThat(mq.getRowCount(rel), is(rowCount));
+    assertThat(mq.getCacheHitCount(def), is(hitCount + 3));
+    assertThat(mq.getCacheMissCount(def), is(missCount + 1));
+  }
+
   @Test public void testRowCountCartesian() {
     final String sql = "select * from emp,dept";
     checkRowCount(sql, EMP_SIZE * DEPT_SIZE, 0D, Double.POSITIVE_INFINITY);
@@ -814,6 +853,48 @@ private void checkRelSelectivity(
     }
   }
 
+  /** Tests that the handlers for the default metadata provider were generated
+   * when Calcite was built, and give the same results as the handlers that
+   * Janino generates for other providers. */
+  @Test public void testPrecompiledMetadataHandlers() throws Exception {
+    Class.forName("org.apache.calcite.rel.metadata.GeneratedMetadataHandler_RowCount");
+    final RelNode rel = convertSql("select e.deptno, count(*) as c\n"
+        + "from emp as e join dept as d using (deptno)\n"
+        + "where e.sal > 1000\n"
+        + "group by e.deptno");
+    final List<String> expected = metadata(rel);
+    try {
+      // Chained provider is equivalent to, but not equal to, the default
+      RelMetadataQuery.THREAD_PROVIDERS.set(
+          JaninoRelMetadataProvider.of(
+              ChainedRelMetadataProvider.of(
+                  ImmutableList.of(DefaultRelMetadataProvider.INSTANCE))));
+      assertThat(metadata(rel), equalTo(expected));
+    } finally {
+      RelMetadataQuery.THREAD_PROVIDERS.set(JaninoRelMetadataProvider.DEFAULT);
+    }
+  }
+
+  /** Returns several kinds of metadata of a relational expression and its
+   * descendants, as strings. */
+  private List<String> metadata(RelNode rel) {
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final List<String> list = new ArrayList<>();
+    new RelVisitor() {
+      @Override public void visit(RelNode node, int ordinal, RelNode parent) {
+        list.add(node.getRelTypeName()
+            + " rowCount=" + mq.getRowCount(node)
+            + " cost=" + mq.getCumulativeCost(node)
+            + " uniqueKeys=" + mq.getUniqueKeys(node)
+            + " distinct=" + mq.getDistinctRowCount(node, ImmutableBitSet.of(0), null)
+            + " predicates=" + mq.getPulledUpPredicates(node).pulledUpPredicates
+            + " collations=" + mq.collations(node));
+        super.visit(node, ordinal, parent);
+      }
+    }.go(rel);
+    return list;
+  }
+
   @Test public void testDistinctRowCountTable() {
     // no unique key information is available so return null
     RelNode rel = convertSql("select * from emp where deptno = 10");
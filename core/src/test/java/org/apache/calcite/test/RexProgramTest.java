@@ -46,6 +46,7 @@
 import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.NlsString;
+import org.apache.calcite.util.Sarg;
 import org.apache.calcite.util.TestUtil;
 import org.apache.calcite.util.TimeString;
 import org.apache.calcite.util.TimestampString;
@@ -2514,6 +2515,133 @@ private static String getString(ImmutableMap<RexNode, RexNode> map) {
         "false");
   }
 
+  /** Tests that simplifying a large IN list, and a large NOT IN list among
+   * other conjuncts, does not take time quadratic in the size of the list. */
+  @Test(timeout = 20_000) public void testSimplifyLargeInList() {
+    final int n = 4_000;
+    final RexSimplify simplify = this.simplify.withParanoid(false);
+    final List<RexNode> eqs = new ArrayList<>();
+    final List<RexNode> conjuncts = new ArrayList<>();
+    conjuncts.add(isNotNull(vInt(1)));
+    for (int i = 0; i < n; i++) {
+      eqs.add(eq(vInt(), literal(i)));
+      conjuncts.add(ne(vInt(), literal(i)));
+    }
+    final RexNode in = or(eqs);
+    final RexNode simplifiedIn =
+        simplify.simplifyUnknownAs(in, RexUnknownAs.UNKNOWN);
+    assertThat(simplifiedIn.getKind(), is(SqlKind.SEARCH));
+    assertThat(sarg(simplifiedIn).rangeCount(), is(n));
+    assertThat(sarg(simplifiedIn).isPoints(), is(true));
+
+    final RexNode notIn = and(conjuncts);
+    final RexNode simplified =
+        simplify.simplifyUnknownAs(notIn, RexUnknownAs.UNKNOWN);
+    assertThat(simplified.getKind(), is(SqlKind.AND));
+    final List<RexNode> operands = ((RexCall) simplified).getOperands();
+    assertThat(operands.size(), is(2));
+    assertThat(operands.get(1).getKind(), is(SqlKind.SEARCH));
+    assertThat(sarg(operands.get(1)).complement().rangeCount(), is(n));
+    assertThat(sarg(operands.get(1)).complement().isPoints(), is(true));
+  }
+
+  /** Returns the search argument of a call to {@code SEARCH}. */
+  private static Sarg<?> sarg(RexNode e) {
+    return ((RexLiteral) ((RexCall) e).getOperands().get(1))
+        .getValueAs(Sarg.class);
+  }
+
+  /** Tests that a disjunction of at least
+   * {@link CalciteSystemProperty#SIMPLIFY_SEARCH_THRESHOLD} comparisons
+   * between the same column and literals becomes a call to {@code SEARCH},
+   * that its negation searches the complement, and that
+   * {@link RexUtil#expandSearch} converts it back to comparisons. */
+  @Test public void testSimplifySearch() {
+    final int n = CalciteSystemProperty.SIMPLIFY_SEARCH_THRESHOLD.value();
+    final List<RexNode> eqs = new ArrayList<>();
+    final StringBuilder points = new StringBuilder();
+    final StringBuilder complement = new StringBuilder("(-\u221e..0)");
+    for (int i = 0; i < n; i++) {
+      // Each value twice
+      eqs.add(eq(vInt(), literal(i)));
+      eqs.add(eq(vInt(), literal(i)));
+      points.append(i).append(", ");
+      complement.append(", (").append(i).append("..")
+          .append(i + 1 < n ? String.valueOf(i + 1) : "100").append(")");
+    }
+    eqs.add(ge(vInt(), literal(100)));
+    final RexNode in = or(eqs);
+    final String search = "SEARCH(?0.int0, Sarg[" + points + "[100..+\u221e)])";
+    checkSimplify(in, search);
+
+    // "NOT (x IN (...) OR x >= 100)" searches the complement
+    checkSimplify(not(in), "SEARCH(?0.int0, Sarg[" + complement + "])");
+
+    // Fewer comparisons than the threshold are unchanged
+    checkSimplifyUnchanged(
+        or(eq(vInt(), literal(1)), eq(vInt(), literal(2))));
+
+    // Comparisons on different columns are not combined
+    final List<RexNode> mixed = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      mixed.add(eq(vInt(i % 2), literal(i)));
+    }
+    assertThat(simplify(or(mixed)).getKind(), is(SqlKind.OR));
+
+    final RexNode simplified = simplify(in);
+    final RexNode expanded = RexUtil.expandSearch(rexBuilder, null, simplified);
+    assertThat(expanded.getKind(), is(SqlKind.OR));
+    assertThat(((RexCall) expanded).getOperands().size(), is(n + 1));
+    assertThat(simplify(expanded).toString(), is(search));
+  }
+
+  /** Tests that {@code SEARCH} within a conjunction is intersected with
+   * comparisons on the same column. */
+  @Test public void testSimplifySearchAnd() {
+    final int n = CalciteSystemProperty.SIMPLIFY_SEARCH_THRESHOLD.value();
+    final List<RexNode> eqs = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      eqs.add(eq(vInt(), literal(i * 10)));
+    }
+    final RexNode search = simplify(or(eqs));
+    assertThat(search.getKind(), is(SqlKind.SEARCH));
+
+    // "x IN (0, 10, ..., 190) AND x < 30 AND x <> 10" becomes "x IN (0, 20)"
+    checkSimplify(and(search, lt(vInt(), literal(30)), ne(vInt(), literal(10))),
+        "SEARCH(?0.int0, Sarg[0, 20])");
+  }
+
+  /** Tests that the cache of simplified expressions does not confuse
+   * expressions whose digests are the same but whose types differ. */
+  @Test public void testSimplifyCache() {
+    final RexNode e1 = and(vBool(0), vBool(1));
+    final RexNode e2 = and(vBool(0), vBool(1));
+    assertThat(e1, is(e2));
+    assertThat(simplify(e1), is(e1));
+    assertThat(simplify(e2), is(e2));
+
+    final RelDataType intType = typeFactory.createSqlType(SqlTypeName.INTEGER);
+    final RelDataType bigintType =
+        typeFactory.createSqlType(SqlTypeName.BIGINT);
+    final RexNode intRef = rexBuilder.makeInputRef(intType, 0);
+    final RexNode bigintRef = rexBuilder.makeInputRef(bigintType, 0);
+    final RexNode intAnd =
+        and(eq(intRef, literal(1)), eq(intRef, literal(1)));
+    final RexNode bigintAnd =
+        and(eq(bigintRef, literal(1)), eq(bigintRef, literal(1)));
+    assertThat(intAnd.toString(), is(bigintAnd.toString()));
+    final RexSimplify simplify = this.simplify.withParanoid(false);
+    final RexNode intSimplified =
+        simplify.simplifyUnknownAs(intAnd, RexUnknownAs.UNKNOWN);
+    final RexNode bigintSimplified =
+        simplify.simplifyUnknownAs(bigintAnd, RexUnknownAs.UNKNOWN);
+    assertThat(intSimplified.toString(), is("=($0, 1)"));
+    assertThat(((RexCall) intSimplified).getOperands().get(0).getType(),
+        is(intType));
+    assertThat(((RexCall) bigintSimplified).getOperands().get(0).getType(),
+        is(bigintType));
+  }
+
   private RexNode simplify(RexNode e) {
     final RexSimplify simplify =
         new RexSimplify(rexBuilder, RelOptPredicateList.EMPTY, RexUtil.EXECUTOR)
@@ -37,9 +37,11 @@
 import static org.apache.calcite.runtime.SqlFunctions.greater;
 import static org.apache.calcite.runtime.SqlFunctions.initcap;
 import static org.apache.calcite.runtime.SqlFunctions.lesser;
+import static org.apache.calcite.runtime.SqlFunctions.like;
 import static org.apache.calcite.runtime.SqlFunctions.lower;
 import static org.apache.calcite.runtime.SqlFunctions.ltrim;
 import static org.apache.calcite.runtime.SqlFunctions.rtrim;
+import static org.apache.calcite.runtime.SqlFunctions.similar;
 import static org.apache.calcite.runtime.SqlFunctions.subtractMonths;
 import static org.apache.calcite.runtime.SqlFunctions.trim;
 import static org.apache.calcite.runtime.SqlFunctions.upper;
@@ -90,6 +92,54 @@ public class SqlFunctionsTest {
     assertEquals(" B0123b", initcap(" b0123B"));
   }
 
+  /** Tests {@link SqlFunctions#like}, including the patterns that
+   * {@link org.apache.calcite.runtime.LikeMatcher} matches without a regular
+   * expression. */
+  @Test public void testLike() {
+    assertThat(like("abc", "abc"), is(true));
+    assertThat(like("abc", "ab"), is(false));
+    assertThat(like("abc", ""), is(false));
+    assertThat(like("", ""), is(true));
+    assertThat(like("abc", "ab%"), is(true));
+    assertThat(like("ab", "ab%"), is(true));
+    assertThat(like("xabc", "ab%"), is(false));
+    assertThat(like("abc", "%bc"), is(true));
+    assertThat(like("abcx", "%bc"), is(false));
+    assertThat(like("abc", "%b%"), is(true));
+    assertThat(like("a\nb\nc", "%b%"), is(true));
+    assertThat(like("ac", "%b%"), is(false));
+    assertThat(like("", "%"), is(true));
+    assertThat(like("abc", "%%"), is(true));
+    assertThat(like("abc", "a%c"), is(true));
+    assertThat(like("abbc", "a%b%c"), is(true));
+    assertThat(like("abc", "a_c"), is(true));
+    assertThat(like("ac", "a_c"), is(false));
+    assertThat(like("a.c", "a.c"), is(true));
+    assertThat(like("abc", "a.c"), is(false));
+    assertThat(like("a%c", "a!%c", "!"), is(true));
+    assertThat(like("abc", "a!%c", "!"), is(false));
+    assertThat(like("a%", "%!%", "!"), is(true));
+    assertThat(like("a_", "%!%", "!"), is(false));
+    assertThat(like("a!", "a!!", "!"), is(true));
+    assertThat(like("a%b", "a!%%", "!"), is(true));
+    try {
+      final boolean b = like("abc", "a!c", "!");
+      fail("expected error, got " + b);
+    } catch (RuntimeException e) {
+      assertThat(e.getMessage(), is("Invalid escape sequence 'a!c', 1"));
+    }
+  }
+
+  @Test public void testSimilar() {
+    assertThat(similar("abc", "abc"), is(true));
+    assertThat(similar("abc", "a(b|x)c"), is(true));
+    assertThat(similar("axc", "a(b|x)c"), is(true));
+    assertThat(similar("ayc", "a(b|x)c"), is(false));
+    assertThat(similar("abc", "a%"), is(true));
+    assertThat(similar("a%", "a!%", "!"), is(true));
+    assertThat(similar("ab", "a!%", "!"), is(false));
+  }
+
   @Test public void testLesser() {
     assertEquals("a", lesser("a", "bc"));
     assertEquals("ac", lesser("bc", "ac"));
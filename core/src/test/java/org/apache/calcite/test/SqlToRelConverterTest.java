@@ -1275,7 +1275,8 @@ public void testJoinUsingDynamicTable() {
   }
 
   @Test public void testInValueListLong() {
-    // Go over the default threshold of 20 to force a sub-query.
+    // Go over the default threshold of 20. The values are all literals, so
+    // the list becomes a SEARCH rather than a sub-query.
     final String sql = "select empno from emp where deptno in"
         + " (10, 20, 30, 40, 50, 60, 70, 80, 90, 100"
         + ", 110, 120, 130, 140, 150, 160, 170, 180, 190"
@@ -1283,6 +1284,23 @@ public void testJoinUsingDynamicTable() {
     sql(sql).ok();
   }
 
+  @Test public void testNotInValueListLong() {
+    final String sql = "select empno from emp where deptno not in"
+        + " (10, 20, 30, 40, 50, 60, 70, 80, 90, 100"
+        + ", 110, 120, 130, 140, 150, 160, 170, 180, 190"
+        + ", 200, 210, 220, 230)";
+    sql(sql).ok();
+  }
+
+  @Test public void testInValueListLongNotLiteral() {
+    // One of the values is not a literal, so the list becomes a sub-query.
+    final String sql = "select empno from emp where deptno in"
+        + " (10, 20, 30, 40, 50, 60, 70, 80, 90, 100"
+        + ", 110, 120, 130, 140, 150, 160, 170, 180, 190"
+        + ", 200, 210, 220, 230 + 1)";
+    sql(sql).ok();
+  }
+
   @Test public void testInUncorrelatedSubQuery() {
     final String sql = "select empno from emp where deptno in"
         + " (select deptno from dept)";
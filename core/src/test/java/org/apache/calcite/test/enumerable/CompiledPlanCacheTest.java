@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.test.enumerable;
+
+import org.apache.calcite.adapter.enumerable.CompiledPlanCache;
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.test.CalciteAssert;
+import org.apache.calcite.test.JdbcTest;
+import org.apache.calcite.util.Holder;
+
+import org.junit.Test;
+
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit test for
+ * {@link org.apache.calcite.adapter.enumerable.CompiledPlanCache}.
+ */
+public class CompiledPlanCacheTest {
+  @Test public void testHit() {
+    final CompiledPlanCache cache = new CompiledPlanCache(10, 0);
+    final String sql = "select e.name from emps e where e.deptno = 10";
+    try (Hook.Closeable ignore = hook(cache)) {
+      tester().query(sql)
+          .returnsUnordered("name=Bill", "name=Sebastian", "name=Theodore");
+      assertThat(cache.stats().missCount(), is(1L));
+      assertThat(cache.stats().hitCount(), is(0L));
+      assertThat(cache.size(), is(1L));
+
+      // Same plan, new connection; the generated code is still reported
+      tester().query(sql)
+          .planContains("if (current.deptno == 10)")
+          .returnsUnordered("name=Bill", "name=Sebastian", "name=Theodore");
+      assertThat(cache.stats().hitCount(), is(2L));
+      assertThat(cache.size(), is(1L));
+
+      // Different literal, different plan
+      tester().query("select e.name from emps e where e.deptno = 20")
+          .returnsUnordered("name=Eric");
+      assertThat(cache.stats().missCount(), is(2L));
+      assertThat(cache.size(), is(2L));
+    }
+  }
+
+  /** Dynamic parameters are part of the digest, so one plan serves all
+   * values. */
+  @Test public void testDynamicParameter() {
+    final CompiledPlanCache cache = new CompiledPlanCache(10, 0);
+    try (Hook.Closeable ignore = hook(cache)) {
+      for (int deptno : new int[] {10, 20}) {
+        tester()
+            .query("select e.name from emps e where e.deptno = ?")
+            .consumesPreparedStatement(p -> p.setInt(1, deptno))
+            .returnsUnordered(deptno == 10
+                ? new String[] {"name=Bill", "name=Sebastian", "name=Theodore"}
+                : new String[] {"name=Eric"});
+      }
+      assertThat(cache.stats().missCount(), is(1L));
+      assertThat(cache.stats().hitCount(), is(1L));
+    }
+  }
+
+  /** A plan that contains relational expressions of another convention is
+   * not cached, because the code generated for it depends on more than its
+   * digest. */
+  @Test public void testJdbcNotCached() {
+    final CompiledPlanCache cache = new CompiledPlanCache(10, 0);
+    try (Hook.Closeable ignore = hook(cache)) {
+      CalciteAssert.that()
+          .with(CalciteAssert.Config.JDBC_SCOTT)
+          .query("select deptno from jdbc_scott.dept")
+          .returnsCount(4);
+      assertThat(cache.size(), is(0L));
+      assertThat(cache.stats().requestCount(), is(0L));
+    }
+  }
+
+  @Test public void testEviction() {
+    final CompiledPlanCache cache = new CompiledPlanCache(1, 0);
+    try (Hook.Closeable ignore = hook(cache)) {
+      tester().query("select e.empid from emps e").returnsCount(4);
+      tester().query("select d.deptno from depts d").returnsCount(3);
+      tester().query("select e.empid from emps e").returnsCount(4);
+      assertThat(cache.stats().missCount(), is(3L));
+      assertThat(cache.stats().evictionCount(), is(2L));
+      assertThat(cache.size(), is(1L));
+    }
+  }
+
+  private static Hook.Closeable hook(CompiledPlanCache cache) {
+    return Hook.COMPILED_PLAN_CACHE.addThread(
+        (Consumer<Holder<CompiledPlanCache>>) Hook.propertyJ(cache));
+  }
+
+  private CalciteAssert.AssertThat tester() {
+    return CalciteAssert.that()
+        .with(CalciteConnectionProperty.LEX, Lex.JAVA)
+        .withSchema("s", new ReflectiveSchema(new JdbcTest.HrSchema()));
+  }
+}
+
+// End CompiledPlanCacheTest.java
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.test.enumerable;
+
+import org.apache.calcite.adapter.enumerable.EnumerableBatchNestedLoopJoinRule;
+import org.apache.calcite.adapter.enumerable.EnumerableRules;
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.test.CalciteAssert;
+import org.apache.calcite.test.JdbcTest;
+
+import org.junit.Test;
+
+import java.util.function.Consumer;
+
+/**
+ * Unit test for
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableBatchNestedLoopJoin}.
+ */
+public class EnumerableBatchNestedLoopJoinTest {
+  @Test public void innerJoin() {
+    tester()
+        .query("select e.empid, e.name, d.name as dept\n"
+            + "from emps e join depts d on e.deptno = d.deptno")
+        .withHook(Hook.PLANNER, batchNestedLoopJoin(3))
+        .explainContains(""
+            + "EnumerableCalc(expr#0..4=[{inputs}], empid=[$t0], name=[$t2], dept=[$t4])\n"
+            + "  EnumerableBatchNestedLoopJoin(condition=[=($1, $3)], joinType=[inner], requiredColumns=[{1}], batchSize=[3])\n"
+            + "    EnumerableCalc(expr#0..4=[{inputs}], proj#0..2=[{exprs}])\n"
+            + "      EnumerableTableScan(table=[[s, emps]])\n"
+            + "    EnumerableCalc(expr#0..3=[{inputs}], expr#4=[$cor3], expr#5=[$t4.deptno], expr#6=[=($t5, $t0)], expr#7=[$cor4], expr#8=[$t7.deptno], expr#9=[=($t8, $t0)], expr#10=[$cor5], expr#11=[$t10.deptno], expr#12=[=($t11, $t0)], expr#13=[OR($t6, $t9, $t12)], proj#0..1=[{exprs}], $condition=[$t13])\n"
+            + "      EnumerableTableScan(table=[[s, depts]])")
+        .returnsUnordered(
+            "empid=100; name=Bill; dept=Sales",
+            "empid=110; name=Theodore; dept=Sales",
+            "empid=150; name=Sebastian; dept=Sales");
+  }
+
+  /** Four employees in batches of 3, so the second batch is padded. */
+  @Test public void leftJoin() {
+    tester()
+        .query("select e.empid, e.name, d.name as dept\n"
+            + "from emps e left join depts d on e.deptno = d.deptno")
+        .withHook(Hook.PLANNER, batchNestedLoopJoin(3))
+        .planContains("EnumerableDefaults.correlateBatchJoin(")
+        .returnsUnordered(
+            "empid=100; name=Bill; dept=Sales",
+            "empid=110; name=Theodore; dept=Sales",
+            "empid=150; name=Sebastian; dept=Sales",
+            "empid=200; name=Eric; dept=null");
+  }
+
+  /** The join condition is not an equality. */
+  @Test public void thetaJoin() {
+    tester()
+        .query("select e.empid, d.deptno\n"
+            + "from emps e join depts d on e.deptno < d.deptno")
+        .withHook(Hook.PLANNER, batchNestedLoopJoin(2))
+        .planContains("EnumerableDefaults.correlateBatchJoin(")
+        .returnsUnordered(
+            "empid=100; deptno=30",
+            "empid=100; deptno=40",
+            "empid=110; deptno=30",
+            "empid=110; deptno=40",
+            "empid=150; deptno=30",
+            "empid=150; deptno=40",
+            "empid=200; deptno=30",
+            "empid=200; deptno=40");
+  }
+
+  private CalciteAssert.AssertThat tester() {
+    return CalciteAssert.that()
+        .with(CalciteConnectionProperty.LEX, Lex.JAVA)
+        .with(CalciteConnectionProperty.FORCE_DECORRELATE, false)
+        .withSchema("s", new ReflectiveSchema(new JdbcTest.HrSchema()));
+  }
+
+  /** Returns a planner hook that forces joins to be implemented as
+   * {@link org.apache.calcite.adapter.enumerable.EnumerableBatchNestedLoopJoin}
+   * with a given batch size. */
+  private static Consumer<RelOptPlanner> batchNestedLoopJoin(int batchSize) {
+    return planner -> {
+      planner.removeRule(EnumerableRules.ENUMERABLE_JOIN_RULE);
+      planner.removeRule(EnumerableRules.ENUMERABLE_MERGE_JOIN_RULE);
+      planner.addRule(
+          new EnumerableBatchNestedLoopJoinRule(RelFactories.LOGICAL_BUILDER,
+              batchSize));
+    };
+  }
+}
+
+// End EnumerableBatchNestedLoopJoinTest.java
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.test.enumerable;
+
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.rel.RelDistributions;
+import org.apache.calcite.test.CalciteAssert;
+import org.apache.calcite.test.JdbcTest;
+
+import org.junit.Test;
+
+/**
+ * Unit test for
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableExchange}.
+ */
+public class EnumerableExchangeTest {
+  @Test public void exchangeBelowJoin() {
+    tester(4)
+        .query("select e.empid, d.name\n"
+            + "from (select * from emps where salary > 8000) e\n"
+            + "join (select * from depts where deptno < 30) d\n"
+            + "on e.deptno = d.deptno")
+        .explainContains(""
+            + "  EnumerableExchange(distribution=[single])\n"
+            + "    EnumerableJoin(condition=[=($1, $2)], joinType=[inner])\n"
+            + "      EnumerableExchange(distribution=[hash[1]])\n")
+        .explainContains("      EnumerableExchange(distribution=[hash[0]])\n")
+        .planContains("ParallelEnumerables.merge(")
+        .returnsUnordered(
+            "empid=100; name=Sales",
+            "empid=110; name=Sales");
+  }
+
+  @Test public void exchangeBelowAggregate() {
+    tester(4)
+        .query("select deptno, count(*) as c from emps\n"
+            + "where salary > 7000\n"
+            + "group by deptno")
+        .explainContains(""
+            + "PLAN=EnumerableExchange(distribution=[single])\n"
+            + "  EnumerableAggregate(group=[{1}], c=[COUNT()])\n"
+            + "    EnumerableExchange(distribution=[hash[1]])\n")
+        .planContains("ParallelEnumerables.merge(")
+        .returnsUnordered(
+            "deptno=10; c=2",
+            "deptno=20; c=1");
+  }
+
+  /** Each partition of the join emits rows that have no match. */
+  @Test public void exchangeBelowOuterJoin() {
+    tester(4)
+        .query("select e.empid, d.name\n"
+            + "from emps as e\n"
+            + "full join depts as d on e.deptno = d.deptno")
+        .explainContains("EnumerableExchange(distribution=[hash[1]])")
+        .returnsUnordered(
+            "empid=100; name=Sales",
+            "empid=110; name=Sales",
+            "empid=150; name=Sales",
+            "empid=200; name=null",
+            "empid=null; name=Marketing",
+            "empid=null; name=HR");
+  }
+
+  /** An aggregate above a join; both are partitioned, the aggregate by its
+   * group key and the join by its join key. */
+  @Test public void exchangeBelowAggregateAndJoin() {
+    tester(3)
+        .query("select d.name, count(*) as c\n"
+            + "from emps as e\n"
+            + "join depts as d on e.deptno = d.deptno\n"
+            + "group by d.name")
+        .explainContains("EnumerableExchange(distribution=[hash[0]])")
+        .returnsUnordered("name=Sales; c=3");
+  }
+
+  /** An aggregate without a group key cannot be partitioned; its input is
+   * evaluated on another thread. */
+  @Test public void exchangeBelowGlobalAggregate() {
+    tester(4)
+        .query("select count(*) as c from emps\n"
+            + "where salary > 7000")
+        .explainContains(""
+            + "PLAN=EnumerableAggregate(group=[{}], c=[COUNT()])\n"
+            + "  EnumerableExchange(distribution=[single])\n")
+        .planContains("ParallelEnumerables.exchange(")
+        .returnsUnordered("c=3");
+  }
+
+  /** With the default parallelism, the plan has no exchanges. */
+  @Test public void noExchange() {
+    tester(1)
+        .query("select deptno, count(*) as c from emps\n"
+            + "where salary > 7000\n"
+            + "group by deptno")
+        .explainContains("PLAN=EnumerableAggregate(group=[{1}], c=[COUNT()])\n"
+            + "  EnumerableCalc(")
+        .returnsUnordered(
+            "deptno=10; c=2",
+            "deptno=20; c=1");
+  }
+
+  /** A singleton {@link org.apache.calcite.rel.logical.LogicalExchange}
+   * created by {@link org.apache.calcite.tools.RelBuilder} is implemented. */
+  @Test public void logicalExchange() {
+    tester(2)
+        .query("?")
+        .withRel(builder -> builder
+            .scan("s", "depts")
+            .exchange(RelDistributions.SINGLETON)
+            .project(builder.field("name"))
+            .build())
+        .planContains("ParallelEnumerables.exchange(")
+        .returnsUnordered(
+            "name=Sales",
+            "name=Marketing",
+            "name=HR");
+  }
+
+  private CalciteAssert.AssertThat tester(int parallelism) {
+    return CalciteAssert.that()
+        .with(CalciteConnectionProperty.LEX, Lex.JAVA)
+        .with(CalciteConnectionProperty.PARALLELISM, parallelism)
+        .withSchema("s", new ReflectiveSchema(new JdbcTest.HrSchema()));
+  }
+}
+
+// End EnumerableExchangeTest.java
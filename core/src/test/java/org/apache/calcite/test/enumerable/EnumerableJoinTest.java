@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.test.enumerable;
+
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.config.Lex;
+import org.apache.calcite.test.CalciteAssert;
+import org.apache.calcite.test.JdbcTest;
+
+import org.junit.Test;
+
+/**
+ * Unit test for
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableJoin}.
+ */
+public class EnumerableJoinTest {
+  /** Joins on a NOT NULL integer key use a hash table keyed by primitive
+   * longs. */
+  @Test public void innerJoinLongKey() {
+    tester()
+        .query("select e.empid, d.name from emps e\n"
+            + "join depts d on e.deptno = d.deptno")
+        .planContains("EnumerableDefaults.hashJoinLong(")
+        .returnsUnordered(
+            "empid=100; name=Sales",
+            "empid=110; name=Sales",
+            "empid=150; name=Sales");
+  }
+
+  @Test public void leftJoinLongKey() {
+    tester()
+        .query("select e.empid, d.name from emps e\n"
+            + "left join depts d on e.deptno = d.deptno")
+        .planContains("EnumerableDefaults.hashJoinLong(")
+        .returnsUnordered(
+            "empid=100; name=Sales",
+            "empid=110; name=Sales",
+            "empid=150; name=Sales",
+            "empid=200; name=null");
+  }
+
+  @Test public void fullJoinLongKey() {
+    tester()
+        .query("select e.empid, d.name from emps e\n"
+            + "full join depts d on e.deptno = d.deptno")
+        .planContains("EnumerableDefaults.hashJoinLong(")
+        .returnsUnordered(
+            "empid=100; name=Sales",
+            "empid=110; name=Sales",
+            "empid=150; name=Sales",
+            "empid=200; name=null",
+            "empid=null; name=HR",
+            "empid=null; name=Marketing");
+  }
+
+  /** A nullable key ("commission" is {@code Integer}) uses the general
+   * implementation. */
+  @Test public void joinNullableKey() {
+    tester()
+        .query("select e.empid, d.name from emps e\n"
+            + "join depts d on e.commission = d.deptno")
+        .planContains(".join(")
+        .returnsUnordered();
+  }
+
+  private CalciteAssert.AssertThat tester() {
+    return CalciteAssert.that()
+        .with(CalciteConnectionProperty.LEX, Lex.JAVA)
+        .withSchema("s", new ReflectiveSchema(new JdbcTest.HrSchema()));
+  }
+}
+
+// End EnumerableJoinTest.java
@@ -158,8 +158,11 @@ public void onMatch(RelOptRuleCall call) {
           call.getMetadataQuery().getPulledUpPredicates(filter.getInput());
       final RexSimplify simplify =
           new RexSimplify(rexBuilder, predicates, executor);
+      // Druid filters have no equivalent of SEARCH, so expand it into the
+      // comparisons it replaced
       final RexNode cond =
-          simplify.simplifyUnknownAsFalse(filter.getCondition());
+          RexUtil.expandSearch(rexBuilder, null,
+              simplify.simplifyUnknownAsFalse(filter.getCondition()));
       for (RexNode e : RelOptUtil.conjunctions(cond)) {
         DruidJsonFilter druidJsonFilter = DruidJsonFilter
             .toDruidFilters(e, filter.getInput().getRowType(), query);
@@ -613,7 +616,8 @@ private DruidQuery optimizeFilteredAggregations(RelOptRuleCall call,
 
       // Simplify the filter as much as possible
       RexNode tempFilterNode = filterNode;
-      filterNode = simplify.simplifyUnknownAsFalse(filterNode);
+      filterNode = RexUtil.expandSearch(builder, null,
+          simplify.simplifyUnknownAsFalse(filterNode));
 
       // It's possible that after simplification that the expression is now always false.
       // Druid cannot handle such a filter.
@@ -36,6 +36,7 @@
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.rex.RexVisitorImpl;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
@@ -225,7 +226,8 @@ private ElasticsearchFilterRule() {
       final RelTraitSet traitSet = filter.getTraitSet().replace(out);
       return new ElasticsearchFilter(relNode.getCluster(), traitSet,
         convert(filter.getInput(), out),
-        filter.getCondition());
+        RexUtil.expandSearch(relNode.getCluster().getRexBuilder(), null,
+            filter.getCondition()));
     }
   }
 
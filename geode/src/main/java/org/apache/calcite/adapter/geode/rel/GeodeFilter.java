@@ -30,6 +30,7 @@
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.util.DateString;
 import org.apache.calcite.util.TimeString;
@@ -131,6 +132,9 @@ private static String literalValue(RexLiteral literal) {
      * @return OQL predicate string
      */
     private String translateMatch(RexNode condition) {
+      // OQL has no equivalent of SEARCH; expand it into comparisons, which
+      // translateOr may convert to IN SET
+      condition = RexUtil.expandSearch(rexBuilder, null, condition);
       // Returns condition decomposed by OR
       List<RexNode> disjunctions = RelOptUtil.disjunctions(condition);
       if (disjunctions.size() == 1) {
@@ -33,6 +33,7 @@
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.rex.RexVisitorImpl;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
@@ -246,7 +247,7 @@ private GeodeFilterRule() {
     @Override public boolean matches(RelOptRuleCall call) {
       // Get the condition from the filter operation
       LogicalFilter filter = call.rel(0);
-      RexNode condition = filter.getCondition();
+      RexNode condition = expandedCondition(filter);
 
       List<String> fieldNames = GeodeRules.geodeFieldNames(filter.getInput().getRowType());
 
@@ -371,6 +372,14 @@ private RelNode convert(LogicalFilter filter, GeodeTableScan scan) {
           filter.getCluster(),
           traitSet,
           convert(filter.getInput(), GeodeRel.CONVENTION),
+          expandedCondition(filter));
+    }
+
+    /** Returns the condition of a filter with each call to SEARCH expanded
+     * into comparisons; OQL has no equivalent of SEARCH, and the translator
+     * converts a disjunction of equalities to IN SET. */
+    private static RexNode expandedCondition(LogicalFilter filter) {
+      return RexUtil.expandSearch(filter.getCluster().getRexBuilder(), null,
           filter.getCondition());
     }
   }
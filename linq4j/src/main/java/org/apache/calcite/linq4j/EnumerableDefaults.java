@@ -1148,6 +1148,38 @@ public void close() {
     };
   }
 
+  /**
+   * Correlates the elements of two sequences based on matching keys of type
+   * {@code long}.
+   *
+   * <p>Behaves like
+   * {@link #join(Enumerable, Enumerable, Function1, Function1, Function2, EqualityComparer, boolean, boolean)},
+   * but builds the inner input into a hash table keyed by primitive values.
+   * Keys are never boxed, and rows that share a key are chained through an
+   * array of row indexes rather than a list per key.
+   *
+   * <p>Key selectors must not be applied to rows whose key is null; the
+   * caller is responsible for only using this method when both keys are
+   * NOT NULL.
+   */
+  public static <TSource, TInner, TResult> Enumerable<TResult> hashJoinLong(
+      final Enumerable<TSource> outer, final Enumerable<TInner> inner,
+      final LongFunction1<TSource> outerKeySelector,
+      final LongFunction1<TInner> innerKeySelector,
+      final Function2<TSource, TInner, TResult> resultSelector,
+      final boolean generateNullsOnLeft,
+      final boolean generateNullsOnRight) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        final LongHashTable<TInner> table =
+            LongHashTable.of(inner, innerKeySelector);
+        return new LongHashJoinEnumerator<>(outer.enumerator(), table,
+            outerKeySelector, resultSelector, generateNullsOnLeft,
+            generateNullsOnRight);
+      }
+    };
+  }
+
   /**
    * Returns elements of {@code outer} for which there is a member of
    * {@code inner} with a matching key. A specified
@@ -1247,6 +1279,132 @@ private void closeInner() {
     };
   }
 
+  /**
+   * Joins each batch of up to {@code batchSize} elements of {@code outer}
+   * with the elements that {@code inner} returns for that batch. A pair
+   * is returned if it satisfies {@code predicate}.
+   *
+   * <p>{@code inner} is called once per batch, with a list of exactly
+   * {@code batchSize} elements; if fewer outer elements remain, the last one
+   * is repeated. Its result must contain every inner element that matches
+   * any outer element of the batch.
+   *
+   * <p>Elements are returned in the order of {@code outer}.
+   */
+  public static <TSource, TInner, TResult> Enumerable<TResult>
+      correlateBatchJoin(final CorrelateJoinType joinType,
+      final Enumerable<TSource> outer,
+      final Function1<List<TSource>, Enumerable<TInner>> inner,
+      final Function2<TSource, TInner, TResult> resultSelector,
+      final Predicate2<TSource, TInner> predicate, final int batchSize) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        return new Enumerator<TResult>() {
+          private final Enumerator<TSource> outerEnumerator =
+              outer.enumerator();
+          private final List<TSource> outerValues =
+              new ArrayList<>(batchSize);
+          private List<TInner> innerValues = ImmutableList.of();
+          private int outerIndex = 0;
+          private int innerIndex = -1;
+          private boolean matched;
+          TSource outerValue;
+          TInner innerValue;
+
+          public TResult current() {
+            return resultSelector.apply(outerValue, innerValue);
+          }
+
+          public boolean moveNext() {
+            while (true) {
+              if (outerIndex >= outerValues.size() && !nextBatch()) {
+                return false;
+              }
+              final TSource o = outerValues.get(outerIndex);
+              while (++innerIndex < innerValues.size()) {
+                final TInner i = innerValues.get(innerIndex);
+                if (!predicate.apply(o, i)) {
+                  continue;
+                }
+                matched = true;
+                switch (joinType) {
+                case ANTI:
+                  innerIndex = innerValues.size();
+                  continue;
+                case SEMI:
+                  innerIndex = innerValues.size();
+                  outerValue = o;
+                  innerValue = null;
+                  return true;
+                default:
+                  outerValue = o;
+                  innerValue = i;
+                  return true;
+                }
+              }
+              final boolean wasMatched = matched;
+              ++outerIndex;
+              innerIndex = -1;
+              matched = false;
+              if (!wasMatched) {
+                switch (joinType) {
+                case LEFT:
+                case ANTI:
+                  outerValue = o;
+                  innerValue = null;
+                  return true;
+                }
+              }
+            }
+          }
+
+          /** Reads the next batch of outer elements, and the inner elements
+           * that may match them. */
+          private boolean nextBatch() {
+            outerValues.clear();
+            while (outerValues.size() < batchSize
+                && outerEnumerator.moveNext()) {
+              outerValues.add(outerEnumerator.current());
+            }
+            outerIndex = 0;
+            innerIndex = -1;
+            if (outerValues.isEmpty()) {
+              innerValues = ImmutableList.of();
+              return false;
+            }
+            final List<TSource> arguments = new ArrayList<>(outerValues);
+            final TSource last = arguments.get(arguments.size() - 1);
+            while (arguments.size() < batchSize) {
+              arguments.add(last);
+            }
+            final Enumerable<TInner> innerEnumerable = inner.apply(arguments);
+            innerValues = innerEnumerable == null
+                ? ImmutableList.of()
+                : innerEnumerable.toList();
+            return true;
+          }
+
+          public void reset() {
+            outerEnumerator.reset();
+            outerValues.clear();
+            innerValues = ImmutableList.of();
+            outerIndex = 0;
+            innerIndex = -1;
+            matched = false;
+          }
+
+          public void close() {
+            outerEnumerator.close();
+            outerValues.clear();
+            innerValues = ImmutableList.of();
+            outerValue = null;
+            innerValue = null;
+          }
+        };
+      }
+    };
+  }
+
   /**
    * Returns the last element of a sequence. (Defined
    * by Enumerable.)
@@ -3329,6 +3487,213 @@ public void reset() {
     public void close() {
     }
   }
+
+  /** Hash table whose keys are primitive {@code long} values, used by
+   * {@link #hashJoinLong}.
+   *
+   * <p>Slots are found by open addressing with linear probing. Each slot holds
+   * the index of the first row with that key; further rows with the same key
+   * are chained through {@link #next}, in the order they were read.
+   *
+   * @param <T> row type */
+  static class LongHashTable<T> {
+    private final Object[] rows;
+    /** Key of each slot; valid only if the slot's head is not -1. */
+    private final long[] keys;
+    /** Index of the first row in each slot, or -1 if the slot is empty. */
+    final int[] heads;
+    /** Index of the next row with the same key, or -1. */
+    final int[] next;
+    private final int mask;
+
+    private LongHashTable(Object[] rows, long[] rowKeys, int rowCount) {
+      this.rows = rows;
+      final int capacity = Integer.highestOneBit(Math.max(rowCount, 1)) << 2;
+      this.keys = new long[capacity];
+      this.heads = new int[capacity];
+      this.next = new int[rowCount];
+      this.mask = capacity - 1;
+      Arrays.fill(heads, -1);
+      // Insert in reverse order so that each chain is in read order.
+      for (int i = rowCount - 1; i >= 0; i--) {
+        final long key = rowKeys[i];
+        int slot = hash(key) & mask;
+        for (;;) {
+          if (heads[slot] < 0) {
+            keys[slot] = key;
+            next[i] = -1;
+            break;
+          }
+          if (keys[slot] == key) {
+            next[i] = heads[slot];
+            break;
+          }
+          slot = (slot + 1) & mask;
+        }
+        heads[slot] = i;
+      }
+    }
+
+    /** Reads an input and builds a hash table over its rows. */
+    static <T> LongHashTable<T> of(Enumerable<T> input,
+        LongFunction1<T> keySelector) {
+      Object[] rows = new Object[16];
+      long[] rowKeys = new long[16];
+      int rowCount = 0;
+      try (Enumerator<T> enumerator = input.enumerator()) {
+        while (enumerator.moveNext()) {
+          final T row = enumerator.current();
+          if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, rowCount * 2);
+            rowKeys = Arrays.copyOf(rowKeys, rowCount * 2);
+          }
+          rows[rowCount] = row;
+          rowKeys[rowCount] = keySelector.apply(row);
+          ++rowCount;
+        }
+      }
+      return new LongHashTable<>(rows, rowKeys, rowCount);
+    }
+
+    private static int hash(long key) {
+      // Mix the bits so that sequential keys do not cluster
+      final long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+
+    /** Returns the slot that holds a given key, or -1. */
+    int slot(long key) {
+      int slot = hash(key) & mask;
+      for (;;) {
+        if (heads[slot] < 0) {
+          return -1;
+        }
+        if (keys[slot] == key) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    int slotCount() {
+      return heads.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    T row(int i) {
+      return (T) rows[i];
+    }
+  }
+
+  /** Enumerator that probes a {@link LongHashTable} with the rows of the
+   * outer input, for {@link #hashJoinLong}.
+   *
+   * @param <TResult> result type
+   * @param <TSource> left input record type
+   * @param <TInner> right input record type */
+  private static class LongHashJoinEnumerator<TResult, TSource, TInner>
+      implements Enumerator<TResult> {
+    private final Enumerator<TSource> outers;
+    private final LongHashTable<TInner> table;
+    private final LongFunction1<TSource> outerKeySelector;
+    private final Function2<TSource, TInner, TResult> resultSelector;
+    private final boolean generateNullsOnRight;
+    /** Slots whose key has been seen on the left; null unless this is a
+     * RIGHT or FULL join. */
+    private final boolean[] matchedSlots;
+    private TSource outer;
+    /** Current inner row; -1 means null, -2 means none yet. */
+    private int innerRow;
+    /** Slot whose unmatched rows are being emitted after the outer input is
+     * exhausted, or -1 while the outer input is still being read. */
+    private int leftoverSlot = -1;
+
+    LongHashJoinEnumerator(Enumerator<TSource> outers,
+        LongHashTable<TInner> table, LongFunction1<TSource> outerKeySelector,
+        Function2<TSource, TInner, TResult> resultSelector,
+        boolean generateNullsOnLeft, boolean generateNullsOnRight) {
+      this.outers = outers;
+      this.table = table;
+      this.outerKeySelector = outerKeySelector;
+      this.resultSelector = resultSelector;
+      this.generateNullsOnRight = generateNullsOnRight;
+      this.matchedSlots =
+          generateNullsOnLeft ? new boolean[table.slotCount()] : null;
+      this.innerRow = -2;
+    }
+
+    public TResult current() {
+      return resultSelector.apply(outer,
+          innerRow < 0 ? null : table.row(innerRow));
+    }
+
+    public boolean moveNext() {
+      if (innerRow >= 0) {
+        innerRow = table.next[innerRow];
+        if (innerRow >= 0) {
+          return true;
+        }
+      }
+      if (leftoverSlot >= 0) {
+        return nextLeftover();
+      }
+      for (;;) {
+        if (!outers.moveNext()) {
+          if (matchedSlots != null) {
+            // The left input is exhausted. For a RIGHT or FULL join, emit
+            // the right rows whose key was never seen on the left.
+            outer = null;
+            leftoverSlot = 0;
+            return nextLeftover();
+          }
+          return false;
+        }
+        outer = outers.current();
+        int slot = -1;
+        if (outer != null) {
+          slot = table.slot(outerKeySelector.apply(outer));
+        }
+        if (slot >= 0) {
+          if (matchedSlots != null) {
+            matchedSlots[slot] = true;
+          }
+          innerRow = table.heads[slot];
+          return true;
+        }
+        if (generateNullsOnRight) {
+          innerRow = -1;
+          return true;
+        }
+      }
+    }
+
+    /** Moves to the next right row whose key did not match any left row. */
+    private boolean nextLeftover() {
+      while (leftoverSlot < table.slotCount()) {
+        final int slot = leftoverSlot++;
+        if (table.heads[slot] >= 0 && !matchedSlots[slot]) {
+          innerRow = table.heads[slot];
+          return true;
+        }
+      }
+      innerRow = -2;
+      return false;
+    }
+
+    public void reset() {
+      outers.reset();
+      if (matchedSlots != null) {
+        Arrays.fill(matchedSlots, false);
+      }
+      outer = null;
+      innerRow = -2;
+      leftoverSlot = -1;
+    }
+
+    public void close() {
+      outers.close();
+    }
+  }
 }
 
 // End EnumerableDefaults.java
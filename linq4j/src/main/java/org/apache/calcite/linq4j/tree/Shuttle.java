@@ -121,9 +121,13 @@ public Shuttle preVisit(FunctionExpression functionExpression) {
 
   public Expression visit(FunctionExpression functionExpression,
       BlockStatement body) {
+    // Keep the declared type of the function (say LongFunction1); it cannot
+    // be re-deduced from the new body.
+    //noinspection unchecked
     return functionExpression.body.equals(body)
         ? functionExpression
-        : Expressions.lambda(body, functionExpression.parameterList);
+        : new FunctionExpression<>((Class) functionExpression.type, body,
+            functionExpression.parameterList);
   }
 
   public Shuttle preVisit(BinaryExpression binaryExpression) {
@@ -18,6 +18,7 @@
 
 import org.apache.calcite.linq4j.CorrelateJoinType;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.function.Function2;
@@ -27,12 +28,16 @@
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
 
 /**
  * Tests {@link org.apache.calcite.linq4j.ExtendedEnumerable#correlateJoin}
+ * and {@link EnumerableDefaults#correlateBatchJoin}.
  */
 public class CorrelateJoinTest {
   static final Function2<Integer, Integer, Integer[]> SELECT_BOTH =
@@ -77,25 +82,51 @@ public class CorrelateJoinTest {
   public void testJoin(CorrelateJoinType joinType, Integer[][] expected) {
     Enumerable<Integer[]> join =
         Linq4j.asEnumerable(ImmutableList.of(1, 2, 3, 10, 20, 30))
-            .correlateJoin(joinType, a0 -> {
-              if (a0 == 1 || a0 == 10) {
-                return Linq4j.emptyEnumerable();
-              }
-              if (a0 == 2 || a0 == 20) {
-                return Linq4j.singletonEnumerable(a0 * 10);
-              }
-              if (a0 == 3 || a0 == 30) {
-                return Linq4j.asEnumerable(
-                    ImmutableList.of(-a0 * 10, -a0 * 20));
-              }
-              throw new IllegalArgumentException(
-                  "Unexpected input " + a0);
-            }, SELECT_BOTH);
+            .correlateJoin(joinType, CorrelateJoinTest::inner, SELECT_BOTH);
     for (int i = 0; i < 2; i++) {
       Enumerator<Integer[]> e = join.enumerator();
       checkResults(e, expected);
       e.close();
     }
+
+    // Batches of 4 outer rows; the second batch is padded
+    final List<List<Integer>> batches = new ArrayList<>();
+    Enumerable<Integer[]> batchJoin =
+        EnumerableDefaults.correlateBatchJoin(joinType,
+            Linq4j.asEnumerable(ImmutableList.of(1, 2, 3, 10, 20, 30)),
+            list -> {
+              batches.add(list);
+              return Linq4j.asEnumerable(
+                  new LinkedHashSet<>(
+                      Linq4j.asEnumerable(list)
+                          .selectMany(CorrelateJoinTest::inner)
+                          .toList()));
+            },
+            SELECT_BOTH,
+            (a0, a1) -> inner(a0).contains(a1),
+            4);
+    for (int i = 0; i < 2; i++) {
+      Enumerator<Integer[]> e = batchJoin.enumerator();
+      checkResults(e, expected);
+      e.close();
+    }
+    assertThat(batches.toString(),
+        is("[[1, 2, 3, 10], [20, 30, 30, 30], [1, 2, 3, 10], [20, 30, 30, 30]]"));
+  }
+
+  private static Enumerable<Integer> inner(Integer a0) {
+    if (a0 == 1 || a0 == 10) {
+      return Linq4j.emptyEnumerable();
+    }
+    if (a0 == 2 || a0 == 20) {
+      return Linq4j.singletonEnumerable(a0 * 10);
+    }
+    if (a0 == 3 || a0 == 30) {
+      return Linq4j.asEnumerable(
+          ImmutableList.of(-a0 * 10, -a0 * 20));
+    }
+    throw new IllegalArgumentException(
+        "Unexpected input " + a0);
   }
 
   private void checkResults(Enumerator<Integer[]> e, Integer[][] expected) {
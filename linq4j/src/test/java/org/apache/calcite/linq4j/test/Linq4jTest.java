@@ -1071,6 +1071,76 @@ public int hashCode(Integer integer) {
         s);
   }
 
+  @Test public void testHashJoinLong() {
+    // Same as testJoin, testLeftJoin, testRightJoin and testFullJoin, but
+    // using a table keyed by primitive longs.
+    final Function2<Employee, Department, String> resultSelector =
+        (v1, v2) -> (v1 == null ? null : v1.name)
+            + " works in " + (v2 == null ? null : v2.name);
+    final List<Employee> empList = Lists.newArrayList(emps);
+    empList.addAll(Arrays.asList(badEmps));
+    final Enumerable<Employee> emps2 = Linq4j.asEnumerable(empList);
+    final Enumerable<Department> depts2 = Linq4j.asEnumerable(depts);
+    assertThat(
+        EnumerableDefaults.hashJoinLong(emps2, depts2, e -> e.deptno,
+            d -> d.deptno, resultSelector, false, false)
+            .toList().toString(),
+        equalTo("[Fred works in Sales, "
+            + "Bill works in Marketing, "
+            + "Eric works in Sales, "
+            + "Janet works in Sales]"));
+    assertThat(
+        EnumerableDefaults.hashJoinLong(emps2, depts2, e -> e.deptno,
+            d -> d.deptno, resultSelector, false, true)
+            .toList().toString(),
+        equalTo("[Fred works in Sales, "
+            + "Bill works in Marketing, "
+            + "Eric works in Sales, "
+            + "Janet works in Sales, "
+            + "Cedric works in null]"));
+    assertThat(
+        EnumerableDefaults.hashJoinLong(emps2, depts2, e -> e.deptno,
+            d -> d.deptno, resultSelector, true, false)
+            .toList().toString(),
+        equalTo("[Fred works in Sales, "
+            + "Bill works in Marketing, "
+            + "Eric works in Sales, "
+            + "Janet works in Sales, "
+            + "null works in HR]"));
+    assertThat(
+        EnumerableDefaults.hashJoinLong(emps2, depts2, e -> e.deptno,
+            d -> d.deptno, resultSelector, true, true)
+            .toList().toString(),
+        equalTo("[Fred works in Sales, "
+            + "Bill works in Marketing, "
+            + "Eric works in Sales, "
+            + "Janet works in Sales, "
+            + "Cedric works in null, "
+            + "null works in HR]"));
+  }
+
+  @Test public void testHashJoinLongDuplicateKeys() {
+    // Many rows per key, and enough keys to force collisions; rows with the
+    // same key must come out in the order they were read.
+    final List<Integer> lefts = new ArrayList<>();
+    final List<Integer> rights = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      lefts.add(i);
+      rights.add(i * 3);
+      rights.add(i * 3 + 1);
+      rights.add(i * 3 + 2);
+    }
+    final List<String> list =
+        EnumerableDefaults.hashJoinLong(Linq4j.asEnumerable(lefts),
+            Linq4j.asEnumerable(rights), i -> i * 7L, i -> (i / 3) * 7L,
+            (i, j) -> i + ":" + j, false, false)
+            .toList();
+    assertThat(list.size(), equalTo(3000));
+    assertThat(list.subList(0, 6).toString(),
+        equalTo("[0:0, 0:1, 0:2, 1:3, 1:4, 1:5]"));
+    assertThat(list.get(2999), equalTo("999:2999"));
+  }
+
   @Test public void testJoinCartesianProduct() {
     int n =
         Linq4j.asEnumerable(emps)
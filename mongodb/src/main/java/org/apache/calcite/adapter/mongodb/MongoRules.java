@@ -36,6 +36,7 @@
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.rex.RexVisitorImpl;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlOperator;
@@ -298,7 +299,8 @@ public RelNode convert(RelNode rel) {
           rel.getCluster(),
           traitSet,
           convert(filter.getInput(), out),
-          filter.getCondition());
+          RexUtil.expandSearch(rel.getCluster().getRexBuilder(), null,
+              filter.getCondition()));
     }
   }
 
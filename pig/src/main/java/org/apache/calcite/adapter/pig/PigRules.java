@@ -26,6 +26,7 @@
 import org.apache.calcite.rel.logical.LogicalJoin;
 import org.apache.calcite.rel.logical.LogicalProject;
 import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rex.RexUtil;
 
 import com.google.common.collect.ImmutableList;
 
@@ -61,7 +62,9 @@ public RelNode convert(RelNode rel) {
       final LogicalFilter filter = (LogicalFilter) rel;
       final RelTraitSet traitSet = filter.getTraitSet().replace(PigRel.CONVENTION);
       return new PigFilter(rel.getCluster(), traitSet,
-          convert(filter.getInput(), PigRel.CONVENTION), filter.getCondition());
+          convert(filter.getInput(), PigRel.CONVENTION),
+          RexUtil.expandSearch(rel.getCluster().getRexBuilder(), null,
+              filter.getCondition()));
     }
   }
 
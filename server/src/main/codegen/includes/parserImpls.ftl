@@ -423,4 +423,16 @@ SqlDrop SqlDropFunction(Span s, boolean replace) :
     }
 }
 
+SqlNode SqlAnalyzeTable() :
+{
+    final Span s;
+    final SqlIdentifier id;
+}
+{
+    <ANALYZE> { s = span(); }
+    <TABLE> id = CompoundIdentifier() {
+        return SqlDdlNodes.analyzeTable(s.end(this), id);
+    }
+}
+
 // End parserImpls.ftl
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.sql.ddl;
+
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.jdbc.CalcitePrepare;
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.prepare.PreparedPlanCache;
+import org.apache.calcite.profile.StatisticsCatalog;
+import org.apache.calcite.profile.TableStatistics;
+import org.apache.calcite.rel.RelRoot;
+import org.apache.calcite.rel.metadata.NullSentinel;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlExecutableStatement;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.sql.SqlSpecialOperator;
+import org.apache.calcite.sql.SqlUtil;
+import org.apache.calcite.sql.SqlWriter;
+import org.apache.calcite.sql.dialect.CalciteSqlDialect;
+import org.apache.calcite.sql.parser.SqlParseException;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.calcite.tools.FrameworkConfig;
+import org.apache.calcite.tools.Frameworks;
+import org.apache.calcite.tools.Planner;
+import org.apache.calcite.tools.RelConversionException;
+import org.apache.calcite.tools.ValidationException;
+import org.apache.calcite.util.Pair;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.calcite.util.Static.RESOURCE;
+
+/**
+ * Parse tree for {@code ANALYZE TABLE} statement.
+ *
+ * <p>Reads every row of the table, computes statistics about its columns
+ * (see {@link TableStatistics}), and records them in
+ * {@link StatisticsCatalog}, where the planner will find them. Plans in the
+ * {@link PreparedPlanCache} were costed using the old statistics, so they are
+ * removed.
+ *
+ * <p>The rows are read once, as they are needed; only bounded samples of
+ * rows are held in memory.
+ */
+public class SqlAnalyzeTable extends SqlCall
+    implements SqlExecutableStatement {
+  /** Number of buckets in the histogram of each column. */
+  private static final int BUCKET_COUNT = 100;
+
+  /** Maximum number of rows from which to estimate distinct values and build
+   * histograms. */
+  private static final int SAMPLE_SIZE = 100_000;
+
+  private static final SqlOperator OPERATOR =
+      new SqlSpecialOperator("ANALYZE TABLE", SqlKind.OTHER_DDL);
+
+  private final SqlIdentifier name;
+
+  /** Creates a SqlAnalyzeTable. */
+  SqlAnalyzeTable(SqlParserPos pos, SqlIdentifier name) {
+    super(pos);
+    this.name = Objects.requireNonNull(name);
+  }
+
+  public SqlOperator getOperator() {
+    return OPERATOR;
+  }
+
+  public List<SqlNode> getOperandList() {
+    return ImmutableList.of(name);
+  }
+
+  @Override public void unparse(SqlWriter writer, int leftPrec, int rightPrec) {
+    writer.keyword("ANALYZE");
+    writer.keyword("TABLE");
+    name.unparse(writer, leftPrec, rightPrec);
+  }
+
+  public void execute(CalcitePrepare.Context context) {
+    final Pair<CalciteSchema, String> pair =
+        SqlDdlNodes.schema(context, false, name);
+    final CalciteSchema.TableEntry entry = pair.left.getTable(pair.right, true);
+    if (entry == null) {
+      throw SqlUtil.newContextException(name.getParserPosition(),
+          RESOURCE.tableNotFound(pair.right));
+    }
+    final Table table = entry.getTable();
+
+    // Read the rows by executing "SELECT * FROM table".
+    final FrameworkConfig config = Frameworks.newConfigBuilder()
+        .defaultSchema(context.getRootSchema().plus())
+        .build();
+    final Planner planner = Frameworks.getPlanner(config);
+    final TableStatistics statistics;
+    try {
+      final String sql = "SELECT * FROM "
+          + name.toSqlString(CalciteSqlDialect.DEFAULT).getSql();
+      final SqlNode query = planner.validate(planner.parse(sql));
+      final RelRoot r = planner.rel(query);
+      final List<String> columnNames = r.validatedRowType.getFieldNames();
+      try (PreparedStatement prepare = context.getRelRunner().prepare(r.rel);
+           ResultSet resultSet = prepare.executeQuery()) {
+        statistics =
+            TableStatistics.analyze(rows(resultSet, columnNames.size()),
+                columnNames, BUCKET_COUNT, SAMPLE_SIZE);
+      }
+    } catch (SqlParseException | ValidationException
+        | RelConversionException | SQLException e) {
+      throw new RuntimeException(e);
+    } finally {
+      planner.close();
+    }
+
+    final String rowType =
+        table.getRowType(context.getTypeFactory()).getFullTypeString();
+    StatisticsCatalog.INSTANCE.put(pair.left.path(pair.right), table, rowType,
+        statistics);
+
+    final PreparedPlanCache planCache =
+        PreparedPlanCache.of(context.getMutableRootSchema());
+    if (planCache != null) {
+      planCache.invalidateAll();
+    }
+  }
+
+  /** Returns the rows of a result set. Rows are read as they are needed, and
+   * are not retained, so the rows can be iterated over only once. */
+  private static Iterable<List<Comparable>> rows(ResultSet resultSet,
+      int columnCount) {
+    final AtomicBoolean iterated = new AtomicBoolean();
+    return () -> {
+      Preconditions.checkState(!iterated.getAndSet(true),
+          "rows can be read only once");
+      return new AbstractIterator<List<Comparable>>() {
+        @Override protected List<Comparable> computeNext() {
+          try {
+            if (!resultSet.next()) {
+              return endOfData();
+            }
+            final Comparable[] row = new Comparable[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+              row[i] = comparable(resultSet.getObject(i + 1));
+            }
+            return Arrays.asList(row);
+          } catch (SQLException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+    };
+  }
+
+  /** Converts a value from a result set to a value that can be profiled. */
+  private static Comparable comparable(Object o) {
+    if (o == null) {
+      return NullSentinel.INSTANCE;
+    } else if (o instanceof byte[]) {
+      return new ByteString((byte[]) o);
+    } else if (o instanceof Comparable) {
+      return (Comparable) o;
+    } else {
+      return o.toString();
+    }
+  }
+}
+
+// End SqlAnalyzeTable.java
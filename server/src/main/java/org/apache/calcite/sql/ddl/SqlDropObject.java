@@ -18,6 +18,7 @@
 
 import org.apache.calcite.jdbc.CalcitePrepare;
 import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.profile.StatisticsCatalog;
 import org.apache.calcite.sql.SqlDrop;
 import org.apache.calcite.sql.SqlExecutableStatement;
 import org.apache.calcite.sql.SqlIdentifier;
@@ -70,7 +71,13 @@ public void execute(CalcitePrepare.Context context) {
     switch (getKind()) {
     case DROP_TABLE:
     case DROP_MATERIALIZED_VIEW:
+      final CalciteSchema.TableEntry entry =
+          schema.getTable(name.getSimple(), true);
       existed = schema.removeTable(name.getSimple());
+      if (existed) {
+        StatisticsCatalog.INSTANCE.remove(schema.path(name.getSimple()),
+            entry == null ? null : entry.getTable());
+      }
       if (!existed && !ifExists) {
         throw SqlUtil.newContextException(name.getParserPosition(),
             RESOURCE.tableNotFound(name.getSimple()));
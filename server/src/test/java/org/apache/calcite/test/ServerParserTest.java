@@ -305,6 +305,11 @@ public class ServerParserTest extends SqlParserTest {
     sql(sql).ok(expected);
   }
 
+  @Test public void testAnalyzeTable() {
+    sql("analyze table x.y")
+        .ok("ANALYZE TABLE `X`.`Y`");
+  }
+
 }
 
 // End ServerParserTest.java
@@ -17,6 +17,9 @@
 package org.apache.calcite.test;
 
 import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.prepare.PreparedPlanCache;
 import org.apache.calcite.sql.parser.ddl.SqlDdlParserImpl;
 
 import org.junit.Ignore;
@@ -29,6 +32,8 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.apache.calcite.test.Matchers.isLinux;
 
@@ -323,6 +328,94 @@ static Connection connect() throws SQLException {
       }
     }
   }
+
+  /** Tests that {@code ANALYZE TABLE} computes statistics that the planner
+   * uses to estimate row counts. */
+  @Test public void testAnalyzeTable() throws Exception {
+    try (Connection c = connect();
+         Statement s = c.createStatement()) {
+      boolean b = s.execute("create table t (i int, s varchar(10))");
+      assertThat(b, is(false));
+      int x = s.executeUpdate("insert into t values (1, 'a'), (2, 'a'),\n"
+          + " (3, 'a'), (4, 'a'), (5, 'b'), (6, 'b'), (7, 'c'), (8, 'd'),\n"
+          + " (9, null), (10, null)");
+      assertThat(x, is(10));
+
+      // Before ANALYZE TABLE, the planner guesses
+      final String sql = "select * from t where i < 4";
+      assertThat(rowCount(s, sql), is(50D));
+
+      b = s.execute("analyze table t");
+      assertThat(b, is(false));
+
+      // 3 of the 10 rows satisfy the predicate
+      assertThat(rowCount(s, "select * from t"), is(10D));
+      assertThat(rowCount(s, sql), is(3D));
+      assertThat(rowCount(s, "select * from t where i >= 4"), is(7D));
+      assertThat(rowCount(s, "select * from t where s = 'a'"), is(4D));
+      assertThat(rowCount(s, "select * from t where s is null"), is(2D));
+      // 4 distinct values of "s", plus null
+      assertThat(rowCount(s, "select distinct s from t"), is(5D));
+
+      // Statistics do not survive dropping and re-creating the table
+      b = s.execute("drop table t");
+      assertThat(b, is(false));
+      b = s.execute("create table t (i int, s varchar(10))");
+      assertThat(b, is(false));
+      assertThat(rowCount(s, sql), is(50D));
+    }
+  }
+
+  /** Tests that {@code ANALYZE TABLE} removes plans from the cache of
+   * prepared plans, because they were costed using the old statistics. */
+  @Test public void testAnalyzeTableInvalidatesPlanCache() throws Exception {
+    try (Connection c = DriverManager.getConnection(URL,
+             CalciteAssert.propBuilder()
+                 .set(CalciteConnectionProperty.PARSER_FACTORY,
+                     SqlDdlParserImpl.class.getName() + "#FACTORY")
+                 .set(CalciteConnectionProperty.PREPARED_PLAN_CACHE_SIZE,
+                     "10")
+                 .build());
+         Statement s = c.createStatement()) {
+      s.execute("create table t (i int, s varchar(10))");
+      s.executeUpdate("insert into t values (1, 'a'), (2, 'b')");
+      try (ResultSet r = s.executeQuery("select * from t where i < 2")) {
+        assertThat(r.next(), is(true));
+      }
+      final PreparedPlanCache planCache =
+          PreparedPlanCache.of(
+              CalciteSchema.from(
+                  c.unwrap(CalciteConnection.class).getRootSchema()));
+      assertThat(planCache.size(), is(1L));
+
+      s.execute("analyze table t");
+      assertThat(planCache.size(), is(0L));
+    }
+  }
+
+  @Test public void testAnalyzeTableNotFound() throws Exception {
+    try (Connection c = connect();
+         Statement s = c.createStatement()) {
+      s.execute("analyze table t");
+      fail("expected error");
+    } catch (SQLException e) {
+      assertThat(e.getMessage(), containsString("Table 'T' not found"));
+    }
+  }
+
+  /** Returns the number of rows that the planner estimates that a query will
+   * return. */
+  private static double rowCount(Statement s, String sql) throws SQLException {
+    try (ResultSet r =
+             s.executeQuery("explain plan including all attributes for "
+                 + sql)) {
+      assertThat(r.next(), is(true));
+      final Matcher m =
+          Pattern.compile("rowcount = ([0-9.E]+)").matcher(r.getString(1));
+      assertThat(m.find(), is(true));
+      return Double.parseDouble(m.group(1));
+    }
+  }
 }
 
 // End ServerTest.java
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.benchmarks;
+
+import org.apache.calcite.runtime.LikeMatcher;
+import org.apache.calcite.runtime.SqlFunctions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks SQL {@code LIKE} over a batch of URL-like strings.
+ *
+ * <p>{@link #regex()} translates the pattern to a regular expression in
+ * advance, but compiles it for every row, as {@code SqlFunctions.like} used to
+ * do; {@link #dynamic()} calls {@link SqlFunctions#like(String, String)},
+ * which looks up the pattern in a cache for every row; {@link #compiled()}
+ * uses a {@link LikeMatcher} created once, as generated code does when the
+ * pattern is a literal.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LikeBenchmark {
+  private static final String[] SEGMENTS = {
+      "home", "cart", "checkout", "search", "product", "account", "help"
+  };
+
+  @Param({ "/home%", "%.html", "%/checkout/%", "/%/item_.html" })
+  String pattern;
+
+  @Param({ "1000" })
+  int rowCount;
+
+  String[] rows;
+  String regex;
+  LikeMatcher matcher;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    rows = new String[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      final StringBuilder b = new StringBuilder();
+      final int depth = 1 + random.nextInt(4);
+      for (int j = 0; j < depth; j++) {
+        b.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+      }
+      b.append("/item").append(random.nextInt(10)).append(".html");
+      rows[i] = b.toString();
+    }
+    regex = toRegex(pattern);
+    matcher = LikeMatcher.like(pattern);
+  }
+
+  /** Translates a LIKE pattern without escapes to a regular expression. */
+  private static String toRegex(String pattern) {
+    final StringBuilder b = new StringBuilder();
+    for (char c : pattern.toCharArray()) {
+      switch (c) {
+      case '%':
+        b.append("(?s:.*)");
+        break;
+      case '_':
+        b.append('.');
+        break;
+      default:
+        b.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return b.toString();
+  }
+
+  @Benchmark
+  public int regex() {
+    int n = 0;
+    for (String row : rows) {
+      if (Pattern.matches(regex, row)) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  @Benchmark
+  public int dynamic() {
+    int n = 0;
+    for (String row : rows) {
+      if (SqlFunctions.like(row, pattern)) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  @Benchmark
+  public int compiled() {
+    int n = 0;
+    for (String row : rows) {
+      if (matcher.matches(row)) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(LikeBenchmark.class.getSimpleName())
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+}
+
+// End LikeBenchmark.java
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.benchmarks;
+
+import org.apache.calcite.config.CalciteConnectionProperty;
+
+import net.hydromatic.tpcds.query.Query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the time to plan TPC-DS queries when the Volcano planner fires
+ * rules in one thread and in several threads.
+ *
+ * <p>Each operation prepares "EXPLAIN PLAN FOR" the query, so it measures
+ * parsing, validation, conversion to relational algebra and planning, but
+ * not code generation.
+ *
+ * @see org.apache.calcite.plan.volcano.VolcanoPlanner#setParallelism(int)
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx1g")
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PlannerParallelismBenchmark {
+  private static final String MODEL = "{\n"
+      + "  version: '1.0',\n"
+      + "  defaultSchema: 'TPCDS',\n"
+      + "  schemas: [ {\n"
+      + "    type: 'custom',\n"
+      + "    name: 'TPCDS',\n"
+      + "    factory: 'org.apache.calcite.adapter.tpcds.TpcdsSchemaFactory',\n"
+      + "    operand: {\n"
+      + "      columnPrefix: true,\n"
+      + "      scale: 0.01\n"
+      + "    }\n"
+      + "  } ]\n"
+      + "}";
+
+  /** Number of the TPC-DS query. */
+  @Param({ "17", "27" })
+  int query;
+
+  /** Number of threads that fire rules. */
+  @Param({ "1", "2", "4" })
+  int parallelism;
+
+  Connection connection;
+  String sql;
+
+  @Setup
+  public void setup() throws SQLException {
+    final Properties info = new Properties();
+    info.put("model", "inline:" + MODEL);
+    info.put(CalciteConnectionProperty.PLANNER_PARALLELISM.camelName(),
+        Integer.toString(parallelism));
+    connection = DriverManager.getConnection("jdbc:calcite:", info);
+    sql = "explain plan for " + Query.of(query).sql(new Random(0));
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  public String plan() throws SQLException {
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getString(1);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(PlannerParallelismBenchmark.class.getSimpleName())
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+}
+
+// End PlannerParallelismBenchmark.java